@@ -0,0 +1,79 @@
+package com.gizbel.excel.benchmarks;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.ProfilerConfig;
+
+/**
+ * Main class of benchmarks.jar, runs the benchmarks selected by the usual
+ * JMH command line with the GC profiler on and the results written as JSON
+ * (jmh-result.json unless -rff is given) so that releases can be compared.
+ * Ends with the bytes allocated per row of every benchmark.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar                      all the benchmarks
+ * java -jar target/benchmarks.jar ParseBenchmark -p format=xlsx -p rows=5000000
+ * </pre>
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListWithParams()
+                || commandLine.shouldListProfilers() || commandLine.shouldListResultFormats()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+        boolean gcProfiled = false;
+        for (ProfilerConfig profiler : commandLine.getProfilers())
+            gcProfiled |= "gc".equals(profiler.getKlass()) || GCProfiler.class.getName().equals(profiler.getKlass());
+        if (!gcProfiled)
+            options.addProfiler(GCProfiler.class);
+        if (!commandLine.getResultFormat().hasValue())
+            options.resultFormat(ResultFormatType.JSON);
+
+        Collection<RunResult> results = new Runner(options.build()).run();
+        printBytesPerRow(results);
+    }
+
+    /**
+     * Divides the normalized allocation rate by the rows of an operation, the
+     * rows counter of ParseBenchmark or 1 for the benchmarks already per row.
+     */
+    private static void printBytesPerRow(Collection<RunResult> results) {
+        System.out.println();
+        System.out.println("Allocation per row");
+        for (RunResult result : results) {
+            // JMH declares the values with the raw Result type
+            Map<String, ?> secondary = result.getSecondaryResults();
+            Result<?> allocation = null;
+            for (Map.Entry<String, ?> entry : secondary.entrySet()) {
+                if (entry.getKey().endsWith("gc.alloc.rate.norm"))
+                    allocation = (Result<?>) entry.getValue();
+            }
+            if (allocation == null)
+                continue;
+            double rowsPerOperation = 1;
+            Result<?> rows = (Result<?>) secondary.get("rows");
+            if (rows != null && result.getPrimaryResult().getScore() > 0)
+                rowsPerOperation = rows.getScore() / result.getPrimaryResult().getScore();
+
+            StringBuilder name = new StringBuilder(result.getParams().getBenchmark());
+            name.delete(0, name.lastIndexOf(".", name.lastIndexOf(".") - 1) + 1);
+            for (String key : result.getParams().getParamsKeys())
+                name.append(' ').append(key).append('=').append(result.getParams().getParam(key));
+            System.out.println(String.format("%-90s %12.1f B/row", name, allocation.getScore() / rowsPerOperation));
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.gizbel.excel.benchmarks;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.gizbel.excel.annotations.ExcelBean;
+import com.gizbel.excel.annotations.ExcelColumnIndex;
+import com.gizbel.excel.benchmarks.SyntheticWorkbook.Format;
+import com.gizbel.excel.enums.ExcelFactoryType;
+import com.gizbel.excel.factory.Parser;
+
+/**
+ * Cost of the cell conversions, rows of four columns of a single kind bound
+ * to fields of different types: numbers and dates stored as such or as
+ * text. The time and the allocations are per row of four cells.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ConversionBenchmark {
+
+    static final int ROWS = 10000;
+
+    @Param({ "number", "integer", "date", "number_text", "date_text" })
+    public String kind;
+
+    private LoadedRows rows;
+
+    private Parser<?> parser;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        SyntheticWorkbook generator = new SyntheticWorkbook();
+        generator.setRows(ROWS);
+        generator.setColumns(4);
+        generator.setTypeMix(this.kind + "=1");
+        this.rows = new LoadedRows(generator.cached(SyntheticWorkbook.cacheDir(), Format.XLSX), Format.XLSX);
+        this.parser = newParser(beanClass(this.kind));
+    }
+
+    private static <T> Parser<T> newParser(Class<T> beanClass) throws Exception {
+        return new Parser<T>(beanClass, ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION);
+    }
+
+    private static Class<?> beanClass(String kind) {
+        switch (kind) {
+        case "number":
+            return NumberRow.class;
+        case "integer":
+            return IntegerRow.class;
+        case "date":
+            return DateRow.class;
+        case "number_text":
+            return NumberTextRow.class;
+        case "date_text":
+            return DateTextRow.class;
+        default:
+            throw new IllegalArgumentException("Unknown kind " + kind);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        this.rows.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void bindRows(Blackhole blackhole) throws Exception {
+        for (Row row : this.rows.getRows())
+            blackhole.consume(this.parser.getBeanForARow(row));
+    }
+
+    @ExcelBean
+    public static class NumberRow {
+
+        @ExcelColumnIndex(columnIndex = "0", dataType = "double")
+        private double primitive;
+
+        @ExcelColumnIndex(columnIndex = "1", dataType = "double")
+        private Double boxed;
+
+        @ExcelColumnIndex(columnIndex = "2")
+        private BigDecimal decimal;
+
+        @ExcelColumnIndex(columnIndex = "3")
+        private String text;
+    }
+
+    @ExcelBean
+    public static class IntegerRow {
+
+        @ExcelColumnIndex(columnIndex = "0", dataType = "int")
+        private int primitive;
+
+        @ExcelColumnIndex(columnIndex = "1", dataType = "int")
+        private Integer boxed;
+
+        @ExcelColumnIndex(columnIndex = "2", dataType = "long")
+        private long primitiveLong;
+
+        @ExcelColumnIndex(columnIndex = "3", dataType = "long")
+        private Long boxedLong;
+    }
+
+    @ExcelBean
+    public static class DateRow {
+
+        @ExcelColumnIndex(columnIndex = "0", dataType = "date")
+        private Date date;
+
+        @ExcelColumnIndex(columnIndex = "1")
+        private LocalDate localDate;
+
+        @ExcelColumnIndex(columnIndex = "2")
+        private LocalDateTime localDateTime;
+
+        @ExcelColumnIndex(columnIndex = "3")
+        private Instant instant;
+    }
+
+    /** Same fields as NumberRow, the cells hold text. **/
+    @ExcelBean
+    public static class NumberTextRow {
+
+        @ExcelColumnIndex(columnIndex = "0", dataType = "double")
+        private double primitive;
+
+        @ExcelColumnIndex(columnIndex = "1", dataType = "double")
+        private Double boxed;
+
+        @ExcelColumnIndex(columnIndex = "2")
+        private BigDecimal decimal;
+
+        @ExcelColumnIndex(columnIndex = "3")
+        private String text;
+    }
+
+    /** Same fields as DateRow, the cells hold dd-MM-yyyy text. **/
+    @ExcelBean
+    public static class DateTextRow {
+
+        @ExcelColumnIndex(columnIndex = "0", dataType = "date")
+        private Date date;
+
+        @ExcelColumnIndex(columnIndex = "1")
+        private LocalDate localDate;
+
+        @ExcelColumnIndex(columnIndex = "2")
+        private LocalDateTime localDateTime;
+
+        @ExcelColumnIndex(columnIndex = "3")
+        private Instant instant;
+    }
+}
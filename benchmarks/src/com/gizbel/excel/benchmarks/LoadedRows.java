@@ -0,0 +1,48 @@
+package com.gizbel.excel.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import com.gizbel.excel.benchmarks.SyntheticWorkbook.Format;
+
+/**
+ * Data rows of the first sheet of a workbook loaded in memory, for the
+ * benchmarks binding rows one at a time. xlsx packages are opened read only
+ * so that nothing is written back to the cached file.
+ */
+final class LoadedRows {
+
+    private final Workbook workbook;
+
+    private final List<Row> rows = new ArrayList<Row>();
+
+    LoadedRows(File file, Format format) throws InvalidFormatException, IOException {
+        this.workbook = format == Format.XLSX ? new XSSFWorkbook(OPCPackage.open(file, PackageAccess.READ))
+                : WorkbookFactory.create(file);
+        Sheet sheet = this.workbook.getSheetAt(0);
+        for (int i = 1; i <= sheet.getLastRowNum(); i++)
+            this.rows.add(sheet.getRow(i));
+    }
+
+    List<Row> getRows() {
+        return rows;
+    }
+
+    void close() throws IOException {
+        if (this.workbook instanceof XSSFWorkbook)
+            ((XSSFWorkbook) this.workbook).getPackage().revert();
+        else
+            this.workbook.close();
+    }
+}
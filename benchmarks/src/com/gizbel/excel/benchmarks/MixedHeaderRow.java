@@ -0,0 +1,38 @@
+package com.gizbel.excel.benchmarks;
+
+import java.time.LocalDate;
+import java.util.Date;
+
+import com.gizbel.excel.annotations.ExcelBean;
+import com.gizbel.excel.annotations.ExcelColumnHeader;
+
+/**
+ * Bean of the default layout of SyntheticWorkbook, bound by column header.
+ */
+@ExcelBean
+public class MixedHeaderRow {
+
+    @ExcelColumnHeader(columnHeader = "c0", dataType = "double")
+    private double amount;
+
+    @ExcelColumnHeader(columnHeader = "c1", dataType = "double")
+    private Double price;
+
+    @ExcelColumnHeader(columnHeader = "c2", dataType = "date")
+    private Date created;
+
+    @ExcelColumnHeader(columnHeader = "c3")
+    private LocalDate due;
+
+    @ExcelColumnHeader(columnHeader = "c4", dataType = "bool")
+    private boolean active;
+
+    @ExcelColumnHeader(columnHeader = "c5")
+    private String reference;
+
+    @ExcelColumnHeader(columnHeader = "c6")
+    private String customer;
+
+    @ExcelColumnHeader(columnHeader = "c7")
+    private String comment;
+}
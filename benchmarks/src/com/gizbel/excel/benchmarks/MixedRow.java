@@ -0,0 +1,38 @@
+package com.gizbel.excel.benchmarks;
+
+import java.time.LocalDate;
+import java.util.Date;
+
+import com.gizbel.excel.annotations.ExcelBean;
+import com.gizbel.excel.annotations.ExcelColumnIndex;
+
+/**
+ * Bean of the default layout of SyntheticWorkbook, bound by column index.
+ */
+@ExcelBean
+public class MixedRow {
+
+    @ExcelColumnIndex(columnIndex = "0", dataType = "double")
+    private double amount;
+
+    @ExcelColumnIndex(columnIndex = "1", dataType = "double")
+    private Double price;
+
+    @ExcelColumnIndex(columnIndex = "2", dataType = "date")
+    private Date created;
+
+    @ExcelColumnIndex(columnIndex = "3")
+    private LocalDate due;
+
+    @ExcelColumnIndex(columnIndex = "4", dataType = "bool")
+    private boolean active;
+
+    @ExcelColumnIndex(columnIndex = "5")
+    private String reference;
+
+    @ExcelColumnIndex(columnIndex = "6")
+    private String customer;
+
+    @ExcelColumnIndex(columnIndex = "7")
+    private String comment;
+}
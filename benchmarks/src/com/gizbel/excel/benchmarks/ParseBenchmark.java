@@ -0,0 +1,105 @@
+package com.gizbel.excel.benchmarks;
+
+import java.io.File;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gizbel.excel.benchmarks.SyntheticWorkbook.Format;
+import com.gizbel.excel.enums.ExcelFactoryType;
+import com.gizbel.excel.factory.Parser;
+
+/**
+ * Parser.parse of a whole file of the default layout, by column index and
+ * by column header.<br>
+ * The rows counter gives the rows parsed per second. xls files are capped
+ * at 65535 rows, the counter gives the rows actually parsed. The streaming
+ * flag does not apply to csv files, always streamed. Large runs, e.g.
+ * -p rows=5000000 -p format=xlsx -p streaming=true, need a larger heap in
+ * workbook mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ParseBenchmark {
+
+    @Param({ "10000", "100000" })
+    public int rows;
+
+    @Param({ "xlsx", "xls", "csv" })
+    public String format;
+
+    @Param({ "false", "true" })
+    public boolean streaming;
+
+    @Param({ "0.5" })
+    public double sharedStringRatio;
+
+    private File file;
+
+    private Parser<MixedRow> indexParser;
+
+    private Parser<MixedHeaderRow> headerParser;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Format fileFormat = Format.valueOf(this.format.toUpperCase(Locale.ROOT));
+        SyntheticWorkbook generator = new SyntheticWorkbook();
+        generator.setRows(fileFormat == Format.XLS ? Math.min(this.rows, SyntheticWorkbook.MAX_XLS_ROWS) : this.rows);
+        generator.setSharedStringRatio(this.sharedStringRatio);
+        this.file = generator.cached(SyntheticWorkbook.cacheDir(), fileFormat);
+
+        this.indexParser = new Parser<MixedRow>(MixedRow.class, ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION);
+        this.indexParser.setSkipHeader(true);
+        this.indexParser.setStreaming(this.streaming);
+        this.headerParser = new Parser<MixedHeaderRow>(MixedHeaderRow.class,
+                ExcelFactoryType.COLUMN_NAME_BASED_EXTRACTION);
+        this.headerParser.setStreaming(this.streaming);
+    }
+
+    @Benchmark
+    public List<Object> parseByIndex(RowCounter counter) throws Exception {
+        List<Object> beans = this.indexParser.parse(this.file);
+        counter.rows += beans.size();
+        return beans;
+    }
+
+    @Benchmark
+    public List<Object> parseByHeader(RowCounter counter) throws Exception {
+        List<Object> beans = this.headerParser.parse(this.file);
+        counter.rows += beans.size();
+        return beans;
+    }
+
+    /**
+     * Rows bound by the benchmark, reported as a rate next to the score.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class RowCounter {
+
+        public long rows;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            this.rows = 0;
+        }
+    }
+}
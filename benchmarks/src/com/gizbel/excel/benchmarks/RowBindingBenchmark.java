@@ -0,0 +1,76 @@
+package com.gizbel.excel.benchmarks;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.gizbel.excel.benchmarks.SyntheticWorkbook.Format;
+import com.gizbel.excel.enums.ExcelFactoryType;
+import com.gizbel.excel.factory.Parser;
+
+/**
+ * Parser.getBeanForARow over the rows of a workbook loaded once, the time
+ * and the allocations are per row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RowBindingBenchmark {
+
+    static final int ROWS = 10000;
+
+    @Param({ "xlsx", "xls" })
+    public String format;
+
+    @Param({ "index", "header" })
+    public String mode;
+
+    private LoadedRows rows;
+
+    private Parser<?> parser;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        SyntheticWorkbook generator = new SyntheticWorkbook();
+        generator.setRows(ROWS);
+        Format fileFormat = Format.valueOf(this.format.toUpperCase(Locale.ROOT));
+        this.rows = new LoadedRows(generator.cached(SyntheticWorkbook.cacheDir(), fileFormat), fileFormat);
+
+        if ("header".equals(this.mode))
+            this.parser = new Parser<MixedHeaderRow>(MixedHeaderRow.class,
+                    ExcelFactoryType.COLUMN_NAME_BASED_EXTRACTION);
+        else
+            this.parser = new Parser<MixedRow>(MixedRow.class, ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        this.rows.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void bindRows(Blackhole blackhole) throws Exception {
+        for (Row row : this.rows.getRows())
+            blackhole.consume(this.parser.getBeanForARow(row));
+    }
+}
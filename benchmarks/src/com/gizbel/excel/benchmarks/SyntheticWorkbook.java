@@ -0,0 +1,582 @@
+package com.gizbel.excel.benchmarks;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellReference;
+
+/**
+ * Generator of synthetic workbooks for the benchmarks, a header row of
+ * column names c0, c1... followed by the data rows.<br>
+ * The columns are laid out by the type mix, e.g. "number=2,date=2,boolean=1,text=3"
+ * gives the first quarter of the columns to numbers, the next quarter to
+ * dates, then booleans and texts. The shared strings ratio is the share of
+ * the text cells drawn from a small pool of recurring strings, the other
+ * ones are unique. Values come from a seeded Random so the same settings
+ * always give the same cells, whatever the format.<br>
+ * xlsx files are written straight as SpreadsheetML, the shared strings going
+ * through a temp file, so millions of rows are generated in constant memory.
+ * xls files are built through HSSF and hold at most 65535 data rows.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.gizbel.excel.benchmarks.SyntheticWorkbook \
+ *     rows=5000000 columns=12 mix=number=1,text=1 shared=0.3 out.xlsx
+ * </pre>
+ */
+public class SyntheticWorkbook {
+
+    /** Data rows of an xls sheet, below the 65536 rows of BIFF8. **/
+    public static final int MAX_XLS_ROWS = 65535;
+
+    /** Default type mix, the layout of the MixedRow beans. **/
+    public static final String MIXED = "number=2,date=2,boolean=1,text=3";
+
+    /** Excel serial date of 2015-01-01, the first generated date. **/
+    private static final int FIRST_DATE = 42005;
+
+    private static final DateTimeFormatter DATE_TEXT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+
+    /** Cell index of the date style in the generated styles. **/
+    private static final int DATE_STYLE = 1;
+
+    public enum Format {
+        XLSX, XLS, CSV;
+
+        String extension() {
+            return "." + this.name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Kinds of generated cells, the text kinds hold numbers and dates as
+     * strings to exercise their parsing.
+     */
+    public enum Kind {
+        NUMBER, INTEGER, DATE, BOOLEAN, TEXT, NUMBER_TEXT, DATE_TEXT
+    }
+
+    private int rows = 10000;
+
+    private int columns = 8;
+
+    private final Map<Kind, Integer> typeMix = new EnumMap<Kind, Integer>(Kind.class);
+
+    private double sharedStringRatio = 0.5;
+
+    /** Number of distinct recurring strings. **/
+    private int sharedStringPool = 1000;
+
+    private long seed = 42;
+
+    public SyntheticWorkbook() {
+        this.setTypeMix(MIXED);
+    }
+
+    /**
+     * Directory keeping the generated workbooks between runs, the
+     * excel.bench.dir system property or excel-extractor-bench in the temp
+     * directory.
+     * @return
+     */
+    public static File cacheDir() {
+        String dir = System.getProperty("excel.bench.dir");
+        return dir != null ? new File(dir) : new File(System.getProperty("java.io.tmpdir"), "excel-extractor-bench");
+    }
+
+    /**
+     * Writes the workbook into the directory unless a previous run already
+     * did, the file name holds all the settings.
+     * @param dir
+     * @param format
+     * @return the file
+     * @throws IOException
+     */
+    public File cached(File dir, Format format) throws IOException {
+        File file = new File(dir, this.toString() + format.extension());
+        if (file.isFile())
+            return file;
+        Files.createDirectories(dir.toPath());
+        // Written aside then moved, forks may generate the same file at once
+        File partial = File.createTempFile(file.getName(), ".partial", dir);
+        try {
+            this.write(partial, format);
+            Files.move(partial.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            partial.delete();
+        }
+        return file;
+    }
+
+    /**
+     * Writes the workbook.
+     * @param file
+     * @param format
+     * @throws IOException
+     * @throws IllegalArgumentException for an xls file of more than
+     *             MAX_XLS_ROWS rows
+     */
+    public void write(File file, Format format) throws IOException {
+        switch (format) {
+        case XLSX:
+            this.writeXlsx(file);
+            break;
+        case XLS:
+            this.writeXls(file);
+            break;
+        default:
+            this.writeCsv(file);
+            break;
+        }
+    }
+
+    /**
+     * Kind of the cells of the column, the columns are split between the
+     * kinds in proportion to their weight, in Kind order.
+     * @param columnIndex
+     * @return
+     */
+    public Kind kindOf(int columnIndex) {
+        int total = 0;
+        for (int weight : this.typeMix.values())
+            total += weight;
+        double position = (columnIndex + 0.5) * total / this.columns;
+        int cumulated = 0;
+        Kind last = null;
+        for (Map.Entry<Kind, Integer> entry : this.typeMix.entrySet()) {
+            cumulated += entry.getValue();
+            last = entry.getKey();
+            if (position < cumulated)
+                return last;
+        }
+        return last;
+    }
+
+    private void writeXlsx(File file) throws IOException {
+        File strings = File.createTempFile("synthetic-sst", ".xml");
+        try {
+            ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+            try {
+                putEntry(zip, "[Content_Types].xml", XlsxParts.CONTENT_TYPES);
+                putEntry(zip, "_rels/.rels", XlsxParts.ROOT_RELS);
+                putEntry(zip, "xl/workbook.xml", XlsxParts.WORKBOOK);
+                putEntry(zip, "xl/_rels/workbook.xml.rels", XlsxParts.WORKBOOK_RELS);
+                putEntry(zip, "xl/styles.xml", XlsxParts.STYLES);
+
+                // The writers of the entries are flushed, not closed, which would close the zip
+                zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+                Writer sheet = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+                Writer sst = new BufferedWriter(
+                        new OutputStreamWriter(new FileOutputStream(strings), StandardCharsets.UTF_8), 1 << 16);
+                long[] counts;
+                try {
+                    counts = this.writeSheetXml(sheet, sst);
+                } finally {
+                    sst.close();
+                }
+                sheet.flush();
+                zip.closeEntry();
+
+                zip.putNextEntry(new ZipEntry("xl/sharedStrings.xml"));
+                Writer header = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+                header.write(XlsxParts.XML_DECLARATION + "<sst xmlns=\"" + XlsxParts.MAIN_NS + "\" count=\""
+                        + counts[0] + "\" uniqueCount=\"" + counts[1] + "\">");
+                header.flush();
+                Files.copy(strings.toPath(), zip);
+                header.write("</sst>");
+                header.flush();
+                zip.closeEntry();
+            } finally {
+                zip.close();
+            }
+        } finally {
+            strings.delete();
+        }
+    }
+
+    /**
+     * Writes the sheet, the pool strings first take the lowest shared
+     * string indexes and the other strings are appended as they come.
+     * @return the number of string cells and of shared strings
+     */
+    private long[] writeSheetXml(Writer sheet, Writer sst) throws IOException {
+        for (int i = 0; i < this.sharedStringPool; i++)
+            sst.write("<si><t>" + poolString(i) + "</t></si>");
+        long stringCount = 0;
+        long uniqueCount = this.sharedStringPool;
+
+        Kind[] kinds = this.kinds();
+        String[] letters = new String[this.columns];
+        for (int c = 0; c < this.columns; c++)
+            letters[c] = CellReference.convertNumToColString(c);
+
+        sheet.write(XlsxParts.XML_DECLARATION + "<worksheet xmlns=\"" + XlsxParts.MAIN_NS + "\"><sheetData>");
+        sheet.write("<row r=\"1\">");
+        for (int c = 0; c < this.columns; c++) {
+            sheet.write("<c r=\"" + letters[c] + "1\" t=\"inlineStr\"><is><t>" + header(c) + "</t></is></c>");
+        }
+        sheet.write("</row>");
+
+        Values values = new Values();
+        StringBuilder cell = new StringBuilder(64);
+        for (int r = 1; r <= this.rows; r++) {
+            String rowRef = Integer.toString(r + 1);
+            sheet.write("<row r=\"");
+            sheet.write(rowRef);
+            sheet.write("\">");
+            for (int c = 0; c < this.columns; c++) {
+                cell.setLength(0);
+                cell.append("<c r=\"").append(letters[c]).append(rowRef).append('"');
+                switch (kinds[c]) {
+                case NUMBER:
+                    cell.append("><v>").append(values.number());
+                    break;
+                case INTEGER:
+                    cell.append("><v>").append(values.integer());
+                    break;
+                case DATE:
+                    cell.append(" s=\"").append(DATE_STYLE).append("\"><v>").append(values.date());
+                    break;
+                case BOOLEAN:
+                    cell.append(" t=\"b\"><v>").append(values.bool() ? 1 : 0);
+                    break;
+                default:
+                    int pooled = kinds[c] == Kind.TEXT ? values.pooled() : -1;
+                    long index = pooled;
+                    if (pooled < 0) {
+                        sst.write("<si><t>");
+                        sst.write(values.text(kinds[c], r, c));
+                        sst.write("</t></si>");
+                        index = uniqueCount++;
+                    }
+                    stringCount++;
+                    cell.append(" t=\"s\"><v>").append(index);
+                    break;
+                }
+                cell.append("</v></c>");
+                sheet.append(cell);
+            }
+            sheet.write("</row>");
+        }
+        sheet.write("</sheetData></worksheet>");
+        return new long[] { stringCount, uniqueCount };
+    }
+
+    private void writeXls(File file) throws IOException {
+        if (this.rows > MAX_XLS_ROWS)
+            throw new IllegalArgumentException("xls sheets hold at most " + MAX_XLS_ROWS + " rows, not " + this.rows);
+        HSSFWorkbook workbook = new HSSFWorkbook();
+        try {
+            CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat((short) 14);
+            Sheet sheet = workbook.createSheet("Data");
+            Row header = sheet.createRow(0);
+            for (int c = 0; c < this.columns; c++)
+                header.createCell(c).setCellValue(header(c));
+
+            Kind[] kinds = this.kinds();
+            Values values = new Values();
+            for (int r = 1; r <= this.rows; r++) {
+                Row row = sheet.createRow(r);
+                for (int c = 0; c < this.columns; c++) {
+                    Cell cell = row.createCell(c);
+                    switch (kinds[c]) {
+                    case NUMBER:
+                        cell.setCellValue(values.number());
+                        break;
+                    case INTEGER:
+                        cell.setCellValue(values.integer());
+                        break;
+                    case DATE:
+                        cell.setCellValue(values.date());
+                        cell.setCellStyle(dateStyle);
+                        break;
+                    case BOOLEAN:
+                        cell.setCellValue(values.bool());
+                        break;
+                    default:
+                        int pooled = kinds[c] == Kind.TEXT ? values.pooled() : -1;
+                        cell.setCellValue(pooled >= 0 ? poolString(pooled) : values.text(kinds[c], r, c));
+                        break;
+                    }
+                }
+            }
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+            try {
+                workbook.write(out);
+            } finally {
+                out.close();
+            }
+        } finally {
+            workbook.close();
+        }
+    }
+
+    /**
+     * Dates and numbers are written as text like they are exported, dates
+     * with the default pattern of the annotations.
+     */
+    private void writeCsv(File file) throws IOException {
+        Writer out = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16);
+        try {
+            for (int c = 0; c < this.columns; c++) {
+                if (c > 0)
+                    out.write(',');
+                out.write(header(c));
+            }
+            out.write('\n');
+
+            Kind[] kinds = this.kinds();
+            Values values = new Values();
+            StringBuilder line = new StringBuilder(128);
+            for (int r = 1; r <= this.rows; r++) {
+                line.setLength(0);
+                for (int c = 0; c < this.columns; c++) {
+                    if (c > 0)
+                        line.append(',');
+                    switch (kinds[c]) {
+                    case NUMBER:
+                        line.append(values.number());
+                        break;
+                    case INTEGER:
+                        line.append(values.integer());
+                        break;
+                    case DATE:
+                        line.append(dateText(values.date()));
+                        break;
+                    case BOOLEAN:
+                        line.append(values.bool() ? "TRUE" : "FALSE");
+                        break;
+                    default:
+                        int pooled = kinds[c] == Kind.TEXT ? values.pooled() : -1;
+                        line.append(pooled >= 0 ? poolString(pooled) : values.text(kinds[c], r, c));
+                        break;
+                    }
+                }
+                line.append('\n');
+                out.append(line);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private Kind[] kinds() {
+        Kind[] kinds = new Kind[this.columns];
+        for (int c = 0; c < this.columns; c++)
+            kinds[c] = this.kindOf(c);
+        return kinds;
+    }
+
+    static String header(int columnIndex) {
+        return "c" + columnIndex;
+    }
+
+    private static String poolString(int index) {
+        return "shared " + index;
+    }
+
+    private static String dateText(int serialDate) {
+        return LocalDate.of(1899, 12, 30).plusDays(serialDate).format(DATE_TEXT);
+    }
+
+    /**
+     * Cell values in generation order, one Random call sequence per cell.
+     */
+    private final class Values {
+
+        private final Random random = new Random(SyntheticWorkbook.this.seed);
+
+        double number() {
+            return this.random.nextInt(100000000) / 100.0;
+        }
+
+        long integer() {
+            return this.random.nextInt(1000000);
+        }
+
+        int date() {
+            return FIRST_DATE + this.random.nextInt(3650);
+        }
+
+        boolean bool() {
+            return this.random.nextBoolean();
+        }
+
+        /**
+         * Draws whether the next text cell is a pool string.
+         * @return the pool index, -1 for a unique string
+         */
+        int pooled() {
+            if (this.random.nextDouble() < SyntheticWorkbook.this.sharedStringRatio)
+                return this.random.nextInt(SyntheticWorkbook.this.sharedStringPool);
+            return -1;
+        }
+
+        String text(Kind kind, int rowIndex, int columnIndex) {
+            switch (kind) {
+            case NUMBER_TEXT:
+                return Double.toString(this.number());
+            case DATE_TEXT:
+                return dateText(this.date());
+            default:
+                return "text " + rowIndex + "-" + columnIndex;
+            }
+        }
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public void setRows(int rows) {
+        if (rows < 0)
+            throw new IllegalArgumentException("Rows can not be negative");
+        this.rows = rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public void setColumns(int columns) {
+        if (columns < 1)
+            throw new IllegalArgumentException("Columns must be at least 1");
+        this.columns = columns;
+    }
+
+    /**
+     * Sets the weight of each kind of column, e.g. "number=2,date=1,text=1".
+     * Kinds are number, integer, date, boolean, text, number_text and
+     * date_text, the missing ones get no column.
+     * @param typeMix
+     */
+    public void setTypeMix(String typeMix) {
+        Map<Kind, Integer> weights = new EnumMap<Kind, Integer>(Kind.class);
+        for (String part : typeMix.split(",")) {
+            String[] pair = part.trim().split("=");
+            int weight = pair.length == 2 ? Integer.parseInt(pair[1].trim()) : -1;
+            if (weight < 0)
+                throw new IllegalArgumentException("Invalid type mix " + typeMix);
+            if (weight > 0)
+                weights.put(Kind.valueOf(pair[0].trim().toUpperCase(Locale.ROOT)), weight);
+        }
+        if (weights.isEmpty())
+            throw new IllegalArgumentException("Type mix has no column kind " + typeMix);
+        this.typeMix.clear();
+        this.typeMix.putAll(weights);
+    }
+
+    public double getSharedStringRatio() {
+        return sharedStringRatio;
+    }
+
+    /**
+     * Sets the share of the text cells holding one of the pool strings, 0
+     * for unique strings only, 1 for pool strings only.
+     * @param sharedStringRatio
+     */
+    public void setSharedStringRatio(double sharedStringRatio) {
+        if (sharedStringRatio < 0 || sharedStringRatio > 1)
+            throw new IllegalArgumentException("Shared string ratio must be between 0 and 1");
+        this.sharedStringRatio = sharedStringRatio;
+    }
+
+    public int getSharedStringPool() {
+        return sharedStringPool;
+    }
+
+    public void setSharedStringPool(int sharedStringPool) {
+        if (sharedStringPool < 1)
+            throw new IllegalArgumentException("Shared string pool must be at least 1");
+        this.sharedStringPool = sharedStringPool;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Name of the settings, used for the cached files.
+     */
+    @Override
+    public String toString() {
+        StringBuilder name = new StringBuilder("synthetic-").append(this.rows).append('x').append(this.columns);
+        for (Map.Entry<Kind, Integer> entry : this.typeMix.entrySet())
+            name.append('-').append(entry.getKey().name().toLowerCase(Locale.ROOT)).append(entry.getValue());
+        return name.append("-shared").append(this.sharedStringRatio).append('x').append(this.sharedStringPool)
+                .append("-seed").append(this.seed).toString();
+    }
+
+    private static void putEntry(ZipOutputStream zip, String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    /**
+     * Writes a workbook from the command line, arguments rows=, columns=,
+     * mix=, shared=, pool=, seed= and the output file whose extension gives
+     * the format.
+     * @param args
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        SyntheticWorkbook generator = new SyntheticWorkbook();
+        File file = null;
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            String value = arg.substring(equals + 1);
+            if (arg.startsWith("rows="))
+                generator.setRows(Integer.parseInt(value));
+            else if (arg.startsWith("columns="))
+                generator.setColumns(Integer.parseInt(value));
+            else if (arg.startsWith("mix="))
+                generator.setTypeMix(value);
+            else if (arg.startsWith("shared="))
+                generator.setSharedStringRatio(Double.parseDouble(value));
+            else if (arg.startsWith("pool="))
+                generator.setSharedStringPool(Integer.parseInt(value));
+            else if (arg.startsWith("seed="))
+                generator.setSeed(Long.parseLong(value));
+            else
+                file = new File(arg);
+        }
+        if (file == null) {
+            System.err.println("Usage : SyntheticWorkbook [rows=n] [columns=n] [mix=" + MIXED
+                    + "] [shared=ratio] [pool=n] [seed=n] file.xlsx|file.xls|file.csv");
+            System.exit(1);
+        }
+        String extension = file.getName().substring(file.getName().lastIndexOf('.') + 1);
+        long start = System.nanoTime();
+        generator.write(file, Format.valueOf(extension.toUpperCase(Locale.ROOT)));
+        System.out.println(file + " : " + file.length() + " bytes in " + (System.nanoTime() - start) / 1000000
+                + "ms");
+    }
+}
@@ -0,0 +1,59 @@
+package com.gizbel.excel.benchmarks;
+
+/**
+ * Fixed parts of the generated xlsx packages, a single sheet workbook whose
+ * second cell format is the built in date format 14.
+ */
+final class XlsxParts {
+
+    static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+
+    static final String MAIN_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+
+    private static final String RELATIONSHIPS_NS = "http://schemas.openxmlformats.org/package/2006/relationships";
+
+    private static final String DOCUMENT_RELATIONSHIPS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+    private static final String CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.";
+
+    static final String CONTENT_TYPES = XML_DECLARATION
+            + "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+            + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+            + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+            + "<Override PartName=\"/xl/workbook.xml\" ContentType=\"" + CONTENT_TYPE + "sheet.main+xml\"/>"
+            + "<Override PartName=\"/xl/worksheets/sheet1.xml\" ContentType=\"" + CONTENT_TYPE + "worksheet+xml\"/>"
+            + "<Override PartName=\"/xl/styles.xml\" ContentType=\"" + CONTENT_TYPE + "styles+xml\"/>"
+            + "<Override PartName=\"/xl/sharedStrings.xml\" ContentType=\"" + CONTENT_TYPE + "sharedStrings+xml\"/>"
+            + "</Types>";
+
+    static final String ROOT_RELS = XML_DECLARATION
+            + "<Relationships xmlns=\"" + RELATIONSHIPS_NS + "\">"
+            + "<Relationship Id=\"rId1\" Type=\"" + DOCUMENT_RELATIONSHIPS + "/officeDocument\" Target=\"xl/workbook.xml\"/>"
+            + "</Relationships>";
+
+    static final String WORKBOOK = XML_DECLARATION
+            + "<workbook xmlns=\"" + MAIN_NS + "\" xmlns:r=\"" + DOCUMENT_RELATIONSHIPS + "\">"
+            + "<sheets><sheet name=\"Data\" sheetId=\"1\" r:id=\"rId1\"/></sheets>"
+            + "</workbook>";
+
+    static final String WORKBOOK_RELS = XML_DECLARATION
+            + "<Relationships xmlns=\"" + RELATIONSHIPS_NS + "\">"
+            + "<Relationship Id=\"rId1\" Type=\"" + DOCUMENT_RELATIONSHIPS + "/worksheet\" Target=\"worksheets/sheet1.xml\"/>"
+            + "<Relationship Id=\"rId2\" Type=\"" + DOCUMENT_RELATIONSHIPS + "/styles\" Target=\"styles.xml\"/>"
+            + "<Relationship Id=\"rId3\" Type=\"" + DOCUMENT_RELATIONSHIPS + "/sharedStrings\" Target=\"sharedStrings.xml\"/>"
+            + "</Relationships>";
+
+    static final String STYLES = XML_DECLARATION
+            + "<styleSheet xmlns=\"" + MAIN_NS + "\">"
+            + "<fonts count=\"1\"><font><sz val=\"11\"/><name val=\"Calibri\"/></font></fonts>"
+            + "<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill>"
+            + "<fill><patternFill patternType=\"gray125\"/></fill></fills>"
+            + "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>"
+            + "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>"
+            + "<cellXfs count=\"2\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>"
+            + "<xf numFmtId=\"14\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyNumberFormat=\"1\"/></cellXfs>"
+            + "</styleSheet>";
+
+    private XlsxParts() {
+    }
+}
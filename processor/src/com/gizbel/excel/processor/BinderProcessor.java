@@ -0,0 +1,407 @@
+package com.gizbel.excel.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+
+import com.gizbel.excel.annotations.ExcelBean;
+import com.gizbel.excel.annotations.ExcelColumnHeader;
+import com.gizbel.excel.annotations.ExcelColumnIndex;
+import com.gizbel.excel.annotations.ExcelFilter;
+import com.gizbel.excel.factory.BeanBinder;
+
+/**
+ * Generates the BeanBinder of each ExcelBean class, in the package of the
+ * class with the _ExcelBinder suffix: the annotation attributes written out,
+ * a switch over the field numbers assigning the fields, directly or, for
+ * the classes with ExcelBean.useSetters, through the setter and getter of
+ * private fields, and the primitive setters for the int, long, double and
+ * boolean fields.<br>
+ * The binder only replaces the reflective field access and instantiation:
+ * the cell values are still converted by the ColumnBinding of each field,
+ * through the converters of the parser, so that the registries set on the
+ * parser and the lenient conversion errors apply to generated binders the
+ * same way. No typed conversion call is generated per field.<br>
+ * Classes whose fields can not be reached from their package, or without a
+ * no argument constructor, get no binder and a note: the parser binds them
+ * through reflection as before.<br>
+ * Also writes the native-image configuration of the binder, so that the
+ * parser finds it in a native image.
+ */
+@SupportedAnnotationTypes("com.gizbel.excel.annotations.ExcelBean")
+public class BinderProcessor extends AbstractProcessor {
+
+    private static final String BEAN_BINDER = "com.gizbel.excel.factory.BeanBinder";
+
+    private static final String BOUND_FIELD = "com.gizbel.excel.factory.BoundField";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(ExcelBean.class)) {
+            if (element.getKind() != ElementKind.CLASS)
+                continue;
+            TypeElement bean = (TypeElement) element;
+            List<BeanField> fields = new ArrayList<BeanField>();
+            String reason = this.check(bean, fields);
+            if (reason != null) {
+                this.processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                        "No binder generated for " + bean.getQualifiedName() + ", " + reason
+                                + ", it is bound through reflection", bean);
+                continue;
+            }
+            try {
+                this.generate(bean, fields);
+            } catch (IOException e) {
+                this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Can not write the binder of " + bean.getQualifiedName() + ", " + e, bean);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks that the binder can create the beans and reach the annotated
+     * fields, and collects them in declaration order.
+     * @param bean
+     * @param fields receives the annotated fields
+     * @return why no binder can be generated, null if one can
+     */
+    private String check(TypeElement bean, List<BeanField> fields) {
+        if (bean.getModifiers().contains(Modifier.ABSTRACT))
+            return "the class is abstract";
+        if (!bean.getTypeParameters().isEmpty())
+            return "the class is generic";
+        if (bean.getNestingKind() == NestingKind.LOCAL || bean.getNestingKind() == NestingKind.ANONYMOUS)
+            return "the class is local";
+        if (bean.getNestingKind() == NestingKind.MEMBER && !bean.getModifiers().contains(Modifier.STATIC))
+            return "the class is an inner class";
+        for (Element type = bean; type instanceof TypeElement; type = type.getEnclosingElement()) {
+            if (type.getModifiers().contains(Modifier.PRIVATE))
+                return type.getSimpleName() + " is private";
+        }
+        boolean constructor = false;
+        for (ExecutableElement candidate : ElementFilter.constructorsIn(bean.getEnclosedElements())) {
+            if (candidate.getParameters().isEmpty() && !candidate.getModifiers().contains(Modifier.PRIVATE))
+                constructor = true;
+        }
+        if (!constructor)
+            return "it has no accessible zero argument constructor";
+        boolean useSetters = bean.getAnnotation(ExcelBean.class).useSetters();
+
+        for (VariableElement field : ElementFilter.fieldsIn(bean.getEnclosedElements())) {
+            if (field.getAnnotation(ExcelColumnIndex.class) == null
+                    && field.getAnnotation(ExcelColumnHeader.class) == null)
+                continue;
+            String name = field.getSimpleName().toString();
+            if (field.getModifiers().contains(Modifier.STATIC))
+                return "the field " + name + " is static";
+            if (field.getModifiers().contains(Modifier.FINAL))
+                return "the field " + name + " is final";
+            TypeMirror type = this.processingEnv.getTypeUtils().erasure(field.asType());
+            if (!this.isAccessible(type, bean))
+                return "the type of the field " + name + " is not accessible";
+            BeanField beanField = new BeanField(field, type);
+            if (field.getModifiers().contains(Modifier.PRIVATE)) {
+                if (!useSetters)
+                    return "the field " + name + " is private and useSetters is off";
+                beanField.setter = this.findAccessor(bean, field, true);
+                beanField.getter = this.findAccessor(bean, field, false);
+                if (beanField.setter == null || beanField.getter == null)
+                    return "the field " + name + " is private without a setter and a getter";
+            }
+            fields.add(beanField);
+        }
+        return null;
+    }
+
+    /**
+     * Whether the erased type can be named from the package of the bean.
+     */
+    private boolean isAccessible(TypeMirror type, TypeElement bean) {
+        if (type.getKind() == TypeKind.ARRAY)
+            return this.isAccessible(((ArrayType) type).getComponentType(), bean);
+        if (type.getKind() != TypeKind.DECLARED)
+            return type.getKind().isPrimitive();
+        Element beanPackage = this.processingEnv.getElementUtils().getPackageOf(bean);
+        for (Element element = ((DeclaredType) type).asElement(); element instanceof TypeElement;
+                element = element.getEnclosingElement()) {
+            Set<Modifier> modifiers = element.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE))
+                return false;
+            if (!modifiers.contains(Modifier.PUBLIC)
+                    && !this.processingEnv.getElementUtils().getPackageOf(element).equals(beanPackage))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Finds the non private setter, or getter, of the field declared by the
+     * bean class, named after the field as in JavaBeans.
+     * @return the name of the method, null if there is none
+     */
+    private String findAccessor(TypeElement bean, VariableElement field, boolean setter) {
+        String name = field.getSimpleName().toString();
+        String property = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        for (ExecutableElement method : ElementFilter.methodsIn(bean.getEnclosedElements())) {
+            Set<Modifier> modifiers = method.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC))
+                continue;
+            String methodName = method.getSimpleName().toString();
+            if (setter) {
+                if (methodName.equals("set" + property) && method.getParameters().size() == 1
+                        && this.processingEnv.getTypeUtils().isSameType(method.getParameters().get(0).asType(),
+                                field.asType()))
+                    return methodName;
+            } else if ((methodName.equals("get" + property)
+                    || field.asType().getKind() == TypeKind.BOOLEAN && methodName.equals("is" + property))
+                    && method.getParameters().isEmpty()
+                    && this.processingEnv.getTypeUtils().isSameType(method.getReturnType(), field.asType())) {
+                return methodName;
+            }
+        }
+        return null;
+    }
+
+    private void generate(TypeElement bean, List<BeanField> fields) throws IOException {
+        String packageName = this.processingEnv.getElementUtils().getPackageOf(bean).getQualifiedName().toString();
+        String binderName = this.processingEnv.getElementUtils().getBinaryName(bean) + BeanBinder.SUFFIX;
+        String simpleName = packageName.isEmpty() ? binderName : binderName.substring(packageName.length() + 1);
+        String beanName = bean.getQualifiedName().toString();
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty())
+            source.append("package ").append(packageName).append(";\n\n");
+        source.append("/**\n * BeanBinder of ").append(beanName)
+                .append(", generated by the excel-extractor annotation processor.\n */\n");
+        source.append("@SuppressWarnings({ \"unchecked\", \"rawtypes\" })\n");
+        source.append("public final class ").append(simpleName).append(" extends ").append(BEAN_BINDER)
+                .append('<').append(beanName).append("> {\n\n");
+
+        source.append("    public ").append(simpleName).append("() {\n");
+        source.append("        super(").append(beanName).append(".class");
+        for (BeanField field : fields) {
+            source.append(",\n                ").append(this.boundField(field));
+        }
+        source.append(");\n    }\n\n");
+
+        source.append("    @Override\n    public ").append(beanName).append(" newInstance() {\n");
+        source.append("        return new ").append(beanName).append("();\n    }\n\n");
+
+        source.append("    @Override\n    public void set(").append(beanName)
+                .append(" bean, int field, Object value) {\n        switch (field) {\n");
+        for (int i = 0; i < fields.size(); i++) {
+            BeanField field = fields.get(i);
+            source.append("        case ").append(i).append(":\n");
+            source.append("            ").append(field.store(field.unbox("value"))).append(";\n");
+            source.append("            return;\n");
+        }
+        source.append("        default:\n            throw noSuchField(field);\n        }\n    }\n\n");
+
+        source.append("    @Override\n    public Object get(").append(beanName)
+                .append(" bean, int field) {\n        switch (field) {\n");
+        for (int i = 0; i < fields.size(); i++) {
+            source.append("        case ").append(i).append(":\n");
+            source.append("            return ").append(fields.get(i).load()).append(";\n");
+        }
+        source.append("        default:\n            throw noSuchField(field);\n        }\n    }\n");
+
+        this.appendPrimitiveSetter(source, beanName, fields, TypeKind.INT, "setInt", "int");
+        this.appendPrimitiveSetter(source, beanName, fields, TypeKind.LONG, "setLong", "long");
+        this.appendPrimitiveSetter(source, beanName, fields, TypeKind.DOUBLE, "setDouble", "double");
+        this.appendPrimitiveSetter(source, beanName, fields, TypeKind.BOOLEAN, "setBoolean", "boolean");
+        source.append("}\n");
+
+        Writer writer = this.processingEnv.getFiler().createSourceFile(binderName, bean).openWriter();
+        try {
+            writer.write(source.toString());
+        } finally {
+            writer.close();
+        }
+        this.writeNativeImageConfig(bean, binderName);
+    }
+
+    /**
+     * Overrides the setter of the primitive kind for the fields of that kind,
+     * the other fields go through set.
+     */
+    private void appendPrimitiveSetter(StringBuilder source, String beanName, List<BeanField> fields, TypeKind kind,
+            String method, String type) {
+        StringBuilder cases = new StringBuilder();
+        for (int i = 0; i < fields.size(); i++) {
+            BeanField field = fields.get(i);
+            if (field.type.getKind() != kind)
+                continue;
+            cases.append("        case ").append(i).append(":\n");
+            cases.append("            ").append(field.store("value")).append(";\n");
+            cases.append("            return;\n");
+        }
+        if (cases.length() == 0)
+            return;
+        source.append("\n    @Override\n    public void ").append(method).append('(').append(beanName)
+                .append(" bean, int field, ").append(type).append(" value) {\n        switch (field) {\n");
+        source.append(cases);
+        source.append("        default:\n            super.").append(method)
+                .append("(bean, field, value);\n        }\n    }\n");
+    }
+
+    /**
+     * Expression building the BoundField of the field from its annotations.
+     */
+    private String boundField(BeanField field) {
+        StringBuilder expression = new StringBuilder("new ").append(BOUND_FIELD).append('(')
+                .append(this.literal(field.element.getSimpleName().toString())).append(", ")
+                .append(field.typeName).append(".class)");
+        ExcelColumnIndex index = field.element.getAnnotation(ExcelColumnIndex.class);
+        if (index != null)
+            expression.append("\n                        .index(").append(this.literal(index.columnIndex()))
+                    .append(", ").append(this.literal(index.dataType())).append(", ")
+                    .append(this.literal(index.defaultValue())).append(", ").append(this.literal(index.pattern()))
+                    .append(')');
+        ExcelColumnHeader header = field.element.getAnnotation(ExcelColumnHeader.class);
+        if (header != null)
+            expression.append("\n                        .header(").append(this.literal(header.columnHeader()))
+                    .append(", ").append(this.literal(header.dataType())).append(", ")
+                    .append(this.literal(header.defaultValue())).append(", ")
+                    .append(this.literal(header.pattern())).append(')');
+        ExcelFilter filter = field.element.getAnnotation(ExcelFilter.class);
+        if (filter != null) {
+            expression.append("\n                        .filter(new String[] {");
+            String[] equalTo = filter.equalTo();
+            for (int i = 0; i < equalTo.length; i++) {
+                expression.append(i == 0 ? " " : ", ").append(this.literal(equalTo[i]));
+            }
+            expression.append(equalTo.length == 0 ? "}, " : " }, ").append(this.literal(filter.min()))
+                    .append(", ").append(this.literal(filter.max())).append(')');
+        }
+        return expression.toString();
+    }
+
+    private String literal(String value) {
+        return this.processingEnv.getElementUtils().getConstantExpression(value);
+    }
+
+    /**
+     * Registers the binder, and the bean class for its ExcelBean annotation,
+     * for the reflection done by the parser to find the binder.
+     */
+    private void writeNativeImageConfig(TypeElement bean, String binderName) throws IOException {
+        String beanName = this.processingEnv.getElementUtils().getBinaryName(bean).toString();
+        Writer writer = this.processingEnv.getFiler()
+                .createResource(StandardLocation.CLASS_OUTPUT, "",
+                        "META-INF/native-image/excel-extractor-binders/" + binderName + "/reflect-config.json", bean)
+                .openWriter();
+        try {
+            writer.write("[\n  {\n    \"name\": \"" + beanName + "\"\n  },\n  {\n    \"name\": \"" + binderName
+                    + "\",\n    \"methods\": [{ \"name\": \"<init>\", \"parameterTypes\": [] }]\n  }\n]\n");
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Annotated field of a bean and how the binder reaches it.
+     */
+    private static final class BeanField {
+
+        private final VariableElement element;
+
+        /** Erased type of the field. **/
+        private final TypeMirror type;
+
+        /** Source name of the erased type. **/
+        private final String typeName;
+
+        /** Setter and getter of a private field, null to access the field. **/
+        private String setter;
+        private String getter;
+
+        private BeanField(VariableElement element, TypeMirror type) {
+            this.element = element;
+            this.type = type;
+            this.typeName = nameOf(type);
+        }
+
+        /**
+         * Statement setting the field of the bean to the expression.
+         */
+        private String store(String expression) {
+            if (this.setter != null)
+                return "bean." + this.setter + "(" + expression + ")";
+            return "bean." + this.element.getSimpleName() + " = " + expression;
+        }
+
+        /**
+         * Expression of the value of the field of the bean.
+         */
+        private String load() {
+            if (this.getter != null)
+                return "bean." + this.getter + "()";
+            return "bean." + this.element.getSimpleName();
+        }
+
+        /**
+         * Expression converting the Object expression to the field type, with
+         * the widening of Field.set for primitives.
+         */
+        private String unbox(String expression) {
+            switch (this.type.getKind()) {
+            case SHORT:
+                return "toShort(" + expression + ")";
+            case INT:
+                return "toInt(" + expression + ")";
+            case LONG:
+                return "toLong(" + expression + ")";
+            case FLOAT:
+                return "toFloat(" + expression + ")";
+            case DOUBLE:
+                return "toDouble(" + expression + ")";
+            case BYTE:
+                return "(Byte) " + expression;
+            case CHAR:
+                return "(Character) " + expression;
+            case BOOLEAN:
+                return "(Boolean) " + expression;
+            default:
+                return "(" + this.typeName + ") " + expression;
+            }
+        }
+
+        private static String nameOf(TypeMirror type) {
+            switch (type.getKind()) {
+            case ARRAY:
+                return nameOf(((ArrayType) type).getComponentType()) + "[]";
+            case DECLARED:
+                return ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+            default:
+                return type.getKind().name().toLowerCase();
+            }
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.gizbel.excel.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gizbel.excel.enums.ExcelFactoryType;
+import com.gizbel.excel.factory.BeanBinder;
+import com.gizbel.excel.factory.Parser;
+
+/**
+ * Beans compiled with the processor, then parsed with the binders it
+ * generated or, for the classes it notes, through reflection.
+ */
+public class BinderProcessorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File sources;
+
+    private File classes;
+
+    private final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+
+    /** Beans recording the class calling their constructor. **/
+    private static final String CREATOR = "    public static String creator;\n"
+            + "    public %s() {\n"
+            + "        creator = new Throwable().getStackTrace()[1].getClassName();\n"
+            + "    }\n";
+
+    @Before
+    public void createFolders() throws Exception {
+        this.sources = this.folder.newFolder("sources");
+        this.classes = this.folder.newFolder("classes");
+    }
+
+    private void source(String name, String body) throws Exception {
+        String source = "package beans;\n\n"
+                + "import com.gizbel.excel.annotations.*;\n\n"
+                + body.replace("%creator%", String.format(CREATOR, name));
+        File file = new File(this.sources, "beans/" + name + ".java");
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Compiles the sources with the processor against the library.
+     * @return a class loader of the compiled classes
+     */
+    private ClassLoader compile() throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(this.diagnostics, Locale.ROOT,
+                StandardCharsets.UTF_8);
+        try {
+            List<File> files = new ArrayList<File>();
+            for (File file : new File(this.sources, "beans").listFiles())
+                files.add(file);
+            String classPath = new File(BeanBinder.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+                    .getPath();
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, this.diagnostics,
+                    Arrays.asList("-classpath", classPath, "-d", this.classes.getPath(), "-s", this.classes.getPath()),
+                    null, fileManager.getJavaFileObjectsFromFiles(files));
+            task.setProcessors(Arrays.asList(new BinderProcessor()));
+            assertTrue(String.valueOf(this.diagnostics.getDiagnostics()), task.call());
+        } finally {
+            fileManager.close();
+        }
+        return new URLClassLoader(new URL[] { this.classes.toURI().toURL() }, this.getClass().getClassLoader());
+    }
+
+    private List<String> notes() {
+        List<String> notes = new ArrayList<String>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : this.diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.NOTE)
+                notes.add(diagnostic.getMessage(Locale.ROOT));
+        }
+        return notes;
+    }
+
+    private boolean hasBinder(String name) {
+        return new File(this.classes, "beans/" + name + BeanBinder.SUFFIX + ".class").isFile();
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private List<String> parse(Class<?> clazz, ExcelFactoryType type, String... lines) throws Exception {
+        File file = this.folder.newFile();
+        File csv = new File(file.getPath() + ".csv");
+        Files.write(csv.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+        Parser parser = new Parser(clazz, type);
+        parser.setSkipHeader(true);
+        List<String> beans = new ArrayList<String>();
+        for (Object bean : parser.parse(csv))
+            beans.add(String.valueOf(bean));
+        return beans;
+    }
+
+    private static String creator(Class<?> clazz) throws Exception {
+        return (String) clazz.getField("creator").get(null);
+    }
+
+    @Test
+    public void parserBindsWithTheGeneratedBinder() throws Exception {
+        this.source("Line", "@ExcelBean\npublic class Line {\n"
+                + "    @ExcelColumnIndex(columnIndex = \"0\") @ExcelColumnHeader(columnHeader = \"Name\")\n"
+                + "    String name;\n"
+                + "    @ExcelColumnIndex(columnIndex = \"1\", dataType = \"int\")\n"
+                + "    @ExcelColumnHeader(columnHeader = \"Quantity\", dataType = \"int\")\n"
+                + "    int quantity;\n"
+                + "    @ExcelColumnIndex(columnIndex = \"2\", dataType = \"double\")\n"
+                + "    @ExcelColumnHeader(columnHeader = \"Price\", dataType = \"double\")\n"
+                + "    protected Double price;\n"
+                + "%creator%"
+                + "    public String toString() {\n"
+                + "        return name + \"|\" + quantity + \"|\" + price;\n"
+                + "    }\n}\n");
+        ClassLoader loader = this.compile();
+
+        assertTrue(this.hasBinder("Line"));
+        assertTrue(this.notes().isEmpty());
+        Class<?> line = loader.loadClass("beans.Line");
+        for (ExcelFactoryType type : ExcelFactoryType.values()) {
+            assertEquals(Arrays.asList("a|1|1.5", "b|2|null"),
+                    this.parse(line, type, "Name,Quantity,Price", "a,1,1.5", "b,2,"));
+            assertEquals("beans.Line" + BeanBinder.SUFFIX, creator(line));
+        }
+    }
+
+    @Test
+    public void privateFieldsGoThroughTheirAccessorsWithUseSetters() throws Exception {
+        this.source("Code", "@ExcelBean(useSetters = true)\npublic class Code {\n"
+                + "    @ExcelColumnIndex(columnIndex = \"0\")\n"
+                + "    private String code;\n"
+                + "    @ExcelColumnIndex(columnIndex = \"1\", dataType = \"bool\")\n"
+                + "    private boolean valid;\n"
+                + "%creator%"
+                + "    public String getCode() { return code; }\n"
+                + "    public void setCode(String code) { this.code = code.toUpperCase(); }\n"
+                + "    public boolean isValid() { return valid; }\n"
+                + "    public void setValid(boolean valid) { this.valid = valid; }\n"
+                + "    public String toString() {\n"
+                + "        return code + \"|\" + valid;\n"
+                + "    }\n}\n");
+        ClassLoader loader = this.compile();
+
+        assertTrue(this.hasBinder("Code"));
+        Class<?> code = loader.loadClass("beans.Code");
+        assertEquals(Arrays.asList("AB|true", "CD|false"),
+                this.parse(code, ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION, "Code,Valid", "ab,true", "cd,false"));
+        assertEquals("beans.Code" + BeanBinder.SUFFIX, creator(code));
+    }
+
+    @Test
+    public void unreachableClassesAreNotedAndBoundThroughReflection() throws Exception {
+        String field = "    @ExcelColumnIndex(columnIndex = \"0\")\n";
+        this.source("Hidden", "@ExcelBean\npublic class Hidden {\n" + field + "    private String value;\n"
+                + "    public String getValue() { return value; }\n"
+                + "    public void setValue(String value) { this.value = value.toUpperCase(); }\n"
+                + "%creator%"
+                + "    public String toString() { return value; }\n}\n");
+        this.source("Unreachable", "@ExcelBean(useSetters = true)\npublic class Unreachable {\n" + field
+                + "    private String value;\n"
+                + "    public String toString() { return value; }\n}\n");
+        this.source("Constant", "@ExcelBean\npublic class Constant {\n" + field
+                + "    final String value = null;\n}\n");
+        this.source("Outer", "public class Outer {\n    @ExcelBean\n    public class Inner {\n" + field
+                + "        String value;\n    }\n}\n");
+        ClassLoader loader = this.compile();
+
+        List<String> notes = this.notes();
+        assertEquals(notes.toString(), 4, notes.size());
+        assertTrue(notes.contains(
+                "No binder generated for beans.Hidden, the field value is private and useSetters is off, "
+                        + "it is bound through reflection"));
+        assertTrue(notes.contains("No binder generated for beans.Unreachable, the field value is private "
+                + "without a setter and a getter, it is bound through reflection"));
+        assertTrue(notes.contains(
+                "No binder generated for beans.Constant, the field value is final, it is bound through reflection"));
+        assertTrue(notes.contains("No binder generated for beans.Outer.Inner, the class is an inner class, "
+                + "it is bound through reflection"));
+        for (String name : new String[] { "Hidden", "Unreachable", "Constant", "Outer$Inner" })
+            assertFalse(name, this.hasBinder(name));
+
+        // Without useSetters reflection sets the field directly, as the baseline did
+        Class<?> hidden = loader.loadClass("beans.Hidden");
+        assertEquals(Arrays.asList("ab"), this.parse(hidden, ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION, "V", "ab"));
+        assertFalse(creator(hidden).endsWith(BeanBinder.SUFFIX));
+        assertEquals(Arrays.asList("cd"), this.parse(loader.loadClass("beans.Unreachable"),
+                ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION, "V", "cd"));
+    }
+}
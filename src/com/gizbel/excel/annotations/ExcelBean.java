@@ -14,4 +14,16 @@ import java.lang.annotation.RetentionPolicy;
 @Retention(RetentionPolicy.RUNTIME)
 public @interface ExcelBean {
 
+    /**
+     * Whether the private annotated fields are set and read through their
+     * JavaBeans setter and getter, when the class declares both, instead of
+     * directly. Off by default, the fields get the cell values as they are
+     * even when a setter would normalise them.<br>
+     * The binders generated by the annotation processor can only reach
+     * private fields through these accessors, a class with private fields
+     * gets one only when this is on.
+     * 
+     * @return
+     */
+    boolean useSetters() default false;
 }
@@ -12,6 +12,7 @@ import java.lang.annotation.Target;
  * @author Saket Kumar
  * @see ExcelColumnHeader#dataType()
  * @see ExcelColumnHeader#defaultValue()
+ * @see ExcelColumnHeader#pattern()
  */
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.FIELD)
@@ -35,7 +36,8 @@ public @interface ExcelColumnHeader {
      * <li>"bool" : returns the boolean representation</li>
      * <li>"string" returns string representation, <b>it's by default</b>
      * <li>"double" returns the double value</li>
-     * <li>"date" returns the java.util.date object</li>
+     * <li>"date" returns the java.sql.Date object, or the LocalDate,
+     * LocalDateTime or Instant value for fields of those types</li>
      * </ul>
      * 
      * @return
@@ -50,4 +52,18 @@ public @interface ExcelColumnHeader {
      * @return
      */
     String defaultValue() default "";
+
+    /**
+     * Date pattern of the column, see java.time.format.DateTimeFormatter.<br>
+     * Used to parse dates stored as text and to write date cells into string
+     * fields. Dates stored as excel dates are converted directly without
+     * using the pattern.<br>
+     * Texts are parsed strictly, impossible dates such as 31-02-2015 give no
+     * value, but dd and MM also accept a single digit, as in 5-3-2015.<br>
+     * Fields of type LocalDate, LocalDateTime and Instant are bound as dates
+     * even without the "date" dataType.
+     * 
+     * @return
+     */
+    String pattern() default "dd-MM-yyyy";
 }
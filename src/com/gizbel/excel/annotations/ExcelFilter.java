@@ -0,0 +1,58 @@
+package com.gizbel.excel.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Keeps only the rows whose cell in the column of the annotated field
+ * matches, the other rows are rejected before the bean is created.<br>
+ * The field must also be annotated with ExcelColumnIndex or
+ * ExcelColumnHeader, the values are compared according to its dataType:
+ * numbers for "int", "long" and "double", dates parsed with the pattern for
+ * "date" and java.time fields, text otherwise. Dates are compared on the day
+ * unless a value has a time of the day, max = "2024-12-31" keeps the cells of
+ * the last day whatever their time. Blank cells and cells which do not
+ * convert never match.
+ *
+ * <pre>
+ * &#64;ExcelColumnHeader(columnHeader = "Status")
+ * &#64;ExcelFilter(equalTo = { "OPEN", "PENDING" })
+ * private String status;
+ *
+ * &#64;ExcelColumnHeader(columnHeader = "Date", dataType = "date", pattern = "yyyy-MM-dd")
+ * &#64;ExcelFilter(min = "2024-01-01", max = "2024-12-31")
+ * private LocalDate date;
+ * </pre>
+ *
+ * @see ExcelFilter#equalTo()
+ * @see ExcelFilter#min()
+ * @see ExcelFilter#max()
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface ExcelFilter {
+
+    /**
+     * Values accepted for the cell, any value when empty.
+     *
+     * @return
+     */
+    String[] equalTo() default {};
+
+    /**
+     * Lowest value accepted for the cell, included, no lower bound when empty.
+     *
+     * @return
+     */
+    String min() default "";
+
+    /**
+     * Highest value accepted for the cell, included, no upper bound when
+     * empty.
+     *
+     * @return
+     */
+    String max() default "";
+}
@@ -0,0 +1,52 @@
+package com.gizbel.excel.converters;
+
+import java.util.Date;
+
+import org.apache.commons.lang3.time.FastDateFormat;
+import org.apache.poi.ss.util.NumberToTextConverter;
+
+/**
+ * Converts a typed cell value into a custom field type, e.g. BigDecimal,
+ * UUID or an enum.<br>
+ * Only fromString is required, override the other methods to read numeric,
+ * boolean and date cells without going through their text.
+ *
+ * @param <V> field type produced by the converter
+ * @see ConverterRegistry
+ */
+public interface CellConverter<V> {
+
+    /**
+     * Converts the trimmed, non empty text of a string cell or a default value.
+     * @param value
+     * @return
+     */
+    V fromString(String value);
+
+    /**
+     * Converts a numeric cell, by default its text as excel shows it.
+     * @param value
+     * @return
+     */
+    default V fromNumber(double value) {
+        return this.fromString(NumberToTextConverter.toText(value));
+    }
+
+    /**
+     * Converts a boolean cell, by default its text TRUE or FALSE.
+     * @param value
+     * @return
+     */
+    default V fromBoolean(boolean value) {
+        return this.fromString(value ? "TRUE" : "FALSE");
+    }
+
+    /**
+     * Converts a date formatted cell, by default its text in dd-MM-yyyy.
+     * @param value
+     * @return
+     */
+    default V fromDate(Date value) {
+        return this.fromString(FastDateFormat.getInstance("dd-MM-yyyy").format(value));
+    }
+}
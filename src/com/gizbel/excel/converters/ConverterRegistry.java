@@ -0,0 +1,123 @@
+package com.gizbel.excel.converters;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.poi.ss.util.NumberToTextConverter;
+
+/**
+ * Holds the converters used for the annotated fields whose type is not one of
+ * the types produced by the dataType attribute (Integer, Long, Double,
+ * Boolean, Date, String and their primitives).<br>
+ * Converters are looked up by the exact field type, enums are converted by
+ * constant name when no converter is registered for them. BigDecimal,
+ * BigInteger and UUID are registered by default.
+ */
+public class ConverterRegistry {
+
+    private final Map<Class<?>, CellConverter<?>> converters = new ConcurrentHashMap<Class<?>, CellConverter<?>>();
+
+    public ConverterRegistry() {
+        this.register(BigDecimal.class, new CellConverter<BigDecimal>() {
+            @Override
+            public BigDecimal fromString(String value) {
+                return new BigDecimal(value);
+            }
+
+            @Override
+            public BigDecimal fromNumber(double value) {
+                if (value == Math.rint(value) && Math.abs(value) < 1e15)
+                    return BigDecimal.valueOf((long) value);
+                return new BigDecimal(NumberToTextConverter.toText(value));
+            }
+        });
+        this.register(BigInteger.class, new CellConverter<BigInteger>() {
+            @Override
+            public BigInteger fromString(String value) {
+                return new BigInteger(value);
+            }
+
+            @Override
+            public BigInteger fromNumber(double value) {
+                if (value == Math.rint(value) && Math.abs(value) < 1e15)
+                    return BigInteger.valueOf((long) value);
+                return new BigDecimal(NumberToTextConverter.toText(value)).toBigIntegerExact();
+            }
+        });
+        this.register(UUID.class, new CellConverter<UUID>() {
+            @Override
+            public UUID fromString(String value) {
+                return UUID.fromString(value);
+            }
+        });
+    }
+
+    /**
+     * Registers the converter for the field type, replacing any previous one.
+     * @param type
+     * @param converter
+     * @return this registry
+     */
+    public <V> ConverterRegistry register(Class<V> type, CellConverter<V> converter) {
+        this.converters.put(type, converter);
+        return this;
+    }
+
+    /**
+     * Returns the converter for the field type, null if there is none.
+     * @param type
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public <V> CellConverter<V> lookup(Class<V> type) {
+        CellConverter<?> converter = this.converters.get(type);
+        if (converter == null && type.isEnum()) {
+            CellConverter<?> created = newEnumConverter(type);
+            converter = this.converters.putIfAbsent(type, created);
+            if (converter == null)
+                converter = created;
+        }
+        return (CellConverter<V>) converter;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static CellConverter<?> newEnumConverter(Class type) {
+        return new EnumConverter(type);
+    }
+
+    /**
+     * Converts the text to the enum constant with the same name, ignoring the
+     * case when there is no exact match.
+     */
+    private static final class EnumConverter<E extends Enum<E>> implements CellConverter<E> {
+
+        private final Class<E> type;
+
+        private final Map<String, E> constants = new HashMap<String, E>();
+
+        EnumConverter(Class<E> type) {
+            this.type = type;
+            for (E constant : type.getEnumConstants()) {
+                this.constants.put(constant.name(), constant);
+            }
+            for (E constant : type.getEnumConstants()) {
+                if (!this.constants.containsKey(constant.name().toUpperCase()))
+                    this.constants.put(constant.name().toUpperCase(), constant);
+            }
+        }
+
+        @Override
+        public E fromString(String value) {
+            E constant = this.constants.get(value);
+            if (constant == null)
+                constant = this.constants.get(value.toUpperCase());
+            if (constant == null)
+                throw new IllegalArgumentException("No enum constant " + this.type.getName() + "." + value);
+            return constant;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.gizbel.excel.factory;
+
+import java.util.List;
+
+/**
+ * Receives the beans of a sheet in batches while the sheet is being read.
+ *
+ * @see Parser#parse(java.io.File, int, BatchConsumer)
+ */
+public interface BatchConsumer<T> {
+
+    /**
+     * Called with every full batch and once with the remaining beans at the
+     * end of the sheet.<br>
+     * The list is reused for the next batch, copy it to keep the beans after
+     * the call.
+     *
+     * @param batch
+     * @throws Exception stops the parsing, thrown back from parse
+     */
+    void accept(List<T> batch) throws Exception;
+}
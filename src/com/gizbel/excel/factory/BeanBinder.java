@@ -0,0 +1,197 @@
+package com.gizbel.excel.factory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Creates the beans of an ExcelBean class and sets their annotated fields,
+ * the fields being numbered in declaration order.<br>
+ * The excel-extractor-processor annotation processor generates a binder for
+ * each ExcelBean class it compiles, named after the class with the
+ * _ExcelBinder suffix in the same package: a switch over the field numbers
+ * assigning the fields directly, or through their setters for the private
+ * fields of classes with ExcelBean.useSetters, and the annotation
+ * attributes written out as BoundFields. The
+ * parser picks the generated binder when there is one, so the bean class is
+ * bound without getDeclaredFields, setAccessible or method handles, which
+ * helps short lived processes and native images. Without one the fields are
+ * bound through reflection as before.<br>
+ * The setters of primitive values are overridden for the fields of that
+ * type so that numbers and booleans are not boxed.
+ *
+ * @param <T> the ExcelBean class
+ */
+public abstract class BeanBinder<T> {
+
+    /** Suffix of the class name of the generated binders. **/
+    public static final String SUFFIX = "_ExcelBinder";
+
+    private final Class<T> beanClass;
+
+    private final List<BoundField> fields;
+
+    /**
+     * @param beanClass the ExcelBean class
+     * @param fields the annotated fields of the class, in declaration order
+     */
+    protected BeanBinder(Class<T> beanClass, BoundField... fields) {
+        this.beanClass = beanClass;
+        this.fields = Collections.unmodifiableList(Arrays.asList(fields.clone()));
+    }
+
+    /**
+     * Finds the generated binder of the class.
+     * @param beanClass
+     * @return null if none was generated, or if it was generated for another
+     *         class
+     */
+    static BeanBinder<?> find(Class<?> beanClass) {
+        try {
+            Class<?> binderClass = Class.forName(beanClass.getName() + SUFFIX, true, beanClass.getClassLoader());
+            if (!BeanBinder.class.isAssignableFrom(binderClass))
+                return null;
+            BeanBinder<?> binder = (BeanBinder<?>) binderClass.getDeclaredConstructor().newInstance();
+            return binder.getBeanClass() == beanClass ? binder : null;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates a bean through the no argument constructor of the class.
+     * @return
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     */
+    public abstract T newInstance() throws InstantiationException, IllegalAccessException;
+
+    /**
+     * Sets a field of the bean, primitive fields are unboxed and widened as
+     * Field.set does.
+     * @param bean
+     * @param field number of the field in getFields
+     * @param value
+     * @throws ClassCastException if the value does not fit the field type
+     */
+    public abstract void set(T bean, int field, Object value);
+
+    /**
+     * Value of a field of the bean, boxed for primitive fields.
+     * @param bean
+     * @param field number of the field in getFields
+     * @return
+     */
+    public abstract Object get(T bean, int field);
+
+    /**
+     * Sets an int field, or any field through set with the boxed value.
+     * @param bean
+     * @param field
+     * @param value
+     */
+    public void setInt(T bean, int field, int value) {
+        this.set(bean, field, Integer.valueOf(value));
+    }
+
+    /**
+     * Sets a long field, or any field through set with the boxed value.
+     * @param bean
+     * @param field
+     * @param value
+     */
+    public void setLong(T bean, int field, long value) {
+        this.set(bean, field, Long.valueOf(value));
+    }
+
+    /**
+     * Sets a double field, or any field through set with the boxed value.
+     * @param bean
+     * @param field
+     * @param value
+     */
+    public void setDouble(T bean, int field, double value) {
+        this.set(bean, field, Double.valueOf(value));
+    }
+
+    /**
+     * Sets a boolean field, or any field through set with the boxed value.
+     * @param bean
+     * @param field
+     * @param value
+     */
+    public void setBoolean(T bean, int field, boolean value) {
+        this.set(bean, field, Boolean.valueOf(value));
+    }
+
+    public final Class<T> getBeanClass() {
+        return beanClass;
+    }
+
+    /**
+     * The annotated fields, numbered by their position.
+     * @return
+     */
+    public final List<BoundField> getFields() {
+        return fields;
+    }
+
+    /**
+     * Exception for a field number out of range.
+     * @param field
+     * @return
+     */
+    protected final IndexOutOfBoundsException noSuchField(int field) {
+        return new IndexOutOfBoundsException("No field " + field + " in " + this.beanClass.getName());
+    }
+
+    /*
+     * Unboxing of the values of primitive fields, with the widening of
+     * Field.set: a short field takes a Byte, a double field any number.
+     */
+
+    protected static short toShort(Object value) {
+        if (value instanceof Byte)
+            return (Byte) value;
+        return (Short) value;
+    }
+
+    protected static int toInt(Object value) {
+        if (value instanceof Byte || value instanceof Short)
+            return ((Number) value).intValue();
+        if (value instanceof Character)
+            return (Character) value;
+        return (Integer) value;
+    }
+
+    protected static long toLong(Object value) {
+        if (value instanceof Byte || value instanceof Short || value instanceof Integer)
+            return ((Number) value).longValue();
+        if (value instanceof Character)
+            return (Character) value;
+        return (Long) value;
+    }
+
+    protected static float toFloat(Object value) {
+        if (value instanceof Byte || value instanceof Short || value instanceof Integer || value instanceof Long)
+            return ((Number) value).floatValue();
+        if (value instanceof Character)
+            return (Character) value;
+        return (Float) value;
+    }
+
+    protected static double toDouble(Object value) {
+        if (value instanceof Byte || value instanceof Short || value instanceof Integer || value instanceof Long
+                || value instanceof Float)
+            return ((Number) value).doubleValue();
+        if (value instanceof Character)
+            return (Character) value;
+        return (Double) value;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [beanClass=" + beanClass.getName() + ", fields=" + fields.size()
+                + "]";
+    }
+}
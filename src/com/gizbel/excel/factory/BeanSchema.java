@@ -0,0 +1,184 @@
+package com.gizbel.excel.factory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.gizbel.excel.annotations.ExcelBean;
+
+/**
+ * Immutable binding metadata of an ExcelBean class, built once per class and
+ * shared by all the parsers of that class, across threads.<br>
+ * Holds the bindings of the fields annotated with ExcelColumnIndex by column
+ * index and the bindings of the fields annotated with ExcelColumnHeader by
+ * column header, along with the binder of the class and the version of the
+ * bindings. The binder is the one generated for the class by the annotation
+ * processor if there is one, else the fields are bound through reflection.
+ */
+final class BeanSchema {
+
+    private static final ClassValue<BeanSchema> SCHEMAS = new ClassValue<BeanSchema>() {
+        @Override
+        protected BeanSchema computeValue(Class<?> type) {
+            try {
+                return new BeanSchema(type);
+            } catch (IllegalAccessException e) {
+                throw new ExtractionException("Can not access the fields of " + type.getName(), e);
+            }
+        }
+    };
+
+    private final Class<?> clazz;
+
+    /** Bindings of the ExcelColumnIndex fields, indexed by column index. **/
+    private final ColumnBinding[] indexBindings;
+
+    /** Bindings of the ExcelColumnHeader fields, keyed by column header. **/
+    private final Map<String, ColumnBinding> headerBindings;
+
+    /** Bindings in use of the ExcelColumnIndex fields, in field declaration order. **/
+    private final List<ColumnBinding> indexFields;
+
+    /** Bindings in use of the ExcelColumnHeader fields, in field declaration order. **/
+    private final List<ColumnBinding> headerFields;
+
+    /** Generated binder of the class, or the reflective one. **/
+    private final BeanBinder<Object> binder;
+
+    /** Annotated fields and their attributes, see getVersion. **/
+    private final String version;
+
+    /**
+     * Returns the cached schema of the class, building it on first use.
+     * @param clazz
+     * @return
+     */
+    static BeanSchema of(Class<?> clazz) {
+        return SCHEMAS.get(clazz);
+    }
+
+    @SuppressWarnings("unchecked")
+    private BeanSchema(Class<?> clazz) throws IllegalAccessException {
+        this.clazz = clazz;
+        BeanBinder<?> generated = BeanBinder.find(clazz);
+        this.binder = (BeanBinder<Object>) (generated != null ? generated : ReflectiveBinder.of(clazz));
+
+        Map<Integer, ColumnBinding> byIndex = new HashMap<Integer, ColumnBinding>();
+        Map<String, ColumnBinding> byHeader = new HashMap<String, ColumnBinding>();
+        List<ColumnBinding> declaredIndex = new ArrayList<ColumnBinding>();
+        List<ColumnBinding> declaredHeader = new ArrayList<ColumnBinding>();
+        int columns = 0;
+
+        List<BoundField> fields = this.binder.getFields();
+        for (int i = 0; i < fields.size(); i++) {
+            BoundField field = fields.get(i);
+            // Non numeric indexes can never match a column
+            if (field.isIndexed() && StringUtils.isNumeric(field.getColumnIndex())) {
+                int columnIndex = Integer.parseInt(field.getColumnIndex());
+                ColumnBinding binding = new ColumnBinding(this.binder, i, field.getIndexDataType(),
+                        field.getIndexDefaultValue(), field.getIndexPattern());
+                byIndex.put(columnIndex, binding);
+                declaredIndex.add(binding);
+                columns = Math.max(columns, columnIndex + 1);
+            }
+            if (field.isHeaded()) {
+                ColumnBinding binding = new ColumnBinding(this.binder, i, field.getHeaderDataType(),
+                        field.getHeaderDefaultValue(), field.getHeaderPattern());
+                byHeader.put(field.getColumnHeader(), binding);
+                declaredHeader.add(binding);
+            }
+        }
+
+        this.indexBindings = new ColumnBinding[columns];
+        for (Map.Entry<Integer, ColumnBinding> entry : byIndex.entrySet()) {
+            this.indexBindings[entry.getKey()] = entry.getValue();
+        }
+        this.headerBindings = Collections.unmodifiableMap(byHeader);
+        // Fields sharing a column with a later field are never bound
+        declaredIndex.retainAll(byIndex.values());
+        declaredHeader.retainAll(byHeader.values());
+        this.indexFields = Collections.unmodifiableList(declaredIndex);
+        this.headerFields = Collections.unmodifiableList(declaredHeader);
+        this.version = versionOf(clazz, this.binder, fields);
+    }
+
+    /**
+     * Creates a new instance of the class through its binder.
+     * @return
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     */
+    Object newInstance() throws InstantiationException, IllegalAccessException {
+        return this.binder.newInstance();
+    }
+
+    /**
+     * Returns the bindings by column index, <b>the array must not be modified</b>.
+     * @return
+     */
+    ColumnBinding[] getIndexBindings() {
+        return indexBindings;
+    }
+
+    Map<String, ColumnBinding> getHeaderBindings() {
+        return headerBindings;
+    }
+
+    List<ColumnBinding> getIndexFields() {
+        return indexFields;
+    }
+
+    List<ColumnBinding> getHeaderFields() {
+        return headerFields;
+    }
+
+    /**
+     * Version of the bindings, a text listing the binder, the useSetters
+     * attribute of the class and the annotated fields with their type and
+     * annotation attributes. Changes whenever an annotation, a field name, a
+     * field type or the way the fields are set changes, so that results
+     * cached for the class are not reused.
+     * @return
+     */
+    String getVersion() {
+        return version;
+    }
+
+    private static String versionOf(Class<?> clazz, BeanBinder<?> binder, List<BoundField> fields) {
+        StringBuilder version = new StringBuilder(clazz.getName());
+        ExcelBean excelBean = clazz.getAnnotation(ExcelBean.class);
+        version.append(" useSetters ").append(excelBean != null && excelBean.useSetters());
+        // A generated binder and the reflective one may not set the same fields through the setters
+        version.append(" binder ")
+                .append(binder instanceof ReflectiveBinder ? "reflective" : binder.getClass().getName());
+        for (BoundField field : fields) {
+            version.append('\n').append(field.getName()).append(' ').append(field.getType().getName());
+            if (field.isIndexed())
+                appendAttributes(version, "index", field.getColumnIndex(), field.getIndexDataType(),
+                        field.getIndexDefaultValue(), field.getIndexPattern());
+            if (field.isHeaded())
+                appendAttributes(version, "header", field.getColumnHeader(), field.getHeaderDataType(),
+                        field.getHeaderDefaultValue(), field.getHeaderPattern());
+            if (field.isFiltered()) {
+                appendAttributes(version, "filter", field.getFilterEqualTo());
+                appendAttributes(version, "range", field.getFilterMin(), field.getFilterMax());
+            }
+        }
+        return version.toString();
+    }
+
+    /**
+     * Appends the attribute values, each followed by a NUL so that no value
+     * can run into the next one.
+     */
+    private static void appendAttributes(StringBuilder version, String name, String... values) {
+        version.append(' ').append(name).append(' ');
+        for (String value : values) {
+            version.append(value).append('\0');
+        }
+    }
+}
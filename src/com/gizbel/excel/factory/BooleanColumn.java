@@ -0,0 +1,66 @@
+package com.gizbel.excel.factory;
+
+import java.util.BitSet;
+
+/**
+ * Column of the fields with the "bool" dataType, backed by a bitset.
+ */
+public final class BooleanColumn extends Column {
+
+    private final BitSet values = new BitSet();
+
+    BooleanColumn(String name) {
+        super(name);
+    }
+
+    /**
+     * Returns the value of the row, false for the null rows.
+     * @param row
+     * @return
+     */
+    public boolean getBoolean(int row) {
+        this.checkIndex(row);
+        return this.values.get(row);
+    }
+
+    /**
+     * Number of rows set to true.
+     * @return
+     */
+    public int getTrueCount() {
+        return this.values.cardinality();
+    }
+
+    @Override
+    public Class<?> getValueClass() {
+        return Boolean.class;
+    }
+
+    @Override
+    Object valueAt(int row) {
+        return Boolean.valueOf(this.values.get(row));
+    }
+
+    @Override
+    void setBoolean(boolean value) {
+        this.values.set(this.lastRow(), value);
+    }
+
+    @Override
+    void setObject(Object value) {
+        if (value instanceof Boolean)
+            this.setBoolean(((Boolean) value).booleanValue());
+        else
+            super.setObject(value);
+    }
+
+    @Override
+    void ensureCapacity(int capacity) {
+        // The bitset grows by itself
+    }
+
+    @Override
+    void trim() {
+        // Unset bits beyond the last true row take no space
+    }
+}
@@ -0,0 +1,165 @@
+package com.gizbel.excel.factory;
+
+import java.util.Arrays;
+
+/**
+ * Description of an annotated field of an ExcelBean class: its name, its
+ * type and the attributes of its ExcelColumnIndex, ExcelColumnHeader and
+ * ExcelFilter annotations.<br>
+ * Read from the annotations by reflection, or written out by the binder
+ * generated for the class, in which case the annotations are never looked
+ * up at runtime. The attributes are set once by the binder constructor, a
+ * field is not modified afterwards.
+ *
+ * @see BeanBinder
+ */
+public final class BoundField {
+
+    private final String name;
+
+    private final Class<?> type;
+
+    /** columnIndex, dataType, defaultValue and pattern, null if not annotated. **/
+    private final String[] index;
+
+    /** columnHeader, dataType, defaultValue and pattern, null if not annotated. **/
+    private final String[] header;
+
+    private final String[] filterEqualTo;
+
+    private final String filterMin;
+
+    private final String filterMax;
+
+    /**
+     * Field without annotation attributes.
+     * @param name name of the field
+     * @param type declared type of the field
+     */
+    public BoundField(String name, Class<?> type) {
+        this(name, type, null, null, null, null, null);
+    }
+
+    private BoundField(String name, Class<?> type, String[] index, String[] header, String[] filterEqualTo,
+            String filterMin, String filterMax) {
+        this.name = name;
+        this.type = type;
+        this.index = index;
+        this.header = header;
+        this.filterEqualTo = filterEqualTo;
+        this.filterMin = filterMin;
+        this.filterMax = filterMax;
+    }
+
+    /**
+     * Attributes of the ExcelColumnIndex annotation of the field.
+     * @param columnIndex
+     * @param dataType
+     * @param defaultValue
+     * @param pattern
+     * @return a copy of this field with the attributes
+     */
+    public BoundField index(String columnIndex, String dataType, String defaultValue, String pattern) {
+        return new BoundField(this.name, this.type, new String[] { columnIndex, dataType, defaultValue, pattern },
+                this.header, this.filterEqualTo, this.filterMin, this.filterMax);
+    }
+
+    /**
+     * Attributes of the ExcelColumnHeader annotation of the field.
+     * @param columnHeader
+     * @param dataType
+     * @param defaultValue
+     * @param pattern
+     * @return a copy of this field with the attributes
+     */
+    public BoundField header(String columnHeader, String dataType, String defaultValue, String pattern) {
+        return new BoundField(this.name, this.type, this.index,
+                new String[] { columnHeader, dataType, defaultValue, pattern }, this.filterEqualTo, this.filterMin,
+                this.filterMax);
+    }
+
+    /**
+     * Attributes of the ExcelFilter annotation of the field.
+     * @param equalTo
+     * @param min
+     * @param max
+     * @return a copy of this field with the attributes
+     */
+    public BoundField filter(String[] equalTo, String min, String max) {
+        return new BoundField(this.name, this.type, this.index, this.header, equalTo.clone(), min, max);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    boolean isIndexed() {
+        return index != null;
+    }
+
+    String getColumnIndex() {
+        return index[0];
+    }
+
+    String getIndexDataType() {
+        return index[1];
+    }
+
+    String getIndexDefaultValue() {
+        return index[2];
+    }
+
+    String getIndexPattern() {
+        return index[3];
+    }
+
+    boolean isHeaded() {
+        return header != null;
+    }
+
+    String getColumnHeader() {
+        return header[0];
+    }
+
+    String getHeaderDataType() {
+        return header[1];
+    }
+
+    String getHeaderDefaultValue() {
+        return header[2];
+    }
+
+    String getHeaderPattern() {
+        return header[3];
+    }
+
+    boolean isFiltered() {
+        return filterEqualTo != null;
+    }
+
+    String[] getFilterEqualTo() {
+        return filterEqualTo;
+    }
+
+    String getFilterMin() {
+        return filterMin;
+    }
+
+    String getFilterMax() {
+        return filterMax;
+    }
+
+    @Override
+    public String toString() {
+        return "BoundField [name=" + name + ", type=" + type.getName()
+                + (index == null ? "" : ", index=" + Arrays.toString(index))
+                + (header == null ? "" : ", header=" + Arrays.toString(header))
+                + (filterEqualTo == null ? ""
+                        : ", filter=" + Arrays.toString(filterEqualTo) + " " + filterMin + ".." + filterMax)
+                + "]";
+    }
+}
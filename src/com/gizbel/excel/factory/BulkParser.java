@@ -0,0 +1,312 @@
+package com.gizbel.excel.factory;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Parses batches of files concurrently with a shared, configured Parser.<br>
+ * A failing file is reported in its FileResult and does not abort the batch.
+ * At most maxOpenWorkbooks files are parsed at the same time whatever the
+ * executor, which caps the memory used by the loaded workbooks.<br>
+ * Without an executor, every batch runs on virtual threads when the JDK
+ * provides them, on a fixed pool of maxOpenWorkbooks threads otherwise.
+ *
+ * <pre>
+ * BulkParser bulkParser = new BulkParser(parser);
+ * BulkResult result = bulkParser.parseDirectory(Paths.get("/data/vendors"), "**.{xls,xlsx}");
+ * for (FileResult failure : result.getFailures())
+ *     log.warn(failure.getPath() + " : " + failure.getFailure());
+ * </pre>
+ */
+public class BulkParser {
+
+    private final Parser<?> parser;
+
+    /**
+     * Maximum number of files parsed at the same time, the number of cores by
+     * default.
+     **/
+    private int maxOpenWorkbooks = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Runs the parsing of the files, null to use a new executor per batch.
+     **/
+    private Executor executor;
+
+    /**
+     * @param parser configured parser used for all the files, parsers can be
+     *            shared between threads
+     */
+    public BulkParser(Parser<?> parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * Parses the files of the directory and its sub directories whose path
+     * relative to the directory matches the glob, e.g. "*.xlsx" for the top
+     * level files or "**.{xls,xlsx}" at any depth. Files are taken in path
+     * order.
+     *
+     * @param directory
+     * @param glob null for all the top level files
+     * @return
+     * @throws IOException if the directory can not be listed
+     * @throws InterruptedException
+     */
+    public BulkResult parseDirectory(Path directory, String glob) throws IOException, InterruptedException {
+        return this.parse(listFiles(directory, glob));
+    }
+
+    /**
+     * Parses the files concurrently and keeps all their results.
+     *
+     * @param files
+     * @return the results in the order of the files along with the throughput
+     * @throws InterruptedException if interrupted while waiting for the files,
+     *             files not started yet are not parsed
+     */
+    public BulkResult parse(Collection<Path> files) throws InterruptedException {
+        return this.run(files, null);
+    }
+
+    /**
+     * Parses the files concurrently and hands each result to the consumer as
+     * soon as the file is done, so that the beans of the whole batch are never
+     * held at the same time.<br>
+     * The consumer is called from the parsing threads and must be thread
+     * safe, an exception thrown by the consumer is reported as a failure of
+     * the file, or suppressed by the parse failure of a file that failed.
+     *
+     * @param files
+     * @param consumer
+     * @return the failures and the throughput, without the file results
+     * @throws InterruptedException if interrupted while waiting for the files,
+     *             files not started yet are not parsed
+     */
+    public BulkResult parse(Collection<Path> files, Consumer<FileResult> consumer) throws InterruptedException {
+        if (consumer == null)
+            throw new IllegalArgumentException("Consumer is required");
+        return this.run(files, consumer);
+    }
+
+    private BulkResult run(Collection<Path> files, final Consumer<FileResult> consumer) throws InterruptedException {
+        final Batch batch = new Batch(files.size(), this.maxOpenWorkbooks, consumer);
+        ExecutorService ownExecutor = this.executor == null ? newExecutor(this.maxOpenWorkbooks) : null;
+        Executor executor = ownExecutor != null ? ownExecutor : this.executor;
+        long start = System.nanoTime();
+        try {
+            int index = 0;
+            for (final Path path : files) {
+                final int fileIndex = index++;
+                try {
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            batch.parse(BulkParser.this.parser, fileIndex, path);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    batch.done(fileIndex, new FileResult(path, null, e, 0));
+                }
+            }
+            batch.await();
+        } catch (InterruptedException e) {
+            batch.cancelled = true;
+            throw e;
+        } finally {
+            if (ownExecutor != null)
+                ownExecutor.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        List<FileResult> fileResults = consumer == null ? Arrays.asList(batch.results)
+                : Collections.<FileResult>emptyList();
+        return new BulkResult(fileResults, new ArrayList<FileResult>(batch.failures), files.size(),
+                batch.rowCount.get(), batch.byteCount.get(), elapsed);
+    }
+
+    /**
+     * State of one batch shared by the parsing threads.
+     */
+    private static final class Batch {
+
+        private final FileResult[] results;
+
+        private final ConcurrentLinkedQueue<FileResult> failures = new ConcurrentLinkedQueue<FileResult>();
+
+        private final AtomicLong rowCount = new AtomicLong();
+
+        private final AtomicLong byteCount = new AtomicLong();
+
+        private final CountDownLatch remaining;
+
+        /** Bounds the number of files open at the same time. **/
+        private final Semaphore openWorkbooks;
+
+        private final Consumer<FileResult> consumer;
+
+        private volatile boolean cancelled;
+
+        Batch(int fileCount, int maxOpenWorkbooks, Consumer<FileResult> consumer) {
+            this.results = consumer == null ? new FileResult[fileCount] : null;
+            this.remaining = new CountDownLatch(fileCount);
+            this.openWorkbooks = new Semaphore(maxOpenWorkbooks);
+            this.consumer = consumer;
+        }
+
+        void parse(Parser<?> parser, int fileIndex, Path path) {
+            FileResult result;
+            try {
+                this.openWorkbooks.acquire();
+            } catch (InterruptedException e) {
+                this.done(fileIndex, new FileResult(path, null, e, 0));
+                return;
+            }
+            try {
+                long start = System.nanoTime();
+                try {
+                    if (this.cancelled)
+                        throw new InterruptedException("Batch interrupted");
+                    List<Object> beans = parser.parse(path.toFile());
+                    result = new FileResult(path, beans, null, System.nanoTime() - start);
+                    this.rowCount.addAndGet(beans.size());
+                } catch (Exception e) {
+                    result = new FileResult(path, null, e, System.nanoTime() - start);
+                }
+            } finally {
+                this.openWorkbooks.release();
+            }
+            try {
+                this.byteCount.addAndGet(Files.size(path));
+            } catch (IOException e) {
+                // Already reported by the parsing if the file is unreadable
+            }
+            this.done(fileIndex, result);
+        }
+
+        /**
+         * Records the result of the file, at most one failure per file: a
+         * consumer failing on a failed file is added to the suppressed
+         * exceptions of the parse failure.
+         */
+        void done(int fileIndex, FileResult result) {
+            try {
+                FileResult failure = result.isSuccess() ? null : result;
+                if (this.consumer == null) {
+                    this.results[fileIndex] = result;
+                } else {
+                    try {
+                        this.consumer.accept(result);
+                    } catch (RuntimeException e) {
+                        if (failure == null)
+                            failure = new FileResult(result.getPath(), null, e, result.getElapsedNanos());
+                        else
+                            failure.getFailure().addSuppressed(e);
+                    }
+                }
+                if (failure != null)
+                    this.failures.add(failure);
+            } finally {
+                this.remaining.countDown();
+            }
+        }
+
+        void await() throws InterruptedException {
+            this.remaining.await();
+        }
+    }
+
+    /**
+     * Lists the regular files under the directory matching the glob.
+     */
+    private static List<Path> listFiles(final Path directory, String glob) throws IOException {
+        FileSystem fileSystem = directory.getFileSystem();
+        final PathMatcher matcher = fileSystem.getPathMatcher("glob:" + (glob == null ? "*" : glob));
+        List<Path> files = new ArrayList<Path>();
+        Stream<Path> paths = Files.walk(directory);
+        try {
+            Iterator<Path> iterator = paths.iterator();
+            while (iterator.hasNext()) {
+                Path path = iterator.next();
+                if (Files.isRegularFile(path) && matcher.matches(directory.relativize(path)))
+                    files.add(path);
+            }
+        } finally {
+            paths.close();
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * Creates a virtual thread per task executor when the JDK has one, looked
+     * up by reflection to keep running on older JDKs, otherwise a fixed pool
+     * of daemon threads.
+     */
+    private static ExecutorService newExecutor(int threads) {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            // Virtual threads are not available
+        }
+        final AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "excel-extractor-bulk-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    public int getMaxOpenWorkbooks() {
+        return maxOpenWorkbooks;
+    }
+
+    /**
+     * Sets the maximum number of files parsed at the same time.
+     * @param maxOpenWorkbooks
+     */
+    public void setMaxOpenWorkbooks(int maxOpenWorkbooks) {
+        if (maxOpenWorkbooks < 1)
+            throw new IllegalArgumentException("Max open workbooks must be at least 1");
+        this.maxOpenWorkbooks = maxOpenWorkbooks;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Sets the executor running the parsing of the files, it is not shut down
+     * by the BulkParser.
+     * @param executor null to use virtual threads when available
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+}
@@ -0,0 +1,108 @@
+package com.gizbel.excel.factory;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a BulkParser batch: the per file results, the failures and the
+ * aggregate throughput.
+ */
+public class BulkResult {
+
+    private final List<FileResult> fileResults;
+
+    private final List<FileResult> failures;
+
+    private final int fileCount;
+
+    private final long rowCount;
+
+    private final long byteCount;
+
+    private final long elapsedNanos;
+
+    BulkResult(List<FileResult> fileResults, List<FileResult> failures, int fileCount, long rowCount,
+            long byteCount, long elapsedNanos) {
+        this.fileResults = Collections.unmodifiableList(fileResults);
+        this.failures = Collections.unmodifiableList(failures);
+        this.fileCount = fileCount;
+        this.rowCount = rowCount;
+        this.byteCount = byteCount;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Results of all the files in the order they were given, empty when the
+     * results were handed to a consumer instead.
+     * @return
+     */
+    public List<FileResult> getFileResults() {
+        return fileResults;
+    }
+
+    /**
+     * Results of the failed files, in completion order.
+     * @return
+     */
+    public List<FileResult> getFailures() {
+        return failures;
+    }
+
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    public int getSucceededCount() {
+        return fileCount - failures.size();
+    }
+
+    public int getFailedCount() {
+        return failures.size();
+    }
+
+    /**
+     * Number of beans extracted from all the files.
+     * @return
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Total size of the files.
+     * @return
+     */
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * Wall clock time of the whole batch.
+     * @return
+     */
+    public long getElapsedMillis() {
+        return elapsedNanos / 1000000L;
+    }
+
+    public double getFilesPerSecond() {
+        return perSecond(fileCount);
+    }
+
+    public double getRowsPerSecond() {
+        return perSecond(rowCount);
+    }
+
+    public double getBytesPerSecond() {
+        return perSecond(byteCount);
+    }
+
+    private double perSecond(long count) {
+        return elapsedNanos == 0 ? 0 : count * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BulkResult [files=%d, failed=%d, rows=%d, elapsedMillis=%d, files/s=%.1f, rows/s=%.1f]",
+                fileCount, getFailedCount(), rowCount, getElapsedMillis(), getFilesPerSecond(), getRowsPerSecond());
+    }
+}
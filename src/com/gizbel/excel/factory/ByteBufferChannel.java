@@ -0,0 +1,85 @@
+package com.gizbel.excel.factory;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * Read only channel over the bytes of a buffer, from its start to its limit,
+ * e.g. a memory mapped file or an upload held in memory. The buffer is read
+ * through its own position, it must not be shared.
+ */
+final class ByteBufferChannel implements SeekableByteChannel {
+
+    private final ByteBuffer bytes;
+
+    private boolean open = true;
+
+    ByteBufferChannel(ByteBuffer bytes) {
+        this.bytes = bytes;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws ClosedChannelException {
+        this.ensureOpen();
+        int remaining = this.bytes.remaining();
+        if (remaining == 0)
+            return dst.hasRemaining() ? -1 : 0;
+        int count = Math.min(remaining, dst.remaining());
+        ByteBuffer slice = this.bytes.duplicate();
+        slice.limit(slice.position() + count);
+        dst.put(slice);
+        this.bytes.position(this.bytes.position() + count);
+        return count;
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long position() throws ClosedChannelException {
+        this.ensureOpen();
+        return this.bytes.position();
+    }
+
+    /**
+     * Positions past the end are allowed, reads then return -1.
+     */
+    @Override
+    public SeekableByteChannel position(long newPosition) throws ClosedChannelException {
+        this.ensureOpen();
+        if (newPosition < 0)
+            throw new IllegalArgumentException("Negative position " + newPosition);
+        this.bytes.position((int) Math.min(newPosition, this.bytes.limit()));
+        return this;
+    }
+
+    @Override
+    public long size() throws ClosedChannelException {
+        this.ensureOpen();
+        return this.bytes.limit();
+    }
+
+    @Override
+    public SeekableByteChannel truncate(long size) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return this.open;
+    }
+
+    @Override
+    public void close() {
+        this.open = false;
+    }
+
+    private void ensureOpen() throws ClosedChannelException {
+        if (!this.open)
+            throw new ClosedChannelException();
+    }
+}
@@ -0,0 +1,18 @@
+package com.gizbel.excel.factory;
+
+/**
+ * Condition on the raw value of a cell, rows whose cell does not match are
+ * rejected before the bean is created.<br>
+ * Predicates of a parser shared between threads must be thread safe.
+ *
+ * @see Parser#addFilter(int, CellPredicate)
+ * @see Parser#addFilter(String, CellPredicate)
+ */
+public interface CellPredicate {
+
+    /**
+     * @param cell reused for every cell, must not be kept
+     * @return false to reject the row
+     */
+    boolean test(CellValue cell);
+}
@@ -0,0 +1,72 @@
+package com.gizbel.excel.factory;
+
+import java.time.LocalDateTime;
+
+/**
+ * Raw decoded value of a cell, as seen by the CellPredicate of a filter
+ * before any bean is created.<br>
+ * The instance is reused for every cell, it must not be kept after the test.
+ */
+public interface CellValue {
+
+    /**
+     * Zero based number of the row in the sheet.
+     * @return
+     */
+    int getRowNum();
+
+    /**
+     * Whether the cell is missing, blank or holds blank text.
+     * @return
+     */
+    boolean isBlank();
+
+    /**
+     * Whether the cell holds a number, dates included.
+     * @return
+     */
+    boolean isNumber();
+
+    /**
+     * Whether the cell holds a number with a date format.
+     * @return
+     */
+    boolean isDate();
+
+    boolean isBoolean();
+
+    /**
+     * Whether the cell holds text, formula results and inline strings
+     * included.
+     * @return
+     */
+    boolean isText();
+
+    /**
+     * Returns the number of a numeric or date cell, the excel serial date for
+     * dates.
+     * @return
+     * @throws IllegalStateException if the cell is not a number
+     */
+    double getNumber();
+
+    /**
+     * @return
+     * @throws IllegalStateException if the cell is not a boolean
+     */
+    boolean getBoolean();
+
+    /**
+     * Returns the date of a date or numeric cell.
+     * @return
+     * @throws IllegalStateException if the cell is not a number
+     */
+    LocalDateTime getDateTime();
+
+    /**
+     * Returns the text of the cell, numbers as excel shows them in the General
+     * format, dates as dd-MM-yyyy and booleans as TRUE or FALSE.
+     * @return null for blank cells
+     */
+    String getText();
+}
@@ -0,0 +1,242 @@
+package com.gizbel.excel.factory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Progress of a checkpointed batch parse, as saved in its state file after
+ * every batch the consumer accepted: the last row of the batch, the number
+ * of beans delivered so far and, for column name based extraction, the
+ * column of each header. A parse stopped midway resumes after that row.<br>
+ * The file parsed is identified by its length and a digest of its first and
+ * last 64KB, so that a checkpoint is not applied to another file.
+ *
+ * @see Parser#parse(File, int, BatchConsumer, File)
+ */
+public final class Checkpoint {
+
+    private static final int DIGEST_BYTES = 1 << 16;
+
+    private static final String FILE_LENGTH = "file.length";
+    private static final String FILE_DIGEST = "file.digest";
+    private static final String ROW = "row";
+    private static final String BEANS = "beans";
+    private static final String COMPLETE = "complete";
+    private static final String HEADER = "header.";
+
+    private final long fileLength;
+
+    private final String fileDigest;
+
+    /** Row of the last bean delivered, -1 before the first batch. **/
+    private final int rowNum;
+
+    private final long beanCount;
+
+    private final Map<String, Integer> headers;
+
+    private final boolean complete;
+
+    Checkpoint(long fileLength, String fileDigest, int rowNum, long beanCount, Map<String, Integer> headers,
+            boolean complete) {
+        this.fileLength = fileLength;
+        this.fileDigest = fileDigest;
+        this.rowNum = rowNum;
+        this.beanCount = beanCount;
+        this.headers = Collections.unmodifiableMap(new LinkedHashMap<String, Integer>(headers));
+        this.complete = complete;
+    }
+
+    /**
+     * Checkpoint of a parse of the file which has not delivered any bean yet.
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    static Checkpoint start(File file) throws IOException {
+        return new Checkpoint(file.length(), digest(file), -1, 0, Collections.<String, Integer> emptyMap(), false);
+    }
+
+    /**
+     * Checkpoint of the same file after more beans were delivered.
+     * @param rowNum row of the last bean delivered
+     * @param beanCount total number of beans delivered
+     * @param headers column of each header, null for column index based
+     *            extraction
+     * @param complete whether the sheet is done
+     * @return
+     */
+    Checkpoint next(int rowNum, long beanCount, Map<String, Integer> headers, boolean complete) {
+        return new Checkpoint(this.fileLength, this.fileDigest, rowNum, beanCount,
+                headers == null ? Collections.<String, Integer> emptyMap() : headers, complete);
+    }
+
+    /**
+     * Whether both checkpoints are of the same file.
+     * @param other
+     * @return
+     */
+    boolean isOfSameFile(Checkpoint other) {
+        return this.fileLength == other.fileLength && this.fileDigest.equals(other.fileDigest);
+    }
+
+    /**
+     * Reads a state file.
+     * @param stateFile
+     * @return null if the file does not exist
+     * @throws IOException if it can not be read or is not a checkpoint
+     */
+    public static Checkpoint load(File stateFile) throws IOException {
+        if (!stateFile.exists())
+            return null;
+        Properties properties = new Properties();
+        InputStream in = new FileInputStream(stateFile);
+        try {
+            properties.load(in);
+        } finally {
+            in.close();
+        }
+        Map<String, Integer> headers = new LinkedHashMap<String, Integer>();
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith(HEADER))
+                headers.put(name.substring(HEADER.length()), Integer.valueOf(properties.getProperty(name)));
+        }
+        try {
+            return new Checkpoint(Long.parseLong(properties.getProperty(FILE_LENGTH)),
+                    properties.getProperty(FILE_DIGEST), Integer.parseInt(properties.getProperty(ROW)),
+                    Long.parseLong(properties.getProperty(BEANS)),
+                    headers, Boolean.parseBoolean(properties.getProperty(COMPLETE)));
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid checkpoint " + stateFile + ", " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the state file durably: to a temp file synced to the disk, then
+     * moved in place so that the state file is always complete.
+     * @param stateFile
+     * @throws IOException
+     */
+    void save(File stateFile) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(FILE_LENGTH, Long.toString(this.fileLength));
+        properties.setProperty(FILE_DIGEST, this.fileDigest);
+        properties.setProperty(ROW, Integer.toString(this.rowNum));
+        properties.setProperty(BEANS, Long.toString(this.beanCount));
+        properties.setProperty(COMPLETE, Boolean.toString(this.complete));
+        for (Map.Entry<String, Integer> header : this.headers.entrySet()) {
+            properties.setProperty(HEADER + header.getKey(), header.getValue().toString());
+        }
+
+        File directory = stateFile.getAbsoluteFile().getParentFile();
+        File temp = File.createTempFile(stateFile.getName(), ".tmp", directory);
+        try {
+            FileOutputStream out = new FileOutputStream(temp);
+            try {
+                properties.store(out, null);
+                out.getFD().sync();
+            } finally {
+                out.close();
+            }
+            Files.move(temp.toPath(), stateFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            temp.delete();
+        }
+    }
+
+    /**
+     * SHA-256 of the first and last 64KB of the file, enough to tell files
+     * of the same length apart: the zip directory of xlsx files is at the
+     * end.
+     */
+    private static String digest(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[DIGEST_BYTES];
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            long length = in.length();
+            int head = (int) Math.min(length, DIGEST_BYTES);
+            in.readFully(buffer, 0, head);
+            digest.update(buffer, 0, head);
+            if (length > DIGEST_BYTES) {
+                int tail = (int) Math.min(length - DIGEST_BYTES, DIGEST_BYTES);
+                in.seek(length - tail);
+                in.readFully(buffer, 0, tail);
+                digest.update(buffer, 0, tail);
+            }
+        } finally {
+            in.close();
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    public long getFileLength() {
+        return fileLength;
+    }
+
+    public String getFileDigest() {
+        return fileDigest;
+    }
+
+    /**
+     * Zero based row number of the last bean delivered.
+     * @return -1 before the first batch
+     */
+    public int getRowNum() {
+        return rowNum;
+    }
+
+    /**
+     * Number of beans delivered to the consumer, over all the runs of the
+     * parse.
+     * @return
+     */
+    public long getBeanCount() {
+        return beanCount;
+    }
+
+    /**
+     * Column index of each header bound to a field, empty for column index
+     * based extraction.
+     * @return
+     */
+    public Map<String, Integer> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Whether the whole sheet was delivered, parsing again with this state
+     * file delivers nothing.
+     * @return
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    @Override
+    public String toString() {
+        return "Checkpoint [rowNum=" + rowNum + ", beanCount=" + beanCount + ", complete=" + complete
+                + ", headers=" + headers + "]";
+    }
+}
@@ -0,0 +1,67 @@
+package com.gizbel.excel.factory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Saves the progress of a checkpointed batch parse to its state file after
+ * every batch the consumer accepted, starting from the checkpoint the parse
+ * resumes from.
+ */
+final class CheckpointLog {
+
+    private final File stateFile;
+
+    private final Checkpoint resumedFrom;
+
+    private Checkpoint last;
+
+    CheckpointLog(File stateFile, Checkpoint resumedFrom) {
+        this.stateFile = stateFile;
+        this.resumedFrom = resumedFrom;
+        this.last = resumedFrom;
+    }
+
+    /**
+     * Checks that the headers resolved again when resuming are in the
+     * columns they were in, before any bean is delivered.
+     * @param headers column of each header, null for column index based
+     *            extraction
+     * @throws ExtractionException if a header has moved
+     */
+    void verifyHeaders(Map<String, Integer> headers) {
+        if (headers == null || this.resumedFrom.getRowNum() < 0)
+            return;
+        if (!headers.equals(this.resumedFrom.getHeaders()))
+            throw new ExtractionException("The headers " + headers + " differ from the headers "
+                    + this.resumedFrom.getHeaders() + " of the checkpoint " + this.stateFile, null);
+    }
+
+    /**
+     * Saves the checkpoint once the consumer has accepted a batch.
+     * @param rowNum row of the last bean of the batch
+     * @param beanCount number of beans of the batch
+     * @param headers column of each header, null for column index based
+     *            extraction
+     * @throws IOException
+     */
+    void committed(int rowNum, int beanCount, Map<String, Integer> headers) throws IOException {
+        this.last = this.last.next(rowNum, this.last.getBeanCount() + beanCount, headers, false);
+        this.last.save(this.stateFile);
+    }
+
+    /**
+     * Marks the parse complete once the last batch is accepted.
+     * @param headers
+     * @throws IOException
+     */
+    void completed(Map<String, Integer> headers) throws IOException {
+        this.last = this.last.next(this.last.getRowNum(), this.last.getBeanCount(), headers, true);
+        this.last.save(this.stateFile);
+    }
+
+    Checkpoint getLast() {
+        return last;
+    }
+}
@@ -0,0 +1,298 @@
+package com.gizbel.excel.factory;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.gizbel.excel.factory.DelimitedStreamReader.Chunk;
+
+/**
+ * Parses delimited text in chunks of records on several threads, each thread
+ * tokenizing and binding whole chunks with its own copy of the context.<br>
+ * The file is split by scanning it once for the record boundaries, which
+ * also gives the row number each chunk starts at. The first record is read
+ * on the calling thread before the chunks, so that they are bound with the
+ * resolved headers.<br>
+ * The beans of the chunks are merged in file order, up to the first chunk
+ * stopped by an empty row or a failure, and the offset of the parse is
+ * applied on the merged beans. The rows after the end of the sheet are never
+ * read by the sequential parse, so a failure is only thrown once the chunks
+ * before it are merged; when the failed row is within the offset, which the
+ * sequential parse skips unbound, the rest of the file is read sequentially.
+ * Likewise the conversion errors of a lenient parse are held by their chunk
+ * and reported along with their bean when it is merged, those of the beans
+ * within the offset or after the end are dropped.<br>
+ * Only used without limit, the chunks after the limit would be parsed for
+ * nothing.
+ */
+final class ChunkedExtraction {
+
+    /** Chunks smaller than this are not worth a thread. **/
+    static final long MIN_CHUNK_SIZE = 1 << 20;
+
+    /** Chunks per thread, so that the threads done first take the remaining ones. **/
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final Parser<?> parser;
+
+    private final ParseContext context;
+
+    private final DelimitedStreamReader reader;
+
+    private final int parallelism;
+
+    private List<Chunk> chunks;
+
+    private ChunkResult[] results;
+
+    private final AtomicInteger nextChunk = new AtomicInteger(1);
+
+    /**
+     * Index of the first chunk stopped by an empty row, a failure or too many
+     * conversion errors, the next ones are not needed.
+     **/
+    private volatile int lastChunk = Integer.MAX_VALUE;
+
+    /** Failure of the last chunk, null if it was stopped otherwise. **/
+    private Throwable failure;
+
+    ChunkedExtraction(Parser<?> parser, ParseContext context, DelimitedStreamReader reader, int parallelism) {
+        this.parser = parser;
+        this.context = context;
+        this.reader = reader;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Reads the file and binds its chunks.
+     * @return the beans in file order
+     * @throws IOException
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     * @throws ParseException
+     */
+    List<Object> parse() throws IOException, InstantiationException, IllegalAccessException, ParseException {
+        ParseMetrics metrics = this.context.getMetrics();
+        long start = metrics == null ? 0 : System.nanoTime();
+        this.chunks = this.reader.split(this.parallelism * CHUNKS_PER_THREAD, MIN_CHUNK_SIZE, true);
+        this.results = new ChunkResult[this.chunks.size()];
+        // Scanning the record boundaries is the opening of the file
+        if (metrics != null)
+            metrics.opened(this.reader.getSheetName(0), System.nanoTime() - start);
+
+        // First record, the header row or the first bean
+        List<Object> result = new ArrayList<Object>();
+        if (!this.readSequentially(this.chunks.get(0), result))
+            return result;
+
+        this.runWorkers();
+
+        if (metrics != null)
+            metrics.buffered(this.countBeans());
+        ConversionErrors errors = this.context.getErrors();
+        for (int i = 1; i < this.results.length && i <= this.lastChunk; i++) {
+            ChunkResult chunk = this.results[i];
+            if (i == this.lastChunk && this.failure != null && this.context.getOffset() > chunk.beans.size()) {
+                // The failed row is within the offset, the sequential parse skips it unbound
+                Chunk records = this.chunks.get(i);
+                this.readSequentially(new Chunk(records.start, Long.MAX_VALUE, records.firstRowNum), result);
+                return result;
+            }
+            this.context.addRejectedCounts(chunk.context);
+            int error = 0;
+            for (int bean = 0; bean < chunk.beans.size(); bean++) {
+                // Counts the offset, there is no limit
+                boolean admitted = this.context.admitRow() == null;
+                if (admitted)
+                    result.add(chunk.beans.get(bean));
+                for (; error < chunk.errors.size() && chunk.errorBeans.get(error) == bean; error++) {
+                    if (admitted)
+                        errors.report(chunk.errors.get(error));
+                }
+            }
+            // Errors of the row whose binding failed
+            for (; error < chunk.errors.size() && this.context.getOffset() == 0; error++)
+                errors.report(chunk.errors.get(error));
+        }
+        Throwable cause = this.failure;
+        if (cause instanceof Error)
+            throw (Error) cause;
+        if (cause != null)
+            Parser.rethrow((Exception) cause);
+        return result;
+    }
+
+    /**
+     * Reads the records of the chunk on the calling thread with the context
+     * of the parse.
+     * @param records
+     * @param result
+     * @return false if the sheet ended in the chunk
+     * @throws IOException
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     * @throws ParseException
+     */
+    private boolean readSequentially(Chunk records, final List<Object> result) throws IOException,
+            InstantiationException, IllegalAccessException, ParseException {
+        final boolean[] ended = new boolean[1];
+        try {
+            this.reader.read(records, this.context.getRowFilter(), new RowCallback() {
+                @Override
+                public boolean onRow(RowBuffer row) throws Exception {
+                    Object beanObj = ChunkedExtraction.this.parser.processRow(row, ChunkedExtraction.this.context);
+                    if (beanObj == Parser.END_OF_SHEET) {
+                        ended[0] = true;
+                        return false;
+                    }
+                    if (beanObj != null)
+                        result.add(beanObj);
+                    return true;
+                }
+            });
+        } catch (Exception e) {
+            Parser.rethrow(e);
+        }
+        return !ended[0];
+    }
+
+    /**
+     * Beans held by the chunks until they are merged.
+     */
+    private int countBeans() {
+        int count = 0;
+        for (ChunkResult chunk : this.results) {
+            if (chunk != null)
+                count += chunk.beans.size();
+        }
+        return count;
+    }
+
+    private void runWorkers() {
+        Worker[] workers = new Worker[Math.min(this.parallelism, this.chunks.size() - 1)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker("excel-extractor-chunk-" + i);
+            workers[i].start();
+        }
+        boolean interrupted = false;
+        for (Worker worker : workers) {
+            while (worker.isAlive()) {
+                try {
+                    worker.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Binds the rows of a chunk with a copy of the context into its result,
+     * the conversion errors of a lenient parse are held by the result.<br>
+     * Without offset the chunk stops after more errors than allowed, merging
+     * it is bound to stop the parse.
+     * @param index
+     * @throws Exception
+     */
+    private void parseChunk(final int index) throws Exception {
+        final ChunkResult chunk = new ChunkResult(new ParseContext(this.context));
+        this.results[index] = chunk;
+        ConversionErrors errors = this.context.getErrors();
+        final int maxErrors = errors == null || this.context.getOffset() > 0 ? Integer.MAX_VALUE
+                : errors.getMaxErrors();
+        if (errors != null) {
+            chunk.context.setErrors(new ConversionErrors(new ErrorCollector() {
+                @Override
+                public void collect(ParseError error) {
+                    chunk.errors.add(error);
+                    chunk.errorBeans.add(chunk.beans.size());
+                }
+            }, Integer.MAX_VALUE));
+        }
+        Chunk records = this.chunks.get(index);
+        if (chunk.context.getRowFilter().isAfterRange(records.firstRowNum))
+            return;
+        this.reader.read(records, chunk.context.getRowFilter(), new RowCallback() {
+            @Override
+            public boolean onRow(RowBuffer row) throws Exception {
+                ChunkedExtraction extraction = ChunkedExtraction.this;
+                if (index > extraction.lastChunk)
+                    return false;
+                Object beanObj = extraction.parser.processRow(row, chunk.context);
+                if (beanObj == Parser.END_OF_SHEET) {
+                    extraction.stopAt(index, null);
+                    return false;
+                }
+                if (beanObj != null)
+                    chunk.beans.add(beanObj);
+                if (chunk.errors.size() > maxErrors) {
+                    extraction.stopAt(index, null);
+                    return false;
+                }
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Stops the workers after the chunk, unless an earlier one was stopped.
+     * @param index
+     * @param failure null when stopped by an empty row or too many errors
+     */
+    private synchronized void stopAt(int index, Throwable failure) {
+        if (index < this.lastChunk) {
+            this.lastChunk = index;
+            this.failure = failure;
+        }
+    }
+
+    /**
+     * Beans of a chunk, the context which bound them and the conversion
+     * errors held along with the number of their bean.
+     */
+    private static final class ChunkResult {
+
+        private final ParseContext context;
+
+        private final List<Object> beans = new ArrayList<Object>();
+
+        private final List<ParseError> errors = new ArrayList<ParseError>();
+
+        private final List<Integer> errorBeans = new ArrayList<Integer>();
+
+        ChunkResult(ParseContext context) {
+            this.context = context;
+        }
+    }
+
+    /**
+     * Takes the chunks in file order until there is none left or none needed.
+     */
+    private final class Worker extends Thread {
+
+        Worker(String name) {
+            super(name);
+            this.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            ChunkedExtraction extraction = ChunkedExtraction.this;
+            while (true) {
+                int index = extraction.nextChunk.getAndIncrement();
+                if (index >= extraction.results.length || index > extraction.lastChunk)
+                    return;
+                try {
+                    extraction.parseChunk(index);
+                } catch (Throwable e) {
+                    extraction.stopAt(index, e);
+                    return;
+                }
+            }
+        }
+    }
+}
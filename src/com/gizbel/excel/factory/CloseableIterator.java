@@ -0,0 +1,14 @@
+package com.gizbel.excel.factory;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * Iterator over the beans of a sheet which holds the underlying file open
+ * until it is closed.
+ *
+ * @see Parser#iterator(java.io.File)
+ */
+public interface CloseableIterator<T> extends Iterator<T>, Closeable {
+
+}
@@ -0,0 +1,148 @@
+package com.gizbel.excel.factory;
+
+import java.util.BitSet;
+
+/**
+ * One column of a ColumnarTable, the values of an annotated field for all
+ * the rows of the sheet.<br>
+ * Values are held in growable primitive arrays or dictionaries depending on
+ * the type of the column, along with a bitmap of the null rows. Rows whose
+ * cell is blank or missing are null unless the field has a default value,
+ * rows ending before the column are null, as the beans leave the field unset.
+ */
+public abstract class Column {
+
+    static final int INITIAL_CAPACITY = 16;
+
+    private final String name;
+
+    /** Null rows of the column. **/
+    private final BitSet nulls = new BitSet();
+
+    private int size;
+
+    Column(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Name of the annotated field.
+     * @return
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Number of rows, the same for all the columns of a table.
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isNull(int row) {
+        this.checkIndex(row);
+        return this.nulls.get(row);
+    }
+
+    public int getNullCount() {
+        return this.nulls.cardinality();
+    }
+
+    /**
+     * Class of the values of the column, the boxed class for the primitive
+     * columns.
+     * @return
+     */
+    public abstract Class<?> getValueClass();
+
+    /**
+     * Returns the value of the row, boxed for the primitive columns.
+     * @param row
+     * @return null if the row is null
+     */
+    public Object getObject(int row) {
+        return this.isNull(row) ? null : this.valueAt(row);
+    }
+
+    abstract Object valueAt(int row);
+
+    /**
+     * Appends a null row, the set methods then fill it.
+     */
+    void addRow() {
+        this.ensureCapacity(this.size + 1);
+        this.nulls.set(this.size);
+        this.size++;
+    }
+
+    /**
+     * Grows the storage of the values to hold at least the given number of
+     * rows.
+     * @param capacity
+     */
+    abstract void ensureCapacity(int capacity);
+
+    /**
+     * Releases the storage beyond the last row once the sheet is read.
+     */
+    abstract void trim();
+
+    /**
+     * Marks the last row as set and returns its index.
+     * @return
+     */
+    final int lastRow() {
+        int row = this.size - 1;
+        this.nulls.clear(row);
+        return row;
+    }
+
+    /**
+     * Marks the row as null again.
+     * @param row
+     */
+    final void setNull(int row) {
+        this.nulls.set(row);
+    }
+
+    void setInt(int value) {
+        this.setLong(value);
+    }
+
+    void setLong(long value) {
+        this.setDouble(value);
+    }
+
+    void setDouble(double value) {
+        this.setObject(Double.valueOf(value));
+    }
+
+    void setBoolean(boolean value) {
+        this.setObject(Boolean.valueOf(value));
+    }
+
+    void setObject(Object value) {
+        throw new IllegalArgumentException("Can not set " + this.getValueClass().getName() + " column " + this.name
+                + " to " + (value == null ? "null" : value.getClass().getName()));
+    }
+
+    final void checkIndex(int row) {
+        if (row < 0 || row >= this.size)
+            throw new IndexOutOfBoundsException("Row: " + row + ", Size: " + this.size);
+    }
+
+    /**
+     * Capacity to grow the arrays to, at least double the current one.
+     */
+    static int grow(int current, int capacity) {
+        return Math.max(capacity, Math.max(INITIAL_CAPACITY, current * 2));
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + " [name=" + this.name + ", size=" + this.size + ", nulls="
+                + this.getNullCount() + "]";
+    }
+}
@@ -0,0 +1,508 @@
+package com.gizbel.excel.factory;
+
+import java.text.Format;
+import java.time.format.DateTimeFormatter;
+
+import org.apache.commons.lang3.ClassUtils;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.NumberToTextConverter;
+
+import com.gizbel.excel.converters.CellConverter;
+
+/**
+ * Precompiled binding of one annotated field: the resolved column type, the
+ * default value and the binder setting the field.<br>
+ * Built once from the annotation, so binding a cell does no annotation
+ * lookup, no dataType switch on strings and no reflective Field.set. Typed
+ * cells are converted directly, numbers and booleans reach primitive fields
+ * without being boxed.<br>
+ * The same conversions fill the columns of a ColumnarTable, the target is
+ * then the Column of the field instead of a bean.
+ */
+final class ColumnBinding {
+
+    /** Primitive type of the field, OTHER for reference types. **/
+    private static final byte OTHER = 0;
+    private static final byte INT = 1;
+    private static final byte LONG = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte BOOLEAN = 4;
+
+    /** Reasons of the cells which do not convert in lenient mode. **/
+    private static final String NOT_AN_INT = "Not an int";
+    private static final String NOT_A_LONG = "Not a long";
+    private static final String NOT_A_NUMBER = "Not a number";
+    private static final String NOT_A_BOOLEAN = "Neither true nor false";
+    private static final String NOT_A_DATE = "Not a date matching the pattern";
+    private static final String NOT_A_SERIAL_DATE = "Not a valid excel date";
+
+    private final BeanBinder<Object> binder;
+
+    /** Number of the field in the binder. **/
+    private final int fieldNumber;
+
+    private final BoundField field;
+
+    private final ColumnType type;
+
+    private final String defaultValue;
+
+    /** Type produced for date columns, null for the other types. **/
+    private final TemporalType temporalType;
+
+    /** Formatter of the pattern, formats dates into strings. **/
+    private final DateTimeFormatter formatter;
+
+    /** Strict formatter of the pattern parsing date texts, see ExcelDates.parser. **/
+    private final DateTimeFormatter parser;
+
+    /** java.text.Format view of the parser, parses date texts without throwing. **/
+    private final Format dateFormat;
+
+    /** Default value converted once, null when it has to be converted on use. **/
+    private final Object defaultObject;
+
+    /** Field type when it needs a converter from the registry, null otherwise. **/
+    private final Class<?> customType;
+
+    private final byte fieldKind;
+
+    /**
+     * @param binder binder of the annotated class
+     * @param fieldNumber number of the field in the binder
+     * @param dataType
+     * @param defaultValue
+     * @param pattern date pattern of the column
+     * @throws IllegalArgumentException if the pattern is invalid
+     */
+    ColumnBinding(BeanBinder<Object> binder, int fieldNumber, String dataType, String defaultValue, String pattern) {
+        BoundField field = binder.getFields().get(fieldNumber);
+        Class<?> fieldType = field.getType();
+        ColumnType type = ColumnType.of(dataType);
+        // java.time fields can only hold dates, no need to declare the dataType
+        if (type == ColumnType.STRING && TemporalType.isJavaTime(fieldType))
+            type = ColumnType.DATE;
+
+        this.binder = binder;
+        this.fieldNumber = fieldNumber;
+        this.field = field;
+        this.type = type;
+        this.defaultValue = defaultValue;
+        this.temporalType = type == ColumnType.DATE ? TemporalType.of(fieldType) : null;
+        this.formatter = ExcelDates.formatter(pattern);
+        this.parser = ExcelDates.parser(pattern);
+        this.dateFormat = this.parser.toFormat();
+
+        this.fieldKind = kindOf(fieldType);
+
+        Class<?> valueClass = this.temporalType == null ? type.getValueClass() : this.temporalType.getValueClass();
+        boolean builtIn = fieldType.isPrimitive() || ClassUtils.isAssignable(valueClass, fieldType, true);
+        this.customType = builtIn ? null : fieldType;
+        // java.sql.Date is mutable, every bean gets its own instance
+        this.defaultObject = builtIn && this.temporalType != TemporalType.SQL_DATE ? this.convertDefault() : null;
+    }
+
+    /**
+     * Sets the value of the cell into the field of the bean, blank cells get the
+     * default value.
+     * @param bean the bean, or the Column of the field in columnar mode
+     * @param row
+     * @param columnIndex
+     * @param converter converter of the custom field type, null if none
+     */
+    void bind(Object bean, RowBuffer row, int columnIndex, CellConverter<?> converter) {
+        this.bind(bean, row, columnIndex, converter, false);
+    }
+
+    /**
+     * Same as bind but the cells which do not convert are reported instead of
+     * thrown, the field is then left as is. Numbers, booleans and dates are
+     * checked before they are parsed, so no exception is built for them.
+     * @param bean
+     * @param row
+     * @param columnIndex
+     * @param converter
+     * @return why the cell did not convert, null if it was bound
+     */
+    String bindLenient(Object bean, RowBuffer row, int columnIndex, CellConverter<?> converter) {
+        return this.bind(bean, row, columnIndex, converter, true);
+    }
+
+    private String bind(Object bean, RowBuffer row, int columnIndex, CellConverter<?> converter, boolean lenient) {
+        switch (row.getKind(columnIndex)) {
+        case RowBuffer.NUMERIC:
+            return this.bindNumber(bean, row.getNumber(columnIndex), row.isDate1904(), converter, lenient);
+        case RowBuffer.DATE:
+            return this.bindDate(bean, row, columnIndex, converter, lenient);
+        case RowBuffer.BOOLEAN:
+            return this.bindBoolean(bean, row.getBoolean(columnIndex), converter, lenient);
+        case RowBuffer.STRING:
+        case RowBuffer.ERROR:
+            String text = row.getText(columnIndex).trim();
+            if (!text.isEmpty())
+                return this.bindText(bean, text, converter, lenient);
+            break;
+        default:
+            break;
+        }
+        return this.bindDefault(bean, converter, lenient);
+    }
+
+    /**
+     * If column value is null or empty then try to put the default value.
+     * @param bean
+     * @param converter
+     * @param lenient
+     * @return why the default value did not convert, null if it was bound
+     */
+    private String bindDefault(Object bean, CellConverter<?> converter, boolean lenient) {
+        if (this.defaultObject != null && converter == null)
+            this.setObject(bean, this.defaultObject);
+        else if (this.defaultValue != null && !this.defaultValue.trim().isEmpty()) {
+            String reason = this.bindText(bean, this.defaultValue, converter, lenient);
+            if (reason != null)
+                return "Invalid default value, " + reason;
+        }
+        return null;
+    }
+
+    /**
+     * Parses the text to the specified dataType.
+     * @param bean
+     * @param value
+     * @param converter
+     * @param lenient
+     * @return why the text did not convert in lenient mode, null otherwise
+     */
+    private String bindText(Object bean, String value, CellConverter<?> converter, boolean lenient) {
+        if (converter != null) {
+            if (!lenient) {
+                this.setObject(bean, converter.fromString(value));
+                return null;
+            }
+            Object converted;
+            try {
+                converted = converter.fromString(value);
+            } catch (RuntimeException e) {
+                return "Conversion failed, " + e;
+            }
+            this.setObject(bean, converted);
+            return null;
+        }
+        switch (this.type) {
+        case INT:
+            if (lenient && !LenientParsers.isInteger(value, Integer.MIN_VALUE, Integer.MAX_VALUE))
+                return NOT_AN_INT;
+            this.setInt(bean, Integer.parseInt(value));
+            break;
+        case LONG:
+            if (lenient && !LenientParsers.isInteger(value, Long.MIN_VALUE, Long.MAX_VALUE))
+                return NOT_A_LONG;
+            this.setLong(bean, Long.parseLong(value));
+            break;
+        case DOUBLE:
+            if (lenient && !LenientParsers.isDecimal(value))
+                return NOT_A_NUMBER;
+            this.setDouble(bean, Double.parseDouble(value));
+            break;
+        case BOOL:
+            if (lenient && !LenientParsers.isBoolean(value))
+                return NOT_A_BOOLEAN;
+            this.setBoolean(bean, Boolean.parseBoolean(value));
+            break;
+        case DATE:
+            Object date = this.temporalType.parse(value, this.dateFormat);
+            if (lenient && date == null)
+                return NOT_A_DATE;
+            this.setObject(bean, date);
+            break;
+        default:
+            this.setObject(bean, this.type.convert(value));
+            break;
+        }
+        return null;
+    }
+
+    private String bindNumber(Object bean, double value, boolean date1904, CellConverter<?> converter,
+            boolean lenient) {
+        if (converter != null) {
+            if (!lenient) {
+                this.setObject(bean, converter.fromNumber(value));
+                return null;
+            }
+            Object converted;
+            try {
+                converted = converter.fromNumber(value);
+            } catch (RuntimeException e) {
+                return "Conversion failed, " + e;
+            }
+            this.setObject(bean, converted);
+            return null;
+        }
+        switch (this.type) {
+        case INT:
+            int intValue = (int) value;
+            if (intValue != value) {
+                if (lenient)
+                    return NOT_AN_INT;
+                throw new NumberFormatException("For input string: \"" + NumberToTextConverter.toText(value) + "\"");
+            }
+            this.setInt(bean, intValue);
+            break;
+        case LONG:
+            long longValue = (long) value;
+            if (longValue != value) {
+                if (lenient)
+                    return NOT_A_LONG;
+                throw new NumberFormatException("For input string: \"" + NumberToTextConverter.toText(value) + "\"");
+            }
+            this.setLong(bean, longValue);
+            break;
+        case DOUBLE:
+            this.setDouble(bean, value);
+            break;
+        case BOOL:
+            this.setBoolean(bean, value != 0);
+            break;
+        case DATE:
+            // Plain numbers in a date column are read as excel serial dates
+            if (DateUtil.isValidExcelDate(value))
+                this.setObject(bean, this.temporalType.fromSerial(value, date1904));
+            else if (lenient)
+                return NOT_A_SERIAL_DATE;
+            break;
+        default:
+            this.setObject(bean, NumberToTextConverter.toText(value));
+            break;
+        }
+        return null;
+    }
+
+    private String bindDate(Object bean, RowBuffer row, int columnIndex, CellConverter<?> converter,
+            boolean lenient) {
+        if (converter != null) {
+            if (!lenient) {
+                this.setObject(bean, converter.fromDate(row.getDate(columnIndex)));
+                return null;
+            }
+            Object converted;
+            try {
+                converted = converter.fromDate(row.getDate(columnIndex));
+            } catch (RuntimeException e) {
+                return "Conversion failed, " + e;
+            }
+            this.setObject(bean, converted);
+            return null;
+        }
+        switch (this.type) {
+        case DATE:
+            this.setObject(bean, this.temporalType.fromSerial(row.getNumber(columnIndex), row.isDate1904()));
+            return null;
+        case STRING:
+            this.setObject(bean, this.formatter.format(
+                    ExcelDates.toLocalDateTime(row.getNumber(columnIndex), row.isDate1904())));
+            return null;
+        default:
+            return this.bindNumber(bean, row.getNumber(columnIndex), row.isDate1904(), null, lenient);
+        }
+    }
+
+    private String bindBoolean(Object bean, boolean value, CellConverter<?> converter, boolean lenient) {
+        if (converter != null) {
+            if (!lenient) {
+                this.setObject(bean, converter.fromBoolean(value));
+                return null;
+            }
+            Object converted;
+            try {
+                converted = converter.fromBoolean(value);
+            } catch (RuntimeException e) {
+                return "Conversion failed, " + e;
+            }
+            this.setObject(bean, converted);
+            return null;
+        }
+        if (this.type == ColumnType.BOOL) {
+            this.setBoolean(bean, value);
+            return null;
+        }
+        return this.bindText(bean, value ? "TRUE" : "FALSE", null, lenient);
+    }
+
+    void setInt(Object bean, int value) {
+        if (bean instanceof Column) {
+            ((Column) bean).setInt(value);
+            return;
+        }
+        switch (this.fieldKind) {
+        case INT:
+            this.binder.setInt(bean, this.fieldNumber, value);
+            return;
+        case LONG:
+            this.binder.setLong(bean, this.fieldNumber, value);
+            return;
+        case DOUBLE:
+            this.binder.setDouble(bean, this.fieldNumber, value);
+            return;
+        default:
+            this.setObject(bean, Integer.valueOf(value));
+        }
+    }
+
+    void setLong(Object bean, long value) {
+        if (bean instanceof Column) {
+            ((Column) bean).setLong(value);
+            return;
+        }
+        switch (this.fieldKind) {
+        case LONG:
+            this.binder.setLong(bean, this.fieldNumber, value);
+            return;
+        case DOUBLE:
+            this.binder.setDouble(bean, this.fieldNumber, value);
+            return;
+        default:
+            this.setObject(bean, Long.valueOf(value));
+        }
+    }
+
+    void setDouble(Object bean, double value) {
+        if (bean instanceof Column) {
+            ((Column) bean).setDouble(value);
+            return;
+        }
+        if (this.fieldKind == DOUBLE)
+            this.binder.setDouble(bean, this.fieldNumber, value);
+        else
+            this.setObject(bean, Double.valueOf(value));
+    }
+
+    void setBoolean(Object bean, boolean value) {
+        if (bean instanceof Column) {
+            ((Column) bean).setBoolean(value);
+            return;
+        }
+        if (this.fieldKind == BOOLEAN)
+            this.binder.setBoolean(bean, this.fieldNumber, value);
+        else
+            this.setObject(bean, Boolean.valueOf(value));
+    }
+
+    void setObject(Object bean, Object value) {
+        if (bean instanceof Column) {
+            ((Column) bean).setObject(value);
+            return;
+        }
+        try {
+            this.binder.set(bean, this.fieldNumber, value);
+        } catch (ClassCastException e) {
+            throw new IllegalArgumentException("Can not set " + this.field.getType().getName() + " field "
+                    + this.binder.getBeanClass().getName() + "." + this.field.getName() + " to "
+                    + (value == null ? "null" : value.getClass().getName()), e);
+        }
+    }
+
+    /**
+     * Value of the field in the bean.
+     * @param bean
+     * @return
+     */
+    Object get(Object bean) {
+        return this.binder.get(bean, this.fieldNumber);
+    }
+
+    /**
+     * Unchecked exception to throw for a failure of a method handle, errors
+     * are thrown as is.
+     * @param e
+     * @return
+     */
+    static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException)
+            return (RuntimeException) e;
+        if (e instanceof Error)
+            throw (Error) e;
+        return new IllegalStateException(e);
+    }
+
+    /**
+     * Converts the default value of immutable types once, returns null if
+     * there is none or if it does not convert, so that the error is raised
+     * when the default is used as before.
+     */
+    private Object convertDefault() {
+        if (this.defaultValue == null || this.defaultValue.trim().isEmpty())
+            return null;
+        try {
+            if (this.temporalType != null)
+                return this.temporalType.parse(this.defaultValue, this.parser);
+            return this.type.convert(this.defaultValue);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static byte kindOf(Class<?> fieldType) {
+        if (fieldType == int.class)
+            return INT;
+        if (fieldType == long.class)
+            return LONG;
+        if (fieldType == double.class)
+            return DOUBLE;
+        if (fieldType == boolean.class)
+            return BOOLEAN;
+        return OTHER;
+    }
+
+    /**
+     * Field type when it needs a converter from the registry, null otherwise.
+     * @return
+     */
+    Class<?> getCustomType() {
+        return customType;
+    }
+
+    BoundField getField() {
+        return field;
+    }
+
+    /**
+     * The ExcelBean class of the field.
+     * @return
+     */
+    Class<?> getBeanClass() {
+        return binder.getBeanClass();
+    }
+
+    ColumnType getType() {
+        return type;
+    }
+
+    /**
+     * Formatter of the date pattern of the column.
+     * @return
+     */
+    DateTimeFormatter getFormatter() {
+        return formatter;
+    }
+
+    /**
+     * Formatter parsing the date texts of the column.
+     * @return
+     */
+    DateTimeFormatter getParser() {
+        return parser;
+    }
+
+    /**
+     * Class of the values produced for the field before it is set, the custom
+     * type, the java.time or java.sql.Date class of date columns or the class
+     * of the dataType.
+     * @return
+     */
+    Class<?> getValueClass() {
+        if (this.customType != null)
+            return this.customType;
+        return this.temporalType == null ? this.type.getValueClass() : this.temporalType.getValueClass();
+    }
+}
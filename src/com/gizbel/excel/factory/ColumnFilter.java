@@ -0,0 +1,92 @@
+package com.gizbel.excel.factory;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Filter of a parser on one column, given by index or by header, along with
+ * the number of rows it has rejected.<br>
+ * The count adds up over all the parses of the parser, from all threads.
+ */
+public final class ColumnFilter {
+
+    /** Zero based column index, -1 when the column is given by header. **/
+    private final int columnIndex;
+
+    /** Header of the column, null when given by index. **/
+    private final String columnHeader;
+
+    private final CellPredicate predicate;
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    ColumnFilter(int columnIndex, String columnHeader, CellPredicate predicate) {
+        this.columnIndex = columnIndex;
+        this.columnHeader = columnHeader;
+        this.predicate = predicate;
+    }
+
+    /**
+     * Tests the cell and counts the rejection.
+     * @param cell
+     * @return
+     */
+    boolean accepts(CellValue cell) {
+        if (this.predicate.test(cell))
+            return true;
+        this.rejectedCount.increment();
+        return false;
+    }
+
+    /**
+     * Tests the cell without counting the rejection, for the parses counting
+     * apart.
+     * @param cell
+     * @return
+     */
+    boolean test(CellValue cell) {
+        return this.predicate.test(cell);
+    }
+
+    void addRejected(long count) {
+        this.rejectedCount.add(count);
+    }
+
+    /**
+     * Zero based column index of the filter.
+     * @return -1 when the column is given by header
+     */
+    public int getColumnIndex() {
+        return columnIndex;
+    }
+
+    /**
+     * Header of the column of the filter.
+     * @return null when the column is given by index
+     */
+    public String getColumnHeader() {
+        return columnHeader;
+    }
+
+    public CellPredicate getPredicate() {
+        return predicate;
+    }
+
+    /**
+     * Number of rows rejected by this filter. Filters are tested in order, a
+     * row is only counted by the first filter rejecting it.
+     * @return
+     */
+    public long getRejectedCount() {
+        return this.rejectedCount.sum();
+    }
+
+    void resetRejectedCount() {
+        this.rejectedCount.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnFilter [column=" + (this.columnHeader == null ? this.columnIndex : this.columnHeader)
+                + ", rejected=" + this.getRejectedCount() + "]";
+    }
+}
@@ -0,0 +1,91 @@
+package com.gizbel.excel.factory;
+
+import java.sql.Date;
+
+/**
+ * Conversion applied on the cell text for each dataType supported by the
+ * column annotations.<br>
+ * The dataType string is resolved to its ColumnType once, when the binding
+ * plan is built, instead of on every cell.
+ */
+enum ColumnType {
+
+    INT(Integer.class) {
+        @Override
+        Object convert(String value) {
+            return Integer.parseInt(value);
+        }
+    },
+    LONG(Long.class) {
+        @Override
+        Object convert(String value) {
+            return Long.parseLong(value);
+        }
+    },
+    BOOL(Boolean.class) {
+        @Override
+        Object convert(String value) {
+            return Boolean.parseBoolean(value);
+        }
+    },
+    DOUBLE(Double.class) {
+        @Override
+        Object convert(String value) {
+            return Double.parseDouble(value);
+        }
+    },
+    DATE(Date.class) {
+        @Override
+        Object convert(String value) {
+            // Columns parse with the pattern of their annotation, see ColumnBinding
+            return TemporalType.SQL_DATE.parse(value, ExcelDates.parser(ExcelDates.DEFAULT_PATTERN));
+        }
+    },
+    STRING(String.class) {
+        @Override
+        Object convert(String value) {
+            return value;
+        }
+    };
+
+    /** Class of the values produced by the type. **/
+    private final Class<?> valueClass;
+
+    private ColumnType(Class<?> valueClass) {
+        this.valueClass = valueClass;
+    }
+
+    Class<?> getValueClass() {
+        return valueClass;
+    }
+
+    /**
+     * Converts the non empty cell value into the java value of this type.
+     * @param value
+     * @return
+     */
+    abstract Object convert(String value);
+
+    /**
+     * Resolves the dataType attribute of ExcelColumnIndex / ExcelColumnHeader,
+     * unknown values are treated as string.
+     * @param dataType
+     * @return
+     */
+    static ColumnType of(String dataType) {
+        switch (dataType) {
+        case "int":
+            return INT;
+        case "long":
+            return LONG;
+        case "bool":
+            return BOOL;
+        case "double":
+            return DOUBLE;
+        case "date":
+            return DATE;
+        default:
+            return STRING;
+        }
+    }
+}
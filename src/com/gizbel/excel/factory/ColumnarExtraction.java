@@ -0,0 +1,113 @@
+package com.gizbel.excel.factory;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Row callback filling the columns of a ColumnarTable.<br>
+ * Rows go through the same header, skip header and empty row rules as the
+ * beans, and the cells through the same conversions, only the converted
+ * values land in the column of the field instead of a bean.
+ */
+final class ColumnarExtraction implements RowCallback {
+
+    private final Parser<?> parser;
+
+    private final ParseContext context;
+
+    private final List<Column> columns = new ArrayList<Column>();
+
+    private final Map<ColumnBinding, Column> columnsByBinding = new IdentityHashMap<ColumnBinding, Column>();
+
+    /** Column of each column index, resolved on the first bound row once the headers are known. **/
+    private Column[] columnsByIndex;
+
+    private int rowCount;
+
+    ColumnarExtraction(Parser<?> parser, ParseContext context) {
+        this.parser = parser;
+        this.context = context;
+        for (ColumnBinding binding : context.getFieldBindings()) {
+            Column column = newColumn(binding);
+            this.columns.add(column);
+            this.columnsByBinding.put(binding, column);
+        }
+    }
+
+    @Override
+    public boolean onRow(RowBuffer row) throws Exception {
+        Object screened = this.parser.screenRow(row, this.context);
+        if (screened == Parser.END_OF_SHEET)
+            return false;
+        if (screened == Parser.SKIP_ROW)
+            return true;
+
+        if (this.columnsByIndex == null)
+            this.resolveColumns();
+        ParseMetrics metrics = this.context.getMetrics();
+        long start = metrics == null ? 0 : System.nanoTime();
+        for (Column column : this.columns) {
+            column.addRow();
+        }
+        for (int columnIndex : this.context.getBoundColumns()) {
+            if (columnIndex >= row.getLastCellNum())
+                break;
+            this.context.bind(this.columnsByIndex[columnIndex], row, columnIndex);
+        }
+        this.rowCount++;
+        if (metrics != null)
+            metrics.rowBound(System.nanoTime() - start);
+        return true;
+    }
+
+    private void resolveColumns() {
+        this.columnsByIndex = new Column[this.context.getColumnCount()];
+        for (int i = 0; i < this.columnsByIndex.length; i++) {
+            ColumnBinding binding = this.context.bindingAt(i);
+            if (binding != null)
+                this.columnsByIndex[i] = this.columnsByBinding.get(binding);
+        }
+    }
+
+    /**
+     * Compacts the columns once the sheet is read.
+     * @return
+     */
+    ColumnarTable finish() {
+        for (Column column : this.columns) {
+            column.trim();
+        }
+        return new ColumnarTable(this.columns, this.rowCount);
+    }
+
+    /**
+     * Picks the column class from the dataType of the field, custom types and
+     * dates are kept as objects.
+     */
+    private static Column newColumn(ColumnBinding binding) {
+        String name = binding.getField().getName();
+        if (binding.getCustomType() == null) {
+            switch (binding.getType()) {
+            case INT:
+                return new IntColumn(name);
+            case LONG:
+                return new LongColumn(name);
+            case DOUBLE:
+                return new DoubleColumn(name);
+            case BOOL:
+                return new BooleanColumn(name);
+            case STRING:
+                return new StringColumn(name);
+            default:
+                break;
+            }
+        }
+        return newObjectColumn(name, binding.getValueClass());
+    }
+
+    private static <V> ObjectColumn<V> newObjectColumn(String name, Class<V> valueClass) {
+        return new ObjectColumn<V>(name, valueClass);
+    }
+}
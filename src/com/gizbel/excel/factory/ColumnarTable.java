@@ -0,0 +1,87 @@
+package com.gizbel.excel.factory;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar result of Parser.parseColumnar, one Column per annotated field
+ * instead of one bean per row.<br>
+ * Numbers and booleans are kept in primitive arrays and strings are
+ * dictionary encoded, so a sheet takes a fraction of the heap of the same
+ * rows as beans with boxed fields.
+ *
+ * <pre>
+ * ColumnarTable table = parser.parseColumnar(new File("test/inv.xlsx"));
+ * DoubleColumn fee = table.getColumn("fee", DoubleColumn.class);
+ * double total = 0;
+ * for (int row = 0; row &lt; table.getRowCount(); row++)
+ *     if (!fee.isNull(row))
+ *         total += fee.getDouble(row);
+ * </pre>
+ */
+public final class ColumnarTable {
+
+    private final List<Column> columns;
+
+    private final Map<String, Column> columnsByName;
+
+    private final int rowCount;
+
+    ColumnarTable(List<Column> columns, int rowCount) {
+        this.columns = Collections.unmodifiableList(columns);
+        Map<String, Column> byName = new LinkedHashMap<String, Column>();
+        for (Column column : columns) {
+            byName.put(column.getName(), column);
+        }
+        this.columnsByName = byName;
+        this.rowCount = rowCount;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columns.size();
+    }
+
+    /**
+     * Columns of the annotated fields in declaration order.
+     * @return
+     */
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    public Column getColumn(int index) {
+        return columns.get(index);
+    }
+
+    /**
+     * Returns the column of the field.
+     * @param name name of the annotated field
+     * @return null if there is no such column
+     */
+    public Column getColumn(String name) {
+        return columnsByName.get(name);
+    }
+
+    /**
+     * Returns the column of the field as the expected column class, e.g.
+     * DoubleColumn for a "double" field.
+     * @param name name of the annotated field
+     * @param columnClass
+     * @return null if there is no such column
+     * @throws ClassCastException if the column is of another class
+     */
+    public <C extends Column> C getColumn(String name, Class<C> columnClass) {
+        return columnClass.cast(columnsByName.get(name));
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnarTable [rows=" + rowCount + ", columns=" + columns + "]";
+    }
+}
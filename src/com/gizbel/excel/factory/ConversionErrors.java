@@ -0,0 +1,64 @@
+package com.gizbel.excel.factory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Conversion errors of a lenient parse, shared by the threads binding its
+ * rows. Hands them to the collector of the parser and stops the parse once
+ * there are more than allowed.
+ */
+final class ConversionErrors {
+
+    private final ErrorCollector collector;
+
+    private final int maxErrors;
+
+    private int count;
+
+    /** Errors reported so far, null unless kept for the result cache. **/
+    private List<ParseError> kept;
+
+    /**
+     * @param collector null to only count the errors
+     * @param maxErrors number of errors tolerated, the next one stops the parse
+     */
+    ConversionErrors(ErrorCollector collector, int maxErrors) {
+        this.collector = collector;
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * Keeps the errors reported from now on, so that they can be stored along
+     * with the beans.
+     */
+    void keep() {
+        this.kept = new ArrayList<ParseError>();
+    }
+
+    /**
+     * Errors reported since keep was called, in the order reported.
+     * @return null if they are not kept
+     */
+    synchronized List<ParseError> getKept() {
+        return kept;
+    }
+
+    int getMaxErrors() {
+        return maxErrors;
+    }
+
+    /**
+     * @param error
+     * @throws ExtractionException once there are more errors than allowed
+     */
+    synchronized void report(ParseError error) {
+        this.count++;
+        if (this.kept != null)
+            this.kept.add(error);
+        if (this.collector != null)
+            this.collector.collect(error);
+        if (this.count > this.maxErrors)
+            throw new ExtractionException("More than " + this.maxErrors + " conversion errors, last " + error, null);
+    }
+}
@@ -0,0 +1,408 @@
+package com.gizbel.excel.factory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads delimited text, csv or tsv, as a workbook of a single sheet whose
+ * rows are the records of the file, numbered from 0 like sheet rows.<br>
+ * The content is copied in blocks into a reused byte buffer and tokenized
+ * there. A file is memory mapped, so the copy reads the page cache without
+ * read calls, unless it is larger than a mapping and read through its
+ * FileChannel. Bytes in memory are copied from a view of their buffer.<br>
+ * Fields are only turned into strings for the projected columns, the other
+ * ones are checked for being blank on their bytes. Quoted fields follow
+ * RFC 4180, they may hold delimiters, line breaks and doubled quotes.<br>
+ * Records can also be read in chunks of the file, see split, so that the
+ * chunks are tokenized and bound concurrently. Every read opens its own
+ * channel.
+ */
+class DelimitedStreamReader extends SheetStreamReader {
+
+    private static final byte QUOTE = '"';
+
+    /** Initial size of the read buffer, grown for records not fitting in it. **/
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final WorkbookSource source;
+
+    private final byte delimiter;
+
+    private final Charset charset;
+
+    /**
+     * @param source
+     * @param delimiter field delimiter, an ascii character
+     * @param charset encoding of the file, ascii compatible
+     */
+    DelimitedStreamReader(WorkbookSource source, char delimiter, Charset charset) {
+        this.source = source;
+        this.delimiter = (byte) delimiter;
+        this.charset = charset;
+    }
+
+    /**
+     * Delimiter of the file told from its extension, tab for .tsv files and
+     * comma otherwise, content without a name included.
+     * @param source
+     * @return
+     */
+    static char defaultDelimiter(WorkbookSource source) {
+        String name = source.getName();
+        return name != null && name.toLowerCase(Locale.ROOT).endsWith(".tsv") ? '\t' : ',';
+    }
+
+    /**
+     * Whether the records of the charset can be tokenized on their bytes,
+     * i.e. the delimiters, quotes and line breaks are single ascii bytes.
+     * @param charset
+     * @return
+     */
+    static boolean isAsciiCompatible(Charset charset) {
+        String specials = "\t\r\n\" ,;|";
+        return charset.canEncode()
+                && Arrays.equals(specials.getBytes(charset), specials.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Override
+    void readSheet(int sheetIndex, RowFilter rowFilter, RowCallback callback) throws Exception {
+        if (sheetIndex != 0)
+            throw new IndexOutOfBoundsException("Delimited text has a single sheet, no sheet " + sheetIndex);
+        this.read(new Chunk(0, Long.MAX_VALUE, 0), rowFilter, callback);
+    }
+
+    /**
+     * Reads the records starting in the chunk and hands them to the callback.
+     * Returns normally when the callback stops the processing.
+     *
+     * @param chunk
+     * @param rowFilter rows and columns to decode
+     * @param callback
+     * @throws Exception thrown by the callback, as is
+     */
+    void read(Chunk chunk, RowFilter rowFilter, RowCallback callback) throws Exception {
+        SeekableByteChannel channel = this.source.openChannel();
+        try {
+            RecordScanner records = this.scan(channel, chunk.start);
+            RowBuffer row = new RowBuffer();
+            int rowNum = chunk.firstRowNum;
+            while (records.offset() < chunk.end && records.next()) {
+                if (rowFilter.isAfterRange(rowNum))
+                    break;
+                if (rowFilter.acceptsRow(rowNum)) {
+                    row.reset(rowNum);
+                    records.tokenize(row, rowFilter);
+                    if (!callback.onRow(row))
+                        break;
+                }
+                rowNum++;
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Splits the file in chunks of whole records of about the same size, the
+     * file is scanned once for the record boundaries since a line break may
+     * be within a quoted field.
+     *
+     * @param count number of chunks wanted
+     * @param minSize minimum size of a chunk in bytes
+     * @param headerApart whether the first record is a chunk of its own
+     * @return the chunks in file order, at least one
+     * @throws IOException
+     */
+    List<Chunk> split(int count, long minSize, boolean headerApart) throws IOException {
+        List<Chunk> chunks = new ArrayList<Chunk>();
+        SeekableByteChannel channel = this.source.openChannel();
+        try {
+            long chunkSize = Math.max(minSize, channel.size() / count + 1);
+            RecordScanner records = this.scan(channel, 0);
+            long start = records.offset();
+            long target = headerApart ? start : start + chunkSize;
+            int firstRowNum = 0;
+            int rowNum = 0;
+            while (records.next()) {
+                rowNum++;
+                long offset = records.offset();
+                if (offset > target) {
+                    chunks.add(new Chunk(start, offset, firstRowNum));
+                    start = offset;
+                    target = offset + chunkSize;
+                    firstRowNum = rowNum;
+                }
+            }
+            if (chunks.isEmpty() || records.offset() > start)
+                chunks.add(new Chunk(start, records.offset(), firstRowNum));
+        } finally {
+            channel.close();
+        }
+        return chunks;
+    }
+
+    /**
+     * Starts scanning the records at the offset, past the byte order mark at
+     * the start of an utf-8 file.
+     */
+    private RecordScanner scan(SeekableByteChannel channel, long start) throws IOException {
+        RecordScanner records = new RecordScanner(channel, start);
+        if (start == 0 && StandardCharsets.UTF_8.equals(this.charset))
+            records.skipByteOrderMark();
+        return records;
+    }
+
+    /**
+     * Nothing is held between the reads.
+     */
+    @Override
+    public void close() {
+    }
+
+    @Override
+    int getSheetCount() {
+        return 1;
+    }
+
+    /**
+     * Name of the file without its extension, null for content without a
+     * name.
+     */
+    @Override
+    String getSheetName(int sheetIndex) {
+        String name = this.source.getName();
+        if (name == null)
+            return null;
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    /**
+     * Records of the file starting from the start offset, up to but excluding
+     * the end offset, along with the row number of the first one.
+     */
+    static final class Chunk {
+
+        final long start;
+
+        final long end;
+
+        final int firstRowNum;
+
+        Chunk(long start, long end, int firstRowNum) {
+            this.start = start;
+            this.end = end;
+            this.firstRowNum = firstRowNum;
+        }
+    }
+
+    /**
+     * Finds the records in the buffer, refilled from the channel as they are
+     * consumed, and splits the current record in fields.
+     */
+    private final class RecordScanner {
+
+        private static final int FIELD_START = 0;
+        private static final int UNQUOTED = 1;
+        private static final int QUOTED = 2;
+        /** Quote within a quoted field, closing it unless doubled. **/
+        private static final int QUOTE_IN_QUOTED = 3;
+
+        private final SeekableByteChannel channel;
+
+        private final byte delimiter = DelimitedStreamReader.this.delimiter;
+
+        private byte[] buffer = new byte[BUFFER_SIZE];
+
+        /** Offset in the file of the first byte of the buffer. **/
+        private long bufferOffset;
+
+        /** Start of the next record in the buffer. **/
+        private int position;
+
+        /** Number of bytes read into the buffer. **/
+        private int limit;
+
+        private boolean endOfFile;
+
+        /** Current record in the buffer, without its line break. **/
+        private int recordStart;
+        private int recordEnd;
+
+        /** Unquoted text of a quoted field. **/
+        private byte[] field = new byte[256];
+
+        RecordScanner(SeekableByteChannel channel, long start) {
+            this.channel = channel;
+            this.bufferOffset = start;
+        }
+
+        /**
+         * Offset in the file of the next record.
+         * @return
+         */
+        long offset() {
+            return this.bufferOffset + this.position;
+        }
+
+        void skipByteOrderMark() throws IOException {
+            while (this.limit < 3 && !this.endOfFile)
+                this.fill();
+            if (this.limit >= 3 && this.buffer[0] == (byte) 0xEF && this.buffer[1] == (byte) 0xBB
+                    && this.buffer[2] == (byte) 0xBF)
+                this.position = 3;
+        }
+
+        /**
+         * Moves to the next record, line breaks within quoted fields do not
+         * end the record. A trailing carriage return is left out.
+         * @return false at the end of the file
+         * @throws IOException
+         */
+        boolean next() throws IOException {
+            int state = FIELD_START;
+            int i = this.position;
+            while (true) {
+                byte[] bytes = this.buffer;
+                for (; i < this.limit; i++) {
+                    byte b = bytes[i];
+                    switch (state) {
+                    case QUOTED:
+                        if (b == QUOTE)
+                            state = QUOTE_IN_QUOTED;
+                        continue;
+                    case FIELD_START:
+                        if (b == QUOTE) {
+                            state = QUOTED;
+                            continue;
+                        }
+                        break;
+                    case QUOTE_IN_QUOTED:
+                        if (b == QUOTE) {
+                            state = QUOTED;
+                            continue;
+                        }
+                        break;
+                    default:
+                        break;
+                    }
+                    if (b == '\n') {
+                        this.endRecord(i);
+                        this.position = i + 1;
+                        return true;
+                    }
+                    state = b == this.delimiter ? FIELD_START : UNQUOTED;
+                }
+                if (this.endOfFile) {
+                    if (this.position == this.limit)
+                        return false;
+                    this.endRecord(this.limit);
+                    this.position = this.limit;
+                    return true;
+                }
+                i -= this.position;
+                this.fill();
+            }
+        }
+
+        private void endRecord(int end) {
+            this.recordStart = this.position;
+            this.recordEnd = end > this.position && this.buffer[end - 1] == '\r' ? end - 1 : end;
+        }
+
+        /**
+         * Moves the current record to the start of the buffer and reads the
+         * next bytes after it, the buffer is doubled when the record fills it.
+         * @throws IOException
+         */
+        private void fill() throws IOException {
+            if (this.position > 0) {
+                System.arraycopy(this.buffer, this.position, this.buffer, 0, this.limit - this.position);
+                this.bufferOffset += this.position;
+                this.limit -= this.position;
+                this.position = 0;
+            }
+            if (this.limit == this.buffer.length)
+                this.buffer = Arrays.copyOf(this.buffer, this.buffer.length * 2);
+            this.channel.position(this.bufferOffset + this.limit);
+            int read = this.channel.read(ByteBuffer.wrap(this.buffer, this.limit, this.buffer.length - this.limit));
+            if (read < 0)
+                this.endOfFile = true;
+            else
+                this.limit += read;
+        }
+
+        /**
+         * Splits the current record in fields into the row, empty fields are
+         * left out like empty cells.
+         * @param row
+         * @param rowFilter columns to decode
+         */
+        void tokenize(RowBuffer row, RowFilter rowFilter) {
+            byte[] bytes = this.buffer;
+            int end = this.recordEnd;
+            int i = this.recordStart;
+            int columnIndex = 0;
+            while (true) {
+                if (i < end && bytes[i] == QUOTE) {
+                    int length = 0;
+                    for (i++; i < end; i++) {
+                        if (bytes[i] == QUOTE) {
+                            if (i + 1 < end && bytes[i + 1] == QUOTE)
+                                i++;
+                            else
+                                break;
+                        }
+                        length = this.append(length, bytes[i]);
+                    }
+                    // Text after the closing quote is kept as is
+                    for (i++; i < end && bytes[i] != this.delimiter; i++)
+                        length = this.append(length, bytes[i]);
+                    this.setField(row, rowFilter, columnIndex, this.field, 0, length);
+                } else {
+                    int from = i;
+                    while (i < end && bytes[i] != this.delimiter)
+                        i++;
+                    this.setField(row, rowFilter, columnIndex, bytes, from, i);
+                }
+                if (i >= end)
+                    return;
+                i++;
+                columnIndex++;
+            }
+        }
+
+        private int append(int length, byte b) {
+            if (length == this.field.length)
+                this.field = Arrays.copyOf(this.field, length * 2);
+            this.field[length] = b;
+            return length + 1;
+        }
+
+        private void setField(RowBuffer row, RowFilter rowFilter, int columnIndex, byte[] bytes, int from, int to) {
+            if (from == to)
+                return;
+            if (rowFilter.acceptsColumn(columnIndex))
+                row.setString(columnIndex, new String(bytes, from, to - from, DelimitedStreamReader.this.charset));
+            else if (isBlank(bytes, from, to))
+                row.setBlank(columnIndex);
+            else
+                row.setSkipped(columnIndex);
+        }
+    }
+
+    private static boolean isBlank(byte[] bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] < 0 || !Character.isWhitespace(bytes[i]))
+                return false;
+        }
+        return true;
+    }
+}
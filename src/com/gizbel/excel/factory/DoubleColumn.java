@@ -0,0 +1,68 @@
+package com.gizbel.excel.factory;
+
+import java.util.Arrays;
+
+/**
+ * Column of the fields with the "double" dataType, backed by a double array.
+ */
+public final class DoubleColumn extends Column {
+
+    private double[] values = new double[0];
+
+    DoubleColumn(String name) {
+        super(name);
+    }
+
+    /**
+     * Returns the value of the row, 0 for the null rows.
+     * @param row
+     * @return
+     */
+    public double getDouble(int row) {
+        this.checkIndex(row);
+        return this.values[row];
+    }
+
+    /**
+     * Returns the values of all the rows, 0 for the null rows, <b>the array
+     * must not be modified</b>.
+     * @return
+     */
+    public double[] getValues() {
+        return values;
+    }
+
+    @Override
+    public Class<?> getValueClass() {
+        return Double.class;
+    }
+
+    @Override
+    Object valueAt(int row) {
+        return Double.valueOf(this.values[row]);
+    }
+
+    @Override
+    void setDouble(double value) {
+        this.values[this.lastRow()] = value;
+    }
+
+    @Override
+    void setObject(Object value) {
+        if (value instanceof Number)
+            this.setDouble(((Number) value).doubleValue());
+        else
+            super.setObject(value);
+    }
+
+    @Override
+    void ensureCapacity(int capacity) {
+        if (capacity > this.values.length)
+            this.values = Arrays.copyOf(this.values, grow(this.values.length, capacity));
+    }
+
+    @Override
+    void trim() {
+        this.values = Arrays.copyOf(this.values, this.size());
+    }
+}
@@ -0,0 +1,19 @@
+package com.gizbel.excel.factory;
+
+/**
+ * Receives the cells which do not convert to their field when the parser is
+ * lenient.
+ *
+ * @see Parser#setLenient(boolean)
+ */
+public interface ErrorCollector {
+
+    /**
+     * Called for every cell which did not convert, calls are serialized for
+     * a parse even when the rows are bound on several threads. Throwing stops
+     * the parse.
+     *
+     * @param error
+     */
+    void collect(ParseError error);
+}
@@ -0,0 +1,141 @@
+package com.gizbel.excel.factory;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.ResolverStyle;
+import java.time.format.SignStyle;
+import java.time.temporal.ChronoField;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.poi.ss.usermodel.DateUtil;
+
+/**
+ * Conversions between excel serial dates and java.time values, computed directly
+ * from the day count instead of going through Calendar like DateUtil does,
+ * with the same rules: the 1900 system counts the non existing 29-02-1900 and
+ * the time of the day is rounded to the millisecond.<br>
+ * Also caches the DateTimeFormatters of the annotation patterns, they are
+ * immutable and thread safe. Texts are parsed with a strict formatter of the
+ * pattern whose two letter days and months also take a single digit, as
+ * SimpleDateFormat did, e.g. 5-3-2015 for dd-MM-yyyy, while impossible dates
+ * such as 31-02-2015 are rejected instead of moved to the end of the month.
+ */
+final class ExcelDates {
+
+    /** Pattern of the date texts when the annotation does not specify one. **/
+    static final String DEFAULT_PATTERN = "dd-MM-yyyy";
+
+    private static final LocalDate START_1900 = LocalDate.of(1900, 1, 1);
+
+    private static final LocalDate START_1904 = LocalDate.of(1904, 1, 1);
+
+    private static final ConcurrentMap<String, DateTimeFormatter> FORMATTERS = new ConcurrentHashMap<String, DateTimeFormatter>();
+
+    private static final ConcurrentMap<String, DateTimeFormatter> PARSERS = new ConcurrentHashMap<String, DateTimeFormatter>();
+
+    private ExcelDates() {
+    }
+
+    /**
+     * Returns the day of the serial date, the time of the day is ignored.
+     * @param excelDate
+     * @param date1904
+     * @return
+     */
+    static LocalDate toLocalDate(double excelDate, boolean date1904) {
+        long wholeDays = (long) Math.floor(excelDate);
+        if (date1904)
+            return START_1904.plusDays(wholeDays);
+        // Serial 1 is 01-01-1900, serials after the fake 29-02-1900 are one day ahead
+        return START_1900.plusDays(wholeDays < 61 ? wholeDays - 1 : wholeDays - 2);
+    }
+
+    static LocalDateTime toLocalDateTime(double excelDate, boolean date1904) {
+        long wholeDays = (long) Math.floor(excelDate);
+        long millisInDay = (long) ((excelDate - wholeDays) * DateUtil.DAY_MILLISECONDS + 0.5);
+        return toLocalDate(excelDate, date1904).atStartOfDay().plusNanos(millisInDay * 1000000L);
+    }
+
+    /**
+     * Serial date of the date and time in the 1900 system, the inverse of
+     * toLocalDateTime.
+     * @param dateTime
+     * @return
+     */
+    static double toSerial(LocalDateTime dateTime) {
+        long serialDay = dateTime.toLocalDate().toEpochDay() - START_1900.toEpochDay() + 1;
+        // Serials from 01-03-1900 skip the fake 29-02-1900
+        if (serialDay >= 60)
+            serialDay++;
+        return serialDay + dateTime.toLocalTime().toNanoOfDay() / (DateUtil.DAY_MILLISECONDS * 1000000.0);
+    }
+
+    /**
+     * Returns the cached formatter of the pattern.
+     * @param pattern
+     * @return
+     * @throws IllegalArgumentException if the pattern is invalid
+     */
+    static DateTimeFormatter formatter(String pattern) {
+        DateTimeFormatter formatter = FORMATTERS.get(pattern);
+        if (formatter == null) {
+            formatter = DateTimeFormatter.ofPattern(pattern);
+            FORMATTERS.putIfAbsent(pattern, formatter);
+        }
+        return formatter;
+    }
+
+    /**
+     * Returns the cached formatter parsing the texts of the pattern, strict,
+     * with the dd and MM fields not next to another field taking 1 or 2
+     * digits. Years of era (yyyy) are taken in the current era.
+     * @param pattern
+     * @return
+     * @throws IllegalArgumentException if the pattern is invalid
+     */
+    static DateTimeFormatter parser(String pattern) {
+        DateTimeFormatter parser = PARSERS.get(pattern);
+        if (parser == null) {
+            parser = buildParser(pattern);
+            PARSERS.putIfAbsent(pattern, parser);
+        }
+        return parser;
+    }
+
+    private static DateTimeFormatter buildParser(String pattern) {
+        DateTimeFormatterBuilder builder = new DateTimeFormatterBuilder();
+        int start = 0;
+        boolean quoted = false;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '\'')
+                quoted = !quoted;
+            if (quoted || (c != 'd' && c != 'M') || !isShortField(pattern, i))
+                continue;
+            builder.appendPattern(pattern.substring(start, i));
+            builder.appendValue(c == 'd' ? ChronoField.DAY_OF_MONTH : ChronoField.MONTH_OF_YEAR, 1, 2,
+                    SignStyle.NOT_NEGATIVE);
+            start = i + 2;
+            i++;
+        }
+        builder.appendPattern(pattern.substring(start));
+        // yyyy is the year of era, strict resolution needs the era to make a date of it
+        builder.parseDefaulting(ChronoField.ERA, 1);
+        return builder.toFormatter().withResolverStyle(ResolverStyle.STRICT);
+    }
+
+    /**
+     * Tells if the letter at the index starts a run of exactly two of it,
+     * with no pattern letter just before or after, so that the width of
+     * the value is told by the separators.
+     */
+    private static boolean isShortField(String pattern, int index) {
+        char letter = pattern.charAt(index);
+        return index + 1 < pattern.length() && pattern.charAt(index + 1) == letter
+                && (index == 0 || !Character.isLetter(pattern.charAt(index - 1)))
+                && (index + 2 == pattern.length() || !Character.isLetter(pattern.charAt(index + 2)));
+    }
+}
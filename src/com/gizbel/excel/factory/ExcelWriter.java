@@ -0,0 +1,413 @@
+package com.gizbel.excel.factory;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import com.gizbel.excel.annotations.ExcelBean;
+import com.gizbel.excel.converters.CellConverter;
+import com.gizbel.excel.converters.ConverterRegistry;
+import com.gizbel.excel.enums.ExcelFactoryType;
+
+/**
+ * Writes ExcelBean objects to an xlsx sheet, one row per bean, with the
+ * annotations the parser reads them with: for column index based extraction
+ * each field goes to its columnIndex, for column name based extraction the
+ * fields are laid out in declaration order under their columnHeader.<br>
+ * The workbook is written through POI's SXSSF writer: only the last
+ * windowSize rows are held in memory, the older ones being flushed to a temp
+ * file, so the memory used does not grow with the number of beans. Strings
+ * are written inline unless the shared strings table is enabled, which
+ * dedups repeated strings but keeps all of them in memory.<br>
+ * Numbers are written as numeric cells, except longs and big numbers which a
+ * double can not hold exactly, written as text. Dates are written as excel
+ * dates with the style of the pattern of their column, created once per
+ * column. Other values are written as text, enums by name.<br>
+ * A writer can be reused for many files and from many threads once it is
+ * configured.
+ *
+ * @param <T> the ExcelBean class
+ */
+public class ExcelWriter<T> {
+
+    /** Converters the parser reads big numbers from numeric cells with. **/
+    private static final ConverterRegistry READ_BACK = new ConverterRegistry();
+
+    private static final CellConverter<BigDecimal> DECIMALS = READ_BACK.lookup(BigDecimal.class);
+
+    private static final CellConverter<BigInteger> INTEGERS = READ_BACK.lookup(BigInteger.class);
+
+    private final Class<T> clazz;
+
+    private final ExcelFactoryType excelFactoryType;
+
+    /** Bindings of the written fields, and their column. **/
+    private final ColumnBinding[] bindings;
+
+    private final int[] columns;
+
+    private String sheetName = "Sheet1";
+
+    private boolean writeHeader = true;
+
+    private int windowSize = SXSSFWorkbook.DEFAULT_WINDOW_SIZE;
+
+    private boolean sharedStrings;
+
+    private boolean compressTempFiles;
+
+    /**
+     * @param clazz the ExcelBean class
+     * @param excelFactoryType how the fields map to the columns, same as for
+     *            the parser which reads the file back
+     * @throws IllegalArgumentException if the class is not annotated with
+     *             ExcelBean
+     */
+    public ExcelWriter(Class<T> clazz, ExcelFactoryType excelFactoryType) {
+        if (!clazz.isAnnotationPresent(ExcelBean.class))
+            throw new IllegalArgumentException("Provided class is not annotated with ExcelBean");
+        this.clazz = clazz;
+        this.excelFactoryType = excelFactoryType;
+        BeanSchema schema = BeanSchema.of(clazz);
+        boolean byHeader = excelFactoryType == ExcelFactoryType.COLUMN_NAME_BASED_EXTRACTION;
+        List<ColumnBinding> fields = byHeader ? schema.getHeaderFields() : schema.getIndexFields();
+        this.bindings = fields.toArray(new ColumnBinding[fields.size()]);
+        this.columns = new int[this.bindings.length];
+        for (int i = 0; i < this.bindings.length; i++) {
+            this.columns[i] = byHeader ? i : Integer.parseInt(this.bindings[i].getField().getColumnIndex());
+        }
+    }
+
+    /**
+     * Writes the beans to the file, replaced if it exists. The file is
+     * deleted if the writing fails.
+     * @param beans
+     * @param file
+     * @return the number of beans written
+     * @throws IOException
+     */
+    public long write(Iterable<? extends T> beans, File file) throws IOException {
+        boolean written = false;
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            long count = this.write(beans, out);
+            written = true;
+            return count;
+        } finally {
+            out.close();
+            if (!written)
+                file.delete();
+        }
+    }
+
+    /**
+     * Writes the beans as an xlsx file to the stream, which is left open.
+     * @param beans
+     * @param out
+     * @return the number of beans written
+     * @throws IOException
+     */
+    public long write(Iterable<? extends T> beans, OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(null, this.windowSize, this.compressTempFiles,
+                this.sharedStrings);
+        try {
+            Sheet sheet = workbook.createSheet(this.sheetName);
+            int rowNum = 0;
+            if (this.writeHeader)
+                this.writeHeader(sheet.createRow(rowNum++));
+            CellStyle[] dateStyles = new CellStyle[this.bindings.length];
+            long count = 0;
+            for (T bean : beans) {
+                Row row = sheet.createRow(rowNum++);
+                for (int i = 0; i < this.bindings.length; i++) {
+                    Object value = this.bindings[i].get(bean);
+                    if (value != null)
+                        this.writeCell(workbook, row.createCell(this.columns[i]), value, i, dateStyles);
+                }
+                count++;
+            }
+            workbook.write(out);
+            return count;
+        } finally {
+            // Deletes the temp files of the flushed rows
+            workbook.dispose();
+        }
+    }
+
+    /**
+     * Writes the beans of the stream to the file, see write(Iterable, File).
+     * The stream is consumed but not closed.
+     * @param beans
+     * @param file
+     * @return the number of beans written
+     * @throws IOException
+     */
+    public long write(Stream<? extends T> beans, File file) throws IOException {
+        return this.write(iterable(beans), file);
+    }
+
+    /**
+     * Writes the beans of the stream to the output stream, see
+     * write(Iterable, OutputStream). Neither stream is closed.
+     * @param beans
+     * @param out
+     * @return the number of beans written
+     * @throws IOException
+     */
+    public long write(Stream<? extends T> beans, OutputStream out) throws IOException {
+        return this.write(iterable(beans), out);
+    }
+
+    private static <T> Iterable<T> iterable(final Stream<T> stream) {
+        return new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return stream.iterator();
+            }
+        };
+    }
+
+    /**
+     * Header row: the columnHeader of the fields, or for column index based
+     * extraction the field name of the fields without one.
+     */
+    private void writeHeader(Row row) {
+        for (int i = 0; i < this.bindings.length; i++) {
+            BoundField field = this.bindings[i].getField();
+            row.createCell(this.columns[i]).setCellValue(field.isHeaded() ? field.getColumnHeader() : field.getName());
+        }
+    }
+
+    private void writeCell(SXSSFWorkbook workbook, Cell cell, Object value, int field, CellStyle[] dateStyles) {
+        if (value instanceof String) {
+            cell.setCellValue((String) value);
+        } else if (value instanceof Boolean) {
+            cell.setCellValue((Boolean) value);
+        } else if (value instanceof Integer || value instanceof Double || value instanceof Short
+                || value instanceof Byte || value instanceof Float) {
+            cell.setCellValue(((Number) value).doubleValue());
+        } else if (value instanceof Long || value instanceof BigDecimal || value instanceof BigInteger) {
+            this.writeNumber(cell, (Number) value);
+        } else if (value instanceof Date || value instanceof LocalDate || value instanceof LocalDateTime
+                || value instanceof Instant) {
+            LocalDateTime dateTime = toLocalDateTime(value);
+            // Excel dates start in 1900
+            if (dateTime.getYear() < 1900) {
+                cell.setCellValue(this.bindings[field].getFormatter().format(dateTime));
+                return;
+            }
+            if (dateStyles[field] == null) {
+                dateStyles[field] = workbook.createCellStyle();
+                dateStyles[field].setDataFormat(workbook.createDataFormat()
+                        .getFormat(excelFormat(this.bindings[field].getField(), this.excelFactoryType)));
+            }
+            cell.setCellValue(ExcelDates.toSerial(dateTime));
+            cell.setCellStyle(dateStyles[field]);
+        } else if (value instanceof Enum) {
+            cell.setCellValue(((Enum<?>) value).name());
+        } else {
+            cell.setCellValue(value.toString());
+        }
+    }
+
+    /**
+     * Numbers a double holds exactly are numeric cells, the others are text
+     * so that they read back unchanged. Big numbers are read back from 15
+     * significant digits and a BigDecimal must also keep its scale, 2.50
+     * would read back as 2.5.
+     */
+    private void writeNumber(Cell cell, Number value) {
+        double number = value.doubleValue();
+        boolean exact;
+        if (value instanceof Long)
+            exact = (long) number == value.longValue() && value.longValue() != Long.MAX_VALUE;
+        else if (value instanceof BigInteger)
+            exact = !Double.isInfinite(number) && INTEGERS.fromNumber(number).equals(value);
+        else
+            exact = !Double.isInfinite(number) && DECIMALS.fromNumber(number).equals(value);
+        if (exact)
+            cell.setCellValue(number);
+        else
+            cell.setCellValue(value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString());
+    }
+
+    /**
+     * Date and time of the date value in the default zone of the JVM, the
+     * zone the parser reads java.util.Date and Instant values with.
+     */
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof LocalDateTime)
+            return (LocalDateTime) value;
+        if (value instanceof LocalDate)
+            return ((LocalDate) value).atStartOfDay();
+        // java.sql.Date does not support toInstant
+        Instant instant = value instanceof Instant ? (Instant) value : Instant.ofEpochMilli(((Date) value).getTime());
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+    }
+
+    /**
+     * Excel number format of the date pattern of the field: the letters of
+     * the java.time pattern are mapped to the excel date codes, the letters
+     * without one are quoted as text.
+     */
+    private static String excelFormat(BoundField field, ExcelFactoryType excelFactoryType) {
+        String pattern = excelFactoryType == ExcelFactoryType.COLUMN_NAME_BASED_EXTRACTION
+                ? field.getHeaderPattern() : field.getIndexPattern();
+        StringBuilder format = new StringBuilder();
+        int i = 0;
+        while (i < pattern.length()) {
+            char c = pattern.charAt(i);
+            int count = 1;
+            while (i + count < pattern.length() && pattern.charAt(i + count) == c)
+                count++;
+            if (c == '\'') {
+                // Quoted text, two quotes are a quote
+                int end = pattern.indexOf('\'', i + 1);
+                if (count == 2 || end < 0) {
+                    format.append("\"'\"");
+                    i += count == 2 ? 2 : pattern.length() - i;
+                } else {
+                    format.append('"').append(pattern, i + 1, end).append('"');
+                    i = end + 1;
+                }
+                continue;
+            }
+            switch (c) {
+            case 'y':
+            case 'u':
+                append(format, 'y', count == 2 ? 2 : 4);
+                break;
+            case 'M':
+            case 'L':
+                append(format, 'm', Math.min(count, 4));
+                break;
+            case 'd':
+                append(format, 'd', Math.min(count, 2));
+                break;
+            case 'E':
+                append(format, 'd', count >= 4 ? 4 : 3);
+                break;
+            case 'H':
+            case 'h':
+            case 'k':
+            case 'K':
+                append(format, 'h', Math.min(count, 2));
+                break;
+            case 'm':
+                append(format, 'm', Math.min(count, 2));
+                break;
+            case 's':
+                append(format, 's', Math.min(count, 2));
+                break;
+            case 'S':
+                append(format, '0', Math.min(count, 3));
+                break;
+            case 'a':
+                format.append("AM/PM");
+                break;
+            default:
+                if (Character.isLetter(c))
+                    format.append('"').append(pattern, i, i + count).append('"');
+                else
+                    format.append(pattern, i, i + count);
+                break;
+            }
+            i += count;
+        }
+        return format.toString();
+    }
+
+    private static void append(StringBuilder format, char code, int count) {
+        for (int i = 0; i < count; i++)
+            format.append(code);
+    }
+
+    public Class<T> getBeanClass() {
+        return clazz;
+    }
+
+    public ExcelFactoryType getExcelFactoryType() {
+        return excelFactoryType;
+    }
+
+    public String getSheetName() {
+        return sheetName;
+    }
+
+    public void setSheetName(String sheetName) {
+        this.sheetName = sheetName;
+    }
+
+    public boolean isWriteHeader() {
+        return writeHeader;
+    }
+
+    /**
+     * Whether the first row holds the column headers, true by default. For
+     * column index based extraction the header of a field is its
+     * columnHeader if it has one, else its name.
+     * @param writeHeader
+     */
+    public void setWriteHeader(boolean writeHeader) {
+        this.writeHeader = writeHeader;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * Number of rows held in memory before they are flushed to the temp
+     * file, 100 by default.
+     * @param windowSize
+     */
+    public void setWindowSize(int windowSize) {
+        if (windowSize < 1)
+            throw new IllegalArgumentException("Window size must be at least 1");
+        this.windowSize = windowSize;
+    }
+
+    public boolean isSharedStrings() {
+        return sharedStrings;
+    }
+
+    /**
+     * Writes the strings to the shared strings table instead of inline, a
+     * smaller file when strings repeat, but the table stays in memory until
+     * the end. Disabled by default.
+     * @param sharedStrings
+     */
+    public void setSharedStrings(boolean sharedStrings) {
+        this.sharedStrings = sharedStrings;
+    }
+
+    public boolean isCompressTempFiles() {
+        return compressTempFiles;
+    }
+
+    /**
+     * Gzips the temp file of the flushed rows, less disk for more CPU.
+     * @param compressTempFiles
+     */
+    public void setCompressTempFiles(boolean compressTempFiles) {
+        this.compressTempFiles = compressTempFiles;
+    }
+}
@@ -0,0 +1,19 @@
+package com.gizbel.excel.factory;
+
+/**
+ * Unchecked wrapper for the failures raised while beans are produced lazily,
+ * e.g. through the iterator or stream of the Parser.<br>
+ * The original exception is available as the cause.
+ */
+public class ExtractionException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ExtractionException(Throwable cause) {
+        super(cause);
+    }
+
+    public ExtractionException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
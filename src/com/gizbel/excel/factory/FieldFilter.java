@@ -0,0 +1,222 @@
+package com.gizbel.excel.factory;
+
+import java.text.Format;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoField;
+
+/**
+ * CellPredicate of an ExcelFilter annotation, compares the cell with the
+ * values of the annotation according to the dataType of the field.<br>
+ * The values of the annotation are converted once, numbers are compared as
+ * doubles without boxing. Dates are compared on the day unless a value of the
+ * annotation has a time of the day, so that max="31-12-2020" keeps the cells
+ * of that day whatever their time.<br>
+ * Texts which do not convert to the kind of the filter are rejected without
+ * building an exception.
+ */
+final class FieldFilter implements CellPredicate {
+
+    private static final byte NUMBER = 0;
+    private static final byte DATE = 1;
+    private static final byte BOOLEAN = 2;
+    private static final byte TEXT = 3;
+
+    private final byte kind;
+
+    private final DateTimeFormatter formatter;
+
+    /** java.text.Format view of the formatter, parses cell texts without throwing. **/
+    private final Format format;
+
+    /** Whether dates are compared with their time of the day, on the day otherwise. **/
+    private final boolean timeOfDay;
+
+    /** Accepted numbers, null for any. **/
+    private final double[] numbers;
+
+    private final double minNumber;
+
+    private final double maxNumber;
+
+    /** Accepted values of the other kinds, null for any. **/
+    private final Object[] values;
+
+    private final Object min;
+
+    private final Object max;
+
+    /**
+     * @param binding binding of the field annotated with ExcelFilter
+     * @throws IllegalArgumentException if a value of the annotation does not
+     *             convert to the dataType of the field
+     */
+    FieldFilter(ColumnBinding binding) {
+        this.kind = kindOf(binding);
+        this.formatter = binding.getParser();
+        this.format = this.formatter.toFormat();
+        BoundField field = binding.getField();
+        String[] equalTo = field.getFilterEqualTo();
+        String min = field.getFilterMin();
+        String max = field.getFilterMax();
+        try {
+            this.timeOfDay = this.kind == DATE && (hasTimeOfDay(this.formatter, min)
+                    || hasTimeOfDay(this.formatter, max) || hasTimeOfDay(this.formatter, equalTo));
+            if (this.kind == NUMBER) {
+                this.numbers = equalTo.length == 0 ? null : new double[equalTo.length];
+                for (int i = 0; i < equalTo.length; i++) {
+                    this.numbers[i] = Double.parseDouble(equalTo[i].trim());
+                }
+                this.minNumber = min.isEmpty() ? Double.NEGATIVE_INFINITY : Double.parseDouble(min.trim());
+                this.maxNumber = max.isEmpty() ? Double.POSITIVE_INFINITY : Double.parseDouble(max.trim());
+                this.values = null;
+                this.min = null;
+                this.max = null;
+            } else {
+                this.values = equalTo.length == 0 ? null : new Object[equalTo.length];
+                for (int i = 0; i < equalTo.length; i++) {
+                    this.values[i] = this.fromText(equalTo[i]);
+                }
+                this.min = min.isEmpty() ? null : this.fromText(min);
+                this.max = max.isEmpty() ? null : this.fromText(max);
+                this.numbers = null;
+                this.minNumber = 0;
+                this.maxNumber = 0;
+            }
+        } catch (NumberFormatException | DateTimeException e) {
+            throw new IllegalArgumentException("Invalid ExcelFilter value on " + binding.getField().getName(), e);
+        }
+    }
+
+    @Override
+    public boolean test(CellValue cell) {
+        if (cell.isBlank())
+            return false;
+        if (this.kind == NUMBER)
+            return this.testNumber(cell);
+
+        Object value = this.valueOf(cell);
+        if (value == null)
+            return false;
+        if (this.min != null && compare(value, this.min) < 0)
+            return false;
+        if (this.max != null && compare(value, this.max) > 0)
+            return false;
+        if (this.values == null)
+            return true;
+        for (Object accepted : this.values) {
+            if (compare(value, accepted) == 0)
+                return true;
+        }
+        return false;
+    }
+
+    private boolean testNumber(CellValue cell) {
+        double value;
+        if (cell.isNumber()) {
+            value = cell.getNumber();
+        } else if (cell.isBoolean()) {
+            value = cell.getBoolean() ? 1 : 0;
+        } else {
+            String text = cell.getText();
+            if (!LenientParsers.isDecimal(text))
+                return false;
+            value = Double.parseDouble(text);
+        }
+        if (value < this.minNumber || value > this.maxNumber)
+            return false;
+        if (this.numbers == null)
+            return true;
+        for (double accepted : this.numbers) {
+            if (value == accepted)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Converts the cell to the kind of the filter.
+     * @return null if it does not convert
+     */
+    private Object valueOf(CellValue cell) {
+        switch (this.kind) {
+        case DATE:
+            if (cell.isNumber()) {
+                LocalDateTime dateTime = cell.getDateTime();
+                return this.timeOfDay ? dateTime : dateTime.toLocalDate();
+            }
+            return this.temporalType().parse(cell.getText().trim(), this.format);
+        case BOOLEAN:
+            if (cell.isBoolean())
+                return Boolean.valueOf(cell.getBoolean());
+            if (cell.isNumber())
+                return Boolean.valueOf(cell.getNumber() != 0);
+            String text = cell.getText().trim();
+            return LenientParsers.isBoolean(text) ? Boolean.valueOf(text) : null;
+        default:
+            return this.fromText(cell.getText());
+        }
+    }
+
+    /**
+     * Converts a value of the annotation.
+     * @throws DateTimeException if a date does not match the pattern
+     */
+    private Object fromText(String text) {
+        String value = text.trim();
+        switch (this.kind) {
+        case DATE:
+            return this.temporalType().fromText(value, this.formatter);
+        case BOOLEAN:
+            return Boolean.valueOf(value);
+        default:
+            return value;
+        }
+    }
+
+    /**
+     * Type the dates are compared as, LocalDateTime or LocalDate.
+     */
+    private TemporalType temporalType() {
+        return this.timeOfDay ? TemporalType.LOCAL_DATE_TIME : TemporalType.LOCAL_DATE;
+    }
+
+    /**
+     * Whether one of the date texts has a time of the day.
+     * @throws DateTimeException if a text does not match the pattern
+     */
+    private static boolean hasTimeOfDay(DateTimeFormatter formatter, String... texts) {
+        for (String text : texts) {
+            if (!text.isEmpty() && formatter.parse(text.trim()).isSupported(ChronoField.NANO_OF_DAY))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Compares two values of the same kind, LocalDateTime, LocalDate, Boolean
+     * or String.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static int compare(Object value, Object other) {
+        return ((Comparable) value).compareTo(other);
+    }
+
+    private static byte kindOf(ColumnBinding binding) {
+        if (binding.getCustomType() != null)
+            return TEXT;
+        switch (binding.getType()) {
+        case INT:
+        case LONG:
+        case DOUBLE:
+            return NUMBER;
+        case DATE:
+            return DATE;
+        case BOOL:
+            return BOOLEAN;
+        default:
+            return TEXT;
+        }
+    }
+}
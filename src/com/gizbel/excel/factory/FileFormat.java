@@ -0,0 +1,47 @@
+package com.gizbel.excel.factory;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.poi.POIXMLDocument;
+import org.apache.poi.poifs.filesystem.NPOIFSFileSystem;
+
+/**
+ * Format of a workbook file, told from the magic bytes at its start whatever
+ * the file extension. Delimited text has no magic bytes, it is told from the
+ * extension of the files having none of the others.
+ */
+enum FileFormat {
+
+    /** Zip package, xlsx and the other office open xml formats. **/
+    XLSX,
+
+    /** OLE2 compound document, BIFF8 xls. **/
+    XLS,
+
+    /** Delimited text, .csv, .tsv or .txt files. **/
+    CSV,
+
+    /** Anything else, left to WorkbookFactory. **/
+    UNKNOWN;
+
+    /**
+     * Reads the first bytes of the content to find out its format.
+     * @param source
+     * @return
+     * @throws IOException
+     */
+    static FileFormat of(WorkbookSource source) throws IOException {
+        InputStream in = new BufferedInputStream(source.openStream());
+        try {
+            if (POIXMLDocument.hasOOXMLHeader(in))
+                return XLSX;
+            if (NPOIFSFileSystem.hasPOIFSHeader(in))
+                return XLS;
+        } finally {
+            in.close();
+        }
+        return source.isDelimitedName() ? CSV : UNKNOWN;
+    }
+}
@@ -0,0 +1,68 @@
+package com.gizbel.excel.factory;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Outcome of one file of a BulkParser batch, either the extracted beans or
+ * the failure.
+ */
+public class FileResult {
+
+    private final Path path;
+
+    private final List<Object> beans;
+
+    private final Exception failure;
+
+    private final long elapsedNanos;
+
+    FileResult(Path path, List<Object> beans, Exception failure, long elapsedNanos) {
+        this.path = path;
+        this.beans = beans;
+        this.failure = failure;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Beans extracted from the file.
+     * @return null if the file has failed
+     */
+    public List<Object> getBeans() {
+        return beans;
+    }
+
+    /**
+     * Exception thrown while parsing the file.
+     * @return null if the file succeeded
+     */
+    public Exception getFailure() {
+        return failure;
+    }
+
+    public boolean isSuccess() {
+        return failure == null;
+    }
+
+    /**
+     * Time spent parsing the file, without the wait for a free slot.
+     * @return
+     */
+    public long getElapsedMillis() {
+        return elapsedNanos / 1000000L;
+    }
+
+    long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "FileResult [path=" + path + (failure == null ? ", beans=" + beans.size() : ", failure=" + failure)
+                + ", elapsedMillis=" + getElapsedMillis() + "]";
+    }
+}
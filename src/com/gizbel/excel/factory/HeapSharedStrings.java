@@ -0,0 +1,31 @@
+package com.gizbel.excel.factory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shared strings table kept on the heap, read only once filled so it can be
+ * shared by threads reading different sheets.
+ */
+final class HeapSharedStrings extends SharedStrings {
+
+    private final List<String> strings = new ArrayList<String>();
+
+    /** Size of the text of the strings, two bytes per char. **/
+    private long textSize;
+
+    @Override
+    String getEntryAt(int index) {
+        return this.strings.get(index);
+    }
+
+    @Override
+    void add(String value) {
+        this.strings.add(value);
+        this.textSize += 2L * value.length();
+    }
+
+    long getTextSize() {
+        return textSize;
+    }
+}
@@ -0,0 +1,68 @@
+package com.gizbel.excel.factory;
+
+import java.util.Arrays;
+
+/**
+ * Column of the fields with the "int" dataType, backed by an int array.
+ */
+public final class IntColumn extends Column {
+
+    private int[] values = new int[0];
+
+    IntColumn(String name) {
+        super(name);
+    }
+
+    /**
+     * Returns the value of the row, 0 for the null rows.
+     * @param row
+     * @return
+     */
+    public int getInt(int row) {
+        this.checkIndex(row);
+        return this.values[row];
+    }
+
+    /**
+     * Returns the values of all the rows, 0 for the null rows, <b>the array
+     * must not be modified</b>.
+     * @return
+     */
+    public int[] getValues() {
+        return values;
+    }
+
+    @Override
+    public Class<?> getValueClass() {
+        return Integer.class;
+    }
+
+    @Override
+    Object valueAt(int row) {
+        return Integer.valueOf(this.values[row]);
+    }
+
+    @Override
+    void setInt(int value) {
+        this.values[this.lastRow()] = value;
+    }
+
+    @Override
+    void setObject(Object value) {
+        if (value instanceof Integer)
+            this.setInt(((Integer) value).intValue());
+        else
+            super.setObject(value);
+    }
+
+    @Override
+    void ensureCapacity(int capacity) {
+        if (capacity > this.values.length)
+            this.values = Arrays.copyOf(this.values, grow(this.values.length, capacity));
+    }
+
+    @Override
+    void trim() {
+        this.values = Arrays.copyOf(this.values, this.size());
+    }
+}
@@ -0,0 +1,122 @@
+package com.gizbel.excel.factory;
+
+/**
+ * Checks whether a text converts to a number or a boolean without trying the
+ * conversion, so that dirty cells are told apart without building a
+ * NumberFormatException each.<br>
+ * The checks accept exactly what Integer.parseInt, Long.parseLong and
+ * Double.parseDouble accept, the conversion can then be done with them
+ * without failing.
+ */
+final class LenientParsers {
+
+    private LenientParsers() {
+    }
+
+    /**
+     * Whether the text is an integer between min and max, as parsed by
+     * Long.parseLong: an optional sign followed by decimal digits.
+     * @param text
+     * @param min
+     * @param max
+     * @return
+     */
+    static boolean isInteger(String text, long min, long max) {
+        int length = text.length();
+        if (length == 0)
+            return false;
+        int i = 0;
+        boolean negative = false;
+        char first = text.charAt(0);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (length == 1)
+                return false;
+            i++;
+        }
+        // Accumulated negatively like Long.parseLong, the negative range is the larger one
+        long limit = negative ? min : -max;
+        long limitBeforeDigit = limit / 10;
+        long result = 0;
+        for (; i < length; i++) {
+            int digit = Character.digit(text.charAt(i), 10);
+            if (digit < 0 || result < limitBeforeDigit)
+                return false;
+            result *= 10;
+            if (result < limit + digit)
+                return false;
+            result -= digit;
+        }
+        return true;
+    }
+
+    /**
+     * Whether the text is a decimal number as parsed by Double.parseDouble,
+     * surrounding whitespace, NaN, Infinity and type suffixes included.
+     * Hexadecimal numbers are left to Double.parseDouble itself.
+     * @param text
+     * @return
+     */
+    static boolean isDecimal(String text) {
+        int end = text.length();
+        int i = 0;
+        while (i < end && text.charAt(i) <= ' ')
+            i++;
+        while (end > i && text.charAt(end - 1) <= ' ')
+            end--;
+        if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+'))
+            i++;
+        if (text.startsWith("NaN", i))
+            return i + 3 == end;
+        if (text.startsWith("Infinity", i))
+            return i + 8 == end;
+        if (i + 1 < end && text.charAt(i) == '0' && (text.charAt(i + 1) == 'x' || text.charAt(i + 1) == 'X'))
+            return isHexDecimal(text);
+
+        int digits = 0;
+        for (; i < end && isDigit(text.charAt(i)); i++)
+            digits++;
+        if (i < end && text.charAt(i) == '.') {
+            for (i++; i < end && isDigit(text.charAt(i)); i++)
+                digits++;
+        }
+        if (digits == 0)
+            return false;
+        if (i < end && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            i++;
+            if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+'))
+                i++;
+            int exponentDigits = 0;
+            for (; i < end && isDigit(text.charAt(i)); i++)
+                exponentDigits++;
+            if (exponentDigits == 0)
+                return false;
+        }
+        if (i < end && "fFdD".indexOf(text.charAt(i)) >= 0)
+            i++;
+        return i == end;
+    }
+
+    /**
+     * Whether the text is true or false, ignoring case. Boolean.parseBoolean
+     * reads any other text as false.
+     * @param text
+     * @return
+     */
+    static boolean isBoolean(String text) {
+        return "true".equalsIgnoreCase(text) || "false".equalsIgnoreCase(text);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isHexDecimal(String text) {
+        try {
+            Double.parseDouble(text);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.gizbel.excel.factory;
+
+import java.util.Arrays;
+
+/**
+ * Column of the fields with the "long" dataType, backed by a long array.
+ */
+public final class LongColumn extends Column {
+
+    private long[] values = new long[0];
+
+    LongColumn(String name) {
+        super(name);
+    }
+
+    /**
+     * Returns the value of the row, 0 for the null rows.
+     * @param row
+     * @return
+     */
+    public long getLong(int row) {
+        this.checkIndex(row);
+        return this.values[row];
+    }
+
+    /**
+     * Returns the values of all the rows, 0 for the null rows, <b>the array
+     * must not be modified</b>.
+     * @return
+     */
+    public long[] getValues() {
+        return values;
+    }
+
+    @Override
+    public Class<?> getValueClass() {
+        return Long.class;
+    }
+
+    @Override
+    Object valueAt(int row) {
+        return Long.valueOf(this.values[row]);
+    }
+
+    @Override
+    void setLong(long value) {
+        this.values[this.lastRow()] = value;
+    }
+
+    @Override
+    void setObject(Object value) {
+        if (value instanceof Long || value instanceof Integer)
+            this.setLong(((Number) value).longValue());
+        else
+            super.setObject(value);
+    }
+
+    @Override
+    void ensureCapacity(int capacity) {
+        if (capacity > this.values.length)
+            this.values = Arrays.copyOf(this.values, grow(this.values.length, capacity));
+    }
+
+    @Override
+    void trim() {
+        this.values = Arrays.copyOf(this.values, this.size());
+    }
+}
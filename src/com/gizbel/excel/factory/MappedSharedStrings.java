@@ -0,0 +1,207 @@
+package com.gizbel.excel.factory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shared strings table spilled to temp files, the UTF-8 bytes of the strings
+ * one after the other and the offset of each string, both memory mapped once
+ * the table is read.<br>
+ * Only the strings in use are decoded, the most recent ones are kept in a
+ * bounded LRU cache so the heap used does not depend on the size of the
+ * table. Lookups are synchronized, the table can be shared by threads reading
+ * different sheets.
+ */
+final class MappedSharedStrings extends SharedStrings {
+
+    /** Files are mapped by segments, a single mapping is limited to 2GB. **/
+    private static final int SEGMENT_BITS = 30;
+
+    private final int segmentBits;
+    private final long segmentSize;
+
+    private final Path dataFile;
+
+    private final Path offsetsFile;
+
+    private DataOutputStream dataOut;
+
+    private DataOutputStream offsetsOut;
+
+    /** Number of bytes written to the data file. **/
+    private long dataSize;
+
+    private int count;
+
+    private MappedByteBuffer[] data;
+
+    private MappedByteBuffer[] offsets;
+
+    private byte[] scratch = new byte[256];
+
+    private final Map<Integer, String> cache;
+
+    MappedSharedStrings(int cacheSize) throws IOException {
+        this(cacheSize, SEGMENT_BITS);
+    }
+
+    /**
+     * @param cacheSize
+     * @param segmentBits log2 of the size of the mapped segments, at least 3
+     *            so that segments hold a whole number of offsets
+     * @throws IOException
+     */
+    MappedSharedStrings(final int cacheSize, int segmentBits) throws IOException {
+        this.segmentBits = segmentBits;
+        this.segmentSize = 1L << segmentBits;
+        this.cache = new LinkedHashMap<Integer, String>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+                return this.size() > cacheSize;
+            }
+        };
+        this.dataFile = Files.createTempFile("excel-extractor-sst", ".dat");
+        this.offsetsFile = Files.createTempFile("excel-extractor-sst", ".idx");
+        try {
+            this.dataOut = open(this.dataFile);
+            this.offsetsOut = open(this.offsetsFile);
+            this.offsetsOut.writeLong(0);
+        } catch (IOException e) {
+            this.close();
+            throw e;
+        }
+    }
+
+    @Override
+    void add(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        this.dataOut.write(bytes);
+        this.dataSize += bytes.length;
+        // End offset of the string, which is the start of the next one
+        this.offsetsOut.writeLong(this.dataSize);
+        this.count++;
+    }
+
+    @Override
+    void finish() throws IOException {
+        this.dataOut.close();
+        this.dataOut = null;
+        this.offsetsOut.close();
+        this.offsetsOut = null;
+        this.data = this.map(this.dataFile);
+        this.offsets = this.map(this.offsetsFile);
+    }
+
+    @Override
+    synchronized String getEntryAt(int index) {
+        if (index < 0 || index >= this.count)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.count);
+        Integer key = Integer.valueOf(index);
+        String value = this.cache.get(key);
+        if (value == null) {
+            value = this.decode(index);
+            this.cache.put(key, value);
+        }
+        return value;
+    }
+
+    private String decode(int index) {
+        long start = this.offsetAt(index);
+        int length = (int) (this.offsetAt(index + 1) - start);
+        if (length > this.scratch.length)
+            this.scratch = new byte[Math.max(length, this.scratch.length * 2)];
+        int copied = 0;
+        while (copied < length) {
+            long position = start + copied;
+            MappedByteBuffer segment = this.data[(int) (position >>> this.segmentBits)];
+            int offset = (int) (position & (this.segmentSize - 1));
+            int chunk = Math.min(length - copied, segment.limit() - offset);
+            segment.position(offset);
+            segment.get(this.scratch, copied, chunk);
+            copied += chunk;
+        }
+        return new String(this.scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private long offsetAt(int index) {
+        long position = (long) index * 8;
+        // Segments hold a whole number of longs
+        return this.offsets[(int) (position >>> this.segmentBits)].getLong((int) (position & (this.segmentSize - 1)));
+    }
+
+    /**
+     * Whether the string at the given index is in the cache.
+     * @param index
+     * @return
+     */
+    synchronized boolean isCached(int index) {
+        return this.cache.containsKey(Integer.valueOf(index));
+    }
+
+    /**
+     * Deletes the temp files, the mappings themselves are released by the
+     * garbage collector.
+     */
+    @Override
+    public synchronized void close() {
+        closeQuietly(this.dataOut);
+        closeQuietly(this.offsetsOut);
+        this.data = null;
+        this.offsets = null;
+        this.cache.clear();
+        delete(this.dataFile);
+        delete(this.offsetsFile);
+    }
+
+    private static DataOutputStream open(Path file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024));
+    }
+
+    private MappedByteBuffer[] map(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) Math.max(1,
+                    (size + this.segmentSize - 1) >>> this.segmentBits)];
+            for (int i = 0; i < segments.length; i++) {
+                long position = (long) i << this.segmentBits;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(this.segmentSize, size - position));
+            }
+            return segments;
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static void closeQuietly(OutputStream out) {
+        if (out == null)
+            return;
+        try {
+            out.close();
+        } catch (IOException e) {
+            // Files are deleted anyway
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Still mapped on some platforms, removed when the JVM exits
+            file.toFile().deleteOnExit();
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package com.gizbel.excel.factory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Workbook;
+
+/**
+ * Extracts several sheets of a workbook concurrently, each sheet with the
+ * parser of the first selector matching it, so different sheets can be bound
+ * to different ExcelBean classes.<br>
+ * The file is opened once and the sheets are read in parallel on the
+ * executor, the common ForkJoinPool by default. xlsx and xls sheets are
+ * always read through the event based readers, over the shared strings and
+ * styles read once, whatever the streaming flag of the parsers. Delimited
+ * text is read as a single sheet, with the delimiter of its extension. Other
+ * formats are loaded once and their sheets bound in parallel.<br>
+ * The parsers keep their own settings (skip header, empty rows, converters,
+ * listener) and one parser can be used for several sheets. A JFR event is
+ * recorded for the file, around the events of its sheets.
+ *
+ * <pre>
+ * MultiSheetParser multiSheetParser = new MultiSheetParser();
+ * multiSheetParser.addSheets(SheetSelector.name("Summary"), summaryParser);
+ * multiSheetParser.addSheets(SheetSelector.pattern("Invoices-.*"), invoiceParser);
+ * List&lt;SheetResult&gt; results = multiSheetParser.parse(file);
+ * </pre>
+ */
+public class MultiSheetParser {
+
+    private final List<SheetSelector> selectors = new ArrayList<SheetSelector>();
+
+    private final List<Parser<?>> parsers = new ArrayList<Parser<?>>();
+
+    /**
+     * Runs the extraction of the sheets, null for the common ForkJoinPool.
+     **/
+    private Executor executor;
+
+    /**
+     * Size in bytes of the shared strings above which they are kept in a
+     * memory mapped temp file, 64MB by default. The size of the xml for xlsx
+     * files, of the text for xls files.
+     **/
+    private long sharedStringsThreshold = SharedStrings.DEFAULT_DISK_THRESHOLD;
+
+    /**
+     * Number of shared strings cached on the heap when they are on disk.
+     **/
+    private int sharedStringsCacheSize = SharedStrings.DEFAULT_CACHE_SIZE;
+
+    /**
+     * Extracts the sheets matched by the selector with the parser, sheets
+     * matched by several selectors go to the first one added.
+     * @param selector
+     * @param parser
+     */
+    public void addSheets(SheetSelector selector, Parser<?> parser) {
+        this.selectors.add(selector);
+        this.parsers.add(parser);
+    }
+
+    /**
+     * Extracts the selected sheets of the file concurrently.<br>
+     * If a sheet fails, the remaining ones are stopped and the failure is
+     * thrown once all of them have released the file.
+     *
+     * @param file
+     * @return the results of the selected sheets in workbook order, sheets not
+     *         matched by any selector are skipped
+     * @throws InvalidFormatException
+     * @throws IOException
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     * @throws ParseException
+     */
+    public List<SheetResult> parse(File file) throws InvalidFormatException, IOException, InstantiationException,
+            IllegalAccessException, ParseException {
+        FileFormat format = FileFormat.of(WorkbookSource.of(file));
+        Object fileEvent = ParseEvents.beginFile();
+        List<SheetResult> results = null;
+        try {
+            results = this.parse(file, format);
+            return results;
+        } finally {
+            this.commitFileEvent(fileEvent, file, format, results);
+        }
+    }
+
+    private List<SheetResult> parse(final File file, final FileFormat format) throws InvalidFormatException,
+            IOException, InstantiationException, IllegalAccessException, ParseException {
+        final Extraction extraction = new Extraction();
+        if (SheetStreamReader.isStreamable(format)) {
+            final SheetStreamReader reader = SheetStreamReader.open(WorkbookSource.of(file), format,
+                    this.sharedStringsThreshold, this.sharedStringsCacheSize);
+            try {
+                for (int i = 0; i < reader.getSheetCount(); i++) {
+                    final Parser<?> parser = this.parserFor(i, reader.getSheetName(i));
+                    if (parser == null)
+                        continue;
+                    final int sheetIndex = i;
+                    extraction.add(new SheetTask(file, format, sheetIndex, reader.getSheetName(i), parser) {
+                        @Override
+                        void read(final ParseContext context, final List<Object> beans) throws Exception {
+                            reader.readSheet(sheetIndex, context.getRowFilter(), new RowCallback() {
+                                @Override
+                                public boolean onRow(RowBuffer row) throws Exception {
+                                    return !extraction.stopped && collect(parser.processRow(row, context), beans);
+                                }
+                            });
+                        }
+                    });
+                }
+                return extraction.run(this.executor);
+            } finally {
+                reader.close();
+            }
+        }
+
+        final Workbook workbook = Parser.openWorkbook(WorkbookSource.of(file), format);
+        try {
+            for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
+                final Parser<?> parser = this.parserFor(i, workbook.getSheetName(i));
+                if (parser == null)
+                    continue;
+                final int sheetIndex = i;
+                extraction.add(new SheetTask(file, format, sheetIndex, workbook.getSheetName(i), parser) {
+                    @Override
+                    void read(ParseContext context, List<Object> beans) throws Exception {
+                        WorkbookRowReader reader = new WorkbookRowReader(workbook);
+                        RowBuffer buffer = new RowBuffer();
+                        RowFilter rowFilter = context.getRowFilter();
+                        for (Row row : workbook.getSheetAt(sheetIndex)) {
+                            if (rowFilter.isAfterRange(row.getRowNum()))
+                                break;
+                            if (!rowFilter.acceptsRow(row.getRowNum()))
+                                continue;
+                            reader.read(row, buffer, rowFilter);
+                            if (extraction.stopped || !collect(parser.processRow(buffer, context), beans))
+                                break;
+                        }
+                    }
+                });
+            }
+            return extraction.run(this.executor);
+        } finally {
+            Parser.closeWorkbook(workbook);
+        }
+    }
+
+    /**
+     * Commits the file event with the totals of the sheets.
+     * @param results null if the parse failed
+     */
+    private void commitFileEvent(Object fileEvent, File file, FileFormat format, List<SheetResult> results) {
+        if (fileEvent == null)
+            return;
+        int sheets = 0;
+        long rows = 0;
+        long beans = 0;
+        if (results != null) {
+            for (SheetResult result : results) {
+                sheets++;
+                rows += result.getRowCount();
+                beans += result.getBeans().size();
+            }
+        }
+        ParseEvents.commitFile(fileEvent, file, format, sheets, rows, beans, results == null);
+    }
+
+    private Parser<?> parserFor(int sheetIndex, String sheetName) {
+        for (int i = 0; i < this.selectors.size(); i++) {
+            if (this.selectors.get(i).matches(sheetIndex, sheetName))
+                return this.parsers.get(i);
+        }
+        return null;
+    }
+
+    /**
+     * Adds the bean returned by processRow.
+     * @return false if the processing of the sheet has to stop
+     */
+    private static boolean collect(Object beanObj, List<Object> beans) {
+        if (beanObj == Parser.END_OF_SHEET)
+            return false;
+        if (beanObj != null)
+            beans.add(beanObj);
+        return true;
+    }
+
+    /**
+     * Extraction of one sheet with its own parse state and metrics, the
+     * listener of the parser gets them on the thread of the sheet.
+     */
+    private abstract static class SheetTask implements Callable<SheetResult> {
+
+        private final File file;
+
+        private final FileFormat format;
+
+        private final int sheetIndex;
+
+        private final String sheetName;
+
+        private final Parser<?> parser;
+
+        SheetTask(File file, FileFormat format, int sheetIndex, String sheetName, Parser<?> parser) {
+            this.file = file;
+            this.format = format;
+            this.sheetIndex = sheetIndex;
+            this.sheetName = sheetName;
+            this.parser = parser;
+        }
+
+        abstract void read(ParseContext context, List<Object> beans) throws Exception;
+
+        @Override
+        public SheetResult call() throws Exception {
+            List<Object> beans = new ArrayList<Object>();
+            ParseContext context = this.parser.newContext();
+            // The file is opened once for all the sheets, not by the sheet
+            ParseMetrics metrics = this.parser.startMetrics(this.file, this.format, context, false);
+            if (metrics != null)
+                metrics.opened(this.sheetName, 0);
+            Throwable failure = null;
+            try {
+                this.read(context, beans);
+            } catch (Throwable e) {
+                failure = e;
+                throw e;
+            } finally {
+                this.parser.finishMetrics(metrics, failure);
+            }
+            return new SheetResult(this.sheetIndex, this.sheetName, this.parser.getBeanClass(), beans,
+                    metrics == null ? 0 : metrics.getRowCount());
+        }
+    }
+
+    /**
+     * Sheet tasks of one parse, stopped together when one of them fails.
+     */
+    private static final class Extraction {
+
+        private final List<FutureTask<SheetResult>> tasks = new ArrayList<FutureTask<SheetResult>>();
+
+        private volatile boolean stopped;
+
+        /** Number of tasks handed to the executor. **/
+        private int submitted;
+
+        void add(final SheetTask task) {
+            this.tasks.add(new FutureTask<SheetResult>(new Callable<SheetResult>() {
+                @Override
+                public SheetResult call() throws Exception {
+                    // Queued tasks of a failed extraction return right away
+                    return Extraction.this.stopped ? null : task.call();
+                }
+            }));
+        }
+
+        List<SheetResult> run(Executor executor) throws IOException, InstantiationException, IllegalAccessException,
+                ParseException {
+            if (executor == null)
+                executor = ForkJoinPool.commonPool();
+            try {
+                for (FutureTask<SheetResult> task : this.tasks) {
+                    executor.execute(task);
+                    this.submitted++;
+                }
+
+                List<SheetResult> results = new ArrayList<SheetResult>(this.tasks.size());
+                for (FutureTask<SheetResult> task : this.tasks)
+                    results.add(task.get());
+                return results;
+            } catch (ExecutionException e) {
+                this.stopped = true;
+                rethrow(e.getCause());
+                return null;
+            } catch (InterruptedException e) {
+                this.stopped = true;
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the sheets");
+            } finally {
+                this.stopped = true;
+                this.awaitAll();
+            }
+        }
+
+        /**
+         * Waits until no task uses the file anymore.
+         */
+        private void awaitAll() {
+            boolean interrupted = false;
+            for (FutureTask<SheetResult> task : this.tasks.subList(0, this.submitted)) {
+                while (true) {
+                    try {
+                        task.get();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    } catch (Exception e) {
+                        break;
+                    }
+                }
+            }
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+
+        private static void rethrow(Throwable cause)
+                throws IOException, InstantiationException, IllegalAccessException, ParseException {
+            if (cause instanceof InstantiationException)
+                throw (InstantiationException) cause;
+            if (cause instanceof IllegalAccessException)
+                throw (IllegalAccessException) cause;
+            if (cause instanceof ParseException)
+                throw (ParseException) cause;
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new ExtractionException(cause);
+        }
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Sets the executor running the extraction of the sheets, e.g. a
+     * ForkJoinPool or a fixed thread pool sized to the number of cores.
+     * @param executor null for the common ForkJoinPool
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public long getSharedStringsThreshold() {
+        return sharedStringsThreshold;
+    }
+
+    /**
+     * Sets the size of the shared strings above which they are read into a
+     * memory mapped temp file shared by the sheet threads, the size of the xml
+     * for xlsx files and of the text for xls files.
+     * @param sharedStringsThreshold in bytes, 0 to always use the temp file
+     */
+    public void setSharedStringsThreshold(long sharedStringsThreshold) {
+        if (sharedStringsThreshold < 0)
+            throw new IllegalArgumentException("Shared strings threshold can not be negative");
+        this.sharedStringsThreshold = sharedStringsThreshold;
+    }
+
+    public int getSharedStringsCacheSize() {
+        return sharedStringsCacheSize;
+    }
+
+    public void setSharedStringsCacheSize(int sharedStringsCacheSize) {
+        if (sharedStringsCacheSize < 1)
+            throw new IllegalArgumentException("Shared strings cache size must be at least 1");
+        this.sharedStringsCacheSize = sharedStringsCacheSize;
+    }
+}
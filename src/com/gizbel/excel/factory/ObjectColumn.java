@@ -0,0 +1,63 @@
+package com.gizbel.excel.factory;
+
+import java.util.Arrays;
+
+/**
+ * Column of the date fields and of the fields of custom types converted by
+ * the ConverterRegistry, backed by an array of the values.
+ */
+public final class ObjectColumn<V> extends Column {
+
+    private final Class<V> valueClass;
+
+    private Object[] values = new Object[0];
+
+    ObjectColumn(String name, Class<V> valueClass) {
+        super(name);
+        this.valueClass = valueClass;
+    }
+
+    /**
+     * Returns the value of the row.
+     * @param row
+     * @return null for the null rows
+     */
+    public V get(int row) {
+        this.checkIndex(row);
+        return this.valueClass.cast(this.values[row]);
+    }
+
+    @Override
+    public Class<V> getValueClass() {
+        return valueClass;
+    }
+
+    @Override
+    Object valueAt(int row) {
+        return this.values[row];
+    }
+
+    @Override
+    void setObject(Object value) {
+        if (value != null && !this.valueClass.isInstance(value)) {
+            super.setObject(value);
+            return;
+        }
+        int row = this.lastRow();
+        this.values[row] = value;
+        // Converters may return null for a cell
+        if (value == null)
+            this.setNull(row);
+    }
+
+    @Override
+    void ensureCapacity(int capacity) {
+        if (capacity > this.values.length)
+            this.values = Arrays.copyOf(this.values, grow(this.values.length, capacity));
+    }
+
+    @Override
+    void trim() {
+        this.values = Arrays.copyOf(this.values, this.size());
+    }
+}
@@ -0,0 +1,375 @@
+package com.gizbel.excel.factory;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.gizbel.excel.converters.CellConverter;
+import com.gizbel.excel.converters.ConverterRegistry;
+import com.gizbel.excel.enums.ExcelFactoryType;
+
+/**
+ * State of a single parse, kept apart from the Parser so that one Parser can
+ * be reused and shared between threads.<br>
+ * Holds the column bindings in use: the shared index bindings of the schema
+ * for column index based extraction, or the bindings resolved from the header
+ * row of this sheet for column name based extraction. The converters of the
+ * custom typed fields are resolved along with them.<br>
+ * Also tracks the offset and limit of the parse, the columns of the
+ * filters and the rows and columns the readers have to decode.
+ */
+final class ParseContext {
+
+    private final BeanSchema schema;
+
+    private final ConverterRegistry converterRegistry;
+
+    private ColumnBinding[] bindings;
+
+    /** Converters of the custom typed fields, indexed like the bindings. **/
+    private CellConverter<?>[] converters;
+
+    /** Header bindings not matched to a column yet, null unless extracting by column name. **/
+    private Map<String, ColumnBinding> unresolvedHeaders;
+
+    /** Column of each header bound to a field, null unless extracting by column name. **/
+    private Map<String, Integer> resolvedHeaders;
+
+    /** Bindings of all the fields of the extraction type, in declaration order. **/
+    private final List<ColumnBinding> fieldBindings;
+
+    /** Column indexes bound to a field, in ascending order. **/
+    private int[] boundColumns;
+
+    private final RowFilter rowFilter;
+
+    /** Number of rows still to skip before the first bean. **/
+    private int offset;
+
+    /** Number of beans still to return. **/
+    private int remaining;
+
+    private final ColumnFilter[] filters;
+
+    /** Column index of each filter, -1 until its header is found. **/
+    private final int[] filterColumns;
+
+    private final RowCellValue cell = new RowCellValue();
+
+    /**
+     * Rows rejected by each filter, counted apart until they are added to the
+     * filters, null when the filters count them directly.
+     **/
+    private final long[] rejected;
+
+    /** Metrics of the parse, null when they are not collected. **/
+    private ParseMetrics metrics;
+
+    /** Errors of a lenient parse, null when conversion failures are thrown. **/
+    private ConversionErrors errors;
+
+    /**
+     * @param schema
+     * @param excelFactoryType
+     * @param converterRegistry
+     * @param rowFilter rows to read, the columns are set by the context
+     * @param offset number of rows to skip before the first bean
+     * @param limit maximum number of beans
+     * @param filters filters tested on every row before it is bound
+     */
+    ParseContext(BeanSchema schema, ExcelFactoryType excelFactoryType, ConverterRegistry converterRegistry,
+            RowFilter rowFilter, int offset, int limit, ColumnFilter[] filters) {
+        this.schema = schema;
+        this.converterRegistry = converterRegistry;
+        this.rowFilter = rowFilter;
+        this.offset = offset;
+        this.remaining = limit;
+        this.filters = filters;
+        this.rejected = null;
+        this.filterColumns = new int[filters.length];
+        for (int i = 0; i < filters.length; i++) {
+            this.filterColumns[i] = filters[i].getColumnIndex();
+        }
+        if (excelFactoryType == ExcelFactoryType.COLUMN_NAME_BASED_EXTRACTION) {
+            this.bindings = new ColumnBinding[0];
+            this.converters = new CellConverter<?>[0];
+            this.unresolvedHeaders = new HashMap<String, ColumnBinding>(schema.getHeaderBindings());
+            this.resolvedHeaders = new LinkedHashMap<String, Integer>();
+            this.fieldBindings = schema.getHeaderFields();
+            this.boundColumns = new int[0];
+        } else {
+            this.bindings = schema.getIndexBindings();
+            this.fieldBindings = schema.getIndexFields();
+            this.converters = new CellConverter<?>[this.bindings.length];
+            for (int i = 0; i < this.bindings.length; i++) {
+                this.converters[i] = this.converterFor(this.bindings[i]);
+            }
+            this.project();
+        }
+    }
+
+    /**
+     * Copy of a context whose headers are resolved, for a worker binding part
+     * of the rows on its own thread. The bindings and the row filter are
+     * shared, the copy has neither offset nor limit and counts the rejected
+     * rows apart, see addRejectedCounts.
+     * @param resolved
+     */
+    ParseContext(ParseContext resolved) {
+        this.schema = resolved.schema;
+        this.converterRegistry = resolved.converterRegistry;
+        this.bindings = resolved.bindings;
+        this.converters = resolved.converters;
+        this.fieldBindings = resolved.fieldBindings;
+        this.boundColumns = resolved.boundColumns;
+        this.rowFilter = resolved.rowFilter;
+        this.offset = 0;
+        this.remaining = Integer.MAX_VALUE;
+        this.filters = resolved.filters;
+        this.filterColumns = resolved.filterColumns;
+        this.rejected = new long[this.filters.length];
+        this.metrics = resolved.metrics;
+        this.errors = resolved.errors;
+    }
+
+    /**
+     * Binds the field annotated with the header to the column index, the first
+     * column with a given header wins.
+     * @param header
+     * @param columnIndex
+     */
+    void resolveHeader(String header, int columnIndex) {
+        for (int i = 0; i < this.filters.length; i++) {
+            if (this.filterColumns[i] < 0 && header.equals(this.filters[i].getColumnHeader()))
+                this.filterColumns[i] = columnIndex;
+        }
+        ColumnBinding binding = this.unresolvedHeaders.remove(header);
+        if (binding != null) {
+            if (columnIndex >= this.bindings.length) {
+                this.bindings = Arrays.copyOf(this.bindings, columnIndex + 1);
+                this.converters = Arrays.copyOf(this.converters, columnIndex + 1);
+            }
+            this.bindings[columnIndex] = binding;
+            this.converters[columnIndex] = this.converterFor(binding);
+            this.resolvedHeaders.put(header, columnIndex);
+        }
+    }
+
+    /**
+     * Called once the header row is resolved, the next rows only decode the
+     * columns bound to a field.
+     */
+    void headersResolved() {
+        this.project();
+    }
+
+    private void project() {
+        int length = this.bindings.length;
+        for (int filterColumn : this.filterColumns) {
+            length = Math.max(length, filterColumn + 1);
+        }
+        boolean[] columns = new boolean[length];
+        int count = 0;
+        for (int i = 0; i < this.bindings.length; i++) {
+            if (this.bindings[i] != null) {
+                columns[i] = true;
+                count++;
+            }
+        }
+        this.boundColumns = new int[count];
+        for (int i = 0, j = 0; i < columns.length; i++) {
+            if (columns[i])
+                this.boundColumns[j++] = i;
+        }
+        // Filter columns are decoded too, they are tested before binding
+        for (int filterColumn : this.filterColumns) {
+            if (filterColumn >= 0)
+                columns[filterColumn] = true;
+        }
+        this.rowFilter.setColumns(columns);
+    }
+
+    /**
+     * Tests the filters on the raw cells of the row, a rejected row is
+     * counted by the first filter rejecting it.
+     * @param row
+     * @return false if the row is rejected
+     */
+    boolean acceptsRow(RowBuffer row) {
+        for (int i = 0; i < this.filters.length; i++) {
+            this.cell.moveTo(row, this.filterColumns[i]);
+            if (this.rejected == null) {
+                if (!this.filters[i].accepts(this.cell))
+                    return false;
+            } else if (!this.filters[i].test(this.cell)) {
+                this.rejected[i]++;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds the rows rejected by a worker copy to the counts of the filters.
+     * @param worker
+     */
+    void addRejectedCounts(ParseContext worker) {
+        for (int i = 0; i < this.filters.length; i++) {
+            if (worker.rejected[i] > 0)
+                this.filters[i].addRejected(worker.rejected[i]);
+        }
+    }
+
+    /**
+     * Counts a row which would produce a bean against the offset and the
+     * limit.
+     * @return null if the row has to be bound, Parser.SKIP_ROW while within the
+     *         offset or Parser.END_OF_SHEET once the limit is reached
+     */
+    Object admitRow() {
+        if (this.offset > 0) {
+            this.offset--;
+            return Parser.SKIP_ROW;
+        }
+        if (this.remaining <= 0)
+            return Parser.END_OF_SHEET;
+        this.remaining--;
+        return null;
+    }
+
+    /**
+     * Number of rows still to skip before the first bean.
+     * @return
+     */
+    int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Converts the cell of the column into the field of its binding, the
+     * conversion failures are counted in the metrics before being thrown, or
+     * reported to the errors of a lenient parse.
+     * @param target the bean, or the Column of the field in columnar mode
+     * @param row
+     * @param columnIndex column bound to a field
+     * @throws ExtractionException once a lenient parse has too many errors
+     */
+    void bind(Object target, RowBuffer row, int columnIndex) {
+        ColumnBinding binding = this.bindings[columnIndex];
+        if (this.errors == null) {
+            try {
+                binding.bind(target, row, columnIndex, this.converters[columnIndex]);
+            } catch (RuntimeException e) {
+                if (this.metrics != null)
+                    this.metrics.conversionFailed(binding.getField().getName());
+                throw e;
+            }
+            return;
+        }
+        String reason = binding.bindLenient(target, row, columnIndex, this.converters[columnIndex]);
+        if (reason != null) {
+            String fieldName = binding.getField().getName();
+            if (this.metrics != null)
+                this.metrics.conversionFailed(fieldName);
+            this.errors.report(new ParseError(row.getRowNum(), columnIndex, fieldName, row.getText(columnIndex),
+                    reason));
+        }
+    }
+
+    /**
+     * Column indexes bound to a field in ascending order, none until the
+     * headers are resolved. <b>The array must not be modified</b>.
+     * @return
+     */
+    int[] getBoundColumns() {
+        return boundColumns;
+    }
+
+    RowFilter getRowFilter() {
+        return rowFilter;
+    }
+
+    /**
+     * Metrics of the parse.
+     * @return null when they are not collected
+     */
+    ParseMetrics getMetrics() {
+        return metrics;
+    }
+
+    void setMetrics(ParseMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Makes the parse lenient, the cells which do not convert are reported to
+     * the errors instead of thrown.
+     * @param errors
+     */
+    void setErrors(ConversionErrors errors) {
+        this.errors = errors;
+    }
+
+    /**
+     * Column of each header bound to a field, in the order found.
+     * @return null for column index based extraction
+     */
+    Map<String, Integer> getResolvedHeaders() {
+        return resolvedHeaders;
+    }
+
+    /**
+     * Errors of a lenient parse.
+     * @return null when conversion failures are thrown
+     */
+    ConversionErrors getErrors() {
+        return errors;
+    }
+
+    private CellConverter<?> converterFor(ColumnBinding binding) {
+        if (binding == null || binding.getCustomType() == null)
+            return null;
+        return this.converterRegistry.lookup(binding.getCustomType());
+    }
+
+    /**
+     * Returns the binding of the column, null if no field is mapped to it.
+     * @param columnIndex
+     * @return
+     */
+    ColumnBinding bindingAt(int columnIndex) {
+        return columnIndex < this.bindings.length ? this.bindings[columnIndex] : null;
+    }
+
+    /**
+     * Returns the converter of the column, null unless its field has a custom type.
+     * @param columnIndex
+     * @return
+     */
+    CellConverter<?> converterAt(int columnIndex) {
+        return this.converters[columnIndex];
+    }
+
+    /**
+     * Number of columns up to the last one bound to a field.
+     * @return
+     */
+    int getColumnCount() {
+        return this.bindings.length;
+    }
+
+    /**
+     * Bindings of all the fields of the extraction type, bound to a column or
+     * not, in field declaration order.
+     * @return
+     */
+    List<ColumnBinding> getFieldBindings() {
+        return fieldBindings;
+    }
+
+    BeanSchema getSchema() {
+        return schema;
+    }
+}
@@ -0,0 +1,68 @@
+package com.gizbel.excel.factory;
+
+/**
+ * Cell which did not convert to the type of its field during a lenient
+ * parse, the field was left to its initial value.
+ */
+public class ParseError {
+
+    private final int rowNum;
+
+    private final int columnIndex;
+
+    private final String fieldName;
+
+    private final String rawValue;
+
+    private final String reason;
+
+    ParseError(int rowNum, int columnIndex, String fieldName, String rawValue, String reason) {
+        this.rowNum = rowNum;
+        this.columnIndex = columnIndex;
+        this.fieldName = fieldName;
+        this.rawValue = rawValue;
+        this.reason = reason;
+    }
+
+    /**
+     * Zero based number of the row in the sheet.
+     * @return
+     */
+    public int getRowNum() {
+        return rowNum;
+    }
+
+    /**
+     * Zero based index of the column.
+     * @return
+     */
+    public int getColumnIndex() {
+        return columnIndex;
+    }
+
+    /**
+     * Name of the field the cell is bound to.
+     * @return
+     */
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    /**
+     * Text of the cell, numbers as excel shows them in the General format.
+     * @return null for a blank cell whose default value did not convert
+     */
+    public String getRawValue() {
+        return rawValue;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    @Override
+    public String toString() {
+        return "ParseError [rowNum=" + rowNum + ", columnIndex=" + columnIndex + ", fieldName=" + fieldName
+                + ", rawValue=" + rawValue + ", reason=" + reason + "]";
+    }
+}
@@ -0,0 +1,94 @@
+package com.gizbel.excel.factory;
+
+import java.io.File;
+
+/**
+ * Flight recorder events of the parses, one per file and one per sheet, so
+ * that slow ingestions can be correlated with GC in production recordings.<br>
+ * The events are only created when the JDK has JFR and a recording has them
+ * enabled, otherwise every method returns right away. The event classes
+ * extend jdk.jfr.Event, which is not part of Java 8: they and their
+ * JfrRecorder are compiled from src11 into the Java 11 part of the
+ * multi-release jar, and looked up by name, so the library builds and runs
+ * on Java 8 without them.
+ */
+final class ParseEvents {
+
+    /**
+     * Creates and commits the events, implemented by JfrRecorder.
+     */
+    abstract static class Recorder {
+
+        abstract Object beginSheet();
+
+        abstract Object beginFile();
+
+        abstract void commitSheet(Object event, ParseMetrics metrics);
+
+        abstract void commitFile(Object event, File file, FileFormat format, int sheets, long rows, long beans,
+                boolean failed);
+    }
+
+    private static final Recorder RECORDER = loadRecorder();
+
+    private ParseEvents() {
+    }
+
+    /**
+     * Loads the recorder of the Java 11 classes.
+     * @return null if the JDK has no JFR or the classes are not there
+     */
+    private static Recorder loadRecorder() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return (Recorder) Class.forName("com.gizbel.excel.factory.JfrRecorder")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            return null;
+        } catch (LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Begins the event of a sheet.
+     * @return the event, null unless a recording has it enabled
+     */
+    static Object beginSheet() {
+        return RECORDER == null ? null : RECORDER.beginSheet();
+    }
+
+    /**
+     * Begins the event of a file.
+     * @return the event, null unless a recording has it enabled
+     */
+    static Object beginFile() {
+        return RECORDER == null ? null : RECORDER.beginFile();
+    }
+
+    /**
+     * Ends the event of a sheet with its metrics.
+     * @param event returned by beginSheet
+     * @param metrics
+     */
+    static void commitSheet(Object event, ParseMetrics metrics) {
+        if (event != null)
+            RECORDER.commitSheet(event, metrics);
+    }
+
+    /**
+     * Ends the event of a file.
+     * @param event returned by beginFile
+     * @param file null for content in memory
+     * @param format
+     * @param sheets number of sheets extracted
+     * @param rows rows read over all the sheets
+     * @param beans beans bound over all the sheets
+     * @param failed
+     */
+    static void commitFile(Object event, File file, FileFormat format, int sheets, long rows, long beans,
+            boolean failed) {
+        if (event != null)
+            RECORDER.commitFile(event, file, format, sheets, rows, beans, failed);
+    }
+}
@@ -0,0 +1,20 @@
+package com.gizbel.excel.factory;
+
+/**
+ * Receives the metrics of every sheet a Parser extracts, to tell where the
+ * time of a slow ingestion goes.
+ *
+ * @see Parser#setListener(ParseListener)
+ */
+public interface ParseListener {
+
+    /**
+     * Called once the sheet is extracted, or has failed, on the thread which
+     * called the parser, or on the thread of the sheet for the
+     * MultiSheetParser. Must not throw, it would hide the result of the
+     * parse.
+     *
+     * @param metrics
+     */
+    void parsed(ParseMetrics metrics);
+}
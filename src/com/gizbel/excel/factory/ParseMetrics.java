@@ -0,0 +1,279 @@
+package com.gizbel.excel.factory;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timings and counts of the extraction of one sheet, reported to the
+ * ParseListener of the parser and to the JFR events of the parse.<br>
+ * The time of the parse is split in phases: opening the file (loading the
+ * workbook, or the shared strings and styles of the event based readers),
+ * resolving the header row, screening the rows (empty row checks and
+ * filters), binding the beans and, for the rest, reading and decoding the
+ * rows. Binding times are summed over the binding threads when the
+ * parallelism is above 1, so they can exceed the elapsed time.<br>
+ * Only collected while a listener is set or a JFR recording is running, a
+ * parse without them costs a null check per row.
+ */
+public class ParseMetrics {
+
+    private final File file;
+
+    private final FileFormat format;
+
+    private final long startNanos = System.nanoTime();
+
+    private String sheetName;
+
+    private long openNanos;
+
+    private long headerNanos;
+
+    private final LongAdder screenNanos = new LongAdder();
+
+    private final LongAdder bindNanos = new LongAdder();
+
+    private final LongAdder rowCount = new LongAdder();
+
+    private final LongAdder cellCount = new LongAdder();
+
+    private final LongAdder beanCount = new LongAdder();
+
+    /** Failures by field name, rare so simply synchronized. **/
+    private final Map<String, Long> conversionFailures = new TreeMap<String, Long>();
+
+    private int peakBufferedRows;
+
+    private long elapsedNanos;
+
+    private Throwable failure;
+
+    /** JFR events of the sheet and of the file, null when not recorded. **/
+    private final Object sheetEvent;
+    private final Object fileEvent;
+
+    private ParseMetrics(File file, FileFormat format, Object sheetEvent, Object fileEvent) {
+        this.file = file;
+        this.format = format;
+        this.sheetEvent = sheetEvent;
+        this.fileEvent = fileEvent;
+    }
+
+    /**
+     * Starts the metrics of a sheet.
+     * @param file
+     * @param format
+     * @param listened whether a listener waits for them
+     * @param wholeFile whether the sheet is all the parse reads of the file,
+     *            the file event is then recorded along with the sheet one
+     * @return null when neither a listener nor a JFR recording wants them
+     */
+    static ParseMetrics start(File file, FileFormat format, boolean listened, boolean wholeFile) {
+        Object fileEvent = wholeFile ? ParseEvents.beginFile() : null;
+        Object sheetEvent = ParseEvents.beginSheet();
+        if (!listened && sheetEvent == null && fileEvent == null)
+            return null;
+        return new ParseMetrics(file, format, sheetEvent, fileEvent);
+    }
+
+    void opened(String sheetName, long nanos) {
+        this.sheetName = sheetName;
+        this.openNanos += nanos;
+    }
+
+    void headerResolved(RowBuffer row, long nanos) {
+        this.headerNanos += nanos;
+        this.rowCount.increment();
+        this.cellCount.add(row.countDecoded());
+    }
+
+    void rowScreened(RowBuffer row, long nanos) {
+        this.screenNanos.add(nanos);
+        this.rowCount.increment();
+        this.cellCount.add(row.countDecoded());
+    }
+
+    void rowBound(long nanos) {
+        this.bindNanos.add(nanos);
+        this.beanCount.increment();
+    }
+
+    synchronized void conversionFailed(String fieldName) {
+        Long count = this.conversionFailures.get(fieldName);
+        this.conversionFailures.put(fieldName, count == null ? 1L : count + 1);
+    }
+
+    /**
+     * Records the number of rows held while waiting to be bound or consumed.
+     * @param rows
+     */
+    void buffered(int rows) {
+        if (rows > this.peakBufferedRows)
+            this.peakBufferedRows = rows;
+    }
+
+    /**
+     * Ends the metrics and commits the JFR events.
+     * @param failure null if the parse succeeded
+     */
+    void finish(Throwable failure) {
+        this.elapsedNanos = System.nanoTime() - this.startNanos;
+        this.failure = failure;
+        ParseEvents.commitSheet(this.sheetEvent, this);
+        ParseEvents.commitFile(this.fileEvent, this.file, this.format, 1, this.getRowCount(), this.getBeanCount(),
+                failure != null);
+    }
+
+    /**
+     * File parsed, null for a workbook parsed from memory.
+     * @return
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Name of the sheet, the file name without extension for delimited text.
+     * @return null if the parse failed before the sheet was opened
+     */
+    public String getSheetName() {
+        return sheetName;
+    }
+
+    /**
+     * Time spent opening the file, loading the workbook or reading the shared
+     * strings and styles.
+     * @return
+     */
+    public long getOpenNanos() {
+        return openNanos;
+    }
+
+    /**
+     * Time spent resolving the header row, for column name based extraction.
+     * @return
+     */
+    public long getHeaderNanos() {
+        return headerNanos;
+    }
+
+    /**
+     * Time spent on the empty row checks, the filters, the offset and the
+     * limit.
+     * @return
+     */
+    public long getScreenNanos() {
+        return screenNanos.sum();
+    }
+
+    /**
+     * Time spent converting the cells and populating the beans, summed over
+     * the binding threads.
+     * @return
+     */
+    public long getBindNanos() {
+        return bindNanos.sum();
+    }
+
+    /**
+     * Time left to reading and decoding the rows, 0 when the binding threads
+     * took more than the elapsed time.
+     * @return
+     */
+    public long getReadNanos() {
+        return Math.max(0, this.elapsedNanos - this.openNanos - this.headerNanos - this.getScreenNanos()
+                - this.getBindNanos());
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedNanos / 1000000L;
+    }
+
+    /**
+     * Number of sheet rows read, header and empty rows included.
+     * @return
+     */
+    public long getRowCount() {
+        return rowCount.sum();
+    }
+
+    /**
+     * Number of non blank cells decoded, cells outside the projected columns
+     * are not.
+     * @return
+     */
+    public long getCellCount() {
+        return cellCount.sum();
+    }
+
+    /**
+     * Number of beans bound. Chunks of a delimited file read concurrently
+     * may bind beans after an empty row, which are then dropped from the
+     * result.
+     * @return
+     */
+    public long getBeanCount() {
+        return beanCount.sum();
+    }
+
+    /**
+     * Rows read per second of elapsed time.
+     * @return
+     */
+    public double getRowsPerSecond() {
+        return this.elapsedNanos == 0 ? 0 : this.getRowCount() * 1e9 / this.elapsedNanos;
+    }
+
+    /**
+     * Cells which could not be converted to the type of their field, by field
+     * name. A failure stops the parse, see getFailure, unless the parser is
+     * lenient.
+     * @return
+     */
+    public synchronized Map<String, Long> getConversionFailures() {
+        return Collections.unmodifiableMap(new TreeMap<String, Long>(this.conversionFailures));
+    }
+
+    synchronized long getConversionFailureCount() {
+        long count = 0;
+        for (Long failures : this.conversionFailures.values())
+            count += failures;
+        return count;
+    }
+
+    /**
+     * Highest number of rows held at once waiting for the binding threads, of
+     * beans held by the chunks of a delimited file or of beans in a batch. 0
+     * when the rows are bound as they are read into the result.
+     * @return
+     */
+    public int getPeakBufferedRows() {
+        return peakBufferedRows;
+    }
+
+    /**
+     * Exception thrown by the parse.
+     * @return null if the parse succeeded
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    @Override
+    public String toString() {
+        return "ParseMetrics [file=" + file + ", sheetName=" + sheetName + ", elapsedMillis=" + getElapsedMillis()
+                + ", openMillis=" + openNanos / 1000000L + ", headerMillis=" + headerNanos / 1000000L
+                + ", readMillis=" + getReadNanos() / 1000000L + ", screenMillis=" + getScreenNanos() / 1000000L
+                + ", bindMillis=" + getBindNanos() / 1000000L + ", rows=" + getRowCount() + ", cells="
+                + getCellCount() + ", beans=" + getBeanCount() + ", rowsPerSecond=" + (long) getRowsPerSecond()
+                + ", conversionFailures=" + getConversionFailures() + ", peakBufferedRows=" + peakBufferedRows
+                + (failure == null ? "" : ", failure=" + failure) + "]";
+    }
+}
@@ -2,28 +2,36 @@ package com.gizbel.excel.factory;
 
 import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.Field;
-import java.sql.Date;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.time.DateUtils;
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.poifs.filesystem.NPOIFSFileSystem;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 import com.gizbel.excel.annotations.ExcelBean;
-import com.gizbel.excel.annotations.ExcelColumnHeader;
-import com.gizbel.excel.annotations.ExcelColumnIndex;
+import com.gizbel.excel.converters.CellConverter;
+import com.gizbel.excel.converters.ConverterRegistry;
 import com.gizbel.excel.enums.ExcelFactoryType;
 
 /**
@@ -34,18 +42,36 @@ import com.gizbel.excel.enums.ExcelFactoryType;
  * @author Saket Kumar
  */
 
-public class Parser {
+public class Parser<T> {
+
+    /**
+     * Returned by processRow when the processing of the sheet has to stop.
+     **/
+    static final Object END_OF_SHEET = new Object();
+
+    /**
+     * Returned by screenRow for the rows which do not produce a bean.
+     **/
+    static final Object SKIP_ROW = new Object();
 
     /**
      * Will hold the reference to the annotated class which is being populated.
      **/
-    private Class clazz;
+    private final Class<T> clazz;
 
     /**
      * Excel factory type decides whether extraction is going to be column based
      * or index based. 
      */
-    private ExcelFactoryType excelFactoryType;
+    private final ExcelFactoryType excelFactoryType;
+
+    /**
+     * Binding metadata of the annotated class, shared by all the parsers of
+     * the class. Everything specific to a parse lives in a ParseContext, so a
+     * parser can be reused for many files and from many threads once it is
+     * configured.
+     **/
+    private final BeanSchema schema;
 
     /**
      * Only applicable for column based extraction.<br>
@@ -53,25 +79,154 @@ public class Parser {
      **/
     private boolean skipHeader;
 
-    /** Will store the reference to all the fields of the annotated class. **/
-    private Map<String, Field> fieldsMap;
-
     /**
      * Will stop the row processing whenever an empty row is encountered, be
      * default it is set to true in the constructor.
      **/
     private boolean breakAfterEmptyRow;
 
+    /**
+     * If set to true then xlsx files are read through the SAX event API of POI
+     * and xls files through its HSSF record events, instead of loading the
+     * complete workbook in memory. The format is told from the first bytes of
+     * the file.<br>
+     * Rows are bound while the sheet is being read, so the memory used does
+     * not grow with the number of rows. Delimited text files, .csv and .tsv,
+     * are always read that way, other file formats are still read through
+     * the workbook.
+     **/
+    private boolean streaming;
+
+    /**
+     * Field delimiter of delimited text files, 0 by default for tab in .tsv
+     * files and comma in the others.
+     **/
+    private char delimiter;
+
+    /**
+     * Encoding of delimited text files, utf-8 by default.
+     **/
+    private Charset charset = StandardCharsets.UTF_8;
+
+    /**
+     * Converters used for the annotated fields of custom types like
+     * BigDecimal, UUID or enums.
+     **/
+    private ConverterRegistry converterRegistry = new ConverterRegistry();
+
+    /**
+     * Number of threads binding the rows in parse, 1 by default.<br>
+     * Above 1 the calling thread only decodes the rows of the sheet and hands
+     * copies of them over a bounded queue to the binding threads, which
+     * convert the cells and populate the beans. Delimited text files are
+     * instead split in chunks of records, each tokenized and bound on one of
+     * the threads, unless there is a limit.
+     **/
+    private int parallelism = 1;
+
+    /**
+     * Maximum number of decoded rows waiting for a binding thread, bounds the
+     * memory used by parse when the parallelism is above 1.
+     **/
+    private int queueCapacity = 1024;
+
+    /**
+     * Whether parse returns the beans in sheet order when the parallelism is
+     * above 1, true by default. Otherwise the beans come in the order they
+     * are bound, which saves the final merge.
+     **/
+    private boolean preserveOrder = true;
+
+    /**
+     * Size in bytes of the shared strings above which streaming mode keeps
+     * them in a memory mapped temp file instead of the heap, 64MB by default.
+     * The size of the xml for xlsx files, of the text for xls files.
+     **/
+    private long sharedStringsThreshold = SharedStrings.DEFAULT_DISK_THRESHOLD;
+
+    /**
+     * Number of shared strings cached on the heap when they are on disk.
+     **/
+    private int sharedStringsCacheSize = SharedStrings.DEFAULT_CACHE_SIZE;
+
+    /**
+     * Zero based numbers of the first and last sheet rows read, both
+     * included. Rows outside the range are not decoded, the reading stops
+     * after the last one. The header row is still read for column name
+     * based extraction.
+     **/
+    private int firstRow = 0;
+    private int lastRow = Integer.MAX_VALUE;
+
+    /**
+     * Number of rows skipped before the first bean, counted like the beans so
+     * empty and header rows are not part of it.
+     **/
+    private int offset = 0;
+
+    /**
+     * Maximum number of beans extracted, the reading stops once it is
+     * reached.
+     **/
+    private int limit = Integer.MAX_VALUE;
+
+    /**
+     * Filters tested on the raw cells of every row before the bean is
+     * created, rows rejected by one of them are skipped. Starts with the
+     * ExcelFilter annotations of the class.
+     **/
+    private final List<ColumnFilter> filters = new ArrayList<ColumnFilter>();
+
+    /**
+     * Receives the metrics of every sheet extracted, null by default. Metrics
+     * are only collected while a listener is set or a JFR recording has the
+     * parse events enabled.
+     **/
+    private ParseListener listener;
+
+    /**
+     * If set to true, cells which do not convert to their field are reported
+     * to the error collector and the field is left to its initial value,
+     * instead of failing the parse. Numbers, booleans and dates are checked
+     * before being parsed, so dirty cells cost no exception.
+     **/
+    private boolean lenient;
+
+    /**
+     * Receives the conversion errors of lenient parses, null to only count
+     * them against maxErrors.
+     **/
+    private ErrorCollector errorCollector;
+
+    /**
+     * Number of conversion errors a lenient parse tolerates, the next one
+     * fails it. Unlimited by default, 0 fails on the first error.
+     **/
+    private int maxErrors = Integer.MAX_VALUE;
+
+    /**
+     * Results of parse(File) by file content, null by default. A file parsed
+     * before with the same bean bindings and settings is loaded from the
+     * cache instead of read.
+     **/
+    private ResultCache resultCache;
+
+    /**
+     * State of getBeanForARow for the rows of the last sheet it was given,
+     * null until then and whenever a setting it depends on changes.
+     **/
+    private volatile SheetRows sheetRows;
+
     /**
      * Initialize the excel parser.<br>
-     * This constructor will also save the annotated class fields in to a map
-     * for future use.
+     * The annotated class fields are scanned once per class and cached for
+     * all the parsers created later on the same class.
      *
      * @param clazz
      * @param excelFactoryType
      * @throws Exception
      */
-    public Parser(Class clazz, ExcelFactoryType excelFactoryType) throws Exception {
+    public Parser(Class<T> clazz, ExcelFactoryType excelFactoryType) throws Exception {
 
         this.clazz = clazz;
         this.excelFactoryType = excelFactoryType;
@@ -82,107 +237,73 @@ public class Parser {
          * then throw exception
          */
         if (clazz.isAnnotationPresent(ExcelBean.class)) {
-
-            /*
-             * Initialize the fields map as empty hash map, this will used to
-             * store the reference to the class fields
-             */
-            this.fieldsMap = new HashMap<String, Field>();
-
-            /* Get all declared fields for the annotated class */
-            Field[] fields = clazz.getDeclaredFields();
-
-            for (Field field : fields) {
-
-                /*
-                 * Based on excel factory type prepare the java reflection field map
-                 */
-                switch (this.excelFactoryType) {
-                    case COLUMN_INDEX_BASED_EXTRACTION: this.prepareColumnIndexBasedFieldMap(field);break;
-                    case COLUMN_NAME_BASED_EXTRACTION:   this.prepareColumnHeaderBasedFieldMap(field);break;
-                }
-            }
-
+            this.schema = BeanSchema.of(clazz);
         } else {
             throw new Exception("Provided class is not annotated with ExcelBean");
         }
+        this.addAnnotatedFilters();
     }
-    
-    
+
     /**
-     * Preapares the field Map based on the column index
-     * @param field
+     * Adds the filters of the fields annotated with ExcelFilter, on the column
+     * of the field for the extraction type.
      */
-    private void prepareColumnIndexBasedFieldMap(Field field){
-        if (field.isAnnotationPresent(ExcelColumnIndex.class)) {
-
-            /*
-             * Make the field accessible and save it into the fields map
-             */
-            field.setAccessible(true);
-            ExcelColumnIndex column = field.getAnnotation(ExcelColumnIndex.class);
-            String key = String.valueOf(column.columnIndex());
-            this.fieldsMap.put(key, field);
-            
+    private void addAnnotatedFilters() {
+        boolean byHeader = this.excelFactoryType == ExcelFactoryType.COLUMN_NAME_BASED_EXTRACTION;
+        for (ColumnBinding binding : byHeader ? this.schema.getHeaderFields() : this.schema.getIndexFields()) {
+            if (!binding.getField().isFiltered())
+                continue;
+            FieldFilter predicate = new FieldFilter(binding);
+            if (byHeader)
+                this.filters.add(new ColumnFilter(-1, binding.getField().getColumnHeader(), predicate));
+            else
+                this.filters.add(new ColumnFilter(Integer.parseInt(binding.getField().getColumnIndex()), null,
+                        predicate));
         }
     }
-    
+
     /**
-     * Prepares the field Map based on the column header
-     * @param field
+     * ExcelBean class of the parser.
+     * @return
      */
-    private void prepareColumnHeaderBasedFieldMap(Field field){
-        if(field.isAnnotationPresent(ExcelColumnHeader.class)){
-            field.setAccessible(true);
-            ExcelColumnHeader column = field.getAnnotation(ExcelColumnHeader.class);
-            String key = column.columnHeader();
-            this.fieldsMap.put(key, field);
-        }
+    Class<T> getBeanClass() {
+        return clazz;
     }
-    
-    
+
     /**
-     * Returns the dataType specified in the field 
-     * @param field
-     * @return String dataType
-     */
-    private String getDataTypeFor(Field field){
-        String dataType = null;
-        switch (this.excelFactoryType) {
-            case COLUMN_INDEX_BASED_EXTRACTION: ExcelColumnIndex indexColumn = field.getAnnotation(ExcelColumnIndex.class);
-                                                dataType = indexColumn.dataType();
-                                                break;
-            case COLUMN_NAME_BASED_EXTRACTION:  ExcelColumnHeader headerColumn = field.getAnnotation(ExcelColumnHeader.class);
-                                                dataType = headerColumn.dataType();
-                                                break;
-        }
-        return dataType;
+     * Creates the state for a new parse.
+     * @return
+     */
+    ParseContext newContext() {
+        return this.newContext(0, 0);
     }
-    
-    
+
     /**
-     * Returns the default value specified in the field 
-     * @param field
-     * @return String dataType
-     */
-    private String getDefaultValueFor(Field field){
-        String defaultValue = null;
-        switch (this.excelFactoryType) {
-            case COLUMN_INDEX_BASED_EXTRACTION: ExcelColumnIndex indexColumn = field.getAnnotation(ExcelColumnIndex.class);
-                                                defaultValue = indexColumn.defaultValue();
-                                                break;
-            case COLUMN_NAME_BASED_EXTRACTION:  ExcelColumnHeader headerColumn = field.getAnnotation(ExcelColumnHeader.class);
-                                                defaultValue = headerColumn.defaultValue();
-                                                break;
-        }
-        return defaultValue;
+     * Creates the state for a parse resuming after the beans already
+     * delivered by a previous run: the rows before resumeRow are skipped by
+     * the readers, the offset was used up by the first bean and the limit
+     * counts the beans delivered.
+     * @param resumeRow first row to read, the header row is read whatever it is
+     * @param delivered number of beans delivered by the previous runs
+     * @return
+     */
+    private ParseContext newContext(int resumeRow, long delivered) {
+        RowFilter rowFilter = new RowFilter(Math.max(this.firstRow, resumeRow), this.lastRow,
+                this.excelFactoryType == ExcelFactoryType.COLUMN_NAME_BASED_EXTRACTION);
+        int offset = delivered > 0 ? 0 : this.offset;
+        int limit = (int) Math.max(0, this.limit - delivered);
+        ParseContext context = new ParseContext(this.schema, this.excelFactoryType, this.converterRegistry,
+                rowFilter, offset, limit, this.filters.toArray(new ColumnFilter[this.filters.size()]));
+        if (this.lenient)
+            context.setErrors(new ConversionErrors(this.errorCollector, this.maxErrors));
+        return context;
     }
-    
+
 
     /**
      * Reads and convert valid excel file into required format<br>
-     * Will only process the first sheet, split multiple sheets into multiple
-     * files
+     * Will only process the first sheet, use the MultiSheetParser to extract
+     * several sheets of the same file
      * 
      * @param file
      * @return
@@ -195,195 +316,1257 @@ public class Parser {
      */
     public List<Object> parse(File file) throws InvalidFormatException, IOException, InstantiationException,
             IllegalAccessException, IllegalArgumentException, ParseException {
-        List<Object> result = new ArrayList<>();
-        Workbook invoiceWorkbook = WorkbookFactory.create(file);
-
-        // Currently processing for one sheet, we can loop here for multiple
-        // sheets
-        Sheet sheet = invoiceWorkbook.getSheetAt(0);
-
-        if (excelFactoryType == ExcelFactoryType.COLUMN_NAME_BASED_EXTRACTION) {
-            // Fetch the first row and save the field map with column index for
-            // corresponding column headers
-            Row firstRow = sheet.getRow(0);
-            for (Cell column : firstRow) {
-
-                Field field = this.fieldsMap.get(column.getStringCellValue());
-                if (field != null) {
-                    this.fieldsMap.remove(column.getStringCellValue());
-                    this.fieldsMap.put(String.valueOf(column.getColumnIndex()), field);
-                }
-            }
-        }
-
-        for (Row row : sheet) {
-
-            if (excelFactoryType == ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION) {
-                if (row.getRowNum() == 0 && skipHeader)
-                    continue;
-            } else if (excelFactoryType == ExcelFactoryType.COLUMN_NAME_BASED_EXTRACTION) {
-                if (row.getRowNum() == 0)
-                    continue;
-            }
-
-            // Process all non empty rows
-            if (!isEmptyRow(row)) {
-                Object beanObj = this.getBeanForARow(row);
-                result.add(beanObj);
-            } else {
-                // If empty row found and user has opted to break whenever empty
-                // row encountered then break the loop
-                if (this.breakAfterEmptyRow)
-                    break;
-            }
-        }
-        return result;
+        return this.parse(WorkbookSource.of(file));
     }
 
-
     /**
-     * Fetches the cell details from the each row and sets its values based on
-     * the instance variable defined by the annotation
-     * 
-     * @param row
-     * @return Clazz object
-     * @throws IllegalAccessException
+     * Same as parse(File) for a file of any file system, the files of the
+     * default one are read in place, the other ones, e.g. entries of a zip
+     * file system, are read into memory first.
+     *
+     * @param path
+     * @return
+     * @throws InvalidFormatException
+     * @throws IOException
      * @throws InstantiationException
-     * @throws ParseException
+     * @throws IllegalAccessException
      * @throws IllegalArgumentException
+     * @throws ParseException
      */
-    public Object getBeanForARow(Row row)
-            throws InstantiationException, IllegalAccessException, IllegalArgumentException, ParseException {
+    public List<Object> parse(Path path) throws InvalidFormatException, IOException, InstantiationException,
+            IllegalAccessException, IllegalArgumentException, ParseException {
+        if (path.getFileSystem() == FileSystems.getDefault())
+            return this.parse(path.toFile());
+        Path fileName = path.getFileName();
+        return this.parse(ByteBuffer.wrap(Files.readAllBytes(path)), fileName == null ? null : fileName.toString());
+    }
 
-        final Object classObj = this.clazz.newInstance();
-        for (int i = 0; i < row.getLastCellNum(); i++) {
-            Cell cell = row.getCell(i);
-            if (cell != null) {
-                if (cell.getCellType() == Cell.CELL_TYPE_NUMERIC) {
-                    if (DateUtil.isCellDateFormatted(cell)) {
-                        java.util.Date date = cell.getDateCellValue();
-                        cell.setCellType(Cell.CELL_TYPE_STRING);
-                        cell.setCellValue(new SimpleDateFormat("dd-MM-yyyy").format(date));
-                    } else
-                        cell.setCellType(Cell.CELL_TYPE_STRING);
-                } else
-                    cell.setCellType(Cell.CELL_TYPE_STRING);
-
-                String value = cell.getStringCellValue() == null ? null : cell.getStringCellValue().trim();
-                this.setCellValueBasedOnDesiredExcelFactoryType(classObj, value, i);
-            } else
-                this.setCellValueBasedOnDesiredExcelFactoryType(classObj, null, i);
-        }
+    /**
+     * Same as parse(File) for a workbook read from the stream, e.g. an
+     * upload. The stream is read to its end into memory, there is no temp
+     * file, and is left open.<br>
+     * Content which is neither an xlsx package nor an xls file is rejected
+     * as for a file of unknown format, unless a delimiter is set, it is then
+     * read as delimited text. Use parse(InputStream, String) to pass the
+     * name of an upload.
+     *
+     * @param in
+     * @return
+     * @throws InvalidFormatException
+     * @throws IOException
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     * @throws IllegalArgumentException
+     * @throws ParseException
+     */
+    public List<Object> parse(InputStream in) throws InvalidFormatException, IOException, InstantiationException,
+            IllegalAccessException, IllegalArgumentException, ParseException {
+        return this.parse(in, null);
+    }
 
-        return classObj;
+    /**
+     * Same as parse(InputStream) for the content of a file of the name, e.g.
+     * the name of an upload, which tells delimited text from its extension as
+     * for parse(File).
+     *
+     * @param in
+     * @param name file name, null if unknown
+     * @return
+     * @throws InvalidFormatException
+     * @throws IOException
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     * @throws IllegalArgumentException
+     * @throws ParseException
+     */
+    public List<Object> parse(InputStream in, String name) throws InvalidFormatException, IOException,
+            InstantiationException, IllegalAccessException, IllegalArgumentException, ParseException {
+        return this.parse(readFully(in), name);
     }
 
-    
     /**
-     * Parse the cell values to their specified dataType and sets into the java class field
-     * @param classObj
-     * @param columnValue
-     * @param columnIndex
+     * Same as parse(InputStream) for a workbook already in memory, the array
+     * is read in place.
+     *
+     * @param bytes
+     * @return
+     * @throws InvalidFormatException
+     * @throws IOException
+     * @throws InstantiationException
+     * @throws IllegalAccessException
      * @throws IllegalArgumentException
+     * @throws ParseException
+     */
+    public List<Object> parse(byte[] bytes) throws InvalidFormatException, IOException, InstantiationException,
+            IllegalAccessException, IllegalArgumentException, ParseException {
+        return this.parse(bytes, null);
+    }
+
+    /**
+     * Same as parse(InputStream, String) for a workbook already in memory,
+     * the array is read in place.
+     *
+     * @param bytes
+     * @param name file name, null if unknown
+     * @return
+     * @throws InvalidFormatException
+     * @throws IOException
+     * @throws InstantiationException
      * @throws IllegalAccessException
+     * @throws IllegalArgumentException
      * @throws ParseException
      */
-    private void setCellValueBasedOnDesiredExcelFactoryType(Object classObj, String columnValue, int columnIndex)
-            throws IllegalArgumentException, IllegalAccessException, ParseException {
-
-        Field field = this.fieldsMap.get(String.valueOf(columnIndex));
-        if (field != null) {
-
-            //If column value is null or empty then try to put the default value
-            if( columnValue==null || columnValue.trim().isEmpty())
-                columnValue = this.getDefaultValueFor(field);
-            
-            /**
-             * Based on the dataType Specified convert it to primitive value<br>
-             * But make sure that columnvalue is not null or empty
-             **/
-            if(columnValue!=null && !columnValue.trim().isEmpty()){
-                String dataType = this.getDataTypeFor(field);
-                switch (dataType) {
-                case "int":
-                    field.set(classObj, Integer.parseInt(columnValue));
-                    break;
-                case "long":
-                    field.set(classObj, Long.parseLong(columnValue));
-                    break;
-                case "bool":
-                    field.set(classObj, Boolean.parseBoolean(columnValue));
-                    break;
-                case "double":
-                    Double data = Double.parseDouble(columnValue);
-                    field.set(classObj, data);
-                    break;
-                case "date":
-                    field.set(classObj, this.dateParser(columnValue));
-                    break;
-                default:
-                    field.set(classObj, columnValue);
-                    break;
-                }
-            }
-        }
+    public List<Object> parse(byte[] bytes, String name) throws InvalidFormatException, IOException,
+            InstantiationException, IllegalAccessException, IllegalArgumentException, ParseException {
+        return this.parse(ByteBuffer.wrap(bytes), name);
+    }
 
+    /**
+     * Same as parse(InputStream) for a workbook in the buffer, from its
+     * position to its limit, e.g. a direct or memory mapped buffer. The bytes
+     * are read through a read only view, the position of the buffer is left
+     * unchanged.
+     *
+     * @param bytes
+     * @return
+     * @throws InvalidFormatException
+     * @throws IOException
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     * @throws IllegalArgumentException
+     * @throws ParseException
+     */
+    public List<Object> parse(ByteBuffer bytes) throws InvalidFormatException, IOException, InstantiationException,
+            IllegalAccessException, IllegalArgumentException, ParseException {
+        return this.parse(bytes, null);
     }
 
     /**
-     * Parses the date columns in dd-MM-YYYY format. Customize the format in
-     * case.
-     * 
-     * @param value
+     * Same as parse(ByteBuffer) for the content of a file of the name, which
+     * tells delimited text from its extension as for parse(File).
+     *
+     * @param bytes
+     * @param name file name, null if unknown
      * @return
+     * @throws InvalidFormatException
+     * @throws IOException
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     * @throws IllegalArgumentException
+     * @throws ParseException
      */
-    private Date dateParser(String value) {
-        if (value != null && !value.isEmpty()) {
-            String[] formats = new String[] { "dd-MM-yyyy" };
-            java.util.Date date;
-            try {
-                date = DateUtils.parseDate(value, formats);
-                return new Date(date.getTime());
-            } catch (ParseException e) {
-                e.printStackTrace();
-            }
-            return null;
-        } else
-            return null;
+    public List<Object> parse(ByteBuffer bytes, String name) throws InvalidFormatException, IOException,
+            InstantiationException, IllegalAccessException, IllegalArgumentException, ParseException {
+        return this.parse(WorkbookSource.of(bytes, name));
     }
 
+    /**
+     * Parses the first sheet of the content, through the result cache for
+     * files.
+     */
+    private List<Object> parse(WorkbookSource source) throws InvalidFormatException, IOException,
+            InstantiationException, IllegalAccessException, ParseException {
+        ParseContext context = this.newContext();
+        FileFormat format = this.formatOf(source);
+        String cacheKey = source.getFile() == null ? null : this.cacheKey(source, format, context);
+        if (cacheKey != null) {
+            List<Object> cached = this.resultCache.load(cacheKey, this.schema, context.getFieldBindings(), context);
+            if (cached != null)
+                return cached;
+            if (context.getErrors() != null)
+                context.getErrors().keep();
+        }
+
+        ParseMetrics metrics = this.startMetrics(source.getFile(), format, context, true);
+        Throwable failure = null;
+        List<Object> result;
+        try {
+            result = this.parse(source, format, context);
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            this.finishMetrics(metrics, failure);
+        }
+        if (cacheKey != null) {
+            List<ParseError> errors = context.getErrors() == null ? Collections.<ParseError> emptyList()
+                    : context.getErrors().getKept();
+            this.resultCache.store(cacheKey, result, context.getFieldBindings(), errors);
+        }
+        return result;
+    }
 
     /**
-     * Checks whether an encountered row is empty or not.
-     * @param row
-     * @return
+     * Key of the result of parse(File) in the result cache: the content of the
+     * file, the version of the bean bindings and the settings changing the
+     * beans or their order.
+     * @param source a file
+     * @param format
+     * @param context
+     * @return null without a cache, or when the result can not be cached:
+     *         filters other than the ExcelFilter annotations, which can not be
+     *         told apart, or fields of a type the snapshots can not hold
+     * @throws IOException
      */
-    boolean isEmptyRow(Row row) {
-        boolean isEmptyRow = true;
-        for (int cellNum = row.getFirstCellNum(); cellNum < row.getLastCellNum(); cellNum++) {
-            Cell cell = row.getCell(cellNum);
-            if (cell != null && cell.getCellType() != Cell.CELL_TYPE_BLANK && StringUtils.isNotBlank(cell.toString())) {
-                isEmptyRow = false;
+    private String cacheKey(WorkbookSource source, FileFormat format, ParseContext context) throws IOException {
+        if (this.resultCache == null)
+            return null;
+        for (ColumnFilter filter : this.filters) {
+            if (!(filter.getPredicate() instanceof FieldFilter))
+                return null;
+        }
+        List<ColumnBinding> fields = context.getFieldBindings();
+        if (!ResultSnapshot.supports(fields))
+            return null;
+        StringBuilder version = new StringBuilder(this.schema.getVersion());
+        version.append('\n').append(this.excelFactoryType).append(' ').append(format).append(' ')
+                .append(this.skipHeader).append(' ').append(this.breakAfterEmptyRow).append(' ')
+                .append(this.firstRow).append(' ').append(this.lastRow).append(' ').append(this.offset).append(' ')
+                .append(this.limit).append(' ').append(this.lenient);
+        // Beans bound on several threads without preserving the order come in any order
+        version.append(' ').append(this.parallelism > 1 && !this.preserveOrder ? "unordered" : "ordered");
+        if (format == FileFormat.CSV) {
+            char fileDelimiter = this.delimiter != 0 ? this.delimiter : DelimitedStreamReader.defaultDelimiter(source);
+            version.append(' ').append((int) fileDelimiter).append(' ').append(this.charset.name());
+        }
+        // Converters are told apart by class, a registered one changes the key
+        for (ColumnBinding binding : fields) {
+            if (binding.getCustomType() != null) {
+                CellConverter<?> converter = this.converterRegistry.lookup(binding.getCustomType());
+                version.append('\n').append(binding.getField().getName()).append(' ')
+                        .append(converter == null ? null : converter.getClass().getName());
             }
         }
-        return isEmptyRow;
+        return this.resultCache.keyOf(source.getFile(), version.toString());
     }
 
-    public boolean isBreakAfterEmptyRow() {
-        return breakAfterEmptyRow;
+    private List<Object> parse(WorkbookSource source, FileFormat format, final ParseContext context)
+            throws InvalidFormatException, IOException, InstantiationException, IllegalAccessException,
+            ParseException {
+        if (this.parallelism > 1 && format == FileFormat.CSV && this.limit == Integer.MAX_VALUE)
+            return new ChunkedExtraction(this, context, this.newDelimitedReader(source), this.parallelism).parse();
+        if (this.parallelism > 1) {
+            PipelinedExtraction pipeline = new PipelinedExtraction(this, context, this.parallelism,
+                    this.queueCapacity, this.preserveOrder);
+            try {
+                this.readFirstSheet(source, format, context, pipeline);
+                return pipeline.finish();
+            } finally {
+                pipeline.close();
+            }
+        }
+
+        final List<Object> result = new ArrayList<>();
+        this.readFirstSheet(source, format, context, new RowCallback() {
+            @Override
+            public boolean onRow(RowBuffer row) throws Exception {
+                Object beanObj = Parser.this.processRow(row, context);
+                if (beanObj == END_OF_SHEET)
+                    return false;
+                if (beanObj != null)
+                    result.add(beanObj);
+                return true;
+            }
+        });
+        return result;
     }
 
-    public void setBreakAfterEmptyRow(boolean breakAfterEmptyRow) {
-        this.breakAfterEmptyRow = breakAfterEmptyRow;
+    /**
+     * Reads the first sheet and pushes its beans to the consumer in batches of
+     * batchSize as the rows are bound, so that the beans can be written out,
+     * e.g. as JDBC batch inserts, without holding the whole sheet.<br>
+     * One list is reused for all the batches. Rows are bound on the reading
+     * thread whatever the parallelism.
+     *
+     * @param file
+     * @param batchSize number of beans per call, the last batch may be smaller
+     * @param consumer
+     * @return the number of beans handed to the consumer
+     * @throws InvalidFormatException
+     * @throws IOException
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     * @throws ParseException
+     * @throws ExtractionException wrapping the checked exception thrown by the
+     *             consumer
+     */
+    public long parse(File file, final int batchSize, final BatchConsumer<T> consumer) throws InvalidFormatException,
+            IOException, InstantiationException, IllegalAccessException, ParseException {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        return this.parse(file, batchSize, consumer, this.newContext(), null);
     }
 
+    /**
+     * Same as the batch parse, saving a checkpoint to the state file after
+     * every batch the consumer accepted so that a parse stopped midway, by a
+     * crash or a restart, resumes after the last accepted batch when called
+     * again with the same state file.<br>
+     * A resumed parse skips the rows already delivered in the readers, they
+     * are neither bound nor converted, and for column name based extraction
+     * checks that the headers are still in the columns they were in. Each
+     * bean is delivered once as long as the consumer commits the batch
+     * before accept returns, a batch whose accept fails or does not return
+     * is delivered again.<br>
+     * Once the sheet is done the state file is marked complete and parsing
+     * again with it delivers nothing, delete it to parse the file again. The
+     * maximum number of errors of a lenient parse applies to each run.
+     *
+     * @param file
+     * @param batchSize number of beans per call, the last batch may be smaller
+     * @param consumer
+     * @param stateFile checkpoint of the parse, created on the first batch
+     * @return the number of beans handed to the consumer by this call
+     * @throws InvalidFormatException
+     * @throws IOException also if the checkpoint can not be saved
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     * @throws ParseException
+     * @throws ExtractionException if the state file is the checkpoint of
+     *             another file, or wrapping the checked exception thrown by
+     *             the consumer
+     * @see Checkpoint#load(File)
+     */
+    public long parse(File file, int batchSize, BatchConsumer<T> consumer, File stateFile)
+            throws InvalidFormatException, IOException, InstantiationException, IllegalAccessException,
+            ParseException {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        Checkpoint checkpoint = Checkpoint.start(file);
+        Checkpoint saved = Checkpoint.load(stateFile);
+        if (saved != null) {
+            if (!saved.isOfSameFile(checkpoint))
+                throw new ExtractionException("The checkpoint " + stateFile + " was saved for another file", null);
+            if (saved.isComplete())
+                return 0;
+            checkpoint = saved;
+        }
+        ParseContext context = this.newContext(checkpoint.getRowNum() + 1, checkpoint.getBeanCount());
+        return this.parse(file, batchSize, consumer, context, new CheckpointLog(stateFile, checkpoint));
+    }
 
-    public boolean isSkipHeader() {
-        return skipHeader;
+    private long parse(File file, int batchSize, BatchConsumer<T> consumer, ParseContext context,
+            CheckpointLog checkpoints) throws InvalidFormatException, IOException, InstantiationException,
+            IllegalAccessException, ParseException {
+        WorkbookSource source = WorkbookSource.of(file);
+        FileFormat format = this.formatOf(source);
+        ParseMetrics metrics = this.startMetrics(file, format, context, true);
+        Throwable failure = null;
+        try {
+            return this.parse(source, format, context, batchSize, consumer, checkpoints);
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            this.finishMetrics(metrics, failure);
+        }
     }
 
+    private long parse(WorkbookSource source, FileFormat format, final ParseContext context, final int batchSize,
+            final BatchConsumer<T> consumer, final CheckpointLog checkpoints) throws InvalidFormatException,
+            IOException, InstantiationException, IllegalAccessException, ParseException {
+        final List<T> batch = new ArrayList<T>(batchSize);
+        final long[] count = new long[1];
+        final int[] lastRowNum = new int[1];
+        final ParseMetrics metrics = context.getMetrics();
+        this.readFirstSheet(source, format, context, new RowCallback() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public boolean onRow(RowBuffer row) throws Exception {
+                Object beanObj = Parser.this.processRow(row, context);
+                if (checkpoints != null && row.getRowNum() == 0)
+                    checkpoints.verifyHeaders(context.getResolvedHeaders());
+                if (beanObj == END_OF_SHEET)
+                    return false;
+                if (beanObj != null) {
+                    batch.add((T) beanObj);
+                    lastRowNum[0] = row.getRowNum();
+                    if (batch.size() == batchSize) {
+                        if (metrics != null)
+                            metrics.buffered(batchSize);
+                        count[0] += accept(consumer, batch);
+                        if (checkpoints != null)
+                            checkpoints.committed(lastRowNum[0], batchSize, context.getResolvedHeaders());
+                    }
+                }
+                return true;
+            }
+        });
+        if (!batch.isEmpty()) {
+            if (metrics != null)
+                metrics.buffered(batch.size());
+            int size = accept(consumer, batch);
+            count[0] += size;
+            if (checkpoints != null)
+                checkpoints.committed(lastRowNum[0], size, context.getResolvedHeaders());
+        }
+        if (checkpoints != null)
+            checkpoints.completed(context.getResolvedHeaders());
+        return count[0];
+    }
 
-    public void setSkipHeader(boolean skipHeader) {
+    /**
+     * Reads the first sheet into one column per annotated field instead of one
+     * bean per row, for analytics over many rows.<br>
+     * The dataType of the fields picks the columns: "int", "long" and "double"
+     * fields go to primitive arrays, "bool" fields to a bitset, "string"
+     * fields to dictionary encoded columns, dates and custom types to object
+     * columns. Each column has a bitmap of its null rows. No bean is created,
+     * the class only describes the columns. Rows are bound on the reading
+     * thread whatever the parallelism.
+     *
+     * @param file
+     * @return
+     * @throws InvalidFormatException
+     * @throws IOException
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     * @throws ParseException
+     */
+    public ColumnarTable parseColumnar(File file) throws InvalidFormatException, IOException, InstantiationException,
+            IllegalAccessException, ParseException {
+        ParseContext context = this.newContext();
+        WorkbookSource source = WorkbookSource.of(file);
+        FileFormat format = this.formatOf(source);
+        ParseMetrics metrics = this.startMetrics(file, format, context, true);
+        Throwable failure = null;
+        try {
+            ColumnarExtraction extraction = new ColumnarExtraction(this, context);
+            this.readFirstSheet(source, format, context, extraction);
+            return extraction.finish();
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            this.finishMetrics(metrics, failure);
+        }
+    }
+
+    /**
+     * Starts the metrics of the parse of a sheet into the context.
+     * @param file null for content in memory
+     * @param format
+     * @param context
+     * @param wholeFile whether the sheet is all the parse reads of the file
+     * @return null when neither the listener nor a JFR recording wants them
+     */
+    ParseMetrics startMetrics(File file, FileFormat format, ParseContext context, boolean wholeFile) {
+        ParseMetrics metrics = ParseMetrics.start(file, format, this.listener != null, wholeFile);
+        context.setMetrics(metrics);
+        return metrics;
+    }
+
+    /**
+     * Ends the metrics and hands them to the listener.
+     * @param metrics null when they are not collected
+     * @param failure null if the parse succeeded
+     */
+    void finishMetrics(ParseMetrics metrics, Throwable failure) {
+        if (metrics == null)
+            return;
+        metrics.finish(failure);
+        if (this.listener != null)
+            this.listener.parsed(metrics);
+    }
+
+    /**
+     * Hands the batch to the consumer and clears it for reuse.
+     * @return the size of the batch
+     */
+    private static <T> int accept(BatchConsumer<T> consumer, List<T> batch) {
+        int size = batch.size();
+        try {
+            consumer.accept(batch);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ExtractionException("Batch consumer failed", e);
+        }
+        batch.clear();
+        return size;
+    }
+
+    /**
+     * Decodes the rows of the first sheet and hands them to the callback until
+     * it returns false, through the event based readers in streaming mode or
+     * through the workbook otherwise. Only the rows and columns of the filter
+     * of the context are decoded, the opening is timed in its metrics.
+     *
+     * @param source
+     * @param format
+     * @param context
+     * @param callback
+     * @throws InvalidFormatException
+     * @throws IOException
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     * @throws ParseException
+     */
+    private void readFirstSheet(WorkbookSource source, FileFormat format, ParseContext context, RowCallback callback)
+            throws InvalidFormatException, IOException, InstantiationException, IllegalAccessException, ParseException {
+        RowFilter rowFilter = context.getRowFilter();
+        ParseMetrics metrics = context.getMetrics();
+        long start = metrics == null ? 0 : System.nanoTime();
+        if (this.isStreamed(format)) {
+            SheetStreamReader reader = this.newStreamReader(source, format);
+            if (metrics != null)
+                metrics.opened(reader.getSheetName(0), System.nanoTime() - start);
+            try {
+                reader.readFirstSheet(rowFilter, callback);
+            } catch (Exception e) {
+                rethrow(e);
+            } finally {
+                reader.close();
+            }
+            return;
+        }
+
+        Workbook invoiceWorkbook = openWorkbook(source, format);
+        try {
+            Sheet sheet = invoiceWorkbook.getSheetAt(0);
+            if (metrics != null)
+                metrics.opened(sheet.getSheetName(), System.nanoTime() - start);
+            WorkbookRowReader reader = new WorkbookRowReader(invoiceWorkbook);
+            RowBuffer buffer = new RowBuffer();
+
+            for (Row row : sheet) {
+                if (rowFilter.isAfterRange(row.getRowNum()))
+                    break;
+                if (!rowFilter.acceptsRow(row.getRowNum()))
+                    continue;
+                reader.read(row, buffer, rowFilter);
+                if (!callback.onRow(buffer))
+                    break;
+            }
+        } catch (Exception e) {
+            rethrow(e);
+        } finally {
+            closeWorkbook(invoiceWorkbook);
+        }
+    }
+
+    /**
+     * Returns a lazy iterator over the beans of the first sheet, rows are only
+     * read and bound when the next bean is requested.<br>
+     * In streaming mode the sheet is read by a background thread which stays
+     * at most a few rows ahead of the consumer.<br>
+     * <b>The iterator must be closed</b> to release the underlying workbook or
+     * package, failures while reading are thrown as ExtractionException.
+     *
+     * @param file
+     * @return
+     * @throws InvalidFormatException
+     * @throws IOException
+     */
+    public CloseableIterator<T> iterator(File file) throws InvalidFormatException, IOException {
+        ParseContext context = this.newContext();
+        WorkbookSource source = WorkbookSource.of(file);
+        FileFormat format = this.formatOf(source);
+        if (this.isStreamed(format))
+            return new StreamingBeanIterator<T>(this, context, this.newStreamReader(source, format));
+
+        Workbook workbook = openWorkbook(source, format);
+        try {
+            Sheet sheet = workbook.getSheetAt(0);
+            return new WorkbookBeanIterator<T>(this, context, workbook, sheet);
+        } catch (RuntimeException e) {
+            closeWorkbook(workbook);
+            throw e;
+        }
+    }
+
+    /**
+     * Same as iterator(file) but exposed as a sequential Stream, so that only
+     * the consumed rows are read, e.g. limit(100) stops the reading after 100
+     * beans.<br>
+     * <b>The stream must be closed</b>, preferably with try-with-resources.
+     *
+     * @param file
+     * @return
+     * @throws InvalidFormatException
+     * @throws IOException
+     */
+    public Stream<T> stream(File file) throws InvalidFormatException, IOException {
+        final CloseableIterator<T> iterator = this.iterator(file);
+        Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    iterator.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Applies the header, skip header and empty row rules on a decoded row.
+     *
+     * @param row
+     * @param context
+     * @return the bean, null if the row is skipped or END_OF_SHEET if the
+     *         processing has to stop
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     * @throws ParseException
+     */
+    Object processRow(RowBuffer row, ParseContext context) throws InstantiationException, IllegalAccessException, ParseException {
+        Object screened = this.screenRow(row, context);
+        if (screened == null)
+            return this.getBeanForRowBuffer(row, context);
+        return screened == SKIP_ROW ? null : screened;
+    }
+
+    /**
+     * Applies the header, skip header and empty row rules without binding the
+     * row, the header row is resolved into the context. The filters are then
+     * tested on the raw cells and the rows they accept are counted against
+     * the offset and the limit.
+     *
+     * @param row
+     * @param context
+     * @return null if the row has to be bound, SKIP_ROW or END_OF_SHEET
+     */
+    Object screenRow(RowBuffer row, ParseContext context) {
+        ParseMetrics metrics = context.getMetrics();
+        if (metrics == null)
+            return this.screen(row, context);
+        long start = System.nanoTime();
+        Object screened = this.screen(row, context);
+        long nanos = System.nanoTime() - start;
+        if (row.getRowNum() == 0 && excelFactoryType == ExcelFactoryType.COLUMN_NAME_BASED_EXTRACTION)
+            metrics.headerResolved(row, nanos);
+        else
+            metrics.rowScreened(row, nanos);
+        return screened;
+    }
+
+    private Object screen(RowBuffer row, ParseContext context) {
+        if (row.getRowNum() == 0) {
+            if (excelFactoryType == ExcelFactoryType.COLUMN_NAME_BASED_EXTRACTION) {
+                this.resolveHeaders(row, context);
+                return SKIP_ROW;
+            } else if (skipHeader)
+                return SKIP_ROW;
+        }
+
+        if (!row.isEmpty())
+            return context.acceptsRow(row) ? context.admitRow() : SKIP_ROW;
+
+        // If empty row found and user has opted to break whenever empty
+        // row encountered then stop the processing
+        return this.breakAfterEmptyRow ? END_OF_SHEET : SKIP_ROW;
+    }
+
+    /**
+     * Save the column index of the fields for their corresponding column
+     * headers found in the first row. Only applicable for column name based
+     * extraction.
+     * @param firstRow
+     * @param context
+     */
+    private void resolveHeaders(RowBuffer firstRow, ParseContext context) {
+        for (int i = 0; i < firstRow.getLastCellNum(); i++) {
+            String header = firstRow.getText(i);
+            if (header != null)
+                context.resolveHeader(header, i);
+        }
+        context.headersResolved();
+    }
+
+    /**
+     * Opens the workbook in read only mode, xlsx packages are opened with read
+     * access so that nothing is written back to the file when it is released.
+     * @param source
+     * @param format
+     * @return
+     * @throws InvalidFormatException
+     * @throws IOException
+     */
+    static Workbook openWorkbook(WorkbookSource source, FileFormat format) throws InvalidFormatException,
+            IOException {
+        if (format == FileFormat.XLSX)
+            return new XSSFWorkbook(source.openPackage());
+        if (format == FileFormat.XLS) {
+            NPOIFSFileSystem fs = source.openFileSystem();
+            try {
+                return WorkbookFactory.create(fs);
+            } catch (IOException | RuntimeException e) {
+                fs.close();
+                throw e;
+            }
+        }
+        if (source.getFile() != null)
+            return WorkbookFactory.create(source.getFile());
+        InputStream in = source.openStream();
+        try {
+            return WorkbookFactory.create(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Format of the content, content without a name which is neither xlsx nor
+     * xls is delimited text only when a delimiter is set.
+     * @param source
+     * @return
+     * @throws IOException
+     */
+    private FileFormat formatOf(WorkbookSource source) throws IOException {
+        FileFormat format = FileFormat.of(source);
+        if (format == FileFormat.UNKNOWN && source.getName() == null && this.delimiter != 0)
+            return FileFormat.CSV;
+        return format;
+    }
+
+    /**
+     * Whether files of the format are read through a SheetStreamReader,
+     * delimited text always is since there is no workbook for it.
+     * @param format
+     * @return
+     */
+    private boolean isStreamed(FileFormat format) {
+        return format == FileFormat.CSV || this.streaming && SheetStreamReader.isStreamable(format);
+    }
+
+    /**
+     * Opens the content for the event based reader of its format, with the
+     * shared strings and delimited text settings of the parser.
+     * @param source
+     * @param format
+     * @return
+     * @throws InvalidFormatException
+     * @throws IOException
+     */
+    SheetStreamReader newStreamReader(WorkbookSource source, FileFormat format) throws InvalidFormatException,
+            IOException {
+        if (format == FileFormat.CSV)
+            return this.newDelimitedReader(source);
+        return SheetStreamReader.open(source, format, this.sharedStringsThreshold, this.sharedStringsCacheSize);
+    }
+
+    private DelimitedStreamReader newDelimitedReader(WorkbookSource source) {
+        char fileDelimiter = this.delimiter != 0 ? this.delimiter : DelimitedStreamReader.defaultDelimiter(source);
+        return new DelimitedStreamReader(source, fileDelimiter, this.charset);
+    }
+
+    /**
+     * Reads the stream to its end into an array grown as needed, wrapped
+     * without a final copy.
+     * @param in
+     * @return
+     * @throws IOException
+     */
+    private static ByteBuffer readFully(InputStream in) throws IOException {
+        byte[] bytes = new byte[8192];
+        int length = 0;
+        int read;
+        while ((read = in.read(bytes, length, bytes.length - length)) >= 0) {
+            length += read;
+            if (length == bytes.length)
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+        }
+        return ByteBuffer.wrap(bytes, 0, length);
+    }
+
+    /**
+     * Releases the file opened by openWorkbook without saving anything.
+     * @param workbook
+     * @throws IOException
+     */
+    static void closeWorkbook(Workbook workbook) throws IOException {
+        if (workbook instanceof XSSFWorkbook)
+            ((XSSFWorkbook) workbook).getPackage().revert();
+        else
+            workbook.close();
+    }
+
+    /**
+     * Rethrows the exception thrown from a row callback as one of the
+     * exceptions declared by parse, anything else is wrapped in an IOException.
+     * @param cause
+     * @throws IOException
+     * @throws ParseException
+     * @throws IllegalAccessException
+     * @throws InstantiationException
+     */
+    static void rethrow(Exception cause)
+            throws IOException, InstantiationException, IllegalAccessException, ParseException {
+        if (cause instanceof InstantiationException)
+            throw (InstantiationException) cause;
+        if (cause instanceof IllegalAccessException)
+            throw (IllegalAccessException) cause;
+        if (cause instanceof ParseException)
+            throw (ParseException) cause;
+        if (cause instanceof IOException)
+            throw (IOException) cause;
+        if (cause instanceof RuntimeException)
+            throw (RuntimeException) cause;
+        throw new IOException(cause);
+    }
+
+
+    /**
+     * Fetches the cell details from the each row and sets its values based on
+     * the instance variable defined by the annotation.<br>
+     * The headers of the sheet are resolved at its first row and reused while
+     * the rows come from the same sheet, converters registered in between
+     * are only used from the next sheet on. Rows are bound one at a time,
+     * parse, iterator and stream read a whole sheet faster.
+     * 
+     * @param row
+     * @return Clazz object
+     * @throws IllegalAccessException
+     * @throws InstantiationException
+     * @throws ParseException
+     * @throws IllegalArgumentException
+     */
+    public Object getBeanForARow(Row row)
+            throws InstantiationException, IllegalAccessException, IllegalArgumentException, ParseException {
+        Sheet sheet = row.getSheet();
+        SheetRows rows = this.sheetRows;
+        if (rows == null || rows.sheet.get() != sheet) {
+            rows = new SheetRows(sheet, this.newContext());
+            if (excelFactoryType == ExcelFactoryType.COLUMN_NAME_BASED_EXTRACTION) {
+                rows.reader.read(sheet.getRow(0), rows.buffer, RowFilter.ALL);
+                this.resolveHeaders(rows.buffer, rows.context);
+            }
+            this.sheetRows = rows;
+        }
+        synchronized (rows) {
+            // Errors of a lenient parse are counted per row, as they always were
+            rows.context.setErrors(this.lenient ? new ConversionErrors(this.errorCollector, this.maxErrors) : null);
+            rows.reader.read(row, rows.buffer, rows.context.getRowFilter());
+            return this.getBeanForRowBuffer(rows.buffer, rows.context);
+        }
+    }
+
+    /**
+     * Context, reader and buffer of getBeanForARow for the rows of a sheet:
+     * the headers, converters and date styles are resolved once for all its
+     * rows instead of once per row. The sheet is weakly held so that the
+     * parser does not keep the workbook alive.
+     */
+    private static final class SheetRows {
+
+        private final WeakReference<Sheet> sheet;
+
+        private final ParseContext context;
+
+        private final WorkbookRowReader reader;
+
+        private final RowBuffer buffer = new RowBuffer();
+
+        SheetRows(Sheet sheet, ParseContext context) {
+            this.sheet = new WeakReference<Sheet>(sheet);
+            this.context = context;
+            this.reader = new WorkbookRowReader(sheet.getWorkbook());
+        }
+    }
+
+    /**
+     * Creates the bean for a decoded row, cells are converted from their
+     * typed values, the workbook itself is never modified.
+     *
+     * @param row
+     * @param context
+     * @return Clazz object
+     * @throws IllegalAccessException
+     * @throws InstantiationException
+     * @throws ParseException
+     */
+    Object getBeanForRowBuffer(RowBuffer row, ParseContext context)
+            throws InstantiationException, IllegalAccessException, ParseException {
+        ParseMetrics metrics = context.getMetrics();
+        if (metrics == null)
+            return this.bind(row, context);
+        long start = System.nanoTime();
+        Object classObj = this.bind(row, context);
+        metrics.rowBound(System.nanoTime() - start);
+        return classObj;
+    }
+
+    private Object bind(RowBuffer row, ParseContext context) throws InstantiationException, IllegalAccessException {
+        final Object classObj = this.schema.newInstance();
+        // Only the columns bound to a field, cells of the other ones are not even decoded
+        for (int columnIndex : context.getBoundColumns()) {
+            if (columnIndex >= row.getLastCellNum())
+                break;
+            this.setCellValueBasedOnDesiredExcelFactoryType(classObj, row, columnIndex, context);
+        }
+        return classObj;
+    }
+
+    
+    /**
+     * Converts the cell value to its specified dataType and sets into the java class field
+     * @param classObj
+     * @param row
+     * @param columnIndex
+     * @param context
+     */
+    private void setCellValueBasedOnDesiredExcelFactoryType(Object classObj, RowBuffer row, int columnIndex,
+            ParseContext context) {
+        if (context.bindingAt(columnIndex) != null)
+            context.bind(classObj, row, columnIndex);
+    }
+
+
+    public boolean isBreakAfterEmptyRow() {
+        return breakAfterEmptyRow;
+    }
+
+    public void setBreakAfterEmptyRow(boolean breakAfterEmptyRow) {
+        this.breakAfterEmptyRow = breakAfterEmptyRow;
+    }
+
+
+    public boolean isSkipHeader() {
+        return skipHeader;
+    }
+
+
+    public void setSkipHeader(boolean skipHeader) {
         this.skipHeader = skipHeader;
     }
+
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+
+    public char getDelimiter() {
+        return delimiter;
+    }
+
+
+    /**
+     * Sets the field delimiter of delimited text files, e.g. ';' or '|'.
+     * 0 picks tab for .tsv files and comma for the others.
+     * @param delimiter an ascii character other than quote and line breaks
+     */
+    public void setDelimiter(char delimiter) {
+        if (delimiter >= 0x80 || delimiter == '"' || delimiter == '\r' || delimiter == '\n')
+            throw new IllegalArgumentException("Invalid delimiter " + delimiter);
+        this.delimiter = delimiter;
+    }
+
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+
+    /**
+     * Sets the encoding of delimited text files, utf-8 by default. Records
+     * are tokenized on their bytes so the charset must encode ascii as is,
+     * like utf-8, iso-8859-1 or windows-1252.
+     * @param charset
+     */
+    public void setCharset(Charset charset) {
+        if (charset == null || !DelimitedStreamReader.isAsciiCompatible(charset))
+            throw new IllegalArgumentException("Charset must be ascii compatible : " + charset);
+        this.charset = charset;
+    }
+
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+
+    /**
+     * Sets the number of threads binding the rows in parse, e.g. the number
+     * of idle cores. The converters must be thread safe when above 1.
+     * @param parallelism
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        this.parallelism = parallelism;
+    }
+
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+
+    public void setQueueCapacity(int queueCapacity) {
+        if (queueCapacity < 1)
+            throw new IllegalArgumentException("Queue capacity must be at least 1");
+        this.queueCapacity = queueCapacity;
+    }
+
+
+    public boolean isPreserveOrder() {
+        return preserveOrder;
+    }
+
+
+    public void setPreserveOrder(boolean preserveOrder) {
+        this.preserveOrder = preserveOrder;
+    }
+
+
+    public long getSharedStringsThreshold() {
+        return sharedStringsThreshold;
+    }
+
+
+    /**
+     * Sets the size of the shared strings above which streaming mode reads
+     * the strings into a memory mapped temp file, looked up through a bounded
+     * cache. The size of the xml for xlsx files, of the text for xls files.
+     * 0 always uses the temp file, Long.MAX_VALUE never does.
+     * @param sharedStringsThreshold in bytes
+     */
+    public void setSharedStringsThreshold(long sharedStringsThreshold) {
+        if (sharedStringsThreshold < 0)
+            throw new IllegalArgumentException("Shared strings threshold can not be negative");
+        this.sharedStringsThreshold = sharedStringsThreshold;
+    }
+
+
+    public int getSharedStringsCacheSize() {
+        return sharedStringsCacheSize;
+    }
+
+
+    public void setSharedStringsCacheSize(int sharedStringsCacheSize) {
+        if (sharedStringsCacheSize < 1)
+            throw new IllegalArgumentException("Shared strings cache size must be at least 1");
+        this.sharedStringsCacheSize = sharedStringsCacheSize;
+    }
+
+
+    public int getFirstRow() {
+        return firstRow;
+    }
+
+
+    public int getLastRow() {
+        return lastRow;
+    }
+
+
+    /**
+     * Restricts the reading to a range of sheet rows, rows before the range
+     * are not decoded and the reading stops after the last one, e.g.
+     * setRowRange(0, 1000) for a preview. The header row is still read for
+     * column name based extraction.
+     * @param firstRow zero based number of the first row read
+     * @param lastRow zero based number of the last row read, included
+     */
+    public void setRowRange(int firstRow, int lastRow) {
+        if (firstRow < 0 || lastRow < firstRow)
+            throw new IllegalArgumentException("Invalid row range " + firstRow + " - " + lastRow);
+        this.firstRow = firstRow;
+        this.lastRow = lastRow;
+        this.sheetRows = null;
+    }
+
+
+    public int getOffset() {
+        return offset;
+    }
+
+
+    /**
+     * Sets the number of rows skipped before the first bean, empty rows and
+     * the header row do not count.
+     * @param offset
+     */
+    public void setOffset(int offset) {
+        if (offset < 0)
+            throw new IllegalArgumentException("Offset can not be negative");
+        this.offset = offset;
+    }
+
+
+    public int getLimit() {
+        return limit;
+    }
+
+
+    /**
+     * Sets the maximum number of beans extracted, no limit by default.
+     * @param limit
+     */
+    public void setLimit(int limit) {
+        if (limit < 0)
+            throw new IllegalArgumentException("Limit can not be negative");
+        this.limit = limit;
+    }
+
+
+    /**
+     * Rejects the rows whose cell in the column does not match the predicate,
+     * before the bean is created. Only the cells of the filter columns and
+     * of the mapped columns are decoded.
+     * @param columnIndex zero based
+     * @param predicate
+     * @return the filter, which counts the rows it rejects
+     */
+    public ColumnFilter addFilter(int columnIndex, CellPredicate predicate) {
+        if (predicate == null)
+            throw new IllegalArgumentException("Predicate is required");
+        if (columnIndex < 0)
+            throw new IllegalArgumentException("Column index can not be negative");
+        ColumnFilter filter = new ColumnFilter(columnIndex, null, predicate);
+        this.filters.add(filter);
+        this.sheetRows = null;
+        return filter;
+    }
+
+
+    /**
+     * Rejects the rows whose cell in the column with the header does not
+     * match the predicate, before the bean is created. Only for column name
+     * based extraction, the cell is blank when no column has the header.
+     * @param columnHeader
+     * @param predicate
+     * @return the filter, which counts the rows it rejects
+     */
+    public ColumnFilter addFilter(String columnHeader, CellPredicate predicate) {
+        if (predicate == null)
+            throw new IllegalArgumentException("Predicate is required");
+        if (this.excelFactoryType != ExcelFactoryType.COLUMN_NAME_BASED_EXTRACTION)
+            throw new IllegalStateException("Filters by header need column name based extraction");
+        ColumnFilter filter = new ColumnFilter(-1, columnHeader, predicate);
+        this.filters.add(filter);
+        this.sheetRows = null;
+        return filter;
+    }
+
+
+    /**
+     * Filters of the parser in the order they are tested, the ExcelFilter
+     * annotations first.
+     * @return
+     */
+    public List<ColumnFilter> getFilters() {
+        return Collections.unmodifiableList(this.filters);
+    }
+
+
+    /**
+     * Number of rows rejected by the filters over all the parses.
+     * @return
+     */
+    public long getRejectedCount() {
+        long count = 0;
+        for (ColumnFilter filter : this.filters) {
+            count += filter.getRejectedCount();
+        }
+        return count;
+    }
+
+
+    public void resetRejectedCounts() {
+        for (ColumnFilter filter : this.filters) {
+            filter.resetRejectedCount();
+        }
+    }
+
+
+    public ConverterRegistry getConverterRegistry() {
+        return converterRegistry;
+    }
+
+
+    public void setConverterRegistry(ConverterRegistry converterRegistry) {
+        this.converterRegistry = converterRegistry;
+        this.sheetRows = null;
+    }
+
+    public boolean isLenient() {
+        return lenient;
+    }
+
+    /**
+     * Makes the parses report the cells which do not convert to their field,
+     * a bad number, boolean or date, to the error collector instead of
+     * failing, the rest of the row is still bound. Custom converters failing
+     * are reported the same way. Booleans must then be true or false, any
+     * other text is an error instead of false.
+     * @param lenient
+     */
+    public void setLenient(boolean lenient) {
+        this.lenient = lenient;
+    }
+
+    public ErrorCollector getErrorCollector() {
+        return errorCollector;
+    }
+
+    /**
+     * Sets the collector of the conversion errors of lenient parses, with the
+     * row, column, raw value and reason of each error.
+     * @param errorCollector null to only count the errors
+     */
+    public void setErrorCollector(ErrorCollector errorCollector) {
+        this.errorCollector = errorCollector;
+    }
+
+    public int getMaxErrors() {
+        return maxErrors;
+    }
+
+    /**
+     * Sets the number of conversion errors a lenient parse tolerates, the
+     * next one fails the parse with an ExtractionException.
+     * @param maxErrors 0 to fail fast on the first error
+     */
+    public void setMaxErrors(int maxErrors) {
+        if (maxErrors < 0)
+            throw new IllegalArgumentException("Max errors can not be negative");
+        this.maxErrors = maxErrors;
+    }
+
+    public ParseListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Sets the listener receiving the metrics of every sheet extracted by
+     * parse, the batch parse, parseColumnar and the MultiSheetParser: the
+     * time spent opening the file, on the header, screening and binding the
+     * rows, the rows per second, the cells decoded and the conversion
+     * failures per field.
+     * @param listener null to stop collecting the metrics
+     */
+    public void setListener(ParseListener listener) {
+        this.listener = listener;
+    }
+
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Sets the cache of the results of parse(File). A file whose content was
+     * parsed before, with the same bean annotations and the settings changing
+     * the beans (extraction type, skipHeader, row range, offset, limit,
+     * lenient, delimiter, charset and the converters of the custom fields),
+     * is loaded from the cache instead of read.<br>
+     * Parses served from the cache are not reported to the listener and do
+     * not count rejected rows, the conversion errors of a lenient parse are
+     * reported again. Parses with filters added by addFilter, or beans with
+     * fields of a non serializable custom type, are not cached.
+     * @param resultCache null to parse every file
+     */
+    public void setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
 }
@@ -0,0 +1,255 @@
+package com.gizbel.excel.factory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Row callback splitting the extraction of a sheet in two stages: the thread
+ * reading the sheet only decodes the rows and applies the header and empty
+ * row rules, copies of the rows are then handed over a bounded queue to the
+ * binding threads which convert the cells and populate the beans.<br>
+ * Row copies are recycled through a pool sized to the queue capacity plus
+ * one per binding thread, the reader waits for a free copy once the binding
+ * threads are behind, so the memory used stays bounded whatever the size of
+ * the sheet.<br>
+ * Each binding thread keeps its beans along with their row numbers, in order
+ * since the queue is FIFO, the sheet order is restored by merging them.
+ */
+final class PipelinedExtraction implements RowCallback {
+
+    /** Put in the queue once per binding thread when the sheet is done. **/
+    private static final RowBuffer END = new RowBuffer();
+
+    private final Parser<?> parser;
+
+    private final ParseContext context;
+
+    private final boolean preserveOrder;
+
+    private final BlockingQueue<RowBuffer> rows;
+
+    /** Row copies ready to be reused by the reader. **/
+    private final BlockingQueue<RowBuffer> freeRows;
+
+    private final int maxRows;
+
+    private int createdRows;
+
+    private final Binder[] binders;
+
+    private volatile Throwable failure;
+
+    private volatile boolean stopped;
+
+    private boolean finished;
+
+    PipelinedExtraction(Parser<?> parser, ParseContext context, int parallelism, int queueCapacity,
+            boolean preserveOrder) {
+        this.parser = parser;
+        this.context = context;
+        this.preserveOrder = preserveOrder;
+        this.maxRows = queueCapacity + parallelism;
+        this.rows = new ArrayBlockingQueue<RowBuffer>(this.maxRows + parallelism);
+        this.freeRows = new ArrayBlockingQueue<RowBuffer>(this.maxRows);
+        this.binders = new Binder[parallelism];
+        for (int i = 0; i < parallelism; i++) {
+            this.binders[i] = new Binder("excel-extractor-binder-" + i);
+            this.binders[i].start();
+        }
+    }
+
+    /**
+     * Called by the reading thread for every decoded row.
+     */
+    @Override
+    public boolean onRow(RowBuffer row) throws Exception {
+        if (this.stopped)
+            return false;
+        Object screened = this.parser.screenRow(row, this.context);
+        if (screened == Parser.END_OF_SHEET)
+            return false;
+        if (screened == Parser.SKIP_ROW)
+            return true;
+
+        RowBuffer copy = this.freeRow();
+        if (copy == null)
+            return false;
+        copy.copyFrom(row);
+        // Never blocks, the queue has room for every row copy and the ends
+        this.rows.add(copy);
+        ParseMetrics metrics = this.context.getMetrics();
+        if (metrics != null)
+            metrics.buffered(this.rows.size());
+        return true;
+    }
+
+    /**
+     * Takes a row copy from the pool, waits for one if they are all in use.
+     * @return null if a binding thread has failed
+     * @throws InterruptedIOException
+     */
+    private RowBuffer freeRow() throws InterruptedIOException {
+        RowBuffer copy = this.freeRows.poll();
+        if (copy != null)
+            return copy;
+        if (this.createdRows < this.maxRows) {
+            this.createdRows++;
+            return new RowBuffer();
+        }
+        try {
+            while (!this.stopped) {
+                copy = this.freeRows.poll(100, TimeUnit.MILLISECONDS);
+                if (copy != null)
+                    return copy;
+            }
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the binding threads");
+        }
+    }
+
+    /**
+     * Waits for the binding threads to bind the remaining rows.
+     * @return the beans, in sheet order if asked for
+     * @throws IOException
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     * @throws ParseException
+     */
+    List<Object> finish() throws IOException, InstantiationException, IllegalAccessException, ParseException {
+        this.stopBinders();
+        Throwable cause = this.failure;
+        if (cause instanceof Error)
+            throw (Error) cause;
+        if (cause != null)
+            Parser.rethrow((Exception) cause);
+
+        if (!this.preserveOrder || this.binders.length == 1) {
+            List<Object> result = new ArrayList<Object>();
+            for (Binder binder : this.binders)
+                result.addAll(binder.beans);
+            return result;
+        }
+        return this.merge();
+    }
+
+    /**
+     * Stops the binding threads, used when the reading fails. Does nothing
+     * once finished.
+     */
+    void close() {
+        if (this.finished)
+            return;
+        this.stopped = true;
+        this.stopBinders();
+    }
+
+    private void stopBinders() {
+        if (this.finished)
+            return;
+        this.finished = true;
+        for (int i = 0; i < this.binders.length; i++)
+            this.rows.add(END);
+        boolean interrupted = false;
+        for (Binder binder : this.binders) {
+            while (binder.isAlive()) {
+                try {
+                    binder.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Merges the beans of the binding threads by row number.
+     */
+    private List<Object> merge() {
+        int size = 0;
+        for (Binder binder : this.binders)
+            size += binder.beans.size();
+        List<Object> result = new ArrayList<Object>(size);
+        int[] positions = new int[this.binders.length];
+        for (int n = 0; n < size; n++) {
+            int next = -1;
+            int nextRowNum = Integer.MAX_VALUE;
+            for (int i = 0; i < this.binders.length; i++) {
+                Binder binder = this.binders[i];
+                if (positions[i] < binder.beans.size() && binder.rowNums[positions[i]] < nextRowNum) {
+                    next = i;
+                    nextRowNum = binder.rowNums[positions[i]];
+                }
+            }
+            result.add(this.binders[next].beans.get(positions[next]++));
+        }
+        return result;
+    }
+
+    /**
+     * Binding thread, binds the rows taken from the queue until the end.
+     */
+    private final class Binder extends Thread {
+
+        private final List<Object> beans = new ArrayList<Object>();
+
+        /** Row number of each bean, increasing. **/
+        private int[] rowNums = new int[64];
+
+        Binder(String name) {
+            super(name);
+            this.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            PipelinedExtraction pipeline = PipelinedExtraction.this;
+            while (true) {
+                RowBuffer row;
+                try {
+                    row = pipeline.rows.take();
+                } catch (InterruptedException e) {
+                    pipeline.fail(e);
+                    return;
+                }
+                if (row == END)
+                    return;
+                if (!pipeline.stopped) {
+                    try {
+                        this.add(row.getRowNum(), pipeline.parser.getBeanForRowBuffer(row, pipeline.context));
+                    } catch (Throwable e) {
+                        pipeline.fail(e);
+                    }
+                }
+                pipeline.freeRows.offer(row);
+            }
+        }
+
+        private void add(int rowNum, Object beanObj) {
+            int size = this.beans.size();
+            if (size == this.rowNums.length)
+                this.rowNums = Arrays.copyOf(this.rowNums, size * 2);
+            this.rowNums[size] = rowNum;
+            this.beans.add(beanObj);
+        }
+    }
+
+    /**
+     * Keeps the first failure and stops the reading.
+     */
+    private synchronized void fail(Throwable e) {
+        if (this.failure == null)
+            this.failure = e;
+        this.stopped = true;
+    }
+}
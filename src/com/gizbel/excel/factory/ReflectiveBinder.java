@@ -0,0 +1,274 @@
+package com.gizbel.excel.factory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.gizbel.excel.annotations.ExcelBean;
+import com.gizbel.excel.annotations.ExcelColumnHeader;
+import com.gizbel.excel.annotations.ExcelColumnIndex;
+import com.gizbel.excel.annotations.ExcelFilter;
+
+/**
+ * BeanBinder of the classes without a generated binder: the annotations are
+ * read by reflection and the fields set through method handles.<br>
+ * Fields are accessed directly. When the class asks for it with
+ * ExcelBean.useSetters, private fields are accessed the way the generated
+ * binders do, through their JavaBeans setter and getter when the class
+ * declares both, so a bean gets the same values whether the processor ran
+ * or not.
+ */
+final class ReflectiveBinder extends BeanBinder<Object> {
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private final Class<?> clazz;
+
+    /** No argument constructor of the class, null if not accessible. **/
+    private final MethodHandle constructor;
+
+    /** (Object bean, Object value)void by field number, unboxes the value for primitive fields. **/
+    private final MethodHandle[] setters;
+
+    /** (Object bean)Object by field number. **/
+    private final MethodHandle[] getters;
+
+    /** (Object bean, primitive value)void for primitive fields, null for the others. **/
+    private final MethodHandle[] primitiveSetters;
+
+    private final Class<?>[] types;
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private ReflectiveBinder(Class<?> clazz, List<Field> fields) throws IllegalAccessException {
+        super((Class) clazz, boundFields(fields));
+        this.clazz = clazz;
+        this.constructor = findConstructor(clazz);
+        int count = fields.size();
+        this.setters = new MethodHandle[count];
+        this.getters = new MethodHandle[count];
+        this.primitiveSetters = new MethodHandle[count];
+        this.types = new Class<?>[count];
+        ExcelBean excelBean = clazz.getAnnotation(ExcelBean.class);
+        boolean useSetters = excelBean != null && excelBean.useSetters();
+        for (int i = 0; i < count; i++) {
+            Field field = fields.get(i);
+            Method[] accessors = useSetters ? accessorsOf(clazz, field) : null;
+            MethodHandle setter;
+            MethodHandle getter;
+            if (accessors != null) {
+                accessors[0].setAccessible(true);
+                accessors[1].setAccessible(true);
+                // A setter returning the bean for chaining has its result dropped
+                setter = MethodHandles.lookup().unreflect(accessors[0])
+                        .asType(MethodType.methodType(void.class, clazz, field.getType()));
+                getter = MethodHandles.lookup().unreflect(accessors[1]);
+            } else {
+                field.setAccessible(true);
+                setter = MethodHandles.lookup().unreflectSetter(field);
+                getter = MethodHandles.lookup().unreflectGetter(field);
+            }
+            this.setters[i] = setter.asType(SETTER_TYPE);
+            this.getters[i] = getter.asType(GETTER_TYPE);
+            this.types[i] = field.getType();
+            if (field.getType().isPrimitive())
+                this.primitiveSetters[i] = setter.asType(MethodType.methodType(void.class, Object.class,
+                        field.getType()));
+        }
+    }
+
+    /**
+     * Binder of the fields of the class annotated with ExcelColumnIndex or
+     * ExcelColumnHeader.
+     * @param clazz
+     * @return
+     * @throws IllegalAccessException
+     */
+    static ReflectiveBinder of(Class<?> clazz) throws IllegalAccessException {
+        List<Field> fields = new ArrayList<Field>();
+        /* Get all declared fields for the annotated class */
+        for (Field field : clazz.getDeclaredFields()) {
+            if (field.isAnnotationPresent(ExcelColumnIndex.class) || field.isAnnotationPresent(ExcelColumnHeader.class))
+                fields.add(field);
+        }
+        return new ReflectiveBinder(clazz, fields);
+    }
+
+    /**
+     * Setter and getter of a private field, the same ones the generated
+     * binders call: the non private, non static methods declared by the class
+     * and named after the field, taking or returning its exact type, is for
+     * boolean fields.
+     * @param clazz
+     * @param field
+     * @return the setter and the getter, null if the field is not private or
+     *         misses one of them
+     */
+    private static Method[] accessorsOf(Class<?> clazz, Field field) {
+        if (!Modifier.isPrivate(field.getModifiers()))
+            return null;
+        String name = field.getName();
+        String property = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        Method setter = null;
+        Method getter = null;
+        for (Method method : clazz.getDeclaredMethods()) {
+            int modifiers = method.getModifiers();
+            if (Modifier.isPrivate(modifiers) || Modifier.isStatic(modifiers) || method.isSynthetic())
+                continue;
+            String methodName = method.getName();
+            if (methodName.equals("set" + property) && method.getParameterCount() == 1
+                    && method.getGenericParameterTypes()[0].equals(field.getGenericType())) {
+                setter = method;
+            } else if ((methodName.equals("get" + property)
+                    || field.getType() == boolean.class && methodName.equals("is" + property))
+                    && method.getParameterCount() == 0 && method.getGenericReturnType().equals(field.getGenericType())) {
+                getter = method;
+            }
+        }
+        return setter != null && getter != null ? new Method[] { setter, getter } : null;
+    }
+
+    private static BoundField[] boundFields(List<Field> fields) {
+        BoundField[] boundFields = new BoundField[fields.size()];
+        for (int i = 0; i < boundFields.length; i++) {
+            Field field = fields.get(i);
+            BoundField boundField = new BoundField(field.getName(), field.getType());
+            ExcelColumnIndex index = field.getAnnotation(ExcelColumnIndex.class);
+            if (index != null)
+                boundField = boundField.index(index.columnIndex(), index.dataType(), index.defaultValue(),
+                        index.pattern());
+            ExcelColumnHeader header = field.getAnnotation(ExcelColumnHeader.class);
+            if (header != null)
+                boundField = boundField.header(header.columnHeader(), header.dataType(), header.defaultValue(),
+                        header.pattern());
+            ExcelFilter filter = field.getAnnotation(ExcelFilter.class);
+            if (filter != null)
+                boundField = boundField.filter(filter.equalTo(), filter.min(), filter.max());
+            boundFields[i] = boundField;
+        }
+        return boundFields;
+    }
+
+    /**
+     * Creates a new instance of the class through its constructor handle.
+     */
+    @Override
+    public Object newInstance() throws InstantiationException, IllegalAccessException {
+        if (this.constructor == null) {
+            try {
+                return this.clazz.getDeclaredConstructor().newInstance();
+            } catch (InstantiationException | IllegalAccessException e) {
+                throw e;
+            } catch (ReflectiveOperationException e) {
+                throw instantiationFailure(e);
+            }
+        }
+        try {
+            return this.constructor.invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw instantiationFailure(e);
+        }
+    }
+
+    private static InstantiationException instantiationFailure(Throwable cause) {
+        InstantiationException exception = new InstantiationException(cause.toString());
+        exception.initCause(cause);
+        return exception;
+    }
+
+    @Override
+    public void set(Object bean, int field, Object value) {
+        try {
+            this.setters[field].invokeExact(bean, value);
+        } catch (Throwable e) {
+            throw ColumnBinding.rethrow(e);
+        }
+    }
+
+    @Override
+    public Object get(Object bean, int field) {
+        try {
+            return this.getters[field].invokeExact(bean);
+        } catch (Throwable e) {
+            throw ColumnBinding.rethrow(e);
+        }
+    }
+
+    @Override
+    public void setInt(Object bean, int field, int value) {
+        if (this.types[field] != int.class) {
+            super.setInt(bean, field, value);
+            return;
+        }
+        try {
+            this.primitiveSetters[field].invokeExact(bean, value);
+        } catch (Throwable e) {
+            throw ColumnBinding.rethrow(e);
+        }
+    }
+
+    @Override
+    public void setLong(Object bean, int field, long value) {
+        if (this.types[field] != long.class) {
+            super.setLong(bean, field, value);
+            return;
+        }
+        try {
+            this.primitiveSetters[field].invokeExact(bean, value);
+        } catch (Throwable e) {
+            throw ColumnBinding.rethrow(e);
+        }
+    }
+
+    @Override
+    public void setDouble(Object bean, int field, double value) {
+        if (this.types[field] != double.class) {
+            super.setDouble(bean, field, value);
+            return;
+        }
+        try {
+            this.primitiveSetters[field].invokeExact(bean, value);
+        } catch (Throwable e) {
+            throw ColumnBinding.rethrow(e);
+        }
+    }
+
+    @Override
+    public void setBoolean(Object bean, int field, boolean value) {
+        if (this.types[field] != boolean.class) {
+            super.setBoolean(bean, field, value);
+            return;
+        }
+        try {
+            this.primitiveSetters[field].invokeExact(bean, value);
+        } catch (Throwable e) {
+            throw ColumnBinding.rethrow(e);
+        }
+    }
+
+    /**
+     * Looks up the no argument constructor as a method handle, returns null if
+     * there is none so that newInstance reports the error as before.
+     * @param clazz
+     * @return
+     */
+    private static MethodHandle findConstructor(Class<?> clazz) {
+        try {
+            Constructor<?> constructor = clazz.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return MethodHandles.lookup().unreflectConstructor(constructor)
+                    .asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException | SecurityException e) {
+            return null;
+        }
+    }
+}
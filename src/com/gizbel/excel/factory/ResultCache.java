@@ -0,0 +1,309 @@
+package com.gizbel.excel.factory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of parse results on local disk, keyed by the content of the file so
+ * that a file received again, under any name, is loaded instead of parsed.<br>
+ * The key is the SHA-256 of the file bytes along with the version of the
+ * bean bindings and the settings of the parser which change the result: a
+ * change to the annotations of the bean class gives new keys, the entries of
+ * the previous version are no longer used and get evicted. Entries are
+ * compact binary snapshots of the beans, loaded without reading the
+ * workbook.<br>
+ * The total size of the entries is bounded, the least recently used ones are
+ * deleted first, the order surviving restarts through the modification time
+ * of the files. Entries are written to a temp file then moved in place, so a
+ * crash never leaves a partial entry. One cache can be shared by several
+ * parsers and threads.
+ *
+ * @see Parser#setResultCache(ResultCache)
+ */
+public class ResultCache {
+
+    private static final String SUFFIX = ".snap";
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /** Age after which a temp file is considered left by a stopped process. **/
+    private static final long TEMP_EXPIRY_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final File directory;
+
+    private final long maxBytes;
+
+    /** Size of the entries by key, least recently used first. **/
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<String, Long>(16, 0.75f, true);
+
+    /** Total size of the entries. **/
+    private long size;
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    /**
+     * Opens the cache in the directory, created if needed, and indexes the
+     * entries already there.
+     * @param directory
+     * @param maxBytes total size of the entries, the least recently used are
+     *            deleted past it
+     * @throws IOException if the directory can not be created or listed
+     */
+    public ResultCache(File directory, long maxBytes) throws IOException {
+        if (maxBytes < 1)
+            throw new IllegalArgumentException("Max bytes must be at least 1");
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory.toPath());
+        this.indexEntries();
+    }
+
+    private void indexEntries() throws IOException {
+        File[] files = this.directory.listFiles();
+        if (files == null)
+            throw new IOException("Can not list " + this.directory);
+        List<File> snapshots = new ArrayList<File>();
+        long now = System.currentTimeMillis();
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(SUFFIX))
+                snapshots.add(file);
+            else if (name.endsWith(TEMP_SUFFIX) && now - file.lastModified() > TEMP_EXPIRY_MILLIS)
+                file.delete();
+        }
+        Collections.sort(snapshots, new Comparator<File>() {
+            @Override
+            public int compare(File first, File second) {
+                return Long.compare(first.lastModified(), second.lastModified());
+            }
+        });
+        synchronized (this) {
+            for (File file : snapshots) {
+                String name = file.getName();
+                long length = file.length();
+                this.entries.put(name.substring(0, name.length() - SUFFIX.length()), length);
+                this.size += length;
+            }
+            this.evict();
+        }
+    }
+
+    /**
+     * Key of the result of a parse of the file, reads the whole file.
+     * @param file
+     * @param version version of the bean bindings and settings of the parser
+     * @return
+     * @throws IOException
+     */
+    String keyOf(File file, String version) throws IOException {
+        MessageDigest content = sha256();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                content.update(buffer);
+                buffer.clear();
+            }
+        }
+        MessageDigest settings = sha256();
+        settings.update(version.getBytes(StandardCharsets.UTF_8));
+        return hex(content.digest(), 32) + "-" + hex(settings.digest(), 8);
+    }
+
+    /**
+     * Loads the beans cached for the key, the conversion errors of a lenient
+     * parse are reported again to the errors of the context.<br>
+     * A corrupted entry, or one written for other fields, is deleted and
+     * counted as a miss.
+     * @param key
+     * @param schema
+     * @param fields bindings of the fields of the parse
+     * @param context
+     * @return null if there is no entry for the key
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     * @throws ExtractionException once the errors are more than allowed
+     */
+    List<Object> load(String key, BeanSchema schema, List<ColumnBinding> fields, ParseContext context)
+            throws InstantiationException, IllegalAccessException {
+        synchronized (this) {
+            if (this.entries.get(key) == null) {
+                this.missCount.increment();
+                return null;
+            }
+        }
+        File file = this.fileOf(key);
+        List<ParseError> errors = new ArrayList<ParseError>();
+        List<Object> beans;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            beans = ResultSnapshot.read(channel, key, schema, fields, errors);
+        } catch (IOException e) {
+            beans = null;
+        }
+        if (beans == null) {
+            this.remove(key);
+            this.missCount.increment();
+            return null;
+        }
+        // Keeps the order of use for the next start
+        file.setLastModified(System.currentTimeMillis());
+        this.hitCount.increment();
+        ConversionErrors conversionErrors = context.getErrors();
+        if (conversionErrors != null) {
+            for (ParseError error : errors)
+                conversionErrors.report(error);
+        }
+        return beans;
+    }
+
+    /**
+     * Stores the beans of a parse. The result is only not cached when it can
+     * not be written or is larger than the cache, the parse does not fail.
+     * @param key
+     * @param beans
+     * @param fields bindings of the fields of the parse
+     * @param errors conversion errors of the parse
+     */
+    void store(String key, List<Object> beans, List<ColumnBinding> fields, List<ParseError> errors) {
+        File temp = null;
+        try {
+            temp = File.createTempFile(key, TEMP_SUFFIX, this.directory);
+            try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.WRITE)) {
+                ResultSnapshot.write(channel, key, beans, fields, errors);
+            }
+            long length = temp.length();
+            if (length > this.maxBytes)
+                return;
+            synchronized (this) {
+                Files.move(temp.toPath(), this.fileOf(key).toPath(), StandardCopyOption.ATOMIC_MOVE);
+                temp = null;
+                Long previous = this.entries.put(key, length);
+                this.size += previous == null ? length : length - previous;
+                this.evict();
+            }
+        } catch (IOException e) {
+            // Values which can not be written or a full disk, the result is
+            // returned all the same
+        } finally {
+            if (temp != null)
+                temp.delete();
+        }
+    }
+
+    /**
+     * Deletes the least recently used entries until the size fits, called
+     * with the lock held.
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> iterator = this.entries.entrySet().iterator();
+        while (this.size > this.maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            this.size -= eldest.getValue();
+            this.fileOf(eldest.getKey()).delete();
+        }
+    }
+
+    private synchronized void remove(String key) {
+        Long length = this.entries.remove(key);
+        if (length != null) {
+            this.size -= length;
+            this.fileOf(key).delete();
+        }
+    }
+
+    /**
+     * Deletes all the entries.
+     */
+    public synchronized void clear() {
+        for (String key : this.entries.keySet()) {
+            this.fileOf(key).delete();
+        }
+        this.entries.clear();
+        this.size = 0;
+    }
+
+    private File fileOf(String key) {
+        return new File(this.directory, key + SUFFIX);
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Total size of the entries in bytes.
+     * @return
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public synchronized int getEntryCount() {
+        return this.entries.size();
+    }
+
+    /**
+     * Number of parses served from the cache.
+     * @return
+     */
+    public long getHitCount() {
+        return this.hitCount.sum();
+    }
+
+    /**
+     * Number of parses which found no entry and read the file.
+     * @return
+     */
+    public long getMissCount() {
+        return this.missCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "ResultCache [directory=" + directory + ", entries=" + getEntryCount() + ", size=" + getSize()
+                + ", maxBytes=" + maxBytes + ", hits=" + getHitCount() + ", misses=" + getMissCount() + "]";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every JRE has SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes, int length) {
+        StringBuilder hex = new StringBuilder(length * 2);
+        for (int i = 0; i < length; i++) {
+            hex.append(Character.forDigit((bytes[i] >> 4) & 0xF, 16)).append(Character.forDigit(bytes[i] & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
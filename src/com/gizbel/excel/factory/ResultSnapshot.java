@@ -0,0 +1,684 @@
+package com.gizbel.excel.factory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Binary snapshot of the beans of a parse, written and read back by the
+ * ResultCache.<br>
+ * Values are laid out by field rather than by bean: each field is a column
+ * holding a null bitmap and its values, integers and dates as varints,
+ * booleans as bits, strings and enum constants dictionary encoded so that a
+ * repeated value is written once and shared again once loaded. Loading only
+ * decodes the columns into the fields through the binder of the class, none of the
+ * conversions of a parse is done again.<br>
+ * Layout: magic, format version, cache key, conversion errors of a lenient
+ * parse, bean count, then the name, type tag and values of each field, and
+ * the magic again to detect truncated files.
+ */
+final class ResultSnapshot {
+
+    private static final int MAGIC = 0x47585253;
+
+    /** Version of the layout, snapshots of another version are ignored. **/
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Type tags of the columns, 0 for field types which can not be stored. **/
+    private static final byte UNSUPPORTED = 0;
+    private static final byte INT = 1;
+    private static final byte LONG = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte BOOLEAN = 4;
+    private static final byte STRING = 5;
+    private static final byte LOCAL_DATE = 6;
+    private static final byte LOCAL_DATE_TIME = 7;
+    private static final byte INSTANT = 8;
+    private static final byte DATE = 9;
+    private static final byte SQL_DATE = 10;
+    private static final byte BIG_DECIMAL = 11;
+    private static final byte BIG_INTEGER = 12;
+    private static final byte UUID_VALUE = 13;
+    private static final byte ENUM = 14;
+    private static final byte SERIALIZED = 15;
+
+
+    private ResultSnapshot() {
+    }
+
+    /**
+     * Whether the values of all the fields can be stored: primitives, the
+     * types produced by the dataTypes, BigDecimal, BigInteger, UUID, enums
+     * and serializable types.
+     * @param fields
+     * @return
+     */
+    static boolean supports(List<ColumnBinding> fields) {
+        for (ColumnBinding binding : fields) {
+            if (tagOf(binding.getField().getType()) == UNSUPPORTED)
+                return false;
+        }
+        return true;
+    }
+
+    private static byte tagOf(Class<?> type) {
+        if (type == int.class || type == Integer.class)
+            return INT;
+        if (type == long.class || type == Long.class)
+            return LONG;
+        if (type == double.class || type == Double.class)
+            return DOUBLE;
+        if (type == boolean.class || type == Boolean.class)
+            return BOOLEAN;
+        if (type == String.class)
+            return STRING;
+        if (type == LocalDate.class)
+            return LOCAL_DATE;
+        if (type == LocalDateTime.class)
+            return LOCAL_DATE_TIME;
+        if (type == Instant.class)
+            return INSTANT;
+        if (type == Date.class)
+            return DATE;
+        if (type == java.sql.Date.class)
+            return SQL_DATE;
+        if (type == BigDecimal.class)
+            return BIG_DECIMAL;
+        if (type == BigInteger.class)
+            return BIG_INTEGER;
+        if (type == UUID.class)
+            return UUID_VALUE;
+        if (type.isEnum())
+            return ENUM;
+        if (Serializable.class.isAssignableFrom(type))
+            return SERIALIZED;
+        return UNSUPPORTED;
+    }
+
+    /**
+     * Writes the snapshot of the beans.
+     * @param channel
+     * @param key cache key of the parse, checked when the snapshot is read
+     * @param beans
+     * @param fields bindings of the fields to store
+     * @param errors conversion errors of the parse, in the order reported
+     * @throws IOException
+     * @throws NotSerializableException if a value can not be stored
+     */
+    static void write(WritableByteChannel channel, String key, List<Object> beans, List<ColumnBinding> fields,
+            List<ParseError> errors) throws IOException {
+        Output out = new Output(channel);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeString(key);
+        out.writeVarLong(errors.size());
+        for (ParseError error : errors) {
+            out.writeVarLong(error.getRowNum());
+            out.writeVarLong(error.getColumnIndex());
+            out.writeString(error.getFieldName());
+            out.writeNullableString(error.getRawValue());
+            out.writeString(error.getReason());
+        }
+        out.writeVarLong(beans.size());
+        out.writeVarLong(fields.size());
+        for (ColumnBinding binding : fields) {
+            out.writeString(binding.getField().getName());
+            writeColumn(out, binding, beans);
+        }
+        out.writeInt(MAGIC);
+        out.flush();
+    }
+
+    private static void writeColumn(Output out, ColumnBinding binding, List<Object> beans) throws IOException {
+        Class<?> type = binding.getField().getType();
+        int size = beans.size();
+        Object[] values = new Object[size];
+        boolean[] present = new boolean[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            Object value = binding.get(beans.get(i));
+            if (value != null) {
+                present[i] = true;
+                values[count++] = value;
+            }
+        }
+
+        byte tag = tagOf(type);
+        if (tag == DATE)
+            tag = dateTag(values, count);
+        out.writeByte(tag);
+        if (!type.isPrimitive())
+            out.writeBits(present, size);
+
+        switch (tag) {
+        case BOOLEAN:
+            boolean[] bits = new boolean[count];
+            for (int i = 0; i < count; i++)
+                bits[i] = (Boolean) values[i];
+            out.writeBits(bits, count);
+            return;
+        case STRING:
+        case ENUM:
+            Map<Object, Integer> dictionary = new HashMap<Object, Integer>();
+            for (int i = 0; i < count; i++) {
+                Integer index = dictionary.get(values[i]);
+                if (index != null) {
+                    out.writeVarLong(index);
+                } else {
+                    // A new value is written at the index it gets
+                    out.writeVarLong(dictionary.size());
+                    out.writeString(tag == ENUM ? ((Enum<?>) values[i]).name() : (String) values[i]);
+                    dictionary.put(values[i], dictionary.size());
+                }
+            }
+            return;
+        case SERIALIZED:
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream objects = new ObjectOutputStream(bytes);
+            for (int i = 0; i < count; i++)
+                objects.writeObject(values[i]);
+            objects.close();
+            out.writeBytes(bytes.toByteArray());
+            return;
+        default:
+            for (int i = 0; i < count; i++)
+                writeValue(out, tag, values[i]);
+        }
+    }
+
+    /**
+     * Date fields hold java.sql.Date values when bound from a cell, the
+     * column keeps the class found so that loading restores it.
+     */
+    private static byte dateTag(Object[] values, int count) throws NotSerializableException {
+        if (count == 0)
+            return DATE;
+        Class<?> valueClass = values[0].getClass();
+        for (int i = 1; i < count; i++) {
+            if (values[i].getClass() != valueClass)
+                throw new NotSerializableException("Mixed date classes " + valueClass.getName() + " and "
+                        + values[i].getClass().getName());
+        }
+        if (valueClass == java.sql.Date.class)
+            return SQL_DATE;
+        if (valueClass == Date.class)
+            return DATE;
+        throw new NotSerializableException(valueClass.getName());
+    }
+
+    private static void writeValue(Output out, byte tag, Object value) throws IOException {
+        switch (tag) {
+        case INT:
+            out.writeSigned((Integer) value);
+            return;
+        case LONG:
+            out.writeSigned((Long) value);
+            return;
+        case DOUBLE:
+            out.writeDouble((Double) value);
+            return;
+        case LOCAL_DATE:
+            out.writeSigned(((LocalDate) value).toEpochDay());
+            return;
+        case LOCAL_DATE_TIME:
+            LocalDateTime dateTime = (LocalDateTime) value;
+            out.writeSigned(dateTime.toEpochSecond(ZoneOffset.UTC));
+            out.writeVarLong(dateTime.getNano());
+            return;
+        case INSTANT:
+            Instant instant = (Instant) value;
+            out.writeSigned(instant.getEpochSecond());
+            out.writeVarLong(instant.getNano());
+            return;
+        case DATE:
+        case SQL_DATE:
+            out.writeSigned(((Date) value).getTime());
+            return;
+        case BIG_DECIMAL:
+            // Subclasses would not be restored
+            if (value.getClass() != BigDecimal.class)
+                throw new NotSerializableException(value.getClass().getName());
+            out.writeSigned(((BigDecimal) value).scale());
+            out.writeBytes(((BigDecimal) value).unscaledValue().toByteArray());
+            return;
+        case BIG_INTEGER:
+            if (value.getClass() != BigInteger.class)
+                throw new NotSerializableException(value.getClass().getName());
+            out.writeBytes(((BigInteger) value).toByteArray());
+            return;
+        case UUID_VALUE:
+            out.writeLong(((UUID) value).getMostSignificantBits());
+            out.writeLong(((UUID) value).getLeastSignificantBits());
+            return;
+        default:
+            throw new IllegalStateException("Unexpected tag " + tag);
+        }
+    }
+
+    /**
+     * Reads the beans of a snapshot.
+     * @param channel
+     * @param key cache key of the parse
+     * @param schema
+     * @param fields bindings of the fields of the parse
+     * @param errors receives the conversion errors of the parse
+     * @return null if the snapshot was written for another key or other fields
+     * @throws IOException if the snapshot is truncated or corrupted
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     */
+    static List<Object> read(ReadableByteChannel channel, String key, BeanSchema schema, List<ColumnBinding> fields,
+            List<ParseError> errors) throws IOException, InstantiationException, IllegalAccessException {
+        Input in = new Input(channel);
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !key.equals(in.readString()))
+            return null;
+        int errorCount = in.readCount();
+        for (int i = 0; i < errorCount; i++) {
+            errors.add(new ParseError(in.readCount(), in.readCount(), in.readString(), in.readNullableString(),
+                    in.readString()));
+        }
+        int size = in.readCount();
+        if (in.readCount() != fields.size())
+            return null;
+        List<Object> beans = new ArrayList<Object>(size);
+        for (int i = 0; i < size; i++)
+            beans.add(schema.newInstance());
+        for (ColumnBinding binding : fields) {
+            BoundField field = binding.getField();
+            if (!field.getName().equals(in.readString()))
+                return null;
+            byte tag = in.readByte();
+            if (tag != tagOf(field.getType()) && !(tag == SQL_DATE && field.getType() == Date.class))
+                return null;
+            readColumn(in, binding, tag, beans);
+        }
+        if (in.readInt() != MAGIC)
+            throw new IOException("Corrupted snapshot");
+        return beans;
+    }
+
+    private static void readColumn(Input in, ColumnBinding binding, byte tag, List<Object> beans)
+            throws IOException {
+        Class<?> type = binding.getField().getType();
+        int size = beans.size();
+        // Primitives are set without boxing
+        if (type == int.class) {
+            for (int i = 0; i < size; i++)
+                binding.setInt(beans.get(i), (int) in.readSigned());
+            return;
+        }
+        if (type == long.class) {
+            for (int i = 0; i < size; i++)
+                binding.setLong(beans.get(i), in.readSigned());
+            return;
+        }
+        if (type == double.class) {
+            for (int i = 0; i < size; i++)
+                binding.setDouble(beans.get(i), in.readDouble());
+            return;
+        }
+        if (type == boolean.class) {
+            boolean[] bits = in.readBits(size);
+            for (int i = 0; i < size; i++)
+                binding.setBoolean(beans.get(i), bits[i]);
+            return;
+        }
+
+        boolean[] present = in.readBits(size);
+        int count = 0;
+        for (boolean value : present) {
+            if (value)
+                count++;
+        }
+        Object[] values = readValues(in, binding, tag, count);
+        for (int i = 0, j = 0; i < size; i++) {
+            if (present[i])
+                binding.setObject(beans.get(i), values[j++]);
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Object[] readValues(Input in, ColumnBinding binding, byte tag, int count) throws IOException {
+        BoundField field = binding.getField();
+        Object[] values = new Object[count];
+        switch (tag) {
+        case BOOLEAN:
+            boolean[] bits = in.readBits(count);
+            for (int i = 0; i < count; i++)
+                values[i] = bits[i];
+            return values;
+        case STRING:
+        case ENUM:
+            List<Object> dictionary = new ArrayList<Object>();
+            for (int i = 0; i < count; i++) {
+                int index = in.readCount();
+                if (index == dictionary.size()) {
+                    String text = in.readString();
+                    if (tag == STRING) {
+                        dictionary.add(text);
+                    } else {
+                        try {
+                            dictionary.add(Enum.valueOf((Class) field.getType(), text));
+                        } catch (IllegalArgumentException e) {
+                            // The constant was renamed since the snapshot
+                            throw new IOException(e.getMessage());
+                        }
+                    }
+                } else if (index > dictionary.size()) {
+                    throw new IOException("Corrupted snapshot");
+                }
+                values[i] = dictionary.get(index);
+            }
+            return values;
+        case SERIALIZED:
+            ObjectInputStream objects = new SnapshotObjectInput(in.readBytes(), binding.getBeanClass());
+            try {
+                for (int i = 0; i < count; i++) {
+                    values[i] = objects.readObject();
+                    if (!field.getType().isInstance(values[i]))
+                        throw new IOException("Unexpected " + values[i].getClass().getName() + " for "
+                                + field.getName());
+                }
+            } catch (ClassNotFoundException e) {
+                throw new IOException(e.toString());
+            }
+            return values;
+        default:
+            for (int i = 0; i < count; i++)
+                values[i] = readValue(in, tag);
+            return values;
+        }
+    }
+
+    private static Object readValue(Input in, byte tag) throws IOException {
+        switch (tag) {
+        case INT:
+            return (int) in.readSigned();
+        case LONG:
+            return in.readSigned();
+        case DOUBLE:
+            return in.readDouble();
+        case LOCAL_DATE:
+            return LocalDate.ofEpochDay(in.readSigned());
+        case LOCAL_DATE_TIME:
+            return LocalDateTime.ofEpochSecond(in.readSigned(), in.readCount(), ZoneOffset.UTC);
+        case INSTANT:
+            return Instant.ofEpochSecond(in.readSigned(), in.readCount());
+        case DATE:
+            return new Date(in.readSigned());
+        case SQL_DATE:
+            return new java.sql.Date(in.readSigned());
+        case BIG_DECIMAL:
+            int scale = (int) in.readSigned();
+            return new BigDecimal(new BigInteger(in.readBytes()), scale);
+        case BIG_INTEGER:
+            return new BigInteger(in.readBytes());
+        case UUID_VALUE:
+            return new UUID(in.readLong(), in.readLong());
+        default:
+            throw new IOException("Unknown tag " + tag);
+        }
+    }
+
+    /**
+     * Resolves the classes of serialized values with the class loader of the
+     * bean class, which may not be the one of the library.
+     */
+    private static final class SnapshotObjectInput extends ObjectInputStream {
+
+        private final ClassLoader classLoader;
+
+        SnapshotObjectInput(byte[] bytes, Class<?> beanClass) throws IOException {
+            super(new ByteArrayInputStream(bytes));
+            this.classLoader = beanClass.getClassLoader();
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            try {
+                return Class.forName(desc.getName(), false, this.classLoader);
+            } catch (ClassNotFoundException e) {
+                return super.resolveClass(desc);
+            }
+        }
+    }
+
+    /**
+     * Buffered writer of the snapshot values.
+     */
+    private static final class Output {
+
+        private final WritableByteChannel channel;
+
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        Output(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (this.buffer.remaining() < bytes)
+                this.flush();
+        }
+
+        void flush() throws IOException {
+            this.buffer.flip();
+            while (this.buffer.hasRemaining())
+                this.channel.write(this.buffer);
+            this.buffer.clear();
+        }
+
+        void writeByte(int value) throws IOException {
+            this.ensure(1);
+            this.buffer.put((byte) value);
+        }
+
+        void writeInt(int value) throws IOException {
+            this.ensure(4);
+            this.buffer.putInt(value);
+        }
+
+        void writeLong(long value) throws IOException {
+            this.ensure(8);
+            this.buffer.putLong(value);
+        }
+
+        void writeDouble(double value) throws IOException {
+            this.ensure(8);
+            this.buffer.putDouble(value);
+        }
+
+        /**
+         * Writes the value 7 bits per byte, small positive values take one
+         * byte.
+         */
+        void writeVarLong(long value) throws IOException {
+            this.ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                this.buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            this.buffer.put((byte) value);
+        }
+
+        /**
+         * Zigzag encoded varint, small negative values take one byte too.
+         */
+        void writeSigned(long value) throws IOException {
+            this.writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        void writeBytes(byte[] bytes) throws IOException {
+            this.writeVarLong(bytes.length);
+            if (bytes.length > this.buffer.capacity()) {
+                this.flush();
+                ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+                while (wrapped.hasRemaining())
+                    this.channel.write(wrapped);
+                return;
+            }
+            this.ensure(bytes.length);
+            this.buffer.put(bytes);
+        }
+
+        void writeString(String value) throws IOException {
+            this.writeBytes(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void writeNullableString(String value) throws IOException {
+            this.writeByte(value == null ? 0 : 1);
+            if (value != null)
+                this.writeString(value);
+        }
+
+        void writeBits(boolean[] bits, int count) throws IOException {
+            for (int i = 0; i < count; i += 8) {
+                int packed = 0;
+                for (int j = 0; j < 8 && i + j < count; j++) {
+                    if (bits[i + j])
+                        packed |= 1 << j;
+                }
+                this.writeByte(packed);
+            }
+        }
+    }
+
+    /**
+     * Buffered reader of the snapshot values.
+     */
+    private static final class Input {
+
+        private final ReadableByteChannel channel;
+
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        Input(ReadableByteChannel channel) {
+            this.channel = channel;
+            this.buffer.flip();
+        }
+
+        /**
+         * Reads from the channel until the buffer holds the bytes.
+         */
+        private void require(int bytes) throws IOException {
+            if (this.buffer.remaining() >= bytes)
+                return;
+            this.buffer.compact();
+            while (this.buffer.position() < bytes) {
+                if (this.channel.read(this.buffer) < 0)
+                    throw new EOFException("Truncated snapshot");
+            }
+            this.buffer.flip();
+        }
+
+        byte readByte() throws IOException {
+            this.require(1);
+            return this.buffer.get();
+        }
+
+        int readInt() throws IOException {
+            this.require(4);
+            return this.buffer.getInt();
+        }
+
+        long readLong() throws IOException {
+            this.require(8);
+            return this.buffer.getLong();
+        }
+
+        double readDouble() throws IOException {
+            this.require(8);
+            return this.buffer.getDouble();
+        }
+
+        long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = this.readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0)
+                    return value;
+            }
+            throw new IOException("Corrupted snapshot");
+        }
+
+        long readSigned() throws IOException {
+            long value = this.readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        /**
+         * Reads a count or a length, checked to fit an array.
+         */
+        int readCount() throws IOException {
+            long value = this.readVarLong();
+            if (value < 0 || value > Integer.MAX_VALUE)
+                throw new IOException("Corrupted snapshot");
+            return (int) value;
+        }
+
+        byte[] readBytes() throws IOException {
+            return this.readBytes(this.readCount());
+        }
+
+        private byte[] readBytes(int length) throws IOException {
+            byte[] bytes = new byte[length];
+            int read = 0;
+            while (read < bytes.length) {
+                this.require(Math.min(bytes.length - read, this.buffer.capacity()));
+                int chunk = Math.min(bytes.length - read, this.buffer.remaining());
+                this.buffer.get(bytes, read, chunk);
+                read += chunk;
+            }
+            return bytes;
+        }
+
+        String readString() throws IOException {
+            int length = this.readCount();
+            if (length > this.buffer.capacity())
+                return new String(this.readBytes(length), StandardCharsets.UTF_8);
+            this.require(length);
+            String value = new String(this.buffer.array(), this.buffer.position(), length, StandardCharsets.UTF_8);
+            this.buffer.position(this.buffer.position() + length);
+            return value;
+        }
+
+        String readNullableString() throws IOException {
+            return this.readByte() == 0 ? null : this.readString();
+        }
+
+        boolean[] readBits(int count) throws IOException {
+            boolean[] bits = new boolean[count];
+            for (int i = 0; i < count; i += 8) {
+                int packed = this.readByte();
+                for (int j = 0; j < 8 && i + j < count; j++)
+                    bits[i + j] = (packed & (1 << j)) != 0;
+            }
+            return bits;
+        }
+    }
+}
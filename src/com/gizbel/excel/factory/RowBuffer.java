@@ -0,0 +1,223 @@
+package com.gizbel.excel.factory;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.time.FastDateFormat;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.NumberToTextConverter;
+
+/**
+ * Lightweight holder for the typed cell values of a single row.<br>
+ * Numbers, dates and booleans are kept as primitives so that they reach the
+ * bean without being formatted to text and parsed back. The buffer is reset
+ * and reused for every row, so it must not be retained once the row has been
+ * bound.
+ */
+final class RowBuffer {
+
+    static final byte BLANK = 0;
+    static final byte NUMERIC = 1;
+    /** Numeric cell with a date format, the number is the excel serial date. **/
+    static final byte DATE = 2;
+    static final byte BOOLEAN = 3;
+    static final byte STRING = 4;
+    static final byte ERROR = 5;
+    /** Cell outside the projected columns holding a value which was not decoded. **/
+    static final byte SKIPPED = 6;
+
+    /** Text used for date cells bound to string fields, same as before typed decoding. **/
+    static final FastDateFormat DATE_TEXT = FastDateFormat.getInstance("dd-MM-yyyy");
+
+    /** Zero based index of the row in the sheet. **/
+    private int rowNum;
+
+    /** One more than the highest column index seen in the row, same as Row.getLastCellNum(). **/
+    private int lastCellNum;
+
+    /** Whether serial dates count from 1904 instead of 1900. **/
+    private boolean date1904;
+
+    private byte[] kinds = new byte[16];
+
+    /** Numeric, date and boolean (1 or 0) values indexed by the column index. **/
+    private double[] numbers = new double[16];
+
+    /** String and error values indexed by the column index. **/
+    private String[] texts = new String[16];
+
+    /**
+     * Clears the buffer so it can hold the cells of the given row.
+     * @param rowNum
+     */
+    void reset(int rowNum) {
+        Arrays.fill(this.kinds, 0, this.lastCellNum, BLANK);
+        Arrays.fill(this.texts, 0, this.lastCellNum, null);
+        this.rowNum = rowNum;
+        this.lastCellNum = 0;
+    }
+
+    /**
+     * Makes the buffer a copy of the other one, so that the row can be handed
+     * to another thread while the other buffer is reused.
+     * @param other
+     */
+    void copyFrom(RowBuffer other) {
+        this.reset(other.rowNum);
+        int length = other.lastCellNum;
+        if (length > this.kinds.length) {
+            this.kinds = new byte[other.kinds.length];
+            this.numbers = new double[other.kinds.length];
+            this.texts = new String[other.kinds.length];
+        }
+        System.arraycopy(other.kinds, 0, this.kinds, 0, length);
+        System.arraycopy(other.numbers, 0, this.numbers, 0, length);
+        System.arraycopy(other.texts, 0, this.texts, 0, length);
+        this.lastCellNum = length;
+        this.date1904 = other.date1904;
+    }
+
+    void setBlank(int columnIndex) {
+        this.put(columnIndex, BLANK);
+    }
+
+    /**
+     * Records a non blank cell whose value is not needed.
+     * @param columnIndex
+     */
+    void setSkipped(int columnIndex) {
+        this.put(columnIndex, SKIPPED);
+    }
+
+    void setNumber(int columnIndex, double value) {
+        this.put(columnIndex, NUMERIC);
+        this.numbers[columnIndex] = value;
+    }
+
+    void setDate(int columnIndex, double excelDate) {
+        this.put(columnIndex, DATE);
+        this.numbers[columnIndex] = excelDate;
+    }
+
+    void setBoolean(int columnIndex, boolean value) {
+        this.put(columnIndex, BOOLEAN);
+        this.numbers[columnIndex] = value ? 1 : 0;
+    }
+
+    void setString(int columnIndex, String value) {
+        this.put(columnIndex, value == null ? BLANK : STRING);
+        this.texts[columnIndex] = value;
+    }
+
+    void setError(int columnIndex, String value) {
+        this.put(columnIndex, ERROR);
+        this.texts[columnIndex] = value;
+    }
+
+    private void put(int columnIndex, byte kind) {
+        if (columnIndex >= this.kinds.length) {
+            int size = Math.max(columnIndex + 1, this.kinds.length * 2);
+            this.kinds = Arrays.copyOf(this.kinds, size);
+            this.numbers = Arrays.copyOf(this.numbers, size);
+            this.texts = Arrays.copyOf(this.texts, size);
+        }
+        this.kinds[columnIndex] = kind;
+        if (columnIndex >= this.lastCellNum)
+            this.lastCellNum = columnIndex + 1;
+    }
+
+    byte getKind(int columnIndex) {
+        return columnIndex < this.lastCellNum ? this.kinds[columnIndex] : BLANK;
+    }
+
+    double getNumber(int columnIndex) {
+        return this.numbers[columnIndex];
+    }
+
+    boolean getBoolean(int columnIndex) {
+        return this.numbers[columnIndex] != 0;
+    }
+
+    /**
+     * Returns the java date of a date cell.
+     * @param columnIndex
+     * @return
+     */
+    Date getDate(int columnIndex) {
+        return DateUtil.getJavaDate(this.numbers[columnIndex], this.date1904);
+    }
+
+    /**
+     * Returns the text of the cell, numbers are rendered the way excel shows
+     * them in the General format, dates as dd-MM-yyyy.
+     * @param columnIndex
+     * @return null for blank cells
+     */
+    String getText(int columnIndex) {
+        switch (this.getKind(columnIndex)) {
+        case NUMERIC:
+            return NumberToTextConverter.toText(this.numbers[columnIndex]);
+        case DATE:
+            return DATE_TEXT.format(this.getDate(columnIndex));
+        case BOOLEAN:
+            return this.numbers[columnIndex] != 0 ? "TRUE" : "FALSE";
+        case STRING:
+        case ERROR:
+            return this.texts[columnIndex];
+        default:
+            return null;
+        }
+    }
+
+    int getRowNum() {
+        return rowNum;
+    }
+
+    int getLastCellNum() {
+        return lastCellNum;
+    }
+
+    boolean isDate1904() {
+        return date1904;
+    }
+
+    void setDate1904(boolean date1904) {
+        this.date1904 = date1904;
+    }
+
+    /**
+     * Number of cells whose value was decoded, blank and skipped cells left
+     * out.
+     * @return
+     */
+    int countDecoded() {
+        int count = 0;
+        for (int i = 0; i < this.lastCellNum; i++) {
+            if (this.kinds[i] != BLANK && this.kinds[i] != SKIPPED)
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * A row is empty when all its cells are blank or hold blank text.
+     * @return
+     */
+    boolean isEmpty() {
+        for (int i = 0; i < this.lastCellNum; i++) {
+            switch (this.kinds[i]) {
+            case BLANK:
+                break;
+            case STRING:
+            case ERROR:
+                if (StringUtils.isNotBlank(this.texts[i]))
+                    return false;
+                break;
+            default:
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,15 @@
+package com.gizbel.excel.factory;
+
+/**
+ * Receives the rows produced by the event based readers, one at a time.
+ */
+interface RowCallback {
+
+    /**
+     * Called once for every row present in the sheet.
+     * @param row reused buffer, only valid during the call
+     * @return false to stop reading the rest of the sheet
+     * @throws Exception
+     */
+    boolean onRow(RowBuffer row) throws Exception;
+}
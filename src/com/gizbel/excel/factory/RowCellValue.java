@@ -0,0 +1,98 @@
+package com.gizbel.excel.factory;
+
+import java.time.LocalDateTime;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * CellValue reading one cell of a RowBuffer, moved from cell to cell while
+ * the filters of a row are tested.
+ */
+final class RowCellValue implements CellValue {
+
+    private RowBuffer row;
+
+    private int columnIndex;
+
+    /**
+     * Points the value to the cell of the row, missing columns are blank.
+     * @param row
+     * @param columnIndex -1 for a column not found in the sheet
+     */
+    void moveTo(RowBuffer row, int columnIndex) {
+        this.row = row;
+        this.columnIndex = columnIndex;
+    }
+
+    private byte kind() {
+        return this.columnIndex < 0 ? RowBuffer.BLANK : this.row.getKind(this.columnIndex);
+    }
+
+    @Override
+    public int getRowNum() {
+        return this.row.getRowNum();
+    }
+
+    @Override
+    public boolean isBlank() {
+        switch (this.kind()) {
+        case RowBuffer.BLANK:
+            return true;
+        case RowBuffer.STRING:
+        case RowBuffer.ERROR:
+            return StringUtils.isBlank(this.row.getText(this.columnIndex));
+        default:
+            return false;
+        }
+    }
+
+    @Override
+    public boolean isNumber() {
+        byte kind = this.kind();
+        return kind == RowBuffer.NUMERIC || kind == RowBuffer.DATE;
+    }
+
+    @Override
+    public boolean isDate() {
+        return this.kind() == RowBuffer.DATE;
+    }
+
+    @Override
+    public boolean isBoolean() {
+        return this.kind() == RowBuffer.BOOLEAN;
+    }
+
+    @Override
+    public boolean isText() {
+        return this.kind() == RowBuffer.STRING;
+    }
+
+    @Override
+    public double getNumber() {
+        if (!this.isNumber())
+            throw new IllegalStateException("Cell is not numeric");
+        return this.row.getNumber(this.columnIndex);
+    }
+
+    @Override
+    public boolean getBoolean() {
+        if (!this.isBoolean())
+            throw new IllegalStateException("Cell is not a boolean");
+        return this.row.getBoolean(this.columnIndex);
+    }
+
+    @Override
+    public LocalDateTime getDateTime() {
+        return ExcelDates.toLocalDateTime(this.getNumber(), this.row.isDate1904());
+    }
+
+    @Override
+    public String getText() {
+        return this.columnIndex < 0 ? null : this.row.getText(this.columnIndex);
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(this.getText());
+    }
+}
@@ -0,0 +1,61 @@
+package com.gizbel.excel.factory;
+
+/**
+ * Rows and columns of a sheet the readers have to decode, everything else is
+ * skipped before any conversion.<br>
+ * Rows outside the row range are not handed to the callback and the reading
+ * stops after the last row of the range. Cells outside the projected columns
+ * are only checked for being blank, so that empty rows are found the same
+ * way, their values are never parsed or looked up.
+ */
+final class RowFilter {
+
+    /** Decodes every row and every cell. **/
+    static final RowFilter ALL = new RowFilter(0, Integer.MAX_VALUE, false);
+
+    /** First and last row numbers of the range, both included. **/
+    private final int firstRow;
+    private final int lastRow;
+
+    /** Whether the header row is read whatever the range. **/
+    private final boolean keepHeader;
+
+    /** Whether each column is decoded, null for all the columns. **/
+    private boolean[] columns;
+
+    /**
+     * @param firstRow zero based
+     * @param lastRow zero based, included
+     * @param keepHeader whether the first row is read even before firstRow
+     */
+    RowFilter(int firstRow, int lastRow, boolean keepHeader) {
+        this.firstRow = firstRow;
+        this.lastRow = lastRow;
+        this.keepHeader = keepHeader;
+    }
+
+    boolean acceptsRow(int rowNum) {
+        return rowNum >= this.firstRow && rowNum <= this.lastRow || rowNum == 0 && this.keepHeader;
+    }
+
+    /**
+     * Whether the row and all the rows after it are beyond the range.
+     * @param rowNum
+     * @return
+     */
+    boolean isAfterRange(int rowNum) {
+        return rowNum > this.lastRow;
+    }
+
+    boolean acceptsColumn(int columnIndex) {
+        return this.columns == null || columnIndex < this.columns.length && this.columns[columnIndex];
+    }
+
+    /**
+     * Restricts the decoding to the given columns.
+     * @param columns whether each column is decoded, null for all
+     */
+    void setColumns(boolean[] columns) {
+        this.columns = columns;
+    }
+}
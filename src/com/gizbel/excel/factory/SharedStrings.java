@@ -0,0 +1,269 @@
+package com.gizbel.excel.factory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.BitSet;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+
+import org.apache.poi.hssf.record.RecordInputStream;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.record.common.UnicodeString;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Shared strings table of an xlsx package, read once with SAX before the
+ * sheets, or of an xls workbook, read from its SST record.<br>
+ * Small tables are kept on the heap. Tables whose xml is larger than the
+ * threshold are spilled to a memory mapped temp file, read back through a
+ * bounded LRU cache, so huge tables parse within a fixed heap budget.<br>
+ * Entries are read the same way as POI's ReadOnlySharedStringsTable, the
+ * text of all the t elements of an si element.
+ */
+abstract class SharedStrings implements Closeable {
+
+    /** Size of the shared strings xml above which the table goes to disk. **/
+    static final long DEFAULT_DISK_THRESHOLD = 64L * 1024 * 1024;
+
+    /** Number of strings of a disk backed table cached on the heap. **/
+    static final int DEFAULT_CACHE_SIZE = 8192;
+
+    /** Entries holding blank text, known without reading them back. **/
+    private final BitSet blanks = new BitSet();
+
+    private int size;
+
+    /**
+     * Returns the string at the given index of the table.
+     * @param index
+     * @return
+     */
+    abstract String getEntryAt(int index);
+
+    /**
+     * Whether the entry at the given index is blank text, checked without
+     * decoding the entry.
+     * @param index
+     * @return
+     */
+    boolean isBlank(int index) {
+        return this.blanks.get(index);
+    }
+
+    /**
+     * Appends the next string while the table is read.
+     * @param value
+     * @throws IOException
+     */
+    abstract void add(String value) throws IOException;
+
+    /**
+     * Number of strings in the table.
+     * @return
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Adds the next string, noting whether it is blank.
+     * @param value
+     * @throws IOException
+     */
+    void append(String value) throws IOException {
+        if (StringUtils.isBlank(value))
+            this.blanks.set(this.size);
+        this.size++;
+        this.add(value);
+    }
+
+    /**
+     * Called once all the strings are added.
+     * @throws IOException
+     */
+    void finish() throws IOException {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Reads the shared strings table of the package.
+     *
+     * @param pkg
+     * @param diskThreshold size of the xml in bytes above which the strings are
+     *            kept in a temp file
+     * @param cacheSize number of strings cached when on disk
+     * @return an empty table if the package has none
+     * @throws IOException
+     * @throws SAXException
+     */
+    static SharedStrings read(OPCPackage pkg, long diskThreshold, int cacheSize) throws IOException, SAXException {
+        List<PackagePart> parts = pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType());
+        if (parts.isEmpty())
+            return new HeapSharedStrings();
+
+        PackagePart part = parts.get(0);
+        // Size of the uncompressed xml, -1 if the zip entry does not tell
+        long size = part.getSize();
+        SharedStrings strings = size > diskThreshold ? new MappedSharedStrings(cacheSize) : new HeapSharedStrings();
+        InputStream in = part.getInputStream();
+        try {
+            XMLReader xmlReader = XlsxStreamReader.newXMLReader();
+            xmlReader.setContentHandler(new Handler(strings));
+            xmlReader.parse(new InputSource(in));
+            strings.finish();
+            return strings;
+        } catch (IOException | SAXException | RuntimeException e) {
+            strings.close();
+            throw e;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads the strings of the SST record of an xls workbook stream, the
+     * stream being on the record. The strings spanning continue records and
+     * a table shorter than announced are handled like POI's SSTDeserializer.
+     *
+     * @param in
+     * @param diskThreshold size of the text in bytes, two per char, above
+     *            which the strings are moved to a temp file
+     * @param cacheSize number of strings cached when on disk
+     * @return
+     * @throws IOException
+     */
+    static SharedStrings read(RecordInputStream in, long diskThreshold, int cacheSize) throws IOException {
+        // Number of string cells of the workbook, then of strings in the table
+        in.readInt();
+        int count = in.readInt();
+        SharedStrings strings = new HeapSharedStrings();
+        try {
+            for (int i = 0; i < count; i++) {
+                String value;
+                if (in.available() == 0 && !in.hasNextRecord())
+                    value = "";
+                else
+                    value = new UnicodeString(in).getString();
+                strings = appendSpilling(strings, value, diskThreshold, cacheSize);
+            }
+            strings.finish();
+            return strings;
+        } catch (IOException | RuntimeException e) {
+            strings.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Copies the strings of an SST record already read by POI.
+     *
+     * @param sst
+     * @param diskThreshold size of the text in bytes, two per char, above
+     *            which the strings are moved to a temp file
+     * @param cacheSize number of strings cached when on disk
+     * @return
+     * @throws IOException
+     */
+    static SharedStrings copyOf(SSTRecord sst, long diskThreshold, int cacheSize) throws IOException {
+        SharedStrings strings = new HeapSharedStrings();
+        try {
+            for (int i = 0; i < sst.getNumUniqueStrings(); i++)
+                strings = appendSpilling(strings, sst.getString(i).getString(), diskThreshold, cacheSize);
+            strings.finish();
+            return strings;
+        } catch (IOException | RuntimeException e) {
+            strings.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Appends a string to a table whose size is only known once read, the
+     * table starts on the heap and is moved to a temp file as soon as its text
+     * grows above the threshold.
+     * @return the table to append the next strings to
+     * @throws IOException
+     */
+    private static SharedStrings appendSpilling(SharedStrings strings, String value, long diskThreshold,
+            int cacheSize) throws IOException {
+        strings.append(value);
+        if (!(strings instanceof HeapSharedStrings) || ((HeapSharedStrings) strings).getTextSize() <= diskThreshold)
+            return strings;
+        SharedStrings mapped = new MappedSharedStrings(cacheSize);
+        try {
+            for (int i = 0; i < strings.size; i++)
+                mapped.append(strings.getEntryAt(i));
+        } catch (IOException | RuntimeException e) {
+            mapped.close();
+            throw e;
+        }
+        return mapped;
+    }
+
+    /**
+     * Collects the text of the t elements of every si element.
+     */
+    private static final class Handler extends DefaultHandler {
+
+        private final SharedStrings strings;
+
+        private final StringBuilder text = new StringBuilder();
+
+        private boolean collecting;
+
+        Handler(SharedStrings strings) {
+            this.strings = strings;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes)
+                throws SAXException {
+            switch (localName) {
+            case "si":
+                this.text.setLength(0);
+                break;
+            case "t":
+                this.collecting = true;
+                break;
+            default:
+                break;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            switch (localName) {
+            case "si":
+                try {
+                    this.strings.append(this.text.toString());
+                } catch (IOException e) {
+                    throw new SAXException(e);
+                }
+                break;
+            case "t":
+                this.collecting = false;
+                break;
+            default:
+                break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            if (this.collecting)
+                this.text.append(ch, start, length);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.gizbel.excel.factory;
+
+import java.util.List;
+
+/**
+ * Beans extracted from one sheet by the MultiSheetParser.
+ */
+public class SheetResult {
+
+    private final int sheetIndex;
+
+    private final String sheetName;
+
+    private final Class<?> beanClass;
+
+    private final List<Object> beans;
+
+    /** Rows read from the sheet, 0 unless the metrics were collected. **/
+    private final long rowCount;
+
+    SheetResult(int sheetIndex, String sheetName, Class<?> beanClass, List<Object> beans, long rowCount) {
+        this.sheetIndex = sheetIndex;
+        this.sheetName = sheetName;
+        this.beanClass = beanClass;
+        this.beans = beans;
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * Zero based index of the sheet in workbook order.
+     * @return
+     */
+    public int getSheetIndex() {
+        return sheetIndex;
+    }
+
+    public String getSheetName() {
+        return sheetName;
+    }
+
+    /**
+     * ExcelBean class of the parser the sheet was extracted with.
+     * @return
+     */
+    public Class<?> getBeanClass() {
+        return beanClass;
+    }
+
+    public List<Object> getBeans() {
+        return beans;
+    }
+
+    long getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public String toString() {
+        return "SheetResult [sheetIndex=" + sheetIndex + ", sheetName=" + sheetName + ", beanClass="
+                + beanClass.getName() + ", beans=" + beans.size() + "]";
+    }
+}
@@ -0,0 +1,85 @@
+package com.gizbel.excel.factory;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Selects the sheets of a workbook extracted by the MultiSheetParser, by
+ * zero based index, by name or by a regular expression on the name.
+ *
+ * @see MultiSheetParser#addSheets(SheetSelector, Parser)
+ */
+public abstract class SheetSelector {
+
+    /**
+     * Whether the sheet is selected.
+     * @param sheetIndex zero based index of the sheet in workbook order
+     * @param sheetName
+     * @return
+     */
+    public abstract boolean matches(int sheetIndex, String sheetName);
+
+    /**
+     * Selects every sheet of the workbook.
+     * @return
+     */
+    public static SheetSelector all() {
+        return new SheetSelector() {
+            @Override
+            public boolean matches(int sheetIndex, String sheetName) {
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Selects the sheets at the given zero based indexes.
+     * @param sheetIndexes
+     * @return
+     */
+    public static SheetSelector index(int... sheetIndexes) {
+        final Set<Integer> indexes = new HashSet<Integer>();
+        for (int sheetIndex : sheetIndexes)
+            indexes.add(sheetIndex);
+        return new SheetSelector() {
+            @Override
+            public boolean matches(int sheetIndex, String sheetName) {
+                return indexes.contains(sheetIndex);
+            }
+        };
+    }
+
+    /**
+     * Selects the sheets with the given names, case sensitive.
+     * @param sheetNames
+     * @return
+     */
+    public static SheetSelector name(String... sheetNames) {
+        final Set<String> names = new HashSet<String>(Arrays.asList(sheetNames));
+        return new SheetSelector() {
+            @Override
+            public boolean matches(int sheetIndex, String sheetName) {
+                return names.contains(sheetName);
+            }
+        };
+    }
+
+    /**
+     * Selects the sheets whose complete name matches the regular expression,
+     * e.g. "Invoices-\\d{2}".
+     * @param regex
+     * @return
+     * @throws java.util.regex.PatternSyntaxException if the expression is invalid
+     */
+    public static SheetSelector pattern(String regex) {
+        final Pattern pattern = Pattern.compile(regex);
+        return new SheetSelector() {
+            @Override
+            public boolean matches(int sheetIndex, String sheetName) {
+                return pattern.matcher(sheetName).matches();
+            }
+        };
+    }
+}
@@ -0,0 +1,88 @@
+package com.gizbel.excel.factory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+
+/**
+ * Event based reader of the sheets of a workbook file, the rows are decoded
+ * into a RowBuffer while the file is read and nothing but the current row is
+ * kept in memory.<br>
+ * Once opened, sheets can be read concurrently from several threads.
+ */
+abstract class SheetStreamReader implements Closeable {
+
+    /**
+     * Opens the content with the reader of its format, xlsx packages through
+     * the SAX event API, xls files through the HSSF record events and
+     * delimited text through a channel, with the delimiter of its extension in
+     * utf-8.
+     *
+     * @param source
+     * @param format format of the file, XLSX, XLS or CSV
+     * @param sharedStringsThreshold size of the shared strings above which
+     *            they are kept in a memory mapped temp file
+     * @param sharedStringsCacheSize number of strings cached when on disk
+     * @return
+     * @throws InvalidFormatException
+     * @throws IOException
+     */
+    static SheetStreamReader open(WorkbookSource source, FileFormat format, long sharedStringsThreshold,
+            int sharedStringsCacheSize) throws InvalidFormatException, IOException {
+        switch (format) {
+        case XLSX:
+            return new XlsxStreamReader(source, sharedStringsThreshold, sharedStringsCacheSize);
+        case XLS:
+            return new XlsStreamReader(source, sharedStringsThreshold, sharedStringsCacheSize);
+        case CSV:
+            return new DelimitedStreamReader(source, DelimitedStreamReader.defaultDelimiter(source),
+                    StandardCharsets.UTF_8);
+        default:
+            throw new InvalidFormatException("No streaming reader for " + source);
+        }
+    }
+
+    /**
+     * Whether the format can be read by a SheetStreamReader.
+     * @param format
+     * @return
+     */
+    static boolean isStreamable(FileFormat format) {
+        return format != FileFormat.UNKNOWN;
+    }
+
+    /**
+     * Reads the first sheet of the workbook and hands every row to the callback.
+     * Returns normally when the callback stops the processing.
+     *
+     * @param rowFilter rows and columns to decode
+     * @param callback
+     * @throws Exception thrown by the callback, as is
+     */
+    void readFirstSheet(RowFilter rowFilter, RowCallback callback) throws Exception {
+        this.readSheet(0, rowFilter, callback);
+    }
+
+    /**
+     * Reads the sheet at the given index and hands every row to the callback.
+     * Returns normally when the callback stops the processing.
+     *
+     * @param sheetIndex zero based index of the sheet in workbook order
+     * @param rowFilter rows and columns to decode
+     * @param callback
+     * @throws Exception thrown by the callback, as is
+     */
+    abstract void readSheet(int sheetIndex, RowFilter rowFilter, RowCallback callback) throws Exception;
+
+    abstract int getSheetCount();
+
+    abstract String getSheetName(int sheetIndex);
+
+    /**
+     * Releases the file, without saving anything.
+     */
+    @Override
+    public abstract void close();
+}
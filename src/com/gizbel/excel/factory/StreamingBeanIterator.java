@@ -0,0 +1,139 @@
+package com.gizbel.excel.factory;
+
+import java.io.IOException;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Iterator over a sheet read through an event based reader.<br>
+ * The reader pushes the rows, so the sheet is read by a background thread which
+ * hands the bound beans over through a small bounded queue. The reader
+ * blocks as soon as it is a few rows ahead of the consumer and stops as soon
+ * as the iterator is closed, hence the memory used stays flat and an early
+ * close does not read the rest of the file.
+ */
+class StreamingBeanIterator<T> implements CloseableIterator<T> {
+
+    /** Number of beans the reader thread may bind ahead of the consumer. **/
+    private static final int QUEUE_CAPACITY = 64;
+
+    /** Put in the queue once the reader thread is done. **/
+    private static final Object END = new Object();
+
+    /** Carries the failure of the reader thread to the consumer. **/
+    private static final class Failure {
+        private final Exception exception;
+
+        Failure(Exception exception) {
+            this.exception = exception;
+        }
+    }
+
+    private final BlockingQueue<Object> queue = new ArrayBlockingQueue<Object>(QUEUE_CAPACITY);
+
+    private final Thread readerThread;
+
+    private volatile boolean closed;
+
+    private Object next;
+
+    private boolean finished;
+
+    StreamingBeanIterator(final Parser<T> parser, final ParseContext context, final SheetStreamReader reader) {
+        this.readerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Object last = END;
+                try {
+                    reader.readFirstSheet(context.getRowFilter(), new RowCallback() {
+                        @Override
+                        public boolean onRow(RowBuffer row) throws Exception {
+                            if (StreamingBeanIterator.this.closed)
+                                return false;
+                            Object beanObj = parser.processRow(row, context);
+                            if (beanObj == Parser.END_OF_SHEET)
+                                return false;
+                            return beanObj == null || StreamingBeanIterator.this.offer(beanObj);
+                        }
+                    });
+                } catch (Exception e) {
+                    last = new Failure(e);
+                } finally {
+                    reader.close();
+                    StreamingBeanIterator.this.offer(last);
+                }
+            }
+        }, "excel-extractor-reader");
+        this.readerThread.setDaemon(true);
+        this.readerThread.start();
+    }
+
+    /**
+     * Waits for room in the queue unless the iterator gets closed.
+     * @param item
+     * @return false if the iterator has been closed
+     */
+    private boolean offer(Object item) {
+        try {
+            while (!this.closed) {
+                if (this.queue.offer(item, 100, TimeUnit.MILLISECONDS))
+                    return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (this.next == null && !this.finished) {
+            Object item;
+            try {
+                item = this.queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ExtractionException(e);
+            }
+            if (item == END) {
+                this.finished = true;
+            } else if (item instanceof Failure) {
+                this.finished = true;
+                throw new ExtractionException(((Failure) item).exception);
+            } else
+                this.next = item;
+        }
+        return this.next != null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+        if (!this.hasNext())
+            throw new NoSuchElementException();
+        T beanObj = (T) this.next;
+        this.next = null;
+        return beanObj;
+    }
+
+    /**
+     * Stops the reader thread and waits until it has released the package.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed)
+            return;
+        this.closed = true;
+        this.finished = true;
+        this.next = null;
+        this.queue.clear();
+        try {
+            this.readerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+}
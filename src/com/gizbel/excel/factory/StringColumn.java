@@ -0,0 +1,105 @@
+package com.gizbel.excel.factory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column of the fields with the "string" dataType, dictionary encoded: each
+ * distinct value is kept once and the rows hold its code in an int array.<br>
+ * Columns with few distinct values, like codes, currencies or countries,
+ * take about 4 bytes per row whatever the length of the strings.
+ */
+public final class StringColumn extends Column {
+
+    private int[] codes = new int[0];
+
+    private final List<String> dictionary = new ArrayList<String>();
+
+    /** Code of each value, only needed while the sheet is read. **/
+    private Map<String, Integer> lookup = new HashMap<String, Integer>();
+
+    StringColumn(String name) {
+        super(name);
+    }
+
+    /**
+     * Returns the value of the row.
+     * @param row
+     * @return null for the null rows
+     */
+    public String getString(int row) {
+        int code = this.getCode(row);
+        return code < 0 ? null : this.dictionary.get(code);
+    }
+
+    /**
+     * Returns the index of the value of the row in the dictionary, equal
+     * values have the same code.
+     * @param row
+     * @return -1 for the null rows
+     */
+    public int getCode(int row) {
+        this.checkIndex(row);
+        return this.isNull(row) ? -1 : this.codes[row];
+    }
+
+    /**
+     * Returns the codes of all the rows, 0 for the null rows, <b>the array
+     * must not be modified</b>.
+     * @return
+     */
+    public int[] getCodes() {
+        return codes;
+    }
+
+    /**
+     * Distinct values of the column in order of first appearance, indexed by
+     * code.
+     * @return
+     */
+    public List<String> getDictionary() {
+        return Collections.unmodifiableList(this.dictionary);
+    }
+
+    @Override
+    public Class<?> getValueClass() {
+        return String.class;
+    }
+
+    @Override
+    Object valueAt(int row) {
+        return this.dictionary.get(this.codes[row]);
+    }
+
+    @Override
+    void setObject(Object value) {
+        if (!(value instanceof String)) {
+            super.setObject(value);
+            return;
+        }
+        Integer code = this.lookup.get(value);
+        if (code == null) {
+            code = Integer.valueOf(this.dictionary.size());
+            this.dictionary.add((String) value);
+            this.lookup.put((String) value, code);
+        }
+        this.codes[this.lastRow()] = code.intValue();
+    }
+
+    @Override
+    void ensureCapacity(int capacity) {
+        if (capacity > this.codes.length)
+            this.codes = Arrays.copyOf(this.codes, grow(this.codes.length, capacity));
+    }
+
+    @Override
+    void trim() {
+        this.codes = Arrays.copyOf(this.codes, this.size());
+        ((ArrayList<String>) this.dictionary).trimToSize();
+        this.lookup = null;
+    }
+}
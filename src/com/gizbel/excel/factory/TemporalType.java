@@ -0,0 +1,172 @@
+package com.gizbel.excel.factory;
+
+import java.sql.Date;
+import java.text.Format;
+import java.text.ParsePosition;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+
+/**
+ * Java type produced by a date column, resolved once from the field type.<br>
+ * Serial dates are converted with ExcelDates, texts are parsed with the
+ * formatter of the column pattern. java.sql.Date keeps the day precision dates
+ * have always been bound with, java.time types keep the time of the day.
+ * LocalDateTime and Instant carry no zone in the cell, the default zone of
+ * the JVM is used for Instant, same as java.util.Date.
+ */
+enum TemporalType {
+
+    SQL_DATE(Date.class) {
+        @Override
+        Object fromSerial(double excelDate, boolean date1904) {
+            return Date.valueOf(ExcelDates.toLocalDate(excelDate, date1904));
+        }
+
+        @Override
+        Object fromParsed(TemporalAccessor parsed) {
+            return Date.valueOf(LocalDate.from(parsed));
+        }
+    },
+    LOCAL_DATE(LocalDate.class) {
+        @Override
+        Object fromSerial(double excelDate, boolean date1904) {
+            return ExcelDates.toLocalDate(excelDate, date1904);
+        }
+
+        @Override
+        Object fromParsed(TemporalAccessor parsed) {
+            return LocalDate.from(parsed);
+        }
+    },
+    LOCAL_DATE_TIME(LocalDateTime.class) {
+        @Override
+        Object fromSerial(double excelDate, boolean date1904) {
+            return ExcelDates.toLocalDateTime(excelDate, date1904);
+        }
+
+        @Override
+        Object fromParsed(TemporalAccessor parsed) {
+            return toLocalDateTime(parsed);
+        }
+    },
+    INSTANT(Instant.class) {
+        @Override
+        Object fromSerial(double excelDate, boolean date1904) {
+            return ExcelDates.toLocalDateTime(excelDate, date1904).atZone(ZoneId.systemDefault()).toInstant();
+        }
+
+        @Override
+        Object fromParsed(TemporalAccessor parsed) {
+            if (parsed.isSupported(ChronoField.INSTANT_SECONDS))
+                return Instant.from(parsed);
+            return toLocalDateTime(parsed).atZone(ZoneId.systemDefault()).toInstant();
+        }
+    };
+
+    /** Class of the values produced by the type. **/
+    private final Class<?> valueClass;
+
+    private TemporalType(Class<?> valueClass) {
+        this.valueClass = valueClass;
+    }
+
+    Class<?> getValueClass() {
+        return valueClass;
+    }
+
+    /**
+     * Converts an excel serial date.
+     * @param excelDate
+     * @param date1904
+     * @return
+     */
+    abstract Object fromSerial(double excelDate, boolean date1904);
+
+    /**
+     * Converts the fields parsed from a date text.
+     * @param parsed
+     * @return
+     * @throws DateTimeException if a field the type needs is missing
+     */
+    abstract Object fromParsed(TemporalAccessor parsed);
+
+    /**
+     * Parses a date text.
+     * @param value
+     * @param formatter
+     * @return
+     * @throws DateTimeException if the text does not match the pattern
+     */
+    Object fromText(String value, DateTimeFormatter formatter) {
+        return this.fromParsed(formatter.parse(value));
+    }
+
+    Object parse(String value, DateTimeFormatter formatter) {
+        return this.parse(value, formatter.toFormat());
+    }
+
+    /**
+     * Parses the text of a date cell, dirty values give null like they
+     * always did. The text goes through the java.text.Format view of the
+     * formatter, which tells a mismatch by its return value, so no exception
+     * is built per dirty cell.
+     * @param value
+     * @param format Format view of the formatter of the column
+     * @return null if the text does not match the pattern
+     */
+    Object parse(String value, Format format) {
+        if (value == null || value.isEmpty())
+            return null;
+        ParsePosition position = new ParsePosition(0);
+        Object parsed = format.parseObject(value, position);
+        if (parsed == null || position.getIndex() != value.length())
+            return null;
+        try {
+            return this.fromParsed((TemporalAccessor) parsed);
+        } catch (DateTimeException e) {
+            // Missing fields the type needs, a pattern issue rather than a dirty cell
+            return null;
+        }
+    }
+
+    /**
+     * Resolves the type produced for the given field type, java.util.Date and
+     * any other type get java.sql.Date.
+     * @param fieldType
+     * @return
+     */
+    static TemporalType of(Class<?> fieldType) {
+        for (TemporalType type : values()) {
+            if (type != SQL_DATE && type.valueClass == fieldType)
+                return type;
+        }
+        return SQL_DATE;
+    }
+
+    /**
+     * Whether the field type is one of the java.time types that are bound as
+     * dates without the need of a "date" dataType.
+     * @param fieldType
+     * @return
+     */
+    static boolean isJavaTime(Class<?> fieldType) {
+        return of(fieldType) != SQL_DATE;
+    }
+
+    /**
+     * Date only patterns give the start of the day.
+     */
+    private static LocalDateTime toLocalDateTime(TemporalAccessor parsed) {
+        LocalDate date = LocalDate.from(parsed);
+        if (parsed.isSupported(ChronoField.NANO_OF_DAY))
+            return LocalDateTime.of(date, LocalTime.from(parsed));
+        return date.atStartOfDay();
+    }
+}
@@ -0,0 +1,87 @@
+package com.gizbel.excel.factory;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+
+/**
+ * Binds the rows of a loaded workbook one at a time, as they are requested.
+ */
+class WorkbookBeanIterator<T> implements CloseableIterator<T> {
+
+    private final Parser<T> parser;
+
+    private final ParseContext context;
+
+    private final Workbook workbook;
+
+    private final Iterator<Row> rows;
+
+    private final WorkbookRowReader reader;
+
+    private final RowBuffer buffer = new RowBuffer();
+
+    /** Next bean to return, null when it is not fetched yet. **/
+    private T next;
+
+    private boolean finished;
+
+    WorkbookBeanIterator(Parser<T> parser, ParseContext context, Workbook workbook, Sheet sheet) {
+        this.parser = parser;
+        this.context = context;
+        this.workbook = workbook;
+        this.rows = sheet.iterator();
+        this.reader = new WorkbookRowReader(workbook);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean hasNext() {
+        while (this.next == null && !this.finished) {
+            if (!this.rows.hasNext()) {
+                this.finished = true;
+                break;
+            }
+            Row row = this.rows.next();
+            RowFilter rowFilter = this.context.getRowFilter();
+            if (rowFilter.isAfterRange(row.getRowNum())) {
+                this.finished = true;
+                break;
+            }
+            if (!rowFilter.acceptsRow(row.getRowNum()))
+                continue;
+            Object beanObj;
+            try {
+                this.reader.read(row, this.buffer, rowFilter);
+                beanObj = this.parser.processRow(this.buffer, this.context);
+            } catch (Exception e) {
+                throw new ExtractionException(e);
+            }
+            if (beanObj == Parser.END_OF_SHEET)
+                this.finished = true;
+            else
+                this.next = (T) beanObj;
+        }
+        return this.next != null;
+    }
+
+    @Override
+    public T next() {
+        if (!this.hasNext())
+            throw new NoSuchElementException();
+        T beanObj = this.next;
+        this.next = null;
+        return beanObj;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.finished = true;
+        this.next = null;
+        Parser.closeWorkbook(this.workbook);
+    }
+}
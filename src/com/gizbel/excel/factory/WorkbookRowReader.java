@@ -0,0 +1,129 @@
+package com.gizbel.excel.factory;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTWorkbookPr;
+
+/**
+ * Decodes the cells of a loaded workbook into a RowBuffer without touching
+ * the workbook, numbers and dates are read as they are stored instead of
+ * converting the cells to string.<br>
+ * Whether a cell style is a date format is checked once per style.
+ */
+final class WorkbookRowReader {
+
+    private static final byte UNKNOWN = 0;
+    private static final byte NOT_DATE = 1;
+    private static final byte IS_DATE = 2;
+
+    /** Date system of the workbook, null until it is known. **/
+    private Boolean date1904;
+
+    /** Date format check result by cell style index. **/
+    private final byte[] dateStyles;
+
+    WorkbookRowReader(Workbook workbook) {
+        this.date1904 = isDate1904(workbook);
+        this.dateStyles = new byte[Math.max(workbook.getNumCellStyles(), 1)];
+    }
+
+    /**
+     * Loads the cells of the row into the buffer, cells of the columns not
+     * accepted by the filter are only checked for being blank.
+     * @param row
+     * @param buffer
+     * @param rowFilter
+     */
+    void read(Row row, RowBuffer buffer, RowFilter rowFilter) {
+        buffer.reset(row.getRowNum());
+        for (Cell cell : row) {
+            int columnIndex = cell.getColumnIndex();
+            int cellType = cell.getCellType();
+            if (cellType == Cell.CELL_TYPE_FORMULA)
+                cellType = cell.getCachedFormulaResultType();
+            if (!rowFilter.acceptsColumn(columnIndex)) {
+                skip(cell, cellType, columnIndex, buffer);
+                continue;
+            }
+
+            switch (cellType) {
+            case Cell.CELL_TYPE_NUMERIC:
+                double value = cell.getNumericCellValue();
+                if (this.isDateFormatted(cell) && DateUtil.isValidExcelDate(value)) {
+                    if (this.date1904 == null)
+                        this.date1904 = DateUtil.getJavaDate(value, false).getTime() != cell.getDateCellValue().getTime();
+                    buffer.setDate(columnIndex, value);
+                } else
+                    buffer.setNumber(columnIndex, value);
+                break;
+            case Cell.CELL_TYPE_STRING:
+                buffer.setString(columnIndex, cell.getStringCellValue());
+                break;
+            case Cell.CELL_TYPE_BOOLEAN:
+                buffer.setBoolean(columnIndex, cell.getBooleanCellValue());
+                break;
+            case Cell.CELL_TYPE_ERROR:
+                FormulaError error = FormulaError.forInt(cell.getErrorCellValue());
+                buffer.setError(columnIndex, error.getString());
+                break;
+            default:
+                buffer.setBlank(columnIndex);
+                break;
+            }
+        }
+        buffer.setDate1904(this.date1904 != null && this.date1904);
+    }
+
+    private static void skip(Cell cell, int cellType, int columnIndex, RowBuffer buffer) {
+        switch (cellType) {
+        case Cell.CELL_TYPE_BLANK:
+            buffer.setBlank(columnIndex);
+            break;
+        case Cell.CELL_TYPE_STRING:
+            if (StringUtils.isBlank(cell.getStringCellValue()))
+                buffer.setBlank(columnIndex);
+            else
+                buffer.setSkipped(columnIndex);
+            break;
+        default:
+            buffer.setSkipped(columnIndex);
+            break;
+        }
+    }
+
+    private boolean isDateFormatted(Cell cell) {
+        CellStyle style = cell.getCellStyle();
+        if (style == null)
+            return false;
+        int index = style.getIndex() & 0xffff;
+        if (index >= this.dateStyles.length)
+            return DateUtil.isADateFormat(style.getDataFormat(), style.getDataFormatString());
+        if (this.dateStyles[index] == UNKNOWN) {
+            boolean isDate = DateUtil.isADateFormat(style.getDataFormat(), style.getDataFormatString());
+            this.dateStyles[index] = isDate ? IS_DATE : NOT_DATE;
+        }
+        return this.dateStyles[index] == IS_DATE;
+    }
+
+    /**
+     * Reads the date system of the workbook, dates are stored as day counts
+     * from either 1900 or 1904.<br>
+     * Only xlsx workbooks expose it, for the others it is found out from the
+     * first date cell.
+     * @param workbook
+     * @return null if not known yet
+     */
+    private static Boolean isDate1904(Workbook workbook) {
+        if (workbook instanceof XSSFWorkbook) {
+            CTWorkbookPr workbookPr = ((XSSFWorkbook) workbook).getCTWorkbook().getWorkbookPr();
+            return workbookPr != null && workbookPr.getDate1904();
+        }
+        return null;
+    }
+}
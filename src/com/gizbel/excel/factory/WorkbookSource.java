@@ -0,0 +1,228 @@
+package com.gizbel.excel.factory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.poifs.filesystem.NPOIFSFileSystem;
+
+/**
+ * Content of a workbook to parse: a local file, or bytes already in memory
+ * such as an upload, parsed without being spooled to a temp file.<br>
+ * The content is only ever read: files are opened read only, xlsx packages
+ * with read access and xls files through a read only POIFS, and the bytes
+ * are read through a read only view of the buffer, which is neither copied
+ * nor moved. Delimited text files are memory mapped, their records are read
+ * from the page cache without read calls.
+ */
+abstract class WorkbookSource {
+
+    /**
+     * @param file
+     * @return
+     */
+    static WorkbookSource of(File file) {
+        return new FileSource(file);
+    }
+
+    /**
+     * @param bytes content from its position to its limit, not modified
+     * @param name file name telling whether the content is delimited text and
+     *            its delimiter, may be null
+     * @return
+     */
+    static WorkbookSource of(ByteBuffer bytes, String name) {
+        return new BufferSource(bytes.slice().asReadOnlyBuffer(), name);
+    }
+
+    /**
+     * The file read, null for bytes in memory.
+     * @return
+     */
+    abstract File getFile();
+
+    /**
+     * File name of the content, null if unknown.
+     * @return
+     */
+    abstract String getName();
+
+    /**
+     * Opens the content at its start, the caller closes the stream.
+     * @return
+     * @throws IOException
+     */
+    abstract InputStream openStream() throws IOException;
+
+    /**
+     * Opens a channel over the content for positioned reads, the caller
+     * closes the channel.
+     * @return
+     * @throws IOException
+     */
+    abstract SeekableByteChannel openChannel() throws IOException;
+
+    /**
+     * Opens the xlsx package with read access, releasing it with revert
+     * writes nothing back.
+     * @return
+     * @throws InvalidFormatException
+     * @throws IOException
+     */
+    abstract OPCPackage openPackage() throws InvalidFormatException, IOException;
+
+    /**
+     * Opens the OLE2 file system of an xls workbook read only.
+     * @return
+     * @throws IOException
+     */
+    abstract NPOIFSFileSystem openFileSystem() throws IOException;
+
+    /**
+     * Whether the name has the extension of delimited text, .csv, .tsv or
+     * .txt, false for content without a name.
+     * @return
+     */
+    boolean isDelimitedName() {
+        String name = this.getName();
+        if (name == null)
+            return false;
+        name = name.toLowerCase(Locale.ROOT);
+        return name.endsWith(".csv") || name.endsWith(".tsv") || name.endsWith(".txt");
+    }
+
+    @Override
+    public String toString() {
+        return this.getName() == null ? "<bytes>" : this.getName();
+    }
+
+    /**
+     * Local file, delimited text is mapped for the reads when it fits a
+     * single mapping.
+     */
+    private static final class FileSource extends WorkbookSource {
+
+        private final File file;
+
+        FileSource(File file) {
+            this.file = file;
+        }
+
+        @Override
+        File getFile() {
+            return this.file;
+        }
+
+        @Override
+        String getName() {
+            return this.file.getName();
+        }
+
+        @Override
+        InputStream openStream() throws IOException {
+            return Channels.newInputStream(FileChannel.open(this.file.toPath(), StandardOpenOption.READ));
+        }
+
+        /**
+         * Maps the file read only, the mapping outlives the channel. Files
+         * larger than a mapping are read through the channel.
+         */
+        @Override
+        SeekableByteChannel openChannel() throws IOException {
+            FileChannel channel = FileChannel.open(this.file.toPath(), StandardOpenOption.READ);
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                return channel;
+            try {
+                return new ByteBufferChannel(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            } finally {
+                channel.close();
+            }
+        }
+
+        @Override
+        OPCPackage openPackage() throws InvalidFormatException {
+            return OPCPackage.open(this.file, PackageAccess.READ);
+        }
+
+        /**
+         * POI reads the blocks of a read only file through the channel, it
+         * only maps writable ones.
+         */
+        @Override
+        NPOIFSFileSystem openFileSystem() throws IOException {
+            return new NPOIFSFileSystem(this.file, true);
+        }
+    }
+
+    /**
+     * Bytes in memory, every open reads its own duplicate of the buffer.
+     */
+    private static final class BufferSource extends WorkbookSource {
+
+        private final ByteBuffer bytes;
+
+        private final String name;
+
+        BufferSource(ByteBuffer bytes, String name) {
+            this.bytes = bytes;
+            this.name = name;
+        }
+
+        @Override
+        File getFile() {
+            return null;
+        }
+
+        @Override
+        String getName() {
+            return this.name;
+        }
+
+        @Override
+        InputStream openStream() {
+            return Channels.newInputStream(this.openChannel());
+        }
+
+        @Override
+        SeekableByteChannel openChannel() {
+            return new ByteBufferChannel(this.bytes.duplicate());
+        }
+
+        /**
+         * POI inflates the parts of a package read from a stream in memory.
+         */
+        @Override
+        OPCPackage openPackage() throws InvalidFormatException, IOException {
+            InputStream in = this.openStream();
+            try {
+                return OPCPackage.open(in);
+            } finally {
+                in.close();
+            }
+        }
+
+        /**
+         * POI copies the blocks of a file system read from a stream into a
+         * buffer of its own.
+         */
+        @Override
+        NPOIFSFileSystem openFileSystem() throws IOException {
+            InputStream in = this.openStream();
+            try {
+                return new NPOIFSFileSystem(in);
+            } finally {
+                in.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.gizbel.excel.factory;
+
+import java.util.BitSet;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.hssf.eventusermodel.AbortableHSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFUserException;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BlankRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.MulBlankRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.RowRecord;
+import org.apache.poi.hssf.record.StringRecord;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.FormulaError;
+
+/**
+ * Record listener for the substream of a single xls worksheet.<br>
+ * Cell records come grouped by row, their values are decoded to their type,
+ * collected into a reused RowBuffer and handed to the RowCallback once a
+ * record of the next row shows up. Rows declared by a row record but holding
+ * no cell are handed over empty, the same rows the workbook iterates.<br>
+ * Rows outside the range of the RowFilter are skipped and the reading stops
+ * after the last one. Cells outside the projected columns are only checked
+ * for being blank.
+ */
+class XlsSheetListener extends AbortableHSSFListener {
+
+    static final short CONTINUE = 0;
+
+    /** Returned to the event factory to stop reading the stream. **/
+    static final short STOP = 1;
+
+    private final SharedStrings sharedStrings;
+
+    private final RowCallback callback;
+
+    private final RowFilter rowFilter;
+
+    /** Index of extended format to whether it is date formatted. **/
+    private final boolean[] dateStyles;
+
+    private final RowBuffer row = new RowBuffer();
+
+    /** Rows having a row record, handed over even without cells. **/
+    private final BitSet declaredRows = new BitSet();
+
+    /** Substreams, globals or other sheets, to pass before the sheet. **/
+    private int substreamsBefore;
+
+    /** Nesting of the substreams, charts are embedded in the sheet. **/
+    private int depth;
+
+    /** Row being collected, -1 between rows. **/
+    private int rowNum = -1;
+
+    /** Lowest row number not handed over yet. **/
+    private int nextRowNum;
+
+    /** Whether the current row is outside the range. **/
+    private boolean skippingRow;
+
+    /** Column of the formula whose string result is in the next string record, -1 if none. **/
+    private int pendingStringColumn = -1;
+
+    private boolean stopped;
+
+    /**
+     * @param sharedStrings
+     * @param dateStyles whether each extended format is date formatted, only read
+     * @param date1904
+     * @param substreamsBefore number of substreams before the sheet, 0 when the
+     *            stream starts at the sheet
+     * @param rowFilter rows and columns to decode
+     * @param callback
+     */
+    XlsSheetListener(SharedStrings sharedStrings, boolean[] dateStyles, boolean date1904, int substreamsBefore,
+            RowFilter rowFilter, RowCallback callback) {
+        this.sharedStrings = sharedStrings;
+        this.dateStyles = dateStyles;
+        this.substreamsBefore = substreamsBefore;
+        this.rowFilter = rowFilter;
+        this.callback = callback;
+        this.row.setDate1904(date1904);
+    }
+
+    @Override
+    public short abortableProcessRecord(Record record) throws HSSFUserException {
+        switch (record.getSid()) {
+        case BOFRecord.sid:
+            this.depth++;
+            return CONTINUE;
+        case EOFRecord.sid:
+            this.depth--;
+            if (this.depth > 0)
+                return CONTINUE;
+            if (this.substreamsBefore > 0) {
+                this.substreamsBefore--;
+                return CONTINUE;
+            }
+            this.endOfStream();
+            return STOP;
+        default:
+            break;
+        }
+        if (this.depth != 1 || this.substreamsBefore > 0)
+            return CONTINUE;
+
+        switch (record.getSid()) {
+        case RowRecord.sid:
+            this.declaredRows.set(((RowRecord) record).getRowNumber());
+            break;
+        case NumberRecord.sid:
+            NumberRecord number = (NumberRecord) record;
+            if (this.moveTo(number.getRow()))
+                this.setNumber(number.getColumn(), number.getValue(), number.getXFIndex());
+            break;
+        case LabelSSTRecord.sid:
+            LabelSSTRecord label = (LabelSSTRecord) record;
+            if (this.moveTo(label.getRow()))
+                this.setSharedString(label.getColumn(), label.getSSTIndex());
+            break;
+        case LabelRecord.sid:
+            LabelRecord oldLabel = (LabelRecord) record;
+            if (this.moveTo(oldLabel.getRow()))
+                this.setString(oldLabel.getColumn(), oldLabel.getValue());
+            break;
+        case BoolErrRecord.sid:
+            BoolErrRecord boolErr = (BoolErrRecord) record;
+            if (this.moveTo(boolErr.getRow())) {
+                if (boolErr.isBoolean())
+                    this.setBoolean(boolErr.getColumn(), boolErr.getBooleanValue());
+                else
+                    this.setError(boolErr.getColumn(), boolErr.getErrorValue());
+            }
+            break;
+        case FormulaRecord.sid:
+            FormulaRecord formula = (FormulaRecord) record;
+            if (this.moveTo(formula.getRow()))
+                this.setFormulaResult(formula);
+            break;
+        case StringRecord.sid:
+            if (this.pendingStringColumn >= 0 && !this.skippingRow)
+                this.setString(this.pendingStringColumn, ((StringRecord) record).getString());
+            this.pendingStringColumn = -1;
+            break;
+        case BlankRecord.sid:
+            BlankRecord blank = (BlankRecord) record;
+            if (this.moveTo(blank.getRow()))
+                this.row.setBlank(blank.getColumn());
+            break;
+        case MulBlankRecord.sid:
+            MulBlankRecord blanks = (MulBlankRecord) record;
+            if (this.moveTo(blanks.getRow())) {
+                for (int i = 0; i < blanks.getNumColumns(); i++)
+                    this.row.setBlank(blanks.getFirstColumn() + i);
+            }
+            break;
+        default:
+            break;
+        }
+        return this.stopped ? STOP : CONTINUE;
+    }
+
+    /**
+     * Hands the last row and the trailing empty rows over once the sheet, or
+     * the stream, ends.
+     * @throws HSSFUserException
+     */
+    void endOfStream() throws HSSFUserException {
+        if (this.endRow())
+            this.handOverDeclaredRows(Integer.MAX_VALUE);
+        this.stopped = true;
+    }
+
+    /**
+     * Moves to the row of the cell record, ending the current row first when
+     * the cell belongs to the next one.
+     * @param rowNum
+     * @return true if the cell has to be read, false if its row is skipped or
+     *         the reading stops
+     * @throws HSSFUserException
+     */
+    private boolean moveTo(int rowNum) throws HSSFUserException {
+        if (this.stopped)
+            return false;
+        if (rowNum != this.rowNum) {
+            if (!this.endRow() || !this.handOverDeclaredRows(rowNum))
+                return false;
+            if (this.rowFilter.isAfterRange(rowNum)) {
+                this.stopped = true;
+                return false;
+            }
+            this.rowNum = rowNum;
+            this.skippingRow = !this.rowFilter.acceptsRow(rowNum);
+            this.row.reset(rowNum);
+        }
+        return !this.skippingRow;
+    }
+
+    /**
+     * Hands the current row over to the callback.
+     * @return false if the reading stops
+     * @throws HSSFUserException
+     */
+    private boolean endRow() throws HSSFUserException {
+        if (this.rowNum < 0)
+            return !this.stopped;
+        this.nextRowNum = this.rowNum + 1;
+        boolean proceed = this.skippingRow || this.handOver();
+        this.rowNum = -1;
+        this.pendingStringColumn = -1;
+        return proceed;
+    }
+
+    /**
+     * Hands the declared rows without cells before the given row over as
+     * empty rows.
+     * @param beforeRowNum
+     * @return false if the reading stops
+     * @throws HSSFUserException
+     */
+    private boolean handOverDeclaredRows(int beforeRowNum) throws HSSFUserException {
+        for (int i = this.declaredRows.nextSetBit(this.nextRowNum); i >= 0 && i < beforeRowNum; i = this.declaredRows
+                .nextSetBit(i + 1)) {
+            if (this.rowFilter.isAfterRange(i))
+                break;
+            this.nextRowNum = i + 1;
+            if (!this.rowFilter.acceptsRow(i))
+                continue;
+            this.row.reset(i);
+            if (!this.handOver())
+                return false;
+        }
+        return true;
+    }
+
+    private boolean handOver() throws HSSFUserException {
+        boolean proceed;
+        try {
+            proceed = this.callback.onRow(this.row);
+        } catch (Exception e) {
+            throw new HSSFUserException(e);
+        }
+        if (!proceed)
+            this.stopped = true;
+        return proceed;
+    }
+
+    private void setNumber(int columnIndex, double value, int xfIndex) {
+        if (!this.rowFilter.acceptsColumn(columnIndex))
+            this.row.setSkipped(columnIndex);
+        else if (this.isDateStyle(xfIndex) && DateUtil.isValidExcelDate(value))
+            this.row.setDate(columnIndex, value);
+        else
+            this.row.setNumber(columnIndex, value);
+    }
+
+    private void setString(int columnIndex, String value) {
+        if (this.rowFilter.acceptsColumn(columnIndex))
+            this.row.setString(columnIndex, value);
+        else if (StringUtils.isBlank(value))
+            this.row.setBlank(columnIndex);
+        else
+            this.row.setSkipped(columnIndex);
+    }
+
+    /**
+     * Outside the projected columns the string is only checked for being
+     * blank, without reading it from the table.
+     */
+    private void setSharedString(int columnIndex, int index) {
+        if (this.rowFilter.acceptsColumn(columnIndex))
+            this.row.setString(columnIndex, this.sharedStrings.getEntryAt(index));
+        else if (this.sharedStrings.isBlank(index))
+            this.row.setBlank(columnIndex);
+        else
+            this.row.setSkipped(columnIndex);
+    }
+
+    private void setBoolean(int columnIndex, boolean value) {
+        if (this.rowFilter.acceptsColumn(columnIndex))
+            this.row.setBoolean(columnIndex, value);
+        else
+            this.row.setSkipped(columnIndex);
+    }
+
+    private void setError(int columnIndex, int errorCode) {
+        if (this.rowFilter.acceptsColumn(columnIndex))
+            this.row.setError(columnIndex, FormulaError.forInt((byte) errorCode).getString());
+        else
+            this.row.setSkipped(columnIndex);
+    }
+
+    /**
+     * Decodes the cached result of a formula, a string result comes in the
+     * string record following the formula.
+     * @param formula
+     */
+    private void setFormulaResult(FormulaRecord formula) {
+        int columnIndex = formula.getColumn();
+        switch (formula.getCachedResultType()) {
+        case Cell.CELL_TYPE_NUMERIC:
+            this.setNumber(columnIndex, formula.getValue(), formula.getXFIndex());
+            break;
+        case Cell.CELL_TYPE_STRING:
+            // Empty string results have no string record
+            if (formula.hasCachedResultString()) {
+                this.row.setBlank(columnIndex);
+                this.pendingStringColumn = columnIndex;
+            } else
+                this.setString(columnIndex, "");
+            break;
+        case Cell.CELL_TYPE_BOOLEAN:
+            this.setBoolean(columnIndex, formula.getCachedBooleanValue());
+            break;
+        case Cell.CELL_TYPE_ERROR:
+            this.setError(columnIndex, formula.getCachedErrorValue());
+            break;
+        default:
+            this.row.setBlank(columnIndex);
+            break;
+        }
+    }
+
+    private boolean isDateStyle(int xfIndex) {
+        return xfIndex < this.dateStyles.length && this.dateStyles[xfIndex];
+    }
+}
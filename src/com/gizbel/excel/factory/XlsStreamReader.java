@@ -0,0 +1,305 @@
+package com.gizbel.excel.factory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.hssf.eventusermodel.AbortableHSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.eventusermodel.HSSFUserException;
+import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.hssf.record.DateWindow1904Record;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.ExtendedFormatRecord;
+import org.apache.poi.hssf.record.FilePassRecord;
+import org.apache.poi.hssf.record.FormatRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.RecordFactory;
+import org.apache.poi.hssf.record.RecordInputStream;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.poifs.filesystem.DocumentInputStream;
+import org.apache.poi.poifs.filesystem.NPOIFSFileSystem;
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.DateUtil;
+
+/**
+ * Reads the sheets of an xls (BIFF8) file through the record events of POI,
+ * without building the HSSFWorkbook.<br>
+ * The workbook globals, shared strings, cell formats, date system and sheet
+ * list, are read once when the reader is opened, the shared strings straight
+ * from the record stream into a SharedStrings table which goes to a temp
+ * file above the threshold. Every sheet read then opens its own stream over
+ * the file and jumps to the sheet records, so sheets can be read
+ * concurrently and only the records of the read sheet are decoded. The
+ * file is always opened read only.
+ */
+class XlsStreamReader extends SheetStreamReader {
+
+    private final WorkbookSource source;
+
+    /** Name of the workbook stream in the OLE2 file. **/
+    private final String workbookName;
+
+    private final SharedStrings sharedStrings;
+
+    /** Index of extended format to whether it is date formatted. **/
+    private final boolean[] dateStyles;
+
+    private final boolean date1904;
+
+    /**
+     * Whether the workbook stream is encrypted, it is then decrypted from its
+     * start so the sheet records are reached by reading the previous ones.
+     **/
+    private final boolean encrypted;
+
+    /** Sheets in workbook order. **/
+    private final List<BoundSheetRecord> sheets;
+
+    /**
+     * @param source
+     * @param sharedStringsThreshold size of the text of the shared strings
+     *            above which they are kept in a memory mapped temp file
+     * @param sharedStringsCacheSize number of strings cached when on disk
+     * @throws IOException
+     */
+    XlsStreamReader(WorkbookSource source, long sharedStringsThreshold, int sharedStringsCacheSize)
+            throws IOException {
+        this.source = source;
+        NPOIFSFileSystem fs = source.openFileSystem();
+        GlobalsListener globals = new GlobalsListener(sharedStringsThreshold, sharedStringsCacheSize);
+        try {
+            this.workbookName = HSSFWorkbook.getWorkbookDirEntryName(fs.getRoot());
+            DocumentInputStream in = fs.createDocumentInputStream(this.workbookName);
+            try {
+                this.encrypted = !globals.read(new RecordInputStream(in));
+            } finally {
+                in.close();
+            }
+            if (this.encrypted) {
+                // Read again through the event factory, which decrypts the records
+                globals = new GlobalsListener(sharedStringsThreshold, sharedStringsCacheSize);
+                HSSFRequest request = new HSSFRequest();
+                request.addListenerForAllRecords(globals);
+                in = fs.createDocumentInputStream(this.workbookName);
+                try {
+                    new HSSFEventFactory().abortableProcessEvents(request, in);
+                } finally {
+                    in.close();
+                }
+            }
+        } catch (HSSFUserException e) {
+            globals.close();
+            throw new IOException(e.getReason());
+        } catch (IOException | RuntimeException e) {
+            globals.close();
+            throw e;
+        } finally {
+            fs.close();
+        }
+        this.sharedStrings = globals.sharedStrings != null ? globals.sharedStrings : new HeapSharedStrings();
+        this.dateStyles = globals.dateStyles();
+        this.date1904 = globals.date1904;
+        this.sheets = globals.sheets;
+    }
+
+    /**
+     * Reads the sheet at the given index through the record events, the
+     * exception thrown by the callback is unwrapped from the
+     * HSSFUserException carrying it.
+     */
+    @Override
+    void readSheet(int sheetIndex, RowFilter rowFilter, RowCallback callback) throws Exception {
+        BoundSheetRecord sheet = this.sheets.get(sheetIndex);
+        int substreamsBefore = 0;
+        if (this.encrypted) {
+            // Globals and the sheets stored before this one
+            substreamsBefore = 1;
+            for (BoundSheetRecord other : this.sheets) {
+                if (other.getPositionOfBof() < sheet.getPositionOfBof())
+                    substreamsBefore++;
+            }
+        }
+        XlsSheetListener listener = new XlsSheetListener(this.sharedStrings, this.dateStyles, this.date1904,
+                substreamsBefore, rowFilter, callback);
+        HSSFRequest request = new HSSFRequest();
+        request.addListenerForAllRecords(listener);
+
+        NPOIFSFileSystem fs = this.source.openFileSystem();
+        try {
+            DocumentInputStream in = fs.createDocumentInputStream(this.workbookName);
+            if (!this.encrypted)
+                skipFully(in, sheet.getPositionOfBof());
+            new HSSFEventFactory().abortableProcessEvents(request, in);
+            listener.endOfStream();
+        } catch (HSSFUserException e) {
+            Throwable cause = e.getReason();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        } finally {
+            fs.close();
+        }
+    }
+
+    /**
+     * Skips the bytes through a small buffer, DocumentInputStream.skip reads
+     * them into an array as long as the skipped length.
+     * @param in
+     * @param length
+     */
+    private static void skipFully(DocumentInputStream in, int length) {
+        byte[] buffer = new byte[8192];
+        while (length > 0) {
+            int chunk = Math.min(length, buffer.length);
+            in.readFully(buffer, 0, chunk);
+            length -= chunk;
+        }
+    }
+
+    /**
+     * Nothing but the shared strings is held between the reads of the sheets,
+     * the file is opened by every read.
+     */
+    @Override
+    public void close() {
+        this.sharedStrings.close();
+    }
+
+    @Override
+    int getSheetCount() {
+        return this.sheets.size();
+    }
+
+    @Override
+    String getSheetName(int sheetIndex) {
+        return this.sheets.get(sheetIndex).getSheetname();
+    }
+
+    /**
+     * Collects the workbook globals, stops at their end of file record.
+     */
+    private static final class GlobalsListener extends AbortableHSSFListener implements Closeable {
+
+        private final long sharedStringsThreshold;
+
+        private final int sharedStringsCacheSize;
+
+        private SharedStrings sharedStrings;
+
+        private boolean date1904;
+
+        private final List<BoundSheetRecord> sheets = new ArrayList<BoundSheetRecord>();
+
+        /** Custom number formats by format index. **/
+        private final Map<Integer, String> formats = new HashMap<Integer, String>();
+
+        /** Number format index of every extended format. **/
+        private final List<Integer> formatIndexes = new ArrayList<Integer>();
+
+        GlobalsListener(long sharedStringsThreshold, int sharedStringsCacheSize) {
+            this.sharedStringsThreshold = sharedStringsThreshold;
+            this.sharedStringsCacheSize = sharedStringsCacheSize;
+        }
+
+        /**
+         * Reads the globals off the raw records, only the records needed are
+         * created and the strings of the SST record are read one at a time
+         * instead of building the SSTRecord.
+         * @param in
+         * @return false if the stream is encrypted, nothing is read then
+         * @throws IOException
+         */
+        boolean read(RecordInputStream in) throws IOException {
+            while (in.hasNextRecord()) {
+                in.nextRecord();
+                switch (in.getSid()) {
+                case FilePassRecord.sid:
+                    return false;
+                case SSTRecord.sid:
+                    this.sharedStrings = SharedStrings.read(in, this.sharedStringsThreshold,
+                            this.sharedStringsCacheSize);
+                    in.readRemainder();
+                    break;
+                case FormatRecord.sid:
+                case ExtendedFormatRecord.sid:
+                case DateWindow1904Record.sid:
+                case BoundSheetRecord.sid:
+                    this.process(RecordFactory.createSingleRecord(in));
+                    break;
+                case EOFRecord.sid:
+                    return true;
+                default:
+                    in.readRemainder();
+                    break;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public short abortableProcessRecord(Record record) throws HSSFUserException {
+            try {
+                return this.process(record);
+            } catch (IOException e) {
+                throw new HSSFUserException(e);
+            }
+        }
+
+        private short process(Record record) throws IOException {
+            switch (record.getSid()) {
+            case SSTRecord.sid:
+                this.sharedStrings = SharedStrings.copyOf((SSTRecord) record, this.sharedStringsThreshold,
+                        this.sharedStringsCacheSize);
+                break;
+            case FormatRecord.sid:
+                FormatRecord format = (FormatRecord) record;
+                this.formats.put(format.getIndexCode(), format.getFormatString());
+                break;
+            case ExtendedFormatRecord.sid:
+                this.formatIndexes.add((int) ((ExtendedFormatRecord) record).getFormatIndex());
+                break;
+            case DateWindow1904Record.sid:
+                this.date1904 = ((DateWindow1904Record) record).getWindowing() == 1;
+                break;
+            case BoundSheetRecord.sid:
+                this.sheets.add((BoundSheetRecord) record);
+                break;
+            case EOFRecord.sid:
+                return XlsSheetListener.STOP;
+            default:
+                break;
+            }
+            return XlsSheetListener.CONTINUE;
+        }
+
+        /**
+         * Checks once per extended format whether it is date formatted, custom
+         * formats of the workbook override the built in ones.
+         * @return
+         */
+        boolean[] dateStyles() {
+            boolean[] dateStyles = new boolean[this.formatIndexes.size()];
+            for (int i = 0; i < dateStyles.length; i++) {
+                int formatIndex = this.formatIndexes.get(i);
+                String formatString = this.formats.get(formatIndex);
+                if (formatString == null)
+                    formatString = BuiltinFormats.getBuiltinFormat(formatIndex);
+                dateStyles[i] = formatString != null && DateUtil.isADateFormat(formatIndex, formatString);
+            }
+            return dateStyles;
+        }
+
+        /**
+         * Releases the shared strings read so far, when the reader fails to open.
+         */
+        @Override
+        public void close() {
+            if (this.sharedStrings != null)
+                this.sharedStrings.close();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.gizbel.excel.factory;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * SAX handler for a single xlsx worksheet part.<br>
+ * Cell values are decoded to their type, collected into a reused RowBuffer
+ * and handed to the RowCallback at the end of every row. Nothing but the
+ * current row is kept in memory.<br>
+ * Rows outside the range of the RowFilter are skipped without looking at
+ * their cells and the parsing stops after the last one. Cells outside the
+ * projected columns are only checked for being blank.
+ */
+class XlsxSheetHandler extends DefaultHandler {
+
+    /**
+     * Thrown from the handler to end the parsing early, e.g. when an empty row
+     * is found and the parser is configured to break on it.
+     */
+    static final class StopParsingException extends SAXException {
+        private static final long serialVersionUID = 1L;
+
+        StopParsingException() {
+            super("Parsing stopped by the row callback");
+        }
+    }
+
+    private final SharedStrings sharedStrings;
+
+    private final RowCallback callback;
+
+    private final RowFilter rowFilter;
+
+    /** Index of cell style to whether it is date formatted. **/
+    private final boolean[] dateStyles;
+
+    private final RowBuffer row = new RowBuffer();
+
+    private final StringBuilder text = new StringBuilder();
+
+    private int rowNum = -1;
+    private int columnIndex = -1;
+    private String cellType;
+    private int cellStyle;
+    private boolean collecting;
+    /** Whether the current row is outside the range. **/
+    private boolean skippingRow;
+    /** Whether the current cell is decoded. **/
+    private boolean projected;
+
+    /**
+     * @param sharedStrings
+     * @param dateStyles whether each cell style is date formatted, only read
+     * @param date1904
+     * @param rowFilter rows and columns to decode
+     * @param callback
+     */
+    XlsxSheetHandler(SharedStrings sharedStrings, boolean[] dateStyles, boolean date1904, RowFilter rowFilter,
+            RowCallback callback) {
+        this.sharedStrings = sharedStrings;
+        this.dateStyles = dateStyles;
+        this.rowFilter = rowFilter;
+        this.callback = callback;
+        this.row.setDate1904(date1904);
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes)
+            throws SAXException {
+        switch (localName) {
+        case "row":
+            String r = attributes.getValue("r");
+            this.rowNum = r == null ? this.rowNum + 1 : Integer.parseInt(r) - 1;
+            if (this.rowFilter.isAfterRange(this.rowNum))
+                throw new StopParsingException();
+            this.skippingRow = !this.rowFilter.acceptsRow(this.rowNum);
+            this.columnIndex = -1;
+            this.row.reset(this.rowNum);
+            break;
+        case "c":
+            if (this.skippingRow)
+                break;
+            String ref = attributes.getValue("r");
+            this.columnIndex = ref == null ? this.columnIndex + 1 : columnIndexOf(ref);
+            this.cellType = attributes.getValue("t");
+            String style = attributes.getValue("s");
+            this.cellStyle = style == null ? 0 : Integer.parseInt(style);
+            this.projected = this.rowFilter.acceptsColumn(this.columnIndex);
+            this.text.setLength(0);
+            // Blank cells are still part of the row, same as in the workbook
+            this.row.setBlank(this.columnIndex);
+            break;
+        case "v":
+            this.collecting = !this.skippingRow;
+            break;
+        case "t":
+            // Only inline strings carry text elements inside a cell
+            this.collecting = !this.skippingRow && "inlineStr".equals(this.cellType);
+            break;
+        default:
+            break;
+        }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) throws SAXException {
+        if (this.collecting)
+            this.text.append(ch, start, length);
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        switch (localName) {
+        case "v":
+        case "t":
+            this.collecting = false;
+            break;
+        case "c":
+            if (this.skippingRow)
+                break;
+            if (this.projected)
+                this.setCellValue();
+            else
+                this.skipCellValue();
+            break;
+        case "row":
+            if (this.skippingRow)
+                break;
+            boolean proceed;
+            try {
+                proceed = this.callback.onRow(this.row);
+            } catch (SAXException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new SAXException(e);
+            }
+            if (!proceed)
+                throw new StopParsingException();
+            break;
+        default:
+            break;
+        }
+    }
+
+    /**
+     * Decodes the collected text of the current cell based on its type.
+     */
+    private void setCellValue() {
+        if (this.text.length() == 0)
+            return;
+        String raw = this.text.toString();
+        if (this.cellType == null || "n".equals(this.cellType)) {
+            double value = Double.parseDouble(raw);
+            if (this.isDateStyle(this.cellStyle) && DateUtil.isValidExcelDate(value))
+                this.row.setDate(this.columnIndex, value);
+            else
+                this.row.setNumber(this.columnIndex, value);
+            return;
+        }
+        switch (this.cellType) {
+        case "s":
+            this.row.setString(this.columnIndex, this.sharedStrings.getEntryAt(Integer.parseInt(raw)));
+            break;
+        case "b":
+            this.row.setBoolean(this.columnIndex, "1".equals(raw));
+            break;
+        case "e":
+            this.row.setError(this.columnIndex, raw);
+            break;
+        default:
+            // inlineStr, str (formula result) and d (ISO date) are kept as text
+            this.row.setString(this.columnIndex, raw);
+            break;
+        }
+    }
+
+    /**
+     * Records whether the cell outside the projection holds a value, without
+     * converting it.
+     */
+    private void skipCellValue() {
+        if (this.text.length() == 0)
+            return;
+        boolean blank;
+        if (this.cellType == null || "n".equals(this.cellType) || "b".equals(this.cellType)
+                || "e".equals(this.cellType))
+            blank = false;
+        else if ("s".equals(this.cellType))
+            blank = this.sharedStrings.isBlank(Integer.parseInt(this.text.toString()));
+        else
+            blank = StringUtils.isBlank(this.text);
+        if (!blank)
+            this.row.setSkipped(this.columnIndex);
+    }
+
+    private boolean isDateStyle(int style) {
+        return style < this.dateStyles.length && this.dateStyles[style];
+    }
+
+    /**
+     * Converts a cell reference like "AB12" into its zero based column index.
+     * @param ref
+     * @return
+     */
+    static int columnIndexOf(String ref) {
+        int column = 0;
+        for (int i = 0; i < ref.length(); i++) {
+            char ch = ref.charAt(i);
+            if (ch < 'A' || ch > 'Z')
+                break;
+            column = column * 26 + (ch - 'A' + 1);
+        }
+        return column - 1;
+    }
+}
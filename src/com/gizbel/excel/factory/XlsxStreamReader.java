@@ -0,0 +1,189 @@
+package com.gizbel.excel.factory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.xmlbeans.XmlException;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTSheet;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTWorkbook;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTWorkbookPr;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.WorkbookDocument;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+/**
+ * Opens an xlsx package in read only mode and streams its sheets through the
+ * SAX event API of POI.<br>
+ * Only the shared strings and styles tables are loaded, the sheet xml itself
+ * is never materialized.<br>
+ * Once opened, sheets can be read concurrently from several threads, each
+ * read has its own xml reader and handler over the shared, read only tables.
+ */
+class XlsxStreamReader extends SheetStreamReader {
+
+    private final OPCPackage pkg;
+
+    private final XSSFReader reader;
+
+    private final SharedStrings sharedStrings;
+
+    /** Index of cell style to whether it is date formatted. **/
+    private final boolean[] dateStyles;
+
+    private boolean date1904;
+
+    /** Names of the sheets in workbook order. **/
+    private final List<String> sheetNames = new ArrayList<String>();
+
+    /** Relationship ids of the sheet parts in workbook order. **/
+    private final List<String> sheetIds = new ArrayList<String>();
+
+    /**
+     * @param source
+     * @param sharedStringsThreshold size of the shared strings xml above which
+     *            the strings are kept in a memory mapped temp file
+     * @param sharedStringsCacheSize number of strings cached when on disk
+     * @throws InvalidFormatException
+     * @throws IOException
+     */
+    XlsxStreamReader(WorkbookSource source, long sharedStringsThreshold, int sharedStringsCacheSize)
+            throws InvalidFormatException, IOException {
+        this.pkg = source.openPackage();
+        SharedStrings strings = null;
+        try {
+            this.reader = new XSSFReader(this.pkg);
+            strings = SharedStrings.read(this.pkg, sharedStringsThreshold, sharedStringsCacheSize);
+            this.sharedStrings = strings;
+            this.dateStyles = dateStylesOf(this.reader.getStylesTable());
+            this.readWorkbook();
+        } catch (SAXException e) {
+            this.release(strings);
+            throw e.getException() instanceof IOException ? (IOException) e.getException() : new IOException(e);
+        } catch (OpenXML4JException e) {
+            this.release(strings);
+            throw new InvalidFormatException(e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            this.release(strings);
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the sheet at the given index through SAX, the exception thrown by
+     * the callback is unwrapped from the SAXException carrying it.
+     */
+    @Override
+    void readSheet(int sheetIndex, RowFilter rowFilter, RowCallback callback) throws Exception {
+        XlsxSheetHandler handler = new XlsxSheetHandler(this.sharedStrings, this.dateStyles, this.date1904,
+                rowFilter, callback);
+        InputStream sheet;
+        // Looking up the part is not thread safe, reading the entry stream is
+        synchronized (this.reader) {
+            sheet = this.reader.getSheet(this.sheetIds.get(sheetIndex));
+        }
+        try {
+            XMLReader xmlReader = newXMLReader();
+            xmlReader.setContentHandler(handler);
+            xmlReader.parse(new InputSource(sheet));
+        } catch (XlsxSheetHandler.StopParsingException e) {
+            // Callback has opted to stop
+        } catch (SAXException e) {
+            Exception cause = e.getException();
+            throw cause == null ? e : cause;
+        } finally {
+            sheet.close();
+        }
+    }
+
+    /**
+     * Package is opened read only, revert releases it without saving.
+     */
+    @Override
+    public void close() {
+        this.release(this.sharedStrings);
+    }
+
+    private void release(SharedStrings strings) {
+        if (strings != null)
+            strings.close();
+        this.pkg.revert();
+    }
+
+    @Override
+    int getSheetCount() {
+        return this.sheetNames.size();
+    }
+
+    @Override
+    String getSheetName(int sheetIndex) {
+        return this.sheetNames.get(sheetIndex);
+    }
+
+    /**
+     * Reads the sheet list and the date system of the workbook, dates are
+     * stored as day counts from either 1900 or 1904.
+     * @throws IOException
+     * @throws InvalidFormatException
+     */
+    private void readWorkbook() throws IOException, InvalidFormatException {
+        InputStream workbookData = this.reader.getWorkbookData();
+        try {
+            CTWorkbook workbook = WorkbookDocument.Factory.parse(workbookData).getWorkbook();
+            CTWorkbookPr workbookPr = workbook.getWorkbookPr();
+            this.date1904 = workbookPr != null && workbookPr.getDate1904();
+            for (CTSheet sheet : workbook.getSheets().getSheetList()) {
+                this.sheetNames.add(sheet.getName());
+                this.sheetIds.add(sheet.getId());
+            }
+        } catch (XmlException e) {
+            throw new InvalidFormatException(e.getMessage());
+        } finally {
+            workbookData.close();
+        }
+    }
+
+    /**
+     * Checks once per cell style whether it is date formatted.
+     * @param styles
+     * @return
+     */
+    private static boolean[] dateStylesOf(StylesTable styles) {
+        int numStyles = styles == null ? 0 : styles.getNumCellStyles();
+        boolean[] dateStyles = new boolean[numStyles];
+        for (int i = 0; i < numStyles; i++) {
+            XSSFCellStyle style = styles.getStyleAt(i);
+            if (style != null)
+                dateStyles[i] = DateUtil.isADateFormat(style.getDataFormat(), style.getDataFormatString());
+        }
+        return dateStyles;
+    }
+
+    /**
+     * Creates a namespace aware xml reader with doctype declarations disabled.
+     * @return
+     * @throws SAXException
+     */
+    static XMLReader newXMLReader() throws SAXException {
+        try {
+            SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.setNamespaceAware(true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            return factory.newSAXParser().getXMLReader();
+        } catch (ParserConfigurationException e) {
+            throw new SAXException(e);
+        }
+    }
+}
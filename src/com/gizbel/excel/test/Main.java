@@ -9,7 +9,7 @@ import com.gizbel.excel.factory.Parser;
 public class Main {
 
     public static void main(String[] args) throws Exception {
-        Parser parser = new Parser(Bean.class, ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION);
+        Parser<Bean> parser = new Parser<>(Bean.class, ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION);
         parser.setSkipHeader(true);
         List<Object> result = parser.parse(new File("test/inv.xlsx"));
         for (Object obj : result) {
@@ -0,0 +1,38 @@
+package com.gizbel.excel.factory;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of the parse of one file, around the events of its
+ * sheets, only loaded through JfrRecorder.
+ */
+@Name("com.gizbel.excel.FileParse")
+@Label("File Parse")
+@Category("Excel Extractor")
+@Description("Parse of one file, over all its extracted sheets")
+@StackTrace(false)
+final class FileParseEvent extends Event {
+
+    @Label("Path")
+    String path;
+
+    @Label("Format")
+    String format;
+
+    @Label("Sheets")
+    int sheets;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Beans")
+    long beans;
+
+    @Label("Failed")
+    boolean failed;
+}
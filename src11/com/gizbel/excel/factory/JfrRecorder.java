@@ -0,0 +1,65 @@
+package com.gizbel.excel.factory;
+
+import java.io.File;
+
+/**
+ * Records the parses as FileParseEvent and SheetParseEvent. Compiled for
+ * Java 11 into the versioned part of the jar, ParseEvents loads it when the
+ * JDK has JFR.
+ */
+final class JfrRecorder extends ParseEvents.Recorder {
+
+    @Override
+    Object beginSheet() {
+        SheetParseEvent event = new SheetParseEvent();
+        if (!event.isEnabled())
+            return null;
+        event.begin();
+        return event;
+    }
+
+    @Override
+    Object beginFile() {
+        FileParseEvent event = new FileParseEvent();
+        if (!event.isEnabled())
+            return null;
+        event.begin();
+        return event;
+    }
+
+    @Override
+    void commitSheet(Object event, ParseMetrics metrics) {
+        SheetParseEvent sheetEvent = (SheetParseEvent) event;
+        sheetEvent.end();
+        if (!sheetEvent.shouldCommit())
+            return;
+        sheetEvent.path = metrics.getFile() == null ? null : metrics.getFile().getPath();
+        sheetEvent.sheet = metrics.getSheetName();
+        sheetEvent.openTime = metrics.getOpenNanos();
+        sheetEvent.headerTime = metrics.getHeaderNanos();
+        sheetEvent.screenTime = metrics.getScreenNanos();
+        sheetEvent.bindTime = metrics.getBindNanos();
+        sheetEvent.rows = metrics.getRowCount();
+        sheetEvent.cells = metrics.getCellCount();
+        sheetEvent.beans = metrics.getBeanCount();
+        sheetEvent.conversionFailures = metrics.getConversionFailureCount();
+        sheetEvent.peakBufferedRows = metrics.getPeakBufferedRows();
+        sheetEvent.failed = metrics.getFailure() != null;
+        sheetEvent.commit();
+    }
+
+    @Override
+    void commitFile(Object event, File file, FileFormat format, int sheets, long rows, long beans, boolean failed) {
+        FileParseEvent fileEvent = (FileParseEvent) event;
+        fileEvent.end();
+        if (!fileEvent.shouldCommit())
+            return;
+        fileEvent.path = file == null ? null : file.getPath();
+        fileEvent.format = format.name();
+        fileEvent.sheets = sheets;
+        fileEvent.rows = rows;
+        fileEvent.beans = beans;
+        fileEvent.failed = failed;
+        fileEvent.commit();
+    }
+}
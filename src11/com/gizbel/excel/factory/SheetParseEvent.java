@@ -0,0 +1,63 @@
+package com.gizbel.excel.factory;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event of the extraction of one sheet, only loaded through
+ * JfrRecorder.
+ */
+@Name("com.gizbel.excel.SheetParse")
+@Label("Sheet Parse")
+@Category("Excel Extractor")
+@Description("Extraction of the beans of one sheet")
+@StackTrace(false)
+final class SheetParseEvent extends Event {
+
+    @Label("Path")
+    String path;
+
+    @Label("Sheet")
+    String sheet;
+
+    @Label("Open Time")
+    @Timespan
+    long openTime;
+
+    @Label("Header Time")
+    @Timespan
+    long headerTime;
+
+    @Label("Screen Time")
+    @Description("Empty row checks and filters")
+    @Timespan
+    long screenTime;
+
+    @Label("Bind Time")
+    @Description("Summed over the binding threads")
+    @Timespan
+    long bindTime;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Cells")
+    long cells;
+
+    @Label("Beans")
+    long beans;
+
+    @Label("Conversion Failures")
+    long conversionFailures;
+
+    @Label("Peak Buffered Rows")
+    int peakBufferedRows;
+
+    @Label("Failed")
+    boolean failed;
+}
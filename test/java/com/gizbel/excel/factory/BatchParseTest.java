@@ -0,0 +1,133 @@
+package com.gizbel.excel.factory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gizbel.excel.enums.ExcelFactoryType;
+
+/**
+ * Parser.parse(File, int, BatchConsumer) with an in-memory consumer.
+ */
+public class BatchParseTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Keeps a copy of every batch, and the lists it was handed.
+     */
+    static class Collector implements BatchConsumer<Item> {
+
+        final List<List<String>> batches = new ArrayList<List<String>>();
+
+        final List<List<Item>> lists = new ArrayList<List<Item>>();
+
+        @Override
+        public void accept(List<Item> batch) throws Exception {
+            this.batches.add(TestFiles.strings(batch));
+            this.lists.add(batch);
+        }
+
+        List<String> beans() {
+            List<String> beans = new ArrayList<String>();
+            for (List<String> batch : this.batches)
+                beans.addAll(batch);
+            return beans;
+        }
+    }
+
+    private Parser<Item> parser(ExcelFactoryType type) throws Exception {
+        Parser<Item> parser = new Parser<Item>(Item.class, type);
+        parser.setSkipHeader(true);
+        return parser;
+    }
+
+    @Test
+    public void deliversFullBatchesThenTheRemainder() throws Exception {
+        File file = TestFiles.items(this.folder.newFile("items.csv"), 0, 25);
+        Collector collector = new Collector();
+
+        long count = this.parser(ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION).parse(file, 10, collector);
+
+        assertEquals(25, count);
+        assertEquals(3, collector.batches.size());
+        assertEquals(10, collector.batches.get(0).size());
+        assertEquals(10, collector.batches.get(1).size());
+        assertEquals(5, collector.batches.get(2).size());
+        assertEquals(TestFiles.beans(0, 25), collector.beans());
+    }
+
+    @Test
+    public void matchesTheListParse() throws Exception {
+        File file = TestFiles.items(this.folder.newFile("items.csv"), 0, 57);
+        for (ExcelFactoryType type : ExcelFactoryType.values()) {
+            Collector collector = new Collector();
+            this.parser(type).parse(file, 8, collector);
+            assertEquals(TestFiles.strings(this.parser(type).parse(file)), collector.beans());
+        }
+    }
+
+    @Test
+    public void reusesTheBatchList() throws Exception {
+        File file = TestFiles.items(this.folder.newFile("items.csv"), 0, 30);
+        Collector collector = new Collector();
+
+        this.parser(ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION).parse(file, 10, collector);
+
+        assertSame(collector.lists.get(0), collector.lists.get(1));
+        assertSame(collector.lists.get(0), collector.lists.get(2));
+    }
+
+    @Test
+    public void exactMultipleHasNoEmptyLastBatch() throws Exception {
+        File file = TestFiles.items(this.folder.newFile("items.csv"), 0, 20);
+        Collector collector = new Collector();
+
+        long count = this.parser(ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION).parse(file, 10, collector);
+
+        assertEquals(20, count);
+        assertEquals(2, collector.batches.size());
+    }
+
+    @Test
+    public void consumerFailureStopsTheParse() throws Exception {
+        File file = TestFiles.items(this.folder.newFile("items.csv"), 0, 50);
+        final Exception failure = new Exception("batch rejected");
+        final List<Integer> sizes = new ArrayList<Integer>();
+        try {
+            this.parser(ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION).parse(file, 10, new BatchConsumer<Item>() {
+                @Override
+                public void accept(List<Item> batch) throws Exception {
+                    sizes.add(batch.size());
+                    if (sizes.size() == 2)
+                        throw failure;
+                }
+            });
+            fail("The consumer failure should stop the parse");
+        } catch (ExtractionException e) {
+            assertSame(failure, e.getCause());
+        }
+        assertEquals(2, sizes.size());
+    }
+
+    @Test
+    public void batchSizeMustBePositive() throws Exception {
+        File file = TestFiles.items(this.folder.newFile("items.csv"), 0, 5);
+        try {
+            this.parser(ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION).parse(file, 0, new Collector());
+            fail("A batch size of 0 should be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("Batch size"));
+        }
+    }
+}
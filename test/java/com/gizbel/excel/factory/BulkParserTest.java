@@ -0,0 +1,108 @@
+package com.gizbel.excel.factory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gizbel.excel.enums.ExcelFactoryType;
+
+/**
+ * Batches of files parsed by a BulkParser, with their failures.
+ */
+public class BulkParserTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private BulkParser bulkParser() throws Exception {
+        Parser<Item> parser = new Parser<Item>(Item.class, ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION);
+        parser.setSkipHeader(true);
+        BulkParser bulkParser = new BulkParser(parser);
+        bulkParser.setMaxOpenWorkbooks(2);
+        return bulkParser;
+    }
+
+    /**
+     * Two good files around a missing one.
+     */
+    private List<Path> files() throws Exception {
+        return Arrays.asList(TestFiles.items(this.folder.newFile("a.csv"), 0, 10).toPath(),
+                new File(this.folder.getRoot(), "missing.csv").toPath(),
+                TestFiles.items(this.folder.newFile("b.csv"), 10, 25).toPath());
+    }
+
+    @Test
+    public void failingFileDoesNotAbortTheBatch() throws Exception {
+        List<Path> files = this.files();
+
+        BulkResult result = this.bulkParser().parse(files);
+
+        assertEquals(3, result.getFileCount());
+        assertEquals(2, result.getSucceededCount());
+        assertEquals(1, result.getFailedCount());
+        assertEquals(25, result.getRowCount());
+        assertEquals(files.get(1), result.getFailures().get(0).getPath());
+        assertEquals(TestFiles.beans(0, 10), TestFiles.strings(result.getFileResults().get(0).getBeans()));
+        assertNull(result.getFileResults().get(1).getBeans());
+        assertEquals(TestFiles.beans(10, 25), TestFiles.strings(result.getFileResults().get(2).getBeans()));
+    }
+
+    @Test
+    public void consumerFailuresAreCountedOncePerFile() throws Exception {
+        final List<Path> consumed = Collections.synchronizedList(new ArrayList<Path>());
+        final RuntimeException rejected = new IllegalStateException("rejected");
+        List<Path> files = this.files();
+
+        BulkResult result = this.bulkParser().parse(files, new Consumer<FileResult>() {
+            @Override
+            public void accept(FileResult fileResult) {
+                consumed.add(fileResult.getPath());
+                throw rejected;
+            }
+        });
+
+        assertEquals(3, consumed.size());
+        assertEquals(3, result.getFailedCount());
+        assertEquals(0, result.getSucceededCount());
+        assertTrue(result.getFileResults().isEmpty());
+        for (FileResult failure : result.getFailures()) {
+            if (failure.getPath().equals(files.get(1))) {
+                assertNotNull(failure.getFailure());
+                assertEquals(Arrays.asList(rejected), Arrays.asList(failure.getFailure().getSuppressed()));
+            } else {
+                assertSame(rejected, failure.getFailure());
+            }
+        }
+    }
+
+    @Test
+    public void consumerGetsEveryFile() throws Exception {
+        final List<FileResult> consumed = Collections.synchronizedList(new ArrayList<FileResult>());
+
+        BulkResult result = this.bulkParser().parse(this.files(), new Consumer<FileResult>() {
+            @Override
+            public void accept(FileResult fileResult) {
+                consumed.add(fileResult);
+            }
+        });
+
+        assertEquals(3, consumed.size());
+        assertEquals(2, result.getSucceededCount());
+        assertEquals(1, result.getFailedCount());
+        assertEquals(25, result.getRowCount());
+    }
+}
@@ -0,0 +1,155 @@
+package com.gizbel.excel.factory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gizbel.excel.enums.ExcelFactoryType;
+
+/**
+ * Resuming a batch parse from its state file.
+ */
+public class CheckpointTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Commits the batches it accepts and fails on the given one, as a crash
+     * would.
+     */
+    static class FailingConsumer implements BatchConsumer<Item> {
+
+        final List<String> committed = new ArrayList<String>();
+
+        private final int failingBatch;
+
+        private int batches;
+
+        FailingConsumer(int failingBatch) {
+            this.failingBatch = failingBatch;
+        }
+
+        @Override
+        public void accept(List<Item> batch) throws Exception {
+            if (++this.batches == this.failingBatch)
+                throw new Exception("Crashed on batch " + this.batches);
+            this.committed.addAll(TestFiles.strings(batch));
+        }
+    }
+
+    private static Parser<Item> parser(ExcelFactoryType type) throws Exception {
+        Parser<Item> parser = new Parser<Item>(Item.class, type);
+        parser.setSkipHeader(true);
+        return parser;
+    }
+
+    private static void crash(Parser<Item> parser, File file, File state, FailingConsumer consumer)
+            throws Exception {
+        try {
+            parser.parse(file, 10, consumer, state);
+            fail("The consumer should have failed");
+        } catch (ExtractionException e) {
+            assertTrue(e.getCause().getMessage().startsWith("Crashed"));
+        }
+    }
+
+    @Test
+    public void resumeDeliversEachBeanOnce() throws Exception {
+        File file = TestFiles.items(this.folder.newFile("items.csv"), 0, 95);
+        for (ExcelFactoryType type : ExcelFactoryType.values()) {
+            File state = new File(this.folder.getRoot(), type + ".state");
+            List<String> delivered = new ArrayList<String>();
+
+            FailingConsumer first = new FailingConsumer(4);
+            crash(parser(type), file, state, first);
+            delivered.addAll(first.committed);
+            Checkpoint checkpoint = Checkpoint.load(state);
+            assertEquals(30, checkpoint.getBeanCount());
+            assertEquals(30, checkpoint.getRowNum());
+            assertFalse(checkpoint.isComplete());
+
+            FailingConsumer second = new FailingConsumer(3);
+            crash(parser(type), file, state, second);
+            delivered.addAll(second.committed);
+
+            FailingConsumer last = new FailingConsumer(0);
+            assertEquals(45, parser(type).parse(file, 10, last, state));
+            delivered.addAll(last.committed);
+
+            assertEquals(TestFiles.beans(0, 95), delivered);
+            assertEquals(95, Checkpoint.load(state).getBeanCount());
+            assertTrue(Checkpoint.load(state).isComplete());
+        }
+    }
+
+    @Test
+    public void resumeSkipsTheDeliveredRowsOfWorkbooks() throws Exception {
+        List<Item> items = new ArrayList<Item>();
+        for (int i = 0; i < 95; i++)
+            items.add(new Item("item" + i, i, i * 1.5));
+        File file = this.folder.newFile("items.xlsx");
+        new ExcelWriter<Item>(Item.class, ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION).write(items, file);
+        for (boolean streaming : new boolean[] { true, false }) {
+            File state = new File(this.folder.getRoot(), streaming + ".state");
+            Parser<Item> parser = parser(ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION);
+            parser.setStreaming(streaming);
+
+            FailingConsumer first = new FailingConsumer(5);
+            crash(parser, file, state, first);
+            FailingConsumer last = new FailingConsumer(0);
+            assertEquals(55, parser.parse(file, 10, last, state));
+
+            List<String> delivered = new ArrayList<String>(first.committed);
+            delivered.addAll(last.committed);
+            assertEquals(TestFiles.strings(items), delivered);
+        }
+    }
+
+    @Test
+    public void completedParseDeliversNothing() throws Exception {
+        File file = TestFiles.items(this.folder.newFile("items.csv"), 0, 25);
+        File state = new File(this.folder.getRoot(), "items.state");
+        Parser<Item> parser = parser(ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION);
+
+        assertEquals(25, parser.parse(file, 10, new FailingConsumer(0), state));
+        FailingConsumer again = new FailingConsumer(0);
+        assertEquals(0, parser.parse(file, 10, again, state));
+        assertTrue(again.committed.isEmpty());
+    }
+
+    @Test
+    public void stateFileIsCreatedOnTheFirstBatch() throws Exception {
+        File file = TestFiles.items(this.folder.newFile("items.csv"), 0, 25);
+        File state = new File(this.folder.getRoot(), "items.state");
+
+        crash(parser(ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION), file, state, new FailingConsumer(1));
+
+        assertNull(Checkpoint.load(state));
+    }
+
+    @Test
+    public void checkpointOfAnotherFileIsRejected() throws Exception {
+        File file = TestFiles.items(this.folder.newFile("items.csv"), 0, 25);
+        File other = TestFiles.items(this.folder.newFile("other.csv"), 0, 26);
+        File state = new File(this.folder.getRoot(), "items.state");
+        crash(parser(ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION), file, state, new FailingConsumer(2));
+
+        try {
+            parser(ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION).parse(other, 10, new FailingConsumer(0), state);
+            fail("The checkpoint of another file should be rejected");
+        } catch (ExtractionException e) {
+            assertTrue(e.getMessage().contains("another file"));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.gizbel.excel.factory;
+
+import com.gizbel.excel.annotations.ExcelBean;
+import com.gizbel.excel.annotations.ExcelColumnIndex;
+
+/**
+ * Bean bound through its setters, which normalise the values, the note has
+ * no accessors and is set directly.
+ */
+@ExcelBean(useSetters = true)
+public class Code {
+
+    @ExcelColumnIndex(columnIndex = "0")
+    private String code;
+
+    @ExcelColumnIndex(columnIndex = "1", dataType = "int")
+    private int count;
+
+    @ExcelColumnIndex(columnIndex = "2")
+    private String note;
+
+    public String getCode() {
+        return code;
+    }
+
+    public void setCode(String code) {
+        this.code = code == null ? null : code.toUpperCase();
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = Math.max(count, 0);
+    }
+
+    @Override
+    public String toString() {
+        return code + "|" + count + "|" + note;
+    }
+}
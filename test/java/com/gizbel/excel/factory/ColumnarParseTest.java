@@ -0,0 +1,172 @@
+package com.gizbel.excel.factory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gizbel.excel.enums.ExcelFactoryType;
+
+/**
+ * Parser.parseColumnar of Entry sheets whose columns are not in the order of
+ * the fields, into the Stock columns.
+ */
+public class ColumnarParseTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final int ENTRIES = 20;
+
+    /**
+     * Entries with the columns in another order than the fields, then a row
+     * stopping after the name and a row with a blank quantity and note.
+     */
+    private static List<Object[]> rows() {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        rows.add(new Object[] { "Note", "Day", "Name", "Active", "Price", "Quantity" });
+        for (int i = 0; i < ENTRIES; i++) {
+            Object[] row = TestWorkbooks.row(i);
+            rows.add(new Object[] { row[5], row[3], row[0], row[4], row[2], row[1] });
+        }
+        rows.add(new Object[] { "note1", LocalDate.of(2016, 1, 1), "short" });
+        rows.add(new Object[] { TestWorkbooks.BLANK, LocalDate.of(2016, 1, 2), "blanks", true, 2.5,
+                TestWorkbooks.BLANK });
+        return rows;
+    }
+
+    private List<File> files() throws Exception {
+        return Arrays.asList(TestWorkbooks.xlsx(this.folder.newFile("stock.xlsx"), true, rows()),
+                TestWorkbooks.xls(this.folder.newFile("stock.xls"), rows()));
+    }
+
+    private static Parser<Stock> parser(boolean streaming) throws Exception {
+        Parser<Stock> parser = new Parser<Stock>(Stock.class, ExcelFactoryType.COLUMN_NAME_BASED_EXTRACTION);
+        parser.setStreaming(streaming);
+        return parser;
+    }
+
+    @Test
+    public void resolvesTheColumnsFromTheHeaders() throws Exception {
+        for (File file : this.files()) {
+            for (boolean streaming : new boolean[] { false, true }) {
+                ColumnarTable table = parser(streaming).parseColumnar(file);
+
+                assertEquals(ENTRIES + 2, table.getRowCount());
+                List<String> names = new ArrayList<String>();
+                for (Column column : table.getColumns())
+                    names.add(column.getName());
+                assertEquals(Arrays.asList("name", "quantity", "price", "day", "active", "note", "warehouse"), names);
+                StringColumn name = table.getColumn("name", StringColumn.class);
+                IntColumn quantity = table.getColumn("quantity", IntColumn.class);
+                DoubleColumn price = table.getColumn("price", DoubleColumn.class);
+                @SuppressWarnings("unchecked")
+                ObjectColumn<LocalDate> day = table.getColumn("day", ObjectColumn.class);
+                for (int i = 0; i < ENTRIES; i++) {
+                    Object[] row = TestWorkbooks.row(i);
+                    assertEquals(row[0], name.getString(i));
+                    assertEquals(i, quantity.getInt(i));
+                    assertEquals(i * 1.25, price.getDouble(i), 0);
+                    assertEquals(row[3], day.get(i));
+                }
+                assertEquals(LocalDate.class, day.getValueClass());
+            }
+        }
+    }
+
+    @Test
+    public void keepsTheNullRowsAndTheDefaultValues() throws Exception {
+        for (File file : this.files()) {
+            for (boolean streaming : new boolean[] { false, true }) {
+                ColumnarTable table = parser(streaming).parseColumnar(file);
+                IntColumn quantity = table.getColumn("quantity", IntColumn.class);
+                BooleanColumn active = table.getColumn("active", BooleanColumn.class);
+                StringColumn note = table.getColumn("note", StringColumn.class);
+
+                // Blank cells take the default value of the field
+                assertEquals(-1, quantity.getInt(ENTRIES + 1));
+                assertEquals("none", note.getString(0));
+                assertEquals("none", note.getString(ENTRIES + 1));
+                assertEquals(0, note.getNullCount());
+                // Blank booleans without default are null
+                for (int i = 0; i < ENTRIES; i++)
+                    assertEquals(String.valueOf(i), i % 4 == 0, active.isNull(i));
+                assertEquals(ENTRIES / 2 + 1, active.getTrueCount());
+                assertEquals(Boolean.TRUE, active.getObject(ENTRIES + 1));
+            }
+        }
+    }
+
+    @Test
+    public void leavesTheCellsAfterTheEndOfAShortRowNull() throws Exception {
+        for (File file : this.files()) {
+            ColumnarTable table = parser(true).parseColumnar(file);
+            int row = ENTRIES;
+
+            assertEquals("short", table.getColumn("name").getObject(row));
+            assertEquals(LocalDate.of(2016, 1, 1), table.getColumn("day").getObject(row));
+            assertEquals("note1", table.getColumn("note").getObject(row));
+            // Past the last cell of the row, defaults included, as for the beans
+            assertTrue(table.getColumn("active").isNull(row));
+            assertTrue(table.getColumn("price").isNull(row));
+            assertTrue(table.getColumn("quantity").isNull(row));
+            Stock bean = (Stock) parser(true).parse(file).get(row);
+            assertEquals(0, bean.getQuantity());
+            assertNull(bean.getPrice());
+        }
+    }
+
+    @Test
+    public void encodesTheStringsInADictionary() throws Exception {
+        for (File file : this.files()) {
+            ColumnarTable table = parser(true).parseColumnar(file);
+            StringColumn note = table.getColumn("note", StringColumn.class);
+            StringColumn warehouse = table.getColumn("warehouse", StringColumn.class);
+
+            assertEquals(Arrays.asList("none", "note1", "note2", "note4", "note0", "note3"), note.getDictionary());
+            for (int i = 0; i < table.getRowCount(); i++) {
+                assertEquals(note.getString(i), note.getDictionary().get(note.getCode(i)));
+                assertEquals(note.getCode(i), note.getCodes()[i]);
+            }
+            assertEquals(note.getCode(1), note.getCode(11));
+            assertFalse(note.getCode(1) == note.getCode(2));
+            // A header missing from the sheet gives a column of nulls
+            assertEquals(table.getRowCount(), warehouse.getNullCount());
+            assertTrue(warehouse.getDictionary().isEmpty());
+            assertEquals(-1, warehouse.getCode(0));
+            assertNull(warehouse.getString(0));
+        }
+    }
+
+    @Test
+    public void holdsTheValuesOfTheBeans() throws Exception {
+        for (File file : this.files()) {
+            Parser<Stock> parser = parser(true);
+            ColumnarTable table = parser.parseColumnar(file);
+            List<Object> beans = parser.parse(file);
+
+            assertEquals(beans.size(), table.getRowCount());
+            for (int i = 0; i < beans.size(); i++) {
+                Stock bean = (Stock) beans.get(i);
+                assertEquals(bean.getName(), table.getColumn("name").getObject(i));
+                assertEquals(bean.getPrice(), table.getColumn("price").getObject(i));
+                assertEquals(bean.getDay(), table.getColumn("day").getObject(i));
+                assertEquals(bean.getActive(), table.getColumn("active").getObject(i));
+                assertEquals(bean.getNote(), table.getColumn("note").getObject(i));
+                assertEquals(bean.getWarehouse(), table.getColumn("warehouse").getObject(i));
+                if (!table.getColumn("quantity").isNull(i))
+                    assertEquals(bean.getQuantity(), table.getColumn("quantity").getObject(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.gizbel.excel.factory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gizbel.excel.enums.ExcelFactoryType;
+import com.gizbel.excel.factory.DelimitedStreamReader.Chunk;
+
+/**
+ * Tokenizing of csv and tsv files, and their parse in chunks.
+ */
+public class DelimitedTextTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Parser<Item> parser(ExcelFactoryType type, int parallelism) throws Exception {
+        Parser<Item> parser = new Parser<Item>(Item.class, type);
+        parser.setSkipHeader(true);
+        parser.setParallelism(parallelism);
+        return parser;
+    }
+
+    private static List<String> parse(File file, ExcelFactoryType type, int parallelism) throws Exception {
+        return TestFiles.strings(parser(type, parallelism).parse(file));
+    }
+
+    /**
+     * Records of the file read by the reader, fields separated by a tab.
+     */
+    private static List<String> records(DelimitedStreamReader reader, Chunk chunk) throws Exception {
+        final List<String> records = new ArrayList<String>();
+        reader.read(chunk, RowFilter.ALL, new RowCallback() {
+            @Override
+            public boolean onRow(RowBuffer row) {
+                StringBuilder record = new StringBuilder().append(row.getRowNum()).append(':');
+                for (int i = 0; i < row.getLastCellNum(); i++)
+                    record.append(i == 0 ? "" : "\t").append(row.getText(i));
+                records.add(record.toString());
+                return true;
+            }
+        });
+        return records;
+    }
+
+    @Test
+    public void quotedFieldsFollowRfc4180() throws Exception {
+        File file = this.folder.newFile("quoted.csv");
+        String text = "Name,Quantity,Price\r\n"
+                + "\"a, b\",1,1.5\r\n"
+                + "\"two\r\nlines\",2,3\r\n"
+                + "\"say \"\"hi\"\"\",3,4.5\r\n"
+                + "\"\",4,6\r\n"
+                + "plain,5,7.5";
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+
+        List<String> expected = Arrays.asList("a, b|1|1.5", "two\r\nlines|2|3.0", "say \"hi\"|3|4.5", "null|4|6.0",
+                "plain|5|7.5");
+        assertEquals(expected, parse(file, ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION, 1));
+        assertEquals(expected, parse(file, ExcelFactoryType.COLUMN_NAME_BASED_EXTRACTION, 1));
+    }
+
+    @Test
+    public void emptyFieldsAreLeftUnset() throws Exception {
+        File file = TestFiles.write(this.folder.newFile("empty.csv"), TestFiles.HEADER, "item,,2.5", ",3,");
+
+        assertEquals(Arrays.asList("item|null|2.5", "null|3|null"),
+                parse(file, ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION, 1));
+    }
+
+    @Test
+    public void byteOrderMarkIsSkipped() throws Exception {
+        File file = this.folder.newFile("bom.csv");
+        byte[] text = (TestFiles.HEADER + "\n" + TestFiles.record(1) + "\n").getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = new byte[text.length + 3];
+        bytes[0] = (byte) 0xEF;
+        bytes[1] = (byte) 0xBB;
+        bytes[2] = (byte) 0xBF;
+        System.arraycopy(text, 0, bytes, 3, text.length);
+        Files.write(file.toPath(), bytes);
+
+        // The first header would not match with the mark left in it
+        assertEquals(Arrays.asList(TestFiles.bean(1)), parse(file, ExcelFactoryType.COLUMN_NAME_BASED_EXTRACTION, 1));
+    }
+
+    @Test
+    public void tsvFilesAreSplitOnTabs() throws Exception {
+        File file = TestFiles.write(this.folder.newFile("items.tsv"), "Name\tQuantity\tPrice", "a,b\t1\t2.5");
+
+        assertEquals(Arrays.asList("a,b|1|2.5"), parse(file, ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION, 1));
+    }
+
+    @Test
+    public void chunksHoldWholeRecords() throws Exception {
+        List<String> lines = new ArrayList<String>();
+        lines.add(TestFiles.HEADER);
+        for (int i = 0; i < 2000; i++)
+            lines.add(i % 7 == 0 ? "\"item\n" + i + "\"," + i + "," + i : TestFiles.record(i));
+        File file = TestFiles.write(this.folder.newFile("multiline.csv"), lines);
+        DelimitedStreamReader reader = new DelimitedStreamReader(WorkbookSource.of(file), ',', StandardCharsets.UTF_8);
+
+        List<Chunk> chunks = reader.split(8, 1024, true);
+
+        assertTrue(chunks.size() > 2);
+        assertEquals(0, chunks.get(0).firstRowNum);
+        assertEquals(1, chunks.get(1).firstRowNum);
+        List<String> records = new ArrayList<String>();
+        for (int i = 0; i < chunks.size(); i++) {
+            if (i > 0)
+                assertEquals(chunks.get(i - 1).end, chunks.get(i).start);
+            List<String> chunkRecords = records(reader, chunks.get(i));
+            assertTrue(chunkRecords.get(0).startsWith(chunks.get(i).firstRowNum + ":"));
+            records.addAll(chunkRecords);
+        }
+        assertEquals(file.length(), chunks.get(chunks.size() - 1).end);
+        assertEquals(records(reader, new Chunk(0, Long.MAX_VALUE, 0)), records);
+        assertEquals(2001, records.size());
+    }
+
+    @Test
+    public void chunkedParseMatchesSequential() throws Exception {
+        // Several chunks of MIN_CHUNK_SIZE
+        List<String> lines = new ArrayList<String>();
+        lines.add(TestFiles.HEADER);
+        for (int i = 0; i < 150000; i++)
+            lines.add(i % 1000 == 0 ? "\"item, \"\"" + i + "\"\"\n\"," + i + "," + i : TestFiles.record(i));
+        File file = TestFiles.write(this.folder.newFile("big.csv"), lines);
+        assertTrue(file.length() > 3 * ChunkedExtraction.MIN_CHUNK_SIZE);
+
+        for (ExcelFactoryType type : ExcelFactoryType.values()) {
+            List<String> sequential = parse(file, type, 1);
+            assertEquals(150000, sequential.size());
+            assertEquals(sequential, parse(file, type, 4));
+        }
+    }
+
+    @Test
+    public void chunkedParseAppliesTheOffset() throws Exception {
+        File file = TestFiles.items(this.folder.newFile("big.csv"), 0, 150000);
+        Parser<Item> parser = parser(ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION, 4);
+        parser.setOffset(100000);
+
+        assertEquals(TestFiles.beans(100000, 150000), TestFiles.strings(parser.parse(file)));
+    }
+
+    /**
+     * Good rows, an empty line stopping the sheet, then rows which do not
+     * convert: the chunks after the empty line are read by the workers but
+     * their failures must not surface.
+     */
+    private File endedByEmptyLine(int before, int after) throws Exception {
+        List<String> lines = new ArrayList<String>();
+        lines.add(TestFiles.HEADER);
+        for (int i = 0; i < before; i++)
+            lines.add(TestFiles.record(i));
+        lines.add("");
+        for (int i = 0; i < after; i++)
+            lines.add("bad" + i + "," + i + ",abc");
+        return TestFiles.write(this.folder.newFile("ended.csv"), lines);
+    }
+
+    @Test
+    public void chunkedParseStopsAtTheEmptyRowLikeSequential() throws Exception {
+        File file = this.endedByEmptyLine(100000, 100000);
+
+        assertEquals(TestFiles.beans(0, 100000), parse(file, ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION, 1));
+        assertEquals(TestFiles.beans(0, 100000), parse(file, ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION, 4));
+    }
+
+    @Test
+    public void lenientErrorsAfterTheEndAreNotReported() throws Exception {
+        File file = this.endedByEmptyLine(100000, 100000);
+        final List<ParseError> errors = new ArrayList<ParseError>();
+        Parser<Item> parser = parser(ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION, 4);
+        parser.setLenient(true);
+        parser.setMaxErrors(10);
+        parser.setErrorCollector(new ErrorCollector() {
+            @Override
+            public void collect(ParseError error) {
+                errors.add(error);
+            }
+        });
+
+        assertEquals(100000, parser.parse(file).size());
+        assertEquals(0, errors.size());
+    }
+
+    @Test
+    public void lenientErrorsAreReportedInFileOrder() throws Exception {
+        List<String> lines = new ArrayList<String>();
+        lines.add(TestFiles.HEADER);
+        for (int i = 0; i < 150000; i++)
+            lines.add(i % 10000 == 5 ? "bad" + i + "," + i + ",abc" : TestFiles.record(i));
+        File file = TestFiles.write(this.folder.newFile("dirty.csv"), lines);
+        final List<Integer> rows = new ArrayList<Integer>();
+        Parser<Item> parser = parser(ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION, 4);
+        parser.setLenient(true);
+        parser.setMaxErrors(3);
+        parser.setErrorCollector(new ErrorCollector() {
+            @Override
+            public void collect(ParseError error) {
+                rows.add(error.getRowNum());
+            }
+        });
+
+        try {
+            parser.parse(file);
+            fail("The fourth error should stop the parse");
+        } catch (ExtractionException e) {
+            assertEquals(Arrays.asList(6, 10006, 20006, 30006), rows);
+        }
+    }
+
+    @Test
+    public void failuresWithinTheOffsetAreSkippedLikeSequential() throws Exception {
+        List<String> lines = new ArrayList<String>();
+        lines.add(TestFiles.HEADER);
+        for (int i = 0; i < 100000; i++)
+            lines.add("bad" + i + "," + i + ",abc");
+        for (int i = 100000; i < 200000; i++)
+            lines.add(TestFiles.record(i));
+        File file = TestFiles.write(this.folder.newFile("offset.csv"), lines);
+        Parser<Item> parser = parser(ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION, 4);
+        parser.setOffset(100000);
+
+        assertEquals(TestFiles.beans(100000, 200000), TestFiles.strings(parser.parse(file)));
+    }
+}
@@ -0,0 +1,80 @@
+package com.gizbel.excel.factory;
+
+import java.time.LocalDate;
+
+import com.gizbel.excel.annotations.ExcelBean;
+import com.gizbel.excel.annotations.ExcelColumnHeader;
+import com.gizbel.excel.annotations.ExcelColumnIndex;
+
+/**
+ * Bean of the test workbooks, a row of text, numbers, a date and a boolean
+ * mapped both by column index and by header, see TestWorkbooks.
+ */
+@ExcelBean
+public class Entry {
+
+    @ExcelColumnIndex(columnIndex = "0")
+    @ExcelColumnHeader(columnHeader = "Name")
+    private String name;
+
+    @ExcelColumnIndex(columnIndex = "1", dataType = "int")
+    @ExcelColumnHeader(columnHeader = "Quantity", dataType = "int")
+    private Integer quantity;
+
+    @ExcelColumnIndex(columnIndex = "2", dataType = "double")
+    @ExcelColumnHeader(columnHeader = "Price", dataType = "double")
+    private Double price;
+
+    @ExcelColumnIndex(columnIndex = "3")
+    @ExcelColumnHeader(columnHeader = "Day")
+    private LocalDate day;
+
+    @ExcelColumnIndex(columnIndex = "4", dataType = "bool")
+    @ExcelColumnHeader(columnHeader = "Active", dataType = "bool")
+    private Boolean active;
+
+    @ExcelColumnIndex(columnIndex = "5")
+    @ExcelColumnHeader(columnHeader = "Note")
+    private String note;
+
+    public Entry() {
+    }
+
+    public Entry(String name, Integer quantity, Double price, LocalDate day, Boolean active, String note) {
+        this.name = name;
+        this.quantity = quantity;
+        this.price = price;
+        this.day = day;
+        this.active = active;
+        this.note = note;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public Double getPrice() {
+        return price;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public Boolean getActive() {
+        return active;
+    }
+
+    public String getNote() {
+        return note;
+    }
+
+    @Override
+    public String toString() {
+        return name + "|" + quantity + "|" + price + "|" + day + "|" + active + "|" + note;
+    }
+}
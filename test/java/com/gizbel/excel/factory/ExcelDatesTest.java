@@ -0,0 +1,70 @@
+package com.gizbel.excel.factory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gizbel.excel.enums.ExcelFactoryType;
+
+/**
+ * Parsing of date texts with the pattern of the annotations.
+ */
+public class ExcelDatesTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static LocalDate parse(String text, String pattern) {
+        return LocalDate.from(ExcelDates.parser(pattern).parse(text));
+    }
+
+    @Test
+    public void daysAndMonthsTakeOneDigit() {
+        assertEquals(LocalDate.of(2015, 3, 5), parse("5-3-2015", "dd-MM-yyyy"));
+        assertEquals(LocalDate.of(2015, 3, 5), parse("05-03-2015", "dd-MM-yyyy"));
+        assertEquals(LocalDate.of(2015, 12, 25), parse("2015/12/25", "yyyy/MM/dd"));
+        assertEquals(LocalDate.of(2015, 3, 5), parse("2015/3/5", "yyyy/MM/dd"));
+    }
+
+    @Test
+    public void fieldsNextToAnotherKeepTheirWidth() {
+        assertEquals(LocalDate.of(2015, 3, 5), parse("05032015", "ddMMyyyy"));
+        assertEquals(LocalDate.of(2015, 3, 5), parse("5-Mar-2015", "d-MMM-yyyy"));
+        assertEquals(LocalDate.of(2015, 3, 5), parse("'5' 03 2015", "''dd'' MM yyyy"));
+    }
+
+    @Test
+    public void impossibleDatesAreRejected() {
+        for (String text : new String[] { "31-02-2015", "29-02-2015", "32-01-2015", "5-13-2015" }) {
+            try {
+                parse(text, "dd-MM-yyyy");
+                fail("Parsed " + text);
+            } catch (DateTimeParseException expected) {
+            }
+        }
+        assertEquals(LocalDate.of(2016, 2, 29), parse("29-2-2016", "dd-MM-yyyy"));
+    }
+
+    @Test
+    public void formattingKeepsTheWidthOfThePattern() {
+        assertEquals("05-03-2015", ExcelDates.formatter("dd-MM-yyyy").format(LocalDate.of(2015, 3, 5)));
+    }
+
+    @Test
+    public void textDatesOfTheDefaultPatternAreBound() throws Exception {
+        File file = TestFiles.write(this.folder.newFile("visits.csv"), "5-3-2015,5-3-2015", "31-12-1999,31-12-1999",
+                "31-02-2015,31-02-2015", "2015-03-05,x");
+        Parser<Visit> parser = new Parser<Visit>(Visit.class, ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION);
+
+        assertEquals(Arrays.asList("2015-03-05|2015-03-05", "1999-12-31|1999-12-31", "null|null", "null|null"),
+                TestFiles.strings(parser.parse(file)));
+    }
+}
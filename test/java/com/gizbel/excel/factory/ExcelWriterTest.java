@@ -0,0 +1,281 @@
+package com.gizbel.excel.factory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gizbel.excel.enums.ExcelFactoryType;
+
+/**
+ * ExcelWriter.write of Shipment beans, read back by the parser with the same
+ * extraction type.
+ */
+public class ExcelWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final String[] HEADERS = { "Reference", "Amount", "Units", "Shipped", "Due", "Status",
+            "Comment" };
+
+    private static Shipment shipment(int i) {
+        return new Shipment(1000 + i, new BigDecimal(i + ".25"), BigInteger.valueOf(i * 10L),
+                LocalDateTime.of(2016, 3, 1, 8, 30).plusHours(i * 7), LocalDate.of(2016, 4, 1).plusDays(i),
+                i % 2 == 0 ? Shipment.Status.PENDING : Shipment.Status.SHIPPED, i % 3 == 0 ? null : "comment" + i);
+    }
+
+    private static List<Shipment> shipments(int count) {
+        List<Shipment> shipments = new ArrayList<Shipment>();
+        for (int i = 0; i < count; i++)
+            shipments.add(shipment(i));
+        return shipments;
+    }
+
+    private File write(ExcelFactoryType type, List<Shipment> shipments) throws Exception {
+        File file = this.folder.newFile(type + ".xlsx");
+        ExcelWriter<Shipment> writer = new ExcelWriter<Shipment>(Shipment.class, type);
+        writer.setWindowSize(10);
+        assertEquals(shipments.size(), writer.write(shipments, file));
+        return file;
+    }
+
+    /**
+     * Asserts that both reading modes give back the beans.
+     */
+    private static void assertReadBack(ExcelFactoryType type, File file, List<Shipment> shipments)
+            throws Exception {
+        for (boolean streaming : new boolean[] { false, true }) {
+            Parser<Shipment> parser = new Parser<Shipment>(Shipment.class, type);
+            parser.setStreaming(streaming);
+            parser.setSkipHeader(true);
+            assertEquals(TestFiles.strings(shipments), TestFiles.strings(parser.parse(file)));
+        }
+    }
+
+    private static List<String> texts(Row row) {
+        List<String> texts = new ArrayList<String>();
+        for (int i = 0; i < row.getLastCellNum(); i++)
+            texts.add(row.getCell(i) == null ? null : row.getCell(i).toString());
+        return texts;
+    }
+
+    @Test
+    public void writesTheFieldsAtTheirColumnIndex() throws Exception {
+        List<Shipment> shipments = shipments(50);
+        File file = this.write(ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION, shipments);
+
+        XSSFWorkbook workbook = new XSSFWorkbook(file.getPath());
+        try {
+            assertEquals(51, workbook.getSheet("Sheet1").getPhysicalNumberOfRows());
+            Row header = workbook.getSheetAt(0).getRow(0);
+            assertEquals(Arrays.asList("Reference", null, "Amount", "Units", "Shipped", "Due", "Status", null,
+                    "Comment"), texts(header));
+            Row row = workbook.getSheetAt(0).getRow(2);
+            assertEquals(1001, row.getCell(0).getNumericCellValue(), 0);
+            assertNull(row.getCell(1));
+            assertEquals("1.25", row.getCell(2).toString());
+            assertNull(row.getCell(7));
+            assertEquals("comment1", row.getCell(8).getStringCellValue());
+            assertNull(workbook.getSheetAt(0).getRow(1).getCell(8));
+        } finally {
+            workbook.close();
+        }
+        assertReadBack(ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION, file, shipments);
+    }
+
+    @Test
+    public void writesTheFieldsUnderTheirHeaderInDeclarationOrder() throws Exception {
+        List<Shipment> shipments = shipments(50);
+        File file = this.write(ExcelFactoryType.COLUMN_NAME_BASED_EXTRACTION, shipments);
+
+        XSSFWorkbook workbook = new XSSFWorkbook(file.getPath());
+        try {
+            assertEquals(Arrays.asList(HEADERS), texts(workbook.getSheetAt(0).getRow(0)));
+            Row row = workbook.getSheetAt(0).getRow(2);
+            assertEquals(1001, row.getCell(0).getNumericCellValue(), 0);
+            assertEquals("1.25", row.getCell(1).toString());
+            assertEquals("SHIPPED", row.getCell(5).getStringCellValue());
+            assertEquals("comment1", row.getCell(6).getStringCellValue());
+        } finally {
+            workbook.close();
+        }
+        assertReadBack(ExcelFactoryType.COLUMN_NAME_BASED_EXTRACTION, file, shipments);
+    }
+
+    @Test
+    public void writesNoHeaderRowWhenDisabled() throws Exception {
+        List<Shipment> shipments = shipments(5);
+        File file = this.folder.newFile("noheader.xlsx");
+        ExcelWriter<Shipment> writer = new ExcelWriter<Shipment>(Shipment.class,
+                ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION);
+        writer.setWriteHeader(false);
+        writer.write(shipments, file);
+
+        Parser<Shipment> parser = new Parser<Shipment>(Shipment.class, ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION);
+        assertEquals(TestFiles.strings(shipments), TestFiles.strings(parser.parse(file)));
+    }
+
+    @Test
+    public void stylesTheDatesWithThePatternOfTheirColumn() throws Exception {
+        List<Shipment> shipments = shipments(3);
+        File byIndex = this.write(ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION, shipments);
+        File byHeader = this.write(ExcelFactoryType.COLUMN_NAME_BASED_EXTRACTION, shipments);
+
+        XSSFWorkbook workbook = new XSSFWorkbook(byIndex.getPath());
+        try {
+            for (int i = 1; i <= 3; i++) {
+                Row row = workbook.getSheetAt(0).getRow(i);
+                assertDate("dd/mm/yyyy hh:mm", row.getCell(4));
+                assertDate("yyyy-mm-dd", row.getCell(5));
+            }
+            // One style per date column
+            assertEquals(workbook.getSheetAt(0).getRow(1).getCell(5).getCellStyle().getIndex(),
+                    workbook.getSheetAt(0).getRow(3).getCell(5).getCellStyle().getIndex());
+        } finally {
+            workbook.close();
+        }
+        workbook = new XSSFWorkbook(byHeader.getPath());
+        try {
+            Row row = workbook.getSheetAt(0).getRow(1);
+            assertDate("dd/mm/yyyy hh:mm", row.getCell(3));
+            assertDate("dd.mm.yyyy", row.getCell(4));
+            assertEquals(LocalDate.of(2016, 4, 1),
+                    ExcelDates.toLocalDateTime(row.getCell(4).getNumericCellValue(), false).toLocalDate());
+        } finally {
+            workbook.close();
+        }
+    }
+
+    private static void assertDate(String format, Cell cell) {
+        assertEquals(Cell.CELL_TYPE_NUMERIC, cell.getCellType());
+        assertEquals(format, cell.getCellStyle().getDataFormatString());
+        assertTrue(format, DateUtil.isCellDateFormatted(cell));
+    }
+
+    @Test
+    public void writesTheNumbersADoubleDoesNotHoldAsText() throws Exception {
+        LocalDateTime shipped = LocalDateTime.of(2016, 3, 1, 8, 30);
+        LocalDate due = LocalDate.of(2016, 4, 1);
+        List<Shipment> shipments = Arrays.asList(
+                new Shipment((1L << 53) + 1, new BigDecimal("12345678901234567.89"), BigInteger.ONE.shiftLeft(70),
+                        shipped, due, Shipment.Status.PENDING, "inexact"),
+                new Shipment(Long.MAX_VALUE, new BigDecimal("2.50"), new BigInteger("-12345678901234567"), shipped,
+                        due, Shipment.Status.SHIPPED, "scale"),
+                new Shipment(1234, new BigDecimal("0.5"), BigInteger.TEN, shipped, due, Shipment.Status.SHIPPED,
+                        "exact"));
+        File file = this.write(ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION, shipments);
+
+        XSSFWorkbook workbook = new XSSFWorkbook(file.getPath());
+        try {
+            Row inexact = workbook.getSheetAt(0).getRow(1);
+            assertEquals("9007199254740993", text(inexact.getCell(0)));
+            assertEquals("12345678901234567.89", text(inexact.getCell(2)));
+            assertEquals("1180591620717411303424", text(inexact.getCell(3)));
+            Row scale = workbook.getSheetAt(0).getRow(2);
+            assertEquals(String.valueOf(Long.MAX_VALUE), text(scale.getCell(0)));
+            // 2.5 would read back without its scale
+            assertEquals("2.50", text(scale.getCell(2)));
+            assertEquals("-12345678901234567", text(scale.getCell(3)));
+            Row exact = workbook.getSheetAt(0).getRow(3);
+            assertEquals(1234, exact.getCell(0).getNumericCellValue(), 0);
+            assertEquals(0.5, exact.getCell(2).getNumericCellValue(), 0);
+            assertEquals(10, exact.getCell(3).getNumericCellValue(), 0);
+        } finally {
+            workbook.close();
+        }
+        assertReadBack(ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION, file, shipments);
+    }
+
+    private static String text(Cell cell) {
+        assertEquals(Cell.CELL_TYPE_STRING, cell.getCellType());
+        return cell.getStringCellValue();
+    }
+
+    @Test
+    public void writesTheDatesBefore1900AsText() throws Exception {
+        List<Shipment> shipments = Arrays.asList(
+                new Shipment(1, BigDecimal.ONE, BigInteger.ONE, LocalDateTime.of(1899, 12, 31, 23, 15),
+                        LocalDate.of(1850, 6, 1), Shipment.Status.SHIPPED, "old"),
+                shipment(1));
+        File byIndex = this.write(ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION, shipments);
+        File byHeader = this.write(ExcelFactoryType.COLUMN_NAME_BASED_EXTRACTION, shipments);
+
+        XSSFWorkbook workbook = new XSSFWorkbook(byIndex.getPath());
+        try {
+            Row row = workbook.getSheetAt(0).getRow(1);
+            assertEquals("31/12/1899 23:15", text(row.getCell(4)));
+            assertEquals("1850-06-01", text(row.getCell(5)));
+            assertDate("yyyy-mm-dd", workbook.getSheetAt(0).getRow(2).getCell(5));
+        } finally {
+            workbook.close();
+        }
+        workbook = new XSSFWorkbook(byHeader.getPath());
+        try {
+            assertEquals("01.06.1850", text(workbook.getSheetAt(0).getRow(1).getCell(4)));
+        } finally {
+            workbook.close();
+        }
+        assertReadBack(ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION, byIndex, shipments);
+        assertReadBack(ExcelFactoryType.COLUMN_NAME_BASED_EXTRACTION, byHeader, shipments);
+    }
+
+    @Test
+    public void deletesTheFileWhenTheWritingFails() throws Exception {
+        File file = this.folder.newFile("failed.xlsx");
+        FileOutputStream out = new FileOutputStream(file);
+        out.write("previous content".getBytes("UTF-8"));
+        out.close();
+        // Fails after some rows were flushed to the temp file
+        Iterable<Shipment> failing = new Iterable<Shipment>() {
+            @Override
+            public Iterator<Shipment> iterator() {
+                return new Iterator<Shipment>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return true;
+                    }
+
+                    @Override
+                    public Shipment next() {
+                        if (this.next == 150)
+                            throw new IllegalStateException("No more shipments");
+                        return shipment(this.next++);
+                    }
+                };
+            }
+        };
+        ExcelWriter<Shipment> writer = new ExcelWriter<Shipment>(Shipment.class,
+                ExcelFactoryType.COLUMN_NAME_BASED_EXTRACTION);
+        writer.setWindowSize(10);
+        try {
+            writer.write(failing, file);
+            fail("Wrote a failing iterable");
+        } catch (IllegalStateException expected) {
+            assertEquals("No more shipments", expected.getMessage());
+        }
+        assertFalse(file.exists());
+    }
+}
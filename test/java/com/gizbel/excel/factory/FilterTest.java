@@ -0,0 +1,198 @@
+package com.gizbel.excel.factory;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gizbel.excel.enums.ExcelFactoryType;
+
+/**
+ * Rows rejected by the ExcelFilter annotations of Order and by the filters
+ * added to the parser, and the rejections counted by each filter.
+ */
+public class FilterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final Object BLANK = TestWorkbooks.BLANK;
+
+    private static final LocalDateTime PLACED = LocalDateTime.of(2020, 12, 31, 18, 45);
+
+    private static final LocalDateTime DUE = LocalDateTime.of(2020, 6, 15, 9, 30);
+
+    private static final LocalDateTime SHIPPED = LocalDateTime.of(2020, 12, 31, 12, 0);
+
+    /**
+     * Order rows, each one rejected by at most one filter, named after it.
+     */
+    private static List<Object[]> rows() {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        rows.add(new Object[] { "Reference", "Status", "Quantity", "Placed", "Due", "Paid", "Shipped" });
+        // Kept: the last day of the range at 18:45 and the due day at 09:30
+        rows.add(new Object[] { "kept1", "OPEN", 7, PLACED, DUE, true, SHIPPED });
+        // Kept: the bounds themselves, the values as text
+        rows.add(new Object[] { "kept2", "PENDING", 5, LocalDateTime.of(2020, 1, 1, 0, 0), "16-06-2020", "true",
+                "31-12-2020 12:00" });
+        rows.add(new Object[] { "kept3", "OPEN", 10, "15-03-2020", LocalDateTime.of(2020, 6, 16, 23, 59), true,
+                LocalDateTime.of(2019, 1, 1, 0, 0) });
+        rows.add(new Object[] { "status1", "CLOSED", 7, PLACED, DUE, true, SHIPPED });
+        rows.add(new Object[] { "status2", BLANK, 7, PLACED, DUE, true, SHIPPED });
+        rows.add(new Object[] { "quantity1", "OPEN", 11, PLACED, DUE, true, SHIPPED });
+        rows.add(new Object[] { "quantity2", "OPEN", "many", PLACED, DUE, true, SHIPPED });
+        rows.add(new Object[] { "placed1", "OPEN", 7, LocalDateTime.of(2021, 1, 1, 0, 0), DUE, true, SHIPPED });
+        rows.add(new Object[] { "placed2", "OPEN", 7, LocalDateTime.of(2019, 12, 31, 23, 59), DUE, true, SHIPPED });
+        rows.add(new Object[] { "placed3", "OPEN", 7, "31/12/2020", DUE, true, SHIPPED });
+        rows.add(new Object[] { "due1", "OPEN", 7, PLACED, LocalDateTime.of(2020, 6, 17, 9, 30), true, SHIPPED });
+        rows.add(new Object[] { "due2", "OPEN", 7, PLACED, BLANK, true, SHIPPED });
+        rows.add(new Object[] { "paid1", "OPEN", 7, PLACED, DUE, false, SHIPPED });
+        rows.add(new Object[] { "paid2", "OPEN", 7, PLACED, DUE, "yes", SHIPPED });
+        // The filter pattern has a time, so the time of the day counts
+        rows.add(new Object[] { "shipped1", "OPEN", 7, PLACED, DUE, true, LocalDateTime.of(2020, 12, 31, 12, 1) });
+        return rows;
+    }
+
+    private List<File> files() throws Exception {
+        return Arrays.asList(TestWorkbooks.xlsx(this.folder.newFile("orders.xlsx"), true, rows()),
+                TestWorkbooks.xls(this.folder.newFile("orders.xls"), rows()));
+    }
+
+    private static Parser<Order> parser(boolean streaming) throws Exception {
+        Parser<Order> parser = new Parser<Order>(Order.class, ExcelFactoryType.COLUMN_NAME_BASED_EXTRACTION);
+        parser.setStreaming(streaming);
+        return parser;
+    }
+
+    private static List<String> references(List<Object> orders) {
+        List<String> references = new ArrayList<String>();
+        for (Object order : orders)
+            references.add(((Order) order).getReference());
+        return references;
+    }
+
+    private static List<Long> rejectedCounts(Parser<?> parser) {
+        List<Long> counts = new ArrayList<Long>();
+        for (ColumnFilter filter : parser.getFilters())
+            counts.add(filter.getRejectedCount());
+        return counts;
+    }
+
+    @Test
+    public void keepsTheRowsMatchingTheAnnotations() throws Exception {
+        for (File file : this.files()) {
+            for (boolean streaming : new boolean[] { false, true }) {
+                List<Object> orders = parser(streaming).parse(file);
+
+                assertEquals(file.getName(), Arrays.asList("kept1", "kept2", "kept3"), references(orders));
+                assertEquals("kept1|OPEN|7|2020-12-31T18:45|2020-06-15T09:30|true|2020-12-31T12:00",
+                        orders.get(0).toString());
+                assertEquals("kept2|PENDING|5|2020-01-01T00:00|2020-06-16T00:00|true|2020-12-31T12:00",
+                        orders.get(1).toString());
+                assertEquals("kept3|OPEN|10|2020-03-15T00:00|2020-06-16T23:59|true|2019-01-01T00:00",
+                        orders.get(2).toString());
+            }
+        }
+    }
+
+    @Test
+    public void countsTheRowsRejectedByEachFilter() throws Exception {
+        for (File file : this.files()) {
+            Parser<Order> parser = parser(true);
+            List<ColumnFilter> filters = parser.getFilters();
+            assertEquals(6, filters.size());
+            assertEquals("Status", filters.get(0).getColumnHeader());
+            assertEquals(-1, filters.get(0).getColumnIndex());
+
+            parser.parse(file);
+            assertEquals(Arrays.asList(2L, 2L, 3L, 2L, 2L, 1L), rejectedCounts(parser));
+            assertEquals(12, parser.getRejectedCount());
+            // Counts add up over the parses, workbook mode included
+            parser.setStreaming(false);
+            parser.parse(file);
+            assertEquals(Arrays.asList(4L, 4L, 6L, 4L, 4L, 2L), rejectedCounts(parser));
+            parser.resetRejectedCounts();
+            assertEquals(0, parser.getRejectedCount());
+        }
+    }
+
+    @Test
+    public void rejectsTheRowsNotMatchingAnAddedFilter() throws Exception {
+        for (File file : this.files()) {
+            for (boolean streaming : new boolean[] { false, true }) {
+                Parser<Order> parser = parser(streaming);
+                final List<Integer> rowNums = new ArrayList<Integer>();
+                ColumnFilter byHeader = parser.addFilter("Reference", new CellPredicate() {
+                    @Override
+                    public boolean test(CellValue cell) {
+                        rowNums.add(cell.getRowNum());
+                        return !cell.getText().equals("kept2");
+                    }
+                });
+                // A header missing from the sheet gives blank cells
+                ColumnFilter missing = parser.addFilter("Missing", new CellPredicate() {
+                    @Override
+                    public boolean test(CellValue cell) {
+                        return cell.isBlank() && cell.getText() == null;
+                    }
+                });
+
+                assertEquals(Arrays.asList("kept1", "kept3"), references(parser.parse(file)));
+                assertEquals(1, byHeader.getRejectedCount());
+                assertEquals(0, missing.getRejectedCount());
+                assertEquals(13, parser.getRejectedCount());
+                // Only the rows the annotations let through reach the added filters
+                assertEquals(Arrays.asList(1, 2, 3), rowNums);
+            }
+        }
+    }
+
+    @Test
+    public void testsTheRawCellsOfAColumnByIndex() throws Exception {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (int i = 0; i < 10; i++)
+            rows.add(new Object[] { "item" + i, i, i * 1.5 });
+        rows.add(new Object[] { "text", "many", BLANK });
+        File file = TestWorkbooks.xls(this.folder.newFile("items.xls"), rows);
+        Parser<Item> parser = new Parser<Item>(Item.class, ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION);
+        parser.setStreaming(true);
+        final List<String> kinds = new ArrayList<String>();
+        ColumnFilter filter = parser.addFilter(2, new CellPredicate() {
+            @Override
+            public boolean test(CellValue cell) {
+                kinds.add(cell.isBlank() ? "blank" : cell.isNumber() ? "number" : "text");
+                return !cell.isBlank() && cell.getNumber() >= 6;
+            }
+        });
+
+        assertEquals(TestFiles.beans(4, 10), TestFiles.strings(parser.parse(file)));
+        assertEquals(5, filter.getRejectedCount());
+        assertEquals("blank", kinds.get(10));
+        assertEquals(11, kinds.size());
+    }
+
+    @Test
+    public void comparesTheDatesOnTheDayWhenTheBoundsHaveNoTime() throws Exception {
+        // Same rows as text in the filter pattern, the day of the serial dates only counts
+        List<Object[]> rows = new ArrayList<Object[]>();
+        rows.add(new Object[] { "Reference", "Status", "Quantity", "Placed", "Due", "Paid", "Shipped" });
+        rows.add(new Object[] { "serial", "OPEN", 7, PLACED, DUE, true, SHIPPED });
+        rows.add(new Object[] { "text", "OPEN", 7, "31-12-2020", "15-06-2020", true, "31-12-2020 12:00" });
+        rows.add(new Object[] { "after", "OPEN", 7, LocalDate.of(2021, 1, 1), DUE, true, SHIPPED });
+        File file = TestWorkbooks.xlsx(this.folder.newFile("days.xlsx"), false, rows);
+        for (boolean streaming : new boolean[] { false, true }) {
+            Parser<Order> parser = parser(streaming);
+
+            assertEquals(Arrays.asList("serial", "text"), references(parser.parse(file)));
+            assertEquals(1, parser.getFilters().get(2).getRejectedCount());
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.gizbel.excel.factory;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gizbel.excel.enums.ExcelFactoryType;
+
+/**
+ * Parser.parse of content in memory, delimited text is only read as such
+ * when the caller says so. Workbooks read from memory or from a path give the
+ * beans of the file.
+ */
+public class InMemoryParseTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final byte[] CSV = (TestFiles.record(1) + "\n" + TestFiles.record(2) + "\n")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private Parser<Item> parser() throws Exception {
+        return new Parser<Item>(Item.class, ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION);
+    }
+
+    @Test
+    public void rejectsUnnamedContentOfUnknownFormat() throws Exception {
+        try {
+            this.parser().parse(CSV);
+            fail("Parsed content of unknown format");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void readsUnnamedContentAsDelimitedTextOnceADelimiterIsSet() throws Exception {
+        Parser<Item> parser = this.parser();
+        parser.setDelimiter(',');
+
+        assertEquals(TestFiles.beans(1, 3), TestFiles.strings(parser.parse(ByteBuffer.wrap(CSV))));
+    }
+
+    @Test
+    public void tellsDelimitedTextFromTheName() throws Exception {
+        assertEquals(TestFiles.beans(1, 3),
+                TestFiles.strings(this.parser().parse(new ByteArrayInputStream(CSV), "upload.csv")));
+        String tsv = TestFiles.record(1).replace(',', '\t');
+
+        assertEquals(Arrays.asList(TestFiles.bean(1)),
+                TestFiles.strings(this.parser().parse(tsv.getBytes(StandardCharsets.UTF_8), "upload.TSV")));
+    }
+
+    @Test
+    public void rejectsNamedContentOfUnknownFormat() throws Exception {
+        try {
+            this.parser().parse(CSV, "upload.dat");
+            fail("Parsed content of unknown format");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static Parser<Entry> entryParser(boolean streaming) throws Exception {
+        Parser<Entry> parser = new Parser<Entry>(Entry.class, ExcelFactoryType.COLUMN_NAME_BASED_EXTRACTION);
+        parser.setStreaming(streaming);
+        return parser;
+    }
+
+    /**
+     * Asserts that every way of handing the content of the workbook to the
+     * parser gives the beans of parse(File), which leaves the file as it was.
+     */
+    private void assertSameBeans(File file) throws Exception {
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        long lastModified = file.lastModified();
+        for (boolean streaming : new boolean[] { false, true }) {
+            String message = file.getName() + (streaming ? " streamed" : " loaded");
+            List<String> expected = TestFiles.strings(entryParser(streaming).parse(file));
+            assertEquals(message, TestWorkbooks.beans(0, 50), expected);
+
+            assertEquals(message, expected,
+                    TestFiles.strings(entryParser(streaming).parse(new ByteArrayInputStream(bytes))));
+            assertEquals(message, expected,
+                    TestFiles.strings(entryParser(streaming).parse(new ByteArrayInputStream(bytes), file.getName())));
+            assertEquals(message, expected, TestFiles.strings(entryParser(streaming).parse(bytes)));
+            assertEquals(message, expected, TestFiles.strings(entryParser(streaming).parse(bytes, file.getName())));
+            // A buffer with content around the workbook, and a direct one
+            ByteBuffer padded = ByteBuffer.allocate(bytes.length + 20);
+            padded.position(10);
+            padded.put(bytes).flip().position(10);
+            assertEquals(message, expected, TestFiles.strings(entryParser(streaming).parse(padded)));
+            ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+            direct.put(bytes).flip();
+            assertEquals(message, expected, TestFiles.strings(entryParser(streaming).parse(direct, file.getName())));
+            assertEquals(message, expected, TestFiles.strings(entryParser(streaming).parse(file.toPath())));
+        }
+        assertArrayEquals(bytes, Files.readAllBytes(file.toPath()));
+        assertEquals(lastModified, file.lastModified());
+    }
+
+    @Test
+    public void readsAnXlsxWorkbookFromMemoryLikeTheFile() throws Exception {
+        this.assertSameBeans(TestWorkbooks.xlsx(this.folder.newFile("entries.xlsx"), true,
+                TestWorkbooks.rows(true, 0, 50)));
+        this.assertSameBeans(TestWorkbooks.xlsx(this.folder.newFile("inline.xlsx"), false,
+                TestWorkbooks.rows(true, 0, 50)));
+    }
+
+    @Test
+    public void readsAnXlsWorkbookFromMemoryLikeTheFile() throws Exception {
+        this.assertSameBeans(TestWorkbooks.xls(this.folder.newFile("entries.xls"), TestWorkbooks.rows(true, 0, 50)));
+    }
+
+    @Test
+    public void readsWorkbooksFromAZipFileSystem() throws Exception {
+        File xlsx = TestWorkbooks.xlsx(this.folder.newFile("entries.xlsx"), true, TestWorkbooks.rows(true, 0, 50));
+        File xls = TestWorkbooks.xls(this.folder.newFile("entries.xls"), TestWorkbooks.rows(true, 0, 50));
+        File zip = new File(this.folder.getRoot(), "entries.zip");
+        URI uri = URI.create("jar:" + zip.toURI());
+        FileSystem fs = FileSystems.newFileSystem(uri, Collections.singletonMap("create", "true"));
+        try {
+            Files.copy(xlsx.toPath(), fs.getPath("entries.xlsx"));
+            Files.copy(xls.toPath(), fs.getPath("entries.xls"));
+        } finally {
+            fs.close();
+        }
+
+        fs = FileSystems.newFileSystem(uri, Collections.<String, Object> emptyMap());
+        try {
+            for (Path path : Arrays.asList(fs.getPath("entries.xlsx"), fs.getPath("entries.xls"))) {
+                assertEquals(TestWorkbooks.beans(0, 50), TestFiles.strings(entryParser(false).parse(path)));
+                assertEquals(TestWorkbooks.beans(0, 50), TestFiles.strings(entryParser(true).parse(path)));
+            }
+        } finally {
+            fs.close();
+        }
+    }
+}
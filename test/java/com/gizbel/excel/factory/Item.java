@@ -0,0 +1,51 @@
+package com.gizbel.excel.factory;
+
+import com.gizbel.excel.annotations.ExcelBean;
+import com.gizbel.excel.annotations.ExcelColumnHeader;
+import com.gizbel.excel.annotations.ExcelColumnIndex;
+
+/**
+ * Bean of the test sheets, a row of name, quantity and price mapped both by
+ * column index and by header.
+ */
+@ExcelBean
+public class Item {
+
+    @ExcelColumnIndex(columnIndex = "0")
+    @ExcelColumnHeader(columnHeader = "Name")
+    private String name;
+
+    @ExcelColumnIndex(columnIndex = "1", dataType = "int")
+    @ExcelColumnHeader(columnHeader = "Quantity", dataType = "int")
+    private Integer quantity;
+
+    @ExcelColumnIndex(columnIndex = "2", dataType = "double")
+    @ExcelColumnHeader(columnHeader = "Price", dataType = "double")
+    private Double price;
+
+    public Item() {
+    }
+
+    public Item(String name, Integer quantity, Double price) {
+        this.name = name;
+        this.quantity = quantity;
+        this.price = price;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public Double getPrice() {
+        return price;
+    }
+
+    @Override
+    public String toString() {
+        return name + "|" + quantity + "|" + price;
+    }
+}
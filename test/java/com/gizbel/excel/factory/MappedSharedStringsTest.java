@@ -0,0 +1,266 @@
+package com.gizbel.excel.factory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.poi.hssf.record.RecordInputStream;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.poifs.filesystem.DocumentInputStream;
+import org.apache.poi.poifs.filesystem.NPOIFSFileSystem;
+import org.apache.poi.util.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gizbel.excel.enums.ExcelFactoryType;
+
+/**
+ * Shared strings tables spilled to memory mapped temp files read like the
+ * tables kept on the heap, and leave no temp file behind.
+ */
+public class MappedSharedStringsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final List<String> STRINGS = Arrays.asList("", "a", "  ", "été", "0123456789abcdef0123",
+            "€€€€€€", "b", "0123456789abcdef0123456789abcdef0123456789", "", "last");
+
+    /**
+     * Temp files of the mapped tables.
+     */
+    private static Set<Path> tempFiles() throws IOException {
+        Set<Path> files = new HashSet<Path>();
+        DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(System.getProperty("java.io.tmpdir")),
+                "excel-extractor-sst*");
+        try {
+            for (Path file : stream)
+                files.add(file);
+        } finally {
+            stream.close();
+        }
+        return files;
+    }
+
+    private static MappedSharedStrings mapped(int cacheSize, int segmentBits, List<String> strings)
+            throws IOException {
+        MappedSharedStrings mapped = new MappedSharedStrings(cacheSize, segmentBits);
+        for (String value : strings)
+            mapped.append(value);
+        mapped.finish();
+        return mapped;
+    }
+
+    private static List<String> entries(SharedStrings strings) {
+        List<String> entries = new ArrayList<String>();
+        for (int i = 0; i < strings.size(); i++)
+            entries.add(strings.getEntryAt(i));
+        return entries;
+    }
+
+    @Test
+    public void readsStringsAcrossSegmentBoundaries() throws Exception {
+        // Segments of 8 and 16 bytes, strings and offsets span several of them
+        for (int segmentBits : new int[] { 3, 4 }) {
+            MappedSharedStrings mapped = mapped(STRINGS.size(), segmentBits, STRINGS);
+            try {
+                assertEquals(STRINGS, entries(mapped));
+                assertTrue(mapped.isBlank(2));
+                assertFalse(mapped.isBlank(3));
+                // Decoded again from the files, in reverse order
+                MappedSharedStrings uncached = mapped(1, segmentBits, STRINGS);
+                try {
+                    for (int i = STRINGS.size() - 1; i >= 0; i--)
+                        assertEquals(STRINGS.get(i), uncached.getEntryAt(i));
+                } finally {
+                    uncached.close();
+                }
+            } finally {
+                mapped.close();
+            }
+        }
+    }
+
+    @Test
+    public void rejectsAnIndexOutOfTheTable() throws Exception {
+        MappedSharedStrings mapped = mapped(4, 4, STRINGS);
+        try {
+            mapped.getEntryAt(STRINGS.size());
+            fail("Read past the table");
+        } catch (IndexOutOfBoundsException expected) {
+        } finally {
+            mapped.close();
+        }
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedStrings() throws Exception {
+        MappedSharedStrings mapped = mapped(3, 4, STRINGS);
+        try {
+            mapped.getEntryAt(0);
+            mapped.getEntryAt(1);
+            mapped.getEntryAt(2);
+            mapped.getEntryAt(0);
+            assertEquals("last", mapped.getEntryAt(9));
+
+            assertTrue(mapped.isCached(0));
+            assertFalse(mapped.isCached(1));
+            assertTrue(mapped.isCached(2));
+            assertTrue(mapped.isCached(9));
+            // Evicted strings are decoded again
+            assertEquals("a", mapped.getEntryAt(1));
+            assertFalse(mapped.isCached(2));
+        } finally {
+            mapped.close();
+        }
+    }
+
+    @Test
+    public void spillsTheStringsOfAnXlsTableInTheMiddleOfTheRecord() throws Exception {
+        File file = TestWorkbooks.xls(this.folder.newFile("entries.xls"), TestWorkbooks.rows(true, 0, 3000));
+        SharedStrings heap = readSst(file, Long.MAX_VALUE);
+        // A few hundred strings on the heap, then the table goes to disk
+        SharedStrings mapped = readSst(file, 4096);
+        try {
+            assertTrue(heap instanceof HeapSharedStrings);
+            assertTrue(mapped instanceof MappedSharedStrings);
+            assertEquals(entries(heap), entries(mapped));
+        } finally {
+            mapped.close();
+        }
+    }
+
+    /**
+     * Reads the SST record of the workbook.
+     */
+    private static SharedStrings readSst(File file, long diskThreshold) throws IOException {
+        NPOIFSFileSystem fs = new NPOIFSFileSystem(file, true);
+        try {
+            DocumentInputStream in = fs.createDocumentInputStream("Workbook");
+            try {
+                RecordInputStream records = new RecordInputStream(in);
+                while (records.hasNextRecord()) {
+                    records.nextRecord();
+                    if (records.getSid() == SSTRecord.sid)
+                        return SharedStrings.read(records, diskThreshold, 16);
+                    records.readRemainder();
+                }
+                throw new IOException("No SST record in " + file);
+            } finally {
+                in.close();
+            }
+        } finally {
+            fs.close();
+        }
+    }
+
+    @Test
+    public void spillsTheStringsOfAnXlsxTableLargerThanTheThreshold() throws Exception {
+        File file = TestWorkbooks.xlsx(this.folder.newFile("entries.xlsx"), true, TestWorkbooks.rows(true, 0, 3000));
+        OPCPackage pkg = OPCPackage.open(file.getPath(), PackageAccess.READ);
+        try {
+            SharedStrings heap = SharedStrings.read(pkg, Long.MAX_VALUE, 16);
+            SharedStrings mapped = SharedStrings.read(pkg, 1, 16);
+            try {
+                assertTrue(heap instanceof HeapSharedStrings);
+                assertTrue(mapped instanceof MappedSharedStrings);
+                assertEquals(entries(heap), entries(mapped));
+            } finally {
+                mapped.close();
+            }
+        } finally {
+            pkg.revert();
+        }
+    }
+
+    @Test
+    public void parsesLikeTheHeapTable() throws Exception {
+        Set<Path> before = tempFiles();
+        File xlsx = TestWorkbooks.xlsx(this.folder.newFile("entries.xlsx"), true, TestWorkbooks.rows(true, 0, 500));
+        File xls = TestWorkbooks.xls(this.folder.newFile("entries.xls"), TestWorkbooks.rows(true, 0, 500));
+        for (File file : Arrays.asList(xlsx, xls)) {
+            Parser<Entry> parser = new Parser<Entry>(Entry.class, ExcelFactoryType.COLUMN_NAME_BASED_EXTRACTION);
+            parser.setStreaming(true);
+            parser.setSharedStringsThreshold(1);
+            parser.setSharedStringsCacheSize(8);
+
+            assertEquals(file.getName(), TestWorkbooks.beans(0, 500), TestFiles.strings(parser.parse(file)));
+            assertEquals(file.getName(), before, tempFiles());
+        }
+    }
+
+    @Test
+    public void deletesTheTempFilesOnClose() throws Exception {
+        Set<Path> before = tempFiles();
+        MappedSharedStrings mapped = mapped(4, 4, STRINGS);
+        assertEquals(before.size() + 2, tempFiles().size());
+
+        mapped.close();
+        assertEquals(before, tempFiles());
+    }
+
+    @Test
+    public void deletesTheTempFilesWhenTheParseFails() throws Exception {
+        Set<Path> before = tempFiles();
+        List<Object[]> rows = TestWorkbooks.rows(true, 0, 500);
+        rows.get(250)[1] = "many";
+        File xlsx = TestWorkbooks.xlsx(this.folder.newFile("broken.xlsx"), true, rows);
+        File xls = TestWorkbooks.xls(this.folder.newFile("broken.xls"), rows);
+        for (File file : Arrays.asList(xlsx, xls, this.truncateSharedStrings(xlsx))) {
+            Parser<Entry> parser = new Parser<Entry>(Entry.class, ExcelFactoryType.COLUMN_NAME_BASED_EXTRACTION);
+            parser.setStreaming(true);
+            parser.setSharedStringsThreshold(1);
+            try {
+                parser.parse(file);
+                fail("Parsed " + file.getName());
+            } catch (NumberFormatException | IOException expected) {
+            }
+            assertEquals(file.getName(), before, tempFiles());
+        }
+    }
+
+    /**
+     * Copy of the xlsx package whose shared strings xml stops half way.
+     */
+    private File truncateSharedStrings(File xlsx) throws IOException {
+        File truncated = this.folder.newFile("truncated.xlsx");
+        ZipInputStream in = new ZipInputStream(new FileInputStream(xlsx));
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(truncated));
+        try {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                byte[] content = IOUtils.toByteArray(in);
+                if (entry.getName().equals("xl/sharedStrings.xml"))
+                    content = Arrays.copyOf(content, content.length / 2);
+                out.putNextEntry(new ZipEntry(entry.getName()));
+                out.write(content);
+                out.closeEntry();
+            }
+        } finally {
+            out.close();
+            in.close();
+        }
+        return truncated;
+    }
+}
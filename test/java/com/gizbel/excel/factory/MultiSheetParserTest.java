@@ -0,0 +1,208 @@
+package com.gizbel.excel.factory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gizbel.excel.enums.ExcelFactoryType;
+
+/**
+ * MultiSheetParser.parse of xlsx and xls workbooks of several sheets.
+ */
+public class MultiSheetParserTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ExecutorService executor;
+
+    @Before
+    public void startExecutor() {
+        this.executor = Executors.newFixedThreadPool(2, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable task) {
+                return new Thread(task, "sheets-" + this.count.incrementAndGet());
+            }
+        });
+    }
+
+    @After
+    public void stopExecutor() {
+        this.executor.shutdownNow();
+    }
+
+    private MultiSheetParser multiSheetParser() {
+        MultiSheetParser multiSheetParser = new MultiSheetParser();
+        multiSheetParser.setExecutor(this.executor);
+        return multiSheetParser;
+    }
+
+    private static Parser<Entry> entryParser() throws Exception {
+        return new Parser<Entry>(Entry.class, ExcelFactoryType.COLUMN_NAME_BASED_EXTRACTION);
+    }
+
+    private static Parser<Item> itemParser() throws Exception {
+        return new Parser<Item>(Item.class, ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION);
+    }
+
+    /**
+     * Rows of the items from first to last excluded, without header.
+     */
+    private static List<Object[]> items(int first, int last) {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (int i = first; i < last; i++)
+            rows.add(new Object[] { "item" + i, i, i * 1.5 });
+        return rows;
+    }
+
+    /**
+     * The same four sheets of entries, ten per sheet, as xlsx and xls.
+     */
+    private List<File> files() throws Exception {
+        List<Object[]> sheet1 = TestWorkbooks.rows(true, 0, 10);
+        List<Object[]> sheet2 = TestWorkbooks.rows(true, 10, 20);
+        List<Object[]> sheet3 = TestWorkbooks.rows(true, 20, 30);
+        List<Object[]> sheet4 = TestWorkbooks.rows(true, 30, 40);
+        return Arrays.asList(TestWorkbooks.xlsx(this.folder.newFile("sheets.xlsx"), true, sheet1, sheet2, sheet3,
+                sheet4), TestWorkbooks.xls(this.folder.newFile("sheets.xls"), sheet1, sheet2, sheet3, sheet4));
+    }
+
+    private static void assertSheet(SheetResult result, int sheetIndex, Class<?> beanClass, List<String> beans) {
+        assertEquals(sheetIndex, result.getSheetIndex());
+        assertEquals("Sheet" + (sheetIndex + 1), result.getSheetName());
+        assertSame(beanClass, result.getBeanClass());
+        assertEquals(beans, TestFiles.strings(result.getBeans()));
+    }
+
+    @Test
+    public void selectsTheSheetsByIndexNameAndPattern() throws Exception {
+        for (File file : this.files()) {
+            MultiSheetParser multiSheetParser = this.multiSheetParser();
+            Parser<Entry> parser = entryParser();
+            multiSheetParser.addSheets(SheetSelector.index(3), parser);
+            multiSheetParser.addSheets(SheetSelector.name("Sheet2"), parser);
+            multiSheetParser.addSheets(SheetSelector.pattern("Sheet[13]"), parser);
+
+            List<SheetResult> results = multiSheetParser.parse(file);
+
+            assertEquals(4, results.size());
+            for (int i = 0; i < 4; i++)
+                assertSheet(results.get(i), i, Entry.class, TestWorkbooks.beans(i * 10, i * 10 + 10));
+        }
+    }
+
+    @Test
+    public void skipsTheSheetsNotSelectedAndGivesASheetToTheFirstSelector() throws Exception {
+        for (File file : this.files()) {
+            MultiSheetParser multiSheetParser = this.multiSheetParser();
+            Parser<Entry> first = entryParser();
+            Parser<Entry> second = entryParser();
+            second.setLimit(1);
+            multiSheetParser.addSheets(SheetSelector.name("Sheet3", "Missing"), first);
+            multiSheetParser.addSheets(SheetSelector.pattern("Sheet[34]"), second);
+
+            List<SheetResult> results = multiSheetParser.parse(file);
+
+            assertEquals(2, results.size());
+            assertSheet(results.get(0), 2, Entry.class, TestWorkbooks.beans(20, 30));
+            assertSheet(results.get(1), 3, Entry.class, TestWorkbooks.beans(30, 31));
+        }
+    }
+
+    @Test
+    public void bindsEachSheetToTheBeanClassOfItsParser() throws Exception {
+        File xlsx = TestWorkbooks.xlsx(this.folder.newFile("mixed.xlsx"), false, TestWorkbooks.rows(true, 0, 10),
+                items(0, 15));
+        File xls = TestWorkbooks.xls(this.folder.newFile("mixed.xls"), TestWorkbooks.rows(true, 0, 10), items(0, 15));
+        for (File file : Arrays.asList(xlsx, xls)) {
+            MultiSheetParser multiSheetParser = this.multiSheetParser();
+            multiSheetParser.addSheets(SheetSelector.name("Sheet1"), entryParser());
+            multiSheetParser.addSheets(SheetSelector.name("Sheet2"), itemParser());
+
+            List<SheetResult> results = multiSheetParser.parse(file);
+
+            assertEquals(2, results.size());
+            assertSheet(results.get(0), 0, Entry.class, TestWorkbooks.beans(0, 10));
+            assertSheet(results.get(1), 1, Item.class, TestFiles.beans(0, 15));
+        }
+    }
+
+    @Test
+    public void extractsTheSheetsOnTheExecutor() throws Exception {
+        for (File file : this.files()) {
+            MultiSheetParser multiSheetParser = this.multiSheetParser();
+            Parser<Entry> parser = entryParser();
+            final List<String> threads = Collections.synchronizedList(new ArrayList<String>());
+            parser.setListener(new ParseListener() {
+                @Override
+                public void parsed(ParseMetrics metrics) {
+                    threads.add(Thread.currentThread().getName());
+                }
+            });
+            multiSheetParser.addSheets(SheetSelector.all(), parser);
+
+            assertEquals(4, multiSheetParser.parse(file).size());
+            assertEquals(4, threads.size());
+            for (String thread : threads)
+                assertTrue(thread, thread.startsWith("sheets-"));
+        }
+    }
+
+    @Test
+    public void throwsTheFailureOfASheetOnceTheOtherSheetsAreDone() throws Exception {
+        List<Object[]> broken = TestWorkbooks.rows(true, 10, 20);
+        broken.get(5)[1] = "many";
+        List<Object[]> large = TestWorkbooks.rows(true, 100, 3000);
+        File xlsx = TestWorkbooks.xlsx(this.folder.newFile("broken.xlsx"), true, large, broken, large);
+        File xls = TestWorkbooks.xls(this.folder.newFile("broken.xls"), large, broken, large);
+        for (File file : Arrays.asList(xlsx, xls)) {
+            MultiSheetParser multiSheetParser = this.multiSheetParser();
+            Parser<Entry> parser = entryParser();
+            final List<String> parsed = Collections.synchronizedList(new ArrayList<String>());
+            parser.setListener(new ParseListener() {
+                @Override
+                public void parsed(ParseMetrics metrics) {
+                    parsed.add(metrics.getSheetName() + (metrics.getFailure() == null ? " read" : " failed"));
+                }
+            });
+            multiSheetParser.addSheets(SheetSelector.all(), parser);
+            try {
+                multiSheetParser.parse(file);
+                fail("Parsed a sheet with a row which does not convert");
+            } catch (NumberFormatException expected) {
+                assertTrue(expected.getMessage(), expected.getMessage().contains("many"));
+            }
+            List<String> done = new ArrayList<String>(parsed);
+            assertTrue(done.toString(), done.contains("Sheet2 failed"));
+            // No sheet was still being read
+            Thread.sleep(200);
+            assertEquals(done, parsed);
+
+            // The other sheets alone parse
+            multiSheetParser = this.multiSheetParser();
+            multiSheetParser.addSheets(SheetSelector.index(0, 2), entryParser());
+            List<SheetResult> results = multiSheetParser.parse(file);
+            assertSheet(results.get(0), 0, Entry.class, TestWorkbooks.beans(100, 3000));
+            assertSheet(results.get(1), 2, Entry.class, TestWorkbooks.beans(100, 3000));
+        }
+    }
+}
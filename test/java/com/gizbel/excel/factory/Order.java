@@ -0,0 +1,51 @@
+package com.gizbel.excel.factory;
+
+import java.time.LocalDateTime;
+
+import com.gizbel.excel.annotations.ExcelBean;
+import com.gizbel.excel.annotations.ExcelColumnHeader;
+import com.gizbel.excel.annotations.ExcelFilter;
+
+/**
+ * Bean with an ExcelFilter on text, number, date and boolean columns, the
+ * dates compared on the day or with their time of the day.
+ */
+@ExcelBean
+public class Order {
+
+    @ExcelColumnHeader(columnHeader = "Reference")
+    private String reference;
+
+    @ExcelColumnHeader(columnHeader = "Status")
+    @ExcelFilter(equalTo = { "OPEN", "PENDING" })
+    private String status;
+
+    @ExcelColumnHeader(columnHeader = "Quantity", dataType = "int")
+    @ExcelFilter(min = "5", max = "10")
+    private int quantity;
+
+    @ExcelColumnHeader(columnHeader = "Placed")
+    @ExcelFilter(min = "01-01-2020", max = "31-12-2020")
+    private LocalDateTime placed;
+
+    @ExcelColumnHeader(columnHeader = "Due")
+    @ExcelFilter(equalTo = { "15-06-2020", "16-06-2020" })
+    private LocalDateTime due;
+
+    @ExcelColumnHeader(columnHeader = "Paid", dataType = "bool")
+    @ExcelFilter(equalTo = "true")
+    private Boolean paid;
+
+    @ExcelColumnHeader(columnHeader = "Shipped", pattern = "dd-MM-yyyy HH:mm")
+    @ExcelFilter(max = "31-12-2020 12:00")
+    private LocalDateTime shipped;
+
+    public String getReference() {
+        return reference;
+    }
+
+    @Override
+    public String toString() {
+        return reference + "|" + status + "|" + quantity + "|" + placed + "|" + due + "|" + paid + "|" + shipped;
+    }
+}
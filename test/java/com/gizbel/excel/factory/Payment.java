@@ -0,0 +1,52 @@
+package com.gizbel.excel.factory;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import com.gizbel.excel.annotations.ExcelBean;
+import com.gizbel.excel.annotations.ExcelColumnIndex;
+
+/**
+ * Bean with a field of every kind of value the result snapshots store.
+ */
+@ExcelBean
+public class Payment {
+
+    public enum Status {
+        OPEN, PAID
+    }
+
+    @ExcelColumnIndex(columnIndex = "0", dataType = "long")
+    private long id;
+
+    @ExcelColumnIndex(columnIndex = "1", dataType = "int")
+    private int count;
+
+    @ExcelColumnIndex(columnIndex = "2", dataType = "double")
+    private double amount;
+
+    @ExcelColumnIndex(columnIndex = "3", dataType = "bool")
+    private Boolean paid;
+
+    @ExcelColumnIndex(columnIndex = "4")
+    private String note;
+
+    @ExcelColumnIndex(columnIndex = "5", dataType = "date", pattern = "yyyy-MM-dd")
+    private LocalDate due;
+
+    @ExcelColumnIndex(columnIndex = "6")
+    private BigDecimal total;
+
+    @ExcelColumnIndex(columnIndex = "7")
+    private UUID reference;
+
+    @ExcelColumnIndex(columnIndex = "8")
+    private Status status;
+
+    @Override
+    public String toString() {
+        return id + "|" + count + "|" + amount + "|" + paid + "|" + note + "|" + due + "|" + total + "|"
+                + reference + "|" + status;
+    }
+}
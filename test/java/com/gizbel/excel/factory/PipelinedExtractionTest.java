@@ -0,0 +1,175 @@
+package com.gizbel.excel.factory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gizbel.excel.converters.CellConverter;
+import com.gizbel.excel.enums.ExcelFactoryType;
+
+/**
+ * Parser.parse of xlsx and xls files with several binding threads gives the
+ * beans of the sequential parse.
+ */
+public class PipelinedExtractionTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * BigDecimal converter taking a millisecond per cell, so that the binding
+     * threads fall behind the reader.
+     */
+    static class SlowConverter implements CellConverter<BigDecimal> {
+
+        @Override
+        public BigDecimal fromString(String value) {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new BigDecimal(value);
+        }
+    }
+
+    private static Parser<Entry> parser(int parallelism, boolean streaming) throws Exception {
+        Parser<Entry> parser = new Parser<Entry>(Entry.class, ExcelFactoryType.COLUMN_NAME_BASED_EXTRACTION);
+        parser.setParallelism(parallelism);
+        parser.setStreaming(streaming);
+        return parser;
+    }
+
+    private static Parser<Payment> slowParser(int parallelism) throws Exception {
+        Parser<Payment> parser = new Parser<Payment>(Payment.class, ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION);
+        parser.setParallelism(parallelism);
+        parser.setStreaming(true);
+        parser.getConverterRegistry().register(BigDecimal.class, new SlowConverter());
+        return parser;
+    }
+
+    /**
+     * Cells of a Payment row, numbered from 0.
+     */
+    private static Object[] payment(int i) {
+        return new Object[] { (long) i, i % 7, i * 0.5, i % 2 == 0, "payment" + i, LocalDate.of(2016, 1, 1).plusDays(i),
+                i + ".25", "00000000-0000-0000-0000-" + String.format("%012d", i), i % 3 == 0 ? "PAID" : "OPEN" };
+    }
+
+    private static List<Object[]> payments(int first, int last) {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (int i = first; i < last; i++)
+            rows.add(payment(i));
+        return rows;
+    }
+
+    private List<File> files(List<Object[]> rows) throws Exception {
+        List<File> files = new ArrayList<File>();
+        files.add(TestWorkbooks.xlsx(this.folder.newFile("entries.xlsx"), true, rows));
+        files.add(TestWorkbooks.xls(this.folder.newFile("entries.xls"), rows));
+        return files;
+    }
+
+    private static boolean bindersAlive() {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("excel-extractor-binder-") && thread.isAlive())
+                return true;
+        }
+        return false;
+    }
+
+    @Test
+    public void keepsTheSheetOrder() throws Exception {
+        for (File file : this.files(TestWorkbooks.rows(true, 0, 2000))) {
+            for (boolean streaming : new boolean[] { false, true }) {
+                List<String> sequential = TestFiles.strings(parser(1, streaming).parse(file));
+                Parser<Entry> parser = parser(4, streaming);
+                parser.setQueueCapacity(16);
+
+                assertEquals(TestWorkbooks.beans(0, 2000), sequential);
+                assertEquals(file.getName(), sequential, TestFiles.strings(parser.parse(file)));
+            }
+        }
+    }
+
+    @Test
+    public void returnsEveryBeanUnordered() throws Exception {
+        for (File file : this.files(TestWorkbooks.rows(true, 0, 2000))) {
+            Parser<Entry> parser = parser(4, true);
+            parser.setPreserveOrder(false);
+
+            List<String> beans = TestFiles.strings(parser.parse(file));
+            List<String> expected = TestWorkbooks.beans(0, 2000);
+            Collections.sort(beans);
+            Collections.sort(expected);
+            assertEquals(file.getName(), expected, beans);
+        }
+    }
+
+    @Test
+    public void boundsTheRowsWaitingForTheBinders() throws Exception {
+        File file = TestWorkbooks.xlsx(this.folder.newFile("payments.xlsx"), true, payments(0, 300));
+        List<String> sequential = TestFiles.strings(slowParser(1).parse(file));
+        Parser<Payment> parser = slowParser(3);
+        parser.setQueueCapacity(8);
+        final AtomicReference<ParseMetrics> metrics = new AtomicReference<ParseMetrics>();
+        parser.setListener(new ParseListener() {
+            @Override
+            public void parsed(ParseMetrics parsed) {
+                metrics.set(parsed);
+            }
+        });
+
+        assertEquals(sequential, TestFiles.strings(parser.parse(file)));
+        assertEquals(300, sequential.size());
+        int peak = metrics.get().getPeakBufferedRows();
+        assertTrue("Peak of " + peak + " rows", peak >= 8 && peak <= 8 + 3);
+    }
+
+    @Test
+    public void stopsAtTheFirstEmptyRowWhileTheBindersRun() throws Exception {
+        List<Object[]> rows = payments(0, 200);
+        rows.add(new Object[] { TestWorkbooks.BLANK, TestWorkbooks.BLANK });
+        rows.addAll(payments(200, 300));
+        File file = TestWorkbooks.xls(this.folder.newFile("payments.xls"), rows);
+        List<String> sequential = TestFiles.strings(slowParser(1).parse(file));
+        Parser<Payment> parser = slowParser(4);
+        parser.setQueueCapacity(4);
+
+        assertEquals(200, sequential.size());
+        assertEquals(sequential, TestFiles.strings(parser.parse(file)));
+        parser.setBreakAfterEmptyRow(false);
+        assertEquals(300, parser.parse(file).size());
+        parser.setLimit(50);
+        assertEquals(sequential.subList(0, 50), TestFiles.strings(parser.parse(file)));
+    }
+
+    @Test
+    public void failsOnARowWhichDoesNotConvertWhileTheBindersRun() throws Exception {
+        List<Object[]> rows = payments(0, 300);
+        rows.get(150)[1] = "many";
+        for (File file : this.files(rows)) {
+            Parser<Payment> parser = slowParser(4);
+            parser.setQueueCapacity(4);
+            try {
+                parser.parse(file);
+                fail("Parsed a row which does not convert");
+            } catch (NumberFormatException expected) {
+                assertTrue(expected.getMessage(), expected.getMessage().contains("many"));
+            }
+            assertTrue("Binding threads left running", !bindersAlive());
+        }
+    }
+}
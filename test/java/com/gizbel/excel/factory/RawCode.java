@@ -0,0 +1,38 @@
+package com.gizbel.excel.factory;
+
+import com.gizbel.excel.annotations.ExcelBean;
+import com.gizbel.excel.annotations.ExcelColumnIndex;
+
+/**
+ * Code whose fields are set directly, its normalising setters are not used.
+ */
+@ExcelBean
+public class RawCode {
+
+    @ExcelColumnIndex(columnIndex = "0")
+    private String code;
+
+    @ExcelColumnIndex(columnIndex = "1", dataType = "int")
+    private int count;
+
+    public String getCode() {
+        return code;
+    }
+
+    public void setCode(String code) {
+        this.code = code == null ? null : code.toUpperCase();
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = Math.max(count, 0);
+    }
+
+    @Override
+    public String toString() {
+        return code + "|" + count;
+    }
+}
@@ -0,0 +1,62 @@
+package com.gizbel.excel.factory;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gizbel.excel.enums.ExcelFactoryType;
+
+/**
+ * Beans bound by reflection get their private fields through the setters,
+ * as with a generated binder, only when their class asks for it.
+ */
+public class ReflectiveBinderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void setsPrivateFieldsThroughTheirSetters() throws Exception {
+        File file = TestFiles.write(this.folder.newFile("codes.csv"), "ab,3,kept", "cd,-2,");
+        Parser<Code> parser = new Parser<Code>(Code.class, ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION);
+
+        assertEquals(Arrays.asList("AB|3|kept", "CD|0|null"), TestFiles.strings(parser.parse(file)));
+    }
+
+    @Test
+    public void getsPrivateFieldsThroughTheirGetters() throws Exception {
+        ReflectiveBinder binder = ReflectiveBinder.of(Code.class);
+        Code code = (Code) binder.newInstance();
+        binder.set(code, 0, "x");
+        binder.setInt(code, 1, -1);
+
+        assertEquals("X", binder.get(code, 0));
+        assertEquals(0, binder.get(code, 1));
+    }
+
+    @Test
+    public void setsPrivateFieldsDirectlyByDefault() throws Exception {
+        File file = TestFiles.write(this.folder.newFile("codes.csv"), "ab,3", "cd,-2");
+        Parser<RawCode> parser = new Parser<RawCode>(RawCode.class, ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION);
+
+        assertEquals(Arrays.asList("ab|3", "cd|-2"), TestFiles.strings(parser.parse(file)));
+    }
+
+    @Test
+    public void leavesTheSharedFieldsUnchanged() throws Exception {
+        File file = TestFiles.write(this.folder.newFile("codes.csv"), "ab,3,kept");
+        BoundField field = ReflectiveBinder.of(Code.class).getFields().get(0);
+        BoundField moved = field.index("2", "string", "", "dd-MM-yyyy");
+
+        assertEquals("0", field.getColumnIndex());
+        assertEquals("2", moved.getColumnIndex());
+        assertEquals(field.getName(), moved.getName());
+        Parser<Code> parser = new Parser<Code>(Code.class, ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION);
+        assertEquals(Arrays.asList("AB|3|kept"), TestFiles.strings(parser.parse(file)));
+    }
+}
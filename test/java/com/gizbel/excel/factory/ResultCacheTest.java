@@ -0,0 +1,174 @@
+package com.gizbel.excel.factory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gizbel.excel.enums.ExcelFactoryType;
+
+/**
+ * Parse results stored in the cache and loaded back.
+ */
+public class ResultCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ResultCache cache;
+
+    @Before
+    public void openCache() throws Exception {
+        this.cache = new ResultCache(this.folder.newFolder("cache"), 1L << 30);
+    }
+
+    private Parser<Item> parser() throws Exception {
+        Parser<Item> parser = new Parser<Item>(Item.class, ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION);
+        parser.setSkipHeader(true);
+        parser.setResultCache(this.cache);
+        return parser;
+    }
+
+    private void assertCounts(long hits, long misses) {
+        assertEquals("hits", hits, this.cache.getHitCount());
+        assertEquals("misses", misses, this.cache.getMissCount());
+    }
+
+    @Test
+    public void secondParseIsLoadedFromTheCache() throws Exception {
+        File file = TestFiles.items(this.folder.newFile("items.csv"), 0, 500);
+
+        List<String> parsed = TestFiles.strings(this.parser().parse(file));
+        assertCounts(0, 1);
+        assertEquals(1, this.cache.getEntryCount());
+        List<String> loaded = TestFiles.strings(this.parser().parse(file));
+
+        assertCounts(1, 1);
+        assertEquals(TestFiles.beans(0, 500), parsed);
+        assertEquals(parsed, loaded);
+    }
+
+    @Test
+    public void snapshotsRoundTripEveryKindOfValue() throws Exception {
+        File file = TestFiles.write(this.folder.newFile("payments.csv"),
+                "Id,Count,Amount,Paid,Note,Due,Total,Reference,Status",
+                "9007199254740993,-3,0.1,true,\"café, \"\"ok\"\"\",2024-02-29,12345.678901234567890,"
+                        + "123e4567-e89b-12d3-a456-426614174000,PAID",
+                "1,0,-1e300,false,,1900-01-01,0,,OPEN",
+                "2,2147483647,0,,\"line\nbreak\",,,,");
+        Parser<Payment> parser = new Parser<Payment>(Payment.class, ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION);
+        parser.setSkipHeader(true);
+        parser.setResultCache(this.cache);
+
+        List<String> parsed = TestFiles.strings(parser.parse(file));
+        List<String> loaded = TestFiles.strings(parser.parse(file));
+
+        assertCounts(1, 1);
+        assertEquals(Arrays.asList(
+                "9007199254740993|-3|0.1|true|café, \"ok\"|2024-02-29|12345.678901234567890|"
+                        + "123e4567-e89b-12d3-a456-426614174000|PAID",
+                "1|0|-1.0E300|false|null|1900-01-01|0|null|OPEN",
+                "2|2147483647|0.0|null|line\nbreak|null|null|null|null"), parsed);
+        assertEquals(parsed, loaded);
+    }
+
+    @Test
+    public void sameContentUnderAnotherNameIsLoaded() throws Exception {
+        File file = TestFiles.items(this.folder.newFile("items.csv"), 0, 50);
+        File copy = new File(this.folder.getRoot(), "upload-retry.csv");
+        Files.copy(file.toPath(), copy.toPath());
+
+        List<String> parsed = TestFiles.strings(this.parser().parse(file));
+
+        assertEquals(parsed, TestFiles.strings(this.parser().parse(copy)));
+        assertCounts(1, 1);
+    }
+
+    @Test
+    public void changedContentIsParsedAgain() throws Exception {
+        File file = TestFiles.items(this.folder.newFile("items.csv"), 0, 50);
+        this.parser().parse(file);
+        TestFiles.items(file, 0, 51);
+
+        assertEquals(TestFiles.beans(0, 51), TestFiles.strings(this.parser().parse(file)));
+        assertCounts(0, 2);
+    }
+
+    @Test
+    public void settingsChangingTheBeansChangeTheKey() throws Exception {
+        File file = TestFiles.items(this.folder.newFile("items.csv"), 0, 50);
+        this.parser().parse(file);
+        Parser<Item> parser = this.parser();
+        parser.setOffset(10);
+
+        assertEquals(TestFiles.beans(10, 50), TestFiles.strings(parser.parse(file)));
+        assertCounts(0, 2);
+    }
+
+    @Test
+    public void unorderedResultsAreNotLoadedForAnOrderedParse() throws Exception {
+        List<Item> items = new ArrayList<Item>();
+        for (int i = 0; i < 2000; i++)
+            items.add(new Item("item" + i, i, i * 1.5));
+        File file = this.folder.newFile("items.xlsx");
+        new ExcelWriter<Item>(Item.class, ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION).write(items, file);
+        Parser<Item> unordered = this.parser();
+        unordered.setParallelism(4);
+        unordered.setPreserveOrder(false);
+        unordered.parse(file);
+        assertCounts(0, 1);
+
+        Parser<Item> ordered = this.parser();
+        ordered.setParallelism(4);
+        assertEquals(TestFiles.strings(items), TestFiles.strings(ordered.parse(file)));
+        assertCounts(0, 2);
+
+        // Ordered results are the same whatever the parallelism
+        assertEquals(TestFiles.strings(items), TestFiles.strings(this.parser().parse(file)));
+        unordered.parse(file);
+        assertCounts(2, 2);
+    }
+
+        @Test
+    public void lenientErrorsAreReportedAgainOnLoad() throws Exception {
+        File file = TestFiles.write(this.folder.newFile("dirty.csv"), TestFiles.HEADER, TestFiles.record(0),
+                "item1,one,1.5", "item2,2,two");
+        final List<String> errors = new ArrayList<String>();
+        ErrorCollector collector = new ErrorCollector() {
+            @Override
+            public void collect(ParseError error) {
+                errors.add(error.getRowNum() + " " + error.getFieldName() + " " + error.getRawValue());
+            }
+        };
+        List<List<String>> results = new ArrayList<List<String>>();
+        for (int i = 0; i < 2; i++) {
+            Parser<Item> parser = this.parser();
+            parser.setLenient(true);
+            parser.setErrorCollector(collector);
+            results.add(TestFiles.strings(parser.parse(file)));
+        }
+
+        assertCounts(1, 1);
+        assertEquals(Arrays.asList(TestFiles.bean(0), "item1|null|1.5", "item2|2|null"), results.get(0));
+        assertEquals(results.get(0), results.get(1));
+        assertEquals(Arrays.asList("2 quantity one", "3 price two", "2 quantity one", "3 price two"), errors);
+    }
+
+    @Test
+    public void theVersionOfTheBindingsTellsHowTheFieldsAreSet() throws Exception {
+        String setters = BeanSchema.of(Code.class).getVersion();
+        String direct = BeanSchema.of(RawCode.class).getVersion();
+
+        assertTrue(setters, setters.startsWith(Code.class.getName() + " useSetters true binder reflective\n"));
+        assertTrue(direct, direct.startsWith(RawCode.class.getName() + " useSetters false binder reflective\n"));
+    }
+}
@@ -0,0 +1,91 @@
+package com.gizbel.excel.factory;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gizbel.excel.enums.ExcelFactoryType;
+
+/**
+ * Parser.getBeanForARow over the rows of workbooks loaded by the caller,
+ * from sheets whose headers are in different orders.
+ */
+public class RowBeanTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Entries from first to last excluded under a header in the reverse
+     * order of the fields.
+     */
+    private static List<Object[]> reversed(int first, int last) {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (Object[] row : TestWorkbooks.rows(true, first, last)) {
+            Object[] reversed = new Object[row.length];
+            for (int i = 0; i < row.length; i++)
+                reversed[i] = row[row.length - 1 - i];
+            rows.add(reversed);
+        }
+        return rows;
+    }
+
+    private List<File> files() throws Exception {
+        List<Object[]> sheet1 = TestWorkbooks.rows(true, 0, 20);
+        List<Object[]> sheet2 = reversed(20, 40);
+        return Arrays.asList(TestWorkbooks.xlsx(this.folder.newFile("rows.xlsx"), true, sheet1, sheet2),
+                TestWorkbooks.xls(this.folder.newFile("rows.xls"), sheet1, sheet2));
+    }
+
+    @Test
+    public void resolvesTheHeadersOfEachSheet() throws Exception {
+        for (File file : this.files()) {
+            Workbook workbook = WorkbookFactory.create(file);
+            try {
+                Parser<Entry> parser = new Parser<Entry>(Entry.class, ExcelFactoryType.COLUMN_NAME_BASED_EXTRACTION);
+                Sheet sheet1 = workbook.getSheetAt(0);
+                Sheet sheet2 = workbook.getSheetAt(1);
+                List<Object> beans1 = new ArrayList<Object>();
+                List<Object> beans2 = new ArrayList<Object>();
+                // Rows of both sheets in turns, each bound with the headers of its sheet
+                for (int i = 1; i <= 20; i++) {
+                    beans1.add(parser.getBeanForARow(sheet1.getRow(i)));
+                    beans2.add(parser.getBeanForARow(sheet2.getRow(i)));
+                }
+
+                assertEquals(file.getName(), TestWorkbooks.beans(0, 20), TestFiles.strings(beans1));
+                assertEquals(file.getName(), TestWorkbooks.beans(20, 40), TestFiles.strings(beans2));
+            } finally {
+                workbook.close();
+            }
+        }
+    }
+
+    @Test
+    public void bindsTheRowsByColumnIndex() throws Exception {
+        for (File file : this.files()) {
+            Workbook workbook = WorkbookFactory.create(file);
+            try {
+                Parser<Entry> parser = new Parser<Entry>(Entry.class, ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION);
+                Sheet sheet = workbook.getSheetAt(0);
+                List<Object> beans = new ArrayList<Object>();
+                for (int i = 1; i <= 20; i++)
+                    beans.add(parser.getBeanForARow(sheet.getRow(i)));
+
+                assertEquals(file.getName(), TestWorkbooks.beans(0, 20), TestFiles.strings(beans));
+            } finally {
+                workbook.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.gizbel.excel.factory;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gizbel.excel.enums.ExcelFactoryType;
+
+/**
+ * Parser.setRowRange along with the offset and limit, over Entry sheets
+ * with columns no field is mapped to, gives the beans of the full parse for
+ * the rows of the range.
+ */
+public class RowRangeTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** Sheet row of the row holding values in the unmapped columns only. **/
+    private static final int EXTRAS_ROW = 61;
+
+    /** Sheet row of the empty row, blank text in an unmapped column. **/
+    private static final int EMPTY_ROW = 82;
+
+    private static final int LAST_ROW = 102;
+
+    private static Object[] withExtras(Object[] row, Object extra, Object remark) {
+        Object[] extended = Arrays.copyOf(row, row.length + 2);
+        extended[row.length] = extra;
+        extended[row.length + 1] = remark;
+        return extended;
+    }
+
+    /**
+     * Entries with two more columns, Extra and Remark, which no field is
+     * mapped to.
+     */
+    private static List<Object[]> rows() {
+        Object[] blanks = new Object[TestWorkbooks.HEADER.length];
+        Arrays.fill(blanks, TestWorkbooks.BLANK);
+        List<Object[]> rows = new ArrayList<Object[]>();
+        rows.add(withExtras(TestWorkbooks.HEADER, "Extra", "Remark"));
+        for (int i = 0; i < 100; i++) {
+            if (rows.size() == EXTRAS_ROW)
+                rows.add(withExtras(blanks, 1.5, "extras only"));
+            if (rows.size() == EMPTY_ROW)
+                rows.add(withExtras(blanks, TestWorkbooks.BLANK, "   "));
+            rows.add(withExtras(TestWorkbooks.row(i), i * 2, "remark" + i));
+        }
+        return rows;
+    }
+
+    private List<File> files() throws Exception {
+        return Arrays.asList(TestWorkbooks.xlsx(this.folder.newFile("range.xlsx"), true, rows()),
+                TestWorkbooks.xls(this.folder.newFile("range.xls"), rows()));
+    }
+
+    private static Parser<Entry> parser(ExcelFactoryType type, boolean streaming) throws Exception {
+        Parser<Entry> parser = new Parser<Entry>(Entry.class, type);
+        parser.setStreaming(streaming);
+        parser.setSkipHeader(true);
+        return parser;
+    }
+
+    /**
+     * Beans of the full parse going over the empty row, by sheet row.
+     */
+    private static List<String> byRow(Parser<Entry> parser, File file) throws Exception {
+        parser.setBreakAfterEmptyRow(false);
+        List<String> beans = TestFiles.strings(parser.parse(file));
+        assertEquals(LAST_ROW - 1, beans.size());
+        List<String> byRow = new ArrayList<String>(beans.subList(0, EMPTY_ROW - 1));
+        byRow.add(null);
+        byRow.addAll(beans.subList(EMPTY_ROW - 1, beans.size()));
+        // Sheet rows from 1
+        byRow.add(0, null);
+        return byRow;
+    }
+
+    /**
+     * Beans of the sheet rows from first to last, both included, the empty
+     * row left out.
+     */
+    private static List<String> rows(List<String> byRow, int first, int last) {
+        List<String> beans = new ArrayList<String>();
+        for (int row = first; row <= last; row++) {
+            if (row != EMPTY_ROW)
+                beans.add(byRow.get(row));
+        }
+        return beans;
+    }
+
+    @Test
+    public void readsTheRowsOfTheRange() throws Exception {
+        for (File file : this.files()) {
+            for (ExcelFactoryType type : ExcelFactoryType.values()) {
+                for (boolean streaming : new boolean[] { false, true }) {
+                    List<String> byRow = byRow(parser(type, streaming), file);
+                    String name = file.getName() + " " + type + " " + streaming;
+                    Parser<Entry> parser = parser(type, streaming);
+                    parser.setRowRange(10, 40);
+
+                    assertEquals(name, rows(byRow, 10, 40), TestFiles.strings(parser.parse(file)));
+                    parser.setOffset(5);
+                    parser.setLimit(10);
+                    assertEquals(name, rows(byRow, 15, 24), TestFiles.strings(parser.parse(file)));
+                    // The limit reached before the end of the range
+                    parser.setRowRange(60, LAST_ROW);
+                    assertEquals(name, rows(byRow, 65, 74), TestFiles.strings(parser.parse(file)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void countsTheUnmappedColumnsForTheEmptyRows() throws Exception {
+        for (File file : this.files()) {
+            for (ExcelFactoryType type : ExcelFactoryType.values()) {
+                for (boolean streaming : new boolean[] { false, true }) {
+                    List<String> byRow = byRow(parser(type, streaming), file);
+                    String name = file.getName() + " " + type + " " + streaming;
+                    Parser<Entry> parser = parser(type, streaming);
+
+                    // Values in the unmapped columns only, the row is not empty
+                    parser.setRowRange(EXTRAS_ROW - 1, EXTRAS_ROW + 1);
+                    List<String> beans = TestFiles.strings(parser.parse(file));
+                    assertEquals(name, rows(byRow, EXTRAS_ROW - 1, EXTRAS_ROW + 1), beans);
+                    assertEquals(name, "null|null|null|null|null|null", beans.get(1));
+                    // Blank text in an unmapped column, the row is empty and stops the parse
+                    parser.setRowRange(70, 90);
+                    assertEquals(name, rows(byRow, 70, EMPTY_ROW - 1), TestFiles.strings(parser.parse(file)));
+                    parser.setBreakAfterEmptyRow(false);
+                    assertEquals(name, rows(byRow, 70, 90), TestFiles.strings(parser.parse(file)));
+                    parser.setOffset(10);
+                    assertEquals(name, rows(byRow, 80, 90), TestFiles.strings(parser.parse(file)));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.gizbel.excel.factory;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import com.gizbel.excel.annotations.ExcelBean;
+import com.gizbel.excel.annotations.ExcelColumnHeader;
+import com.gizbel.excel.annotations.ExcelColumnIndex;
+
+/**
+ * Bean written by ExcelWriter and read back, mapped by column index with
+ * gaps between the columns and by header, with another date pattern for
+ * each mapping.
+ */
+@ExcelBean
+public class Shipment {
+
+    public enum Status {
+        PENDING, SHIPPED
+    }
+
+    @ExcelColumnIndex(columnIndex = "0", dataType = "long")
+    @ExcelColumnHeader(columnHeader = "Reference", dataType = "long")
+    private long reference;
+
+    @ExcelColumnIndex(columnIndex = "2")
+    @ExcelColumnHeader(columnHeader = "Amount")
+    private BigDecimal amount;
+
+    @ExcelColumnIndex(columnIndex = "3")
+    @ExcelColumnHeader(columnHeader = "Units")
+    private BigInteger units;
+
+    @ExcelColumnIndex(columnIndex = "4", pattern = "dd/MM/yyyy HH:mm")
+    @ExcelColumnHeader(columnHeader = "Shipped", pattern = "dd/MM/yyyy HH:mm")
+    private LocalDateTime shipped;
+
+    @ExcelColumnIndex(columnIndex = "5", pattern = "yyyy-MM-dd")
+    @ExcelColumnHeader(columnHeader = "Due", pattern = "dd.MM.yyyy")
+    private LocalDate due;
+
+    @ExcelColumnIndex(columnIndex = "6")
+    @ExcelColumnHeader(columnHeader = "Status")
+    private Status status;
+
+    @ExcelColumnIndex(columnIndex = "8")
+    @ExcelColumnHeader(columnHeader = "Comment")
+    private String comment;
+
+    public Shipment() {
+    }
+
+    public Shipment(long reference, BigDecimal amount, BigInteger units, LocalDateTime shipped, LocalDate due,
+            Status status, String comment) {
+        this.reference = reference;
+        this.amount = amount;
+        this.units = units;
+        this.shipped = shipped;
+        this.due = due;
+        this.status = status;
+        this.comment = comment;
+    }
+
+    @Override
+    public String toString() {
+        return reference + "|" + amount + "|" + units + "|" + shipped + "|" + due + "|" + status + "|" + comment;
+    }
+}
@@ -0,0 +1,63 @@
+package com.gizbel.excel.factory;
+
+import java.time.LocalDate;
+
+import com.gizbel.excel.annotations.ExcelBean;
+import com.gizbel.excel.annotations.ExcelColumnHeader;
+
+/**
+ * Bean of the Entry sheets mapped by header, with default values and a
+ * column the sheets do not have.
+ */
+@ExcelBean
+public class Stock {
+
+    @ExcelColumnHeader(columnHeader = "Name")
+    private String name;
+
+    @ExcelColumnHeader(columnHeader = "Quantity", dataType = "int", defaultValue = "-1")
+    private int quantity;
+
+    @ExcelColumnHeader(columnHeader = "Price", dataType = "double")
+    private Double price;
+
+    @ExcelColumnHeader(columnHeader = "Day")
+    private LocalDate day;
+
+    @ExcelColumnHeader(columnHeader = "Active", dataType = "bool")
+    private Boolean active;
+
+    @ExcelColumnHeader(columnHeader = "Note", defaultValue = "none")
+    private String note;
+
+    @ExcelColumnHeader(columnHeader = "Warehouse")
+    private String warehouse;
+
+    public String getName() {
+        return name;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public Double getPrice() {
+        return price;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public Boolean getActive() {
+        return active;
+    }
+
+    public String getNote() {
+        return note;
+    }
+
+    public String getWarehouse() {
+        return warehouse;
+    }
+}
@@ -0,0 +1,106 @@
+package com.gizbel.excel.factory;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gizbel.excel.enums.ExcelFactoryType;
+
+/**
+ * Parser.parse in streaming mode gives the beans of the workbook mode, for
+ * xlsx files with shared or inline strings and for xls files.
+ */
+public class StreamingParityTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * The same sheet in every format, in the given date system.
+     */
+    private List<File> files(List<Object[]> rows, boolean date1904) throws Exception {
+        List<File> files = new ArrayList<File>();
+        files.add(TestWorkbooks.xlsx(this.folder.newFile("shared.xlsx"), true, date1904, rows));
+        files.add(TestWorkbooks.xlsx(this.folder.newFile("inline.xlsx"), false, date1904, rows));
+        files.add(TestWorkbooks.xls(this.folder.newFile("entries.xls"), date1904, rows));
+        return files;
+    }
+
+    private static List<String> parse(File file, ExcelFactoryType type, boolean streaming, boolean skipHeader,
+            boolean breakAfterEmptyRow) throws Exception {
+        Parser<Entry> parser = new Parser<Entry>(Entry.class, type);
+        parser.setStreaming(streaming);
+        parser.setSkipHeader(skipHeader);
+        parser.setBreakAfterEmptyRow(breakAfterEmptyRow);
+        return TestFiles.strings(parser.parse(file));
+    }
+
+    /**
+     * Asserts that both modes give the expected beans.
+     */
+    private static void assertParity(List<String> expected, File file, ExcelFactoryType type, boolean skipHeader,
+            boolean breakAfterEmptyRow) throws Exception {
+        String message = file.getName() + " " + type;
+        assertEquals(message, expected, parse(file, type, false, skipHeader, breakAfterEmptyRow));
+        assertEquals(message, expected, parse(file, type, true, skipHeader, breakAfterEmptyRow));
+    }
+
+    @Test
+    public void readsTheSameBeansByHeader() throws Exception {
+        for (File file : this.files(TestWorkbooks.rows(true, 0, 30), false))
+            assertParity(TestWorkbooks.beans(0, 30), file, ExcelFactoryType.COLUMN_NAME_BASED_EXTRACTION, false,
+                    true);
+    }
+
+    @Test
+    public void readsTheSameBeansByIndex() throws Exception {
+        for (File file : this.files(TestWorkbooks.rows(false, 0, 30), false))
+            assertParity(TestWorkbooks.beans(0, 30), file, ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION, false,
+                    true);
+    }
+
+    @Test
+    public void skipsTheHeaderRowByIndex() throws Exception {
+        for (File file : this.files(TestWorkbooks.rows(true, 0, 30), false))
+            assertParity(TestWorkbooks.beans(0, 30), file, ExcelFactoryType.COLUMN_INDEX_BASED_EXTRACTION, true,
+                    true);
+    }
+
+    @Test
+    public void goesOverMissingRows() throws Exception {
+        List<Object[]> rows = TestWorkbooks.rows(true, 0, 10);
+        rows.add(null);
+        rows.addAll(TestWorkbooks.rows(false, 10, 20));
+        for (File file : this.files(rows, false)) {
+            for (ExcelFactoryType type : ExcelFactoryType.values())
+                assertParity(TestWorkbooks.beans(0, 20), file, type, true, true);
+        }
+    }
+
+    @Test
+    public void stopsAtTheFirstEmptyRowOrSkipsIt() throws Exception {
+        List<Object[]> rows = TestWorkbooks.rows(true, 0, 10);
+        rows.add(new Object[] { TestWorkbooks.BLANK, TestWorkbooks.BLANK, TestWorkbooks.BLANK });
+        rows.addAll(TestWorkbooks.rows(false, 10, 20));
+        for (File file : this.files(rows, false)) {
+            for (ExcelFactoryType type : ExcelFactoryType.values()) {
+                assertParity(TestWorkbooks.beans(0, 10), file, type, true, true);
+                assertParity(TestWorkbooks.beans(0, 20), file, type, true, false);
+            }
+        }
+    }
+
+    @Test
+    public void readsDatesOfThe1904DateSystem() throws Exception {
+        for (File file : this.files(TestWorkbooks.rows(true, 0, 30), true)) {
+            for (ExcelFactoryType type : ExcelFactoryType.values())
+                assertParity(TestWorkbooks.beans(0, 30), file, type, true, true);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.gizbel.excel.factory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Workbooks written by the tests.
+ */
+final class TestFiles {
+
+    static final String HEADER = "Name,Quantity,Price";
+
+    private TestFiles() {
+    }
+
+    /**
+     * Text of the record of an item, numbered from 0.
+     * @param i
+     * @return
+     */
+    static String record(int i) {
+        return "item" + i + "," + i + "," + (i * 1.5);
+    }
+
+    /**
+     * Expected bean of the record of the item, as a string.
+     * @param i
+     * @return
+     */
+    static String bean(int i) {
+        return new Item("item" + i, i, i * 1.5).toString();
+    }
+
+    /**
+     * Csv file with the header and the records of the items from first to
+     * last excluded.
+     * @param file
+     * @param first
+     * @param last
+     * @return
+     * @throws IOException
+     */
+    static File items(File file, int first, int last) throws IOException {
+        List<String> lines = new ArrayList<String>();
+        lines.add(HEADER);
+        for (int i = first; i < last; i++)
+            lines.add(record(i));
+        return write(file, lines);
+    }
+
+    static File write(File file, String... lines) throws IOException {
+        return write(file, Arrays.asList(lines));
+    }
+
+    static File write(File file, List<String> lines) throws IOException {
+        Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    /**
+     * The beans as strings.
+     * @param beans
+     * @return
+     */
+    static List<String> strings(List<?> beans) {
+        List<String> strings = new ArrayList<String>();
+        for (Object bean : beans)
+            strings.add(String.valueOf(bean));
+        return strings;
+    }
+
+    /**
+     * Expected beans of the items from first to last excluded.
+     * @param first
+     * @param last
+     * @return
+     */
+    static List<String> beans(int first, int last) {
+        List<String> beans = new ArrayList<String>();
+        for (int i = first; i < last; i++)
+            beans.add(bean(i));
+        return beans;
+    }
+}
@@ -0,0 +1,212 @@
+package com.gizbel.excel.factory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.poi.hssf.model.InternalWorkbook;
+import org.apache.poi.hssf.record.DateWindow1904Record;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTWorkbook;
+
+/**
+ * Xlsx and xls workbooks of Entry rows written by the tests.<br>
+ * A sheet is a list of rows, a row an array of cell values in column order:
+ * strings, numbers, booleans, LocalDates and LocalDateTimes written as date
+ * formatted serials, BLANK for a blank cell and null for no cell. A null row
+ * is left out of the sheet, an empty row. The sheets are named Sheet1,
+ * Sheet2...
+ */
+final class TestWorkbooks {
+
+    /** Value of a blank cell, a cell with a style and no value. **/
+    static final Object BLANK = new Object();
+
+    static final Object[] HEADER = { "Name", "Quantity", "Price", "Day", "Active", "Note" };
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2015, 1, 1);
+
+    private TestWorkbooks() {
+    }
+
+    /**
+     * Cells of the entry, numbered from 0. Every third entry has a blank
+     * note and every fourth a blank active flag, so that every twelfth ends
+     * with two blank cells.
+     * @param i
+     * @return
+     */
+    static Object[] row(int i) {
+        return new Object[] { "entry" + i, i, i * 1.25, FIRST_DAY.plusDays(i * 37), i % 4 == 0 ? BLANK : i % 2 == 1,
+                i % 3 == 0 ? BLANK : "note" + i % 5 };
+    }
+
+    /**
+     * Expected bean of the entry, as a string.
+     * @param i
+     * @return
+     */
+    static String bean(int i) {
+        return new Entry("entry" + i, i, i * 1.25, FIRST_DAY.plusDays(i * 37), i % 4 == 0 ? null : i % 2 == 1,
+                i % 3 == 0 ? null : "note" + i % 5).toString();
+    }
+
+    /**
+     * Expected beans of the entries from first to last excluded.
+     * @param first
+     * @param last
+     * @return
+     */
+    static List<String> beans(int first, int last) {
+        List<String> beans = new ArrayList<String>();
+        for (int i = first; i < last; i++)
+            beans.add(bean(i));
+        return beans;
+    }
+
+    /**
+     * Rows of the entries from first to last excluded, after the header row
+     * if asked.
+     * @param header
+     * @param first
+     * @param last
+     * @return
+     */
+    static List<Object[]> rows(boolean header, int first, int last) {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        if (header)
+            rows.add(HEADER);
+        for (int i = first; i < last; i++)
+            rows.add(row(i));
+        return rows;
+    }
+
+    /**
+     * Xlsx workbook of the sheets in the 1900 date system.
+     * @param file
+     * @param sharedStrings whether the strings go to the shared strings
+     *            table, else they are written inline
+     * @param sheets
+     * @return
+     * @throws IOException
+     */
+    @SafeVarargs
+    static File xlsx(File file, boolean sharedStrings, List<Object[]>... sheets) throws IOException {
+        return xlsx(file, sharedStrings, false, sheets);
+    }
+
+    @SafeVarargs
+    static File xlsx(File file, boolean sharedStrings, boolean date1904, List<Object[]>... sheets)
+            throws IOException {
+        XSSFWorkbook xssf = new XSSFWorkbook();
+        if (date1904) {
+            CTWorkbook workbook = xssf.getCTWorkbook();
+            (workbook.isSetWorkbookPr() ? workbook.getWorkbookPr() : workbook.addNewWorkbookPr()).setDate1904(true);
+        }
+        if (sharedStrings)
+            return write(xssf, file, date1904, sheets);
+        SXSSFWorkbook sxssf = new SXSSFWorkbook(xssf, SXSSFWorkbook.DEFAULT_WINDOW_SIZE, false, false);
+        try {
+            return write(sxssf, file, date1904, sheets);
+        } finally {
+            sxssf.dispose();
+        }
+    }
+
+    /**
+     * Xls workbook of the sheets in the 1900 date system.
+     * @param file
+     * @param sheets
+     * @return
+     * @throws IOException
+     */
+    @SafeVarargs
+    static File xls(File file, List<Object[]>... sheets) throws IOException {
+        return xls(file, false, sheets);
+    }
+
+    @SafeVarargs
+    static File xls(File file, boolean date1904, List<Object[]>... sheets) throws IOException {
+        HSSFWorkbook workbook = new HSSFWorkbook();
+        if (date1904) {
+            try {
+                // The usermodel has no setter for the date system
+                Method internal = HSSFWorkbook.class.getDeclaredMethod("getWorkbook");
+                internal.setAccessible(true);
+                DateWindow1904Record record = (DateWindow1904Record) ((InternalWorkbook) internal.invoke(workbook))
+                        .findFirstRecordBySid(DateWindow1904Record.sid);
+                record.setWindowing((short) 1);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return write(workbook, file, date1904, sheets);
+    }
+
+    @SafeVarargs
+    private static File write(Workbook workbook, File file, boolean date1904, List<Object[]>... sheets)
+            throws IOException {
+        CellStyle dateStyle = workbook.createCellStyle();
+        dateStyle.setDataFormat(workbook.createDataFormat().getFormat("dd-mm-yyyy"));
+        CellStyle dateTimeStyle = workbook.createCellStyle();
+        dateTimeStyle.setDataFormat(workbook.createDataFormat().getFormat("dd-mm-yyyy hh:mm"));
+        CellStyle blankStyle = workbook.createCellStyle();
+        blankStyle.setWrapText(true);
+        for (int s = 0; s < sheets.length; s++) {
+            Sheet sheet = workbook.createSheet("Sheet" + (s + 1));
+            List<Object[]> rows = sheets[s];
+            for (int r = 0; r < rows.size(); r++) {
+                Object[] values = rows.get(r);
+                if (values == null)
+                    continue;
+                Row row = sheet.createRow(r);
+                for (int c = 0; c < values.length; c++) {
+                    if (values[c] != null)
+                        setValue(row.createCell(c), values[c], date1904, dateStyle, dateTimeStyle, blankStyle);
+                }
+            }
+        }
+        OutputStream out = new FileOutputStream(file);
+        try {
+            workbook.write(out);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    private static void setValue(Cell cell, Object value, boolean date1904, CellStyle dateStyle,
+            CellStyle dateTimeStyle, CellStyle blankStyle) {
+        if (value == BLANK) {
+            cell.setCellStyle(blankStyle);
+        } else if (value instanceof String) {
+            cell.setCellValue((String) value);
+        } else if (value instanceof Number) {
+            cell.setCellValue(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            cell.setCellValue((Boolean) value);
+        } else if (value instanceof LocalDate) {
+            cell.setCellValue(DateUtil.getExcelDate(java.sql.Date.valueOf((LocalDate) value), date1904));
+            cell.setCellStyle(dateStyle);
+        } else if (value instanceof LocalDateTime) {
+            cell.setCellValue(DateUtil.getExcelDate(java.sql.Timestamp.valueOf((LocalDateTime) value), date1904));
+            cell.setCellStyle(dateTimeStyle);
+        } else {
+            throw new IllegalArgumentException("Unsupported cell value " + value);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.gizbel.excel.factory;
+
+import java.time.LocalDate;
+import java.util.Date;
+
+import com.gizbel.excel.annotations.ExcelBean;
+import com.gizbel.excel.annotations.ExcelColumnIndex;
+
+/**
+ * Bean with date fields parsed with the default pattern, as a java.util.Date
+ * and as a LocalDate.
+ */
+@ExcelBean
+public class Visit {
+
+    @ExcelColumnIndex(columnIndex = "0", dataType = "date")
+    private Date date;
+
+    @ExcelColumnIndex(columnIndex = "1")
+    private LocalDate day;
+
+    public Date getDate() {
+        return date;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    @Override
+    public String toString() {
+        return (date == null ? null : new java.sql.Date(date.getTime()).toLocalDate()) + "|" + day;
+    }
+}
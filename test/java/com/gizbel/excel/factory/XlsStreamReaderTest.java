@@ -0,0 +1,197 @@
+package com.gizbel.excel.factory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.poi.hssf.record.ContinueRecord;
+import org.apache.poi.hssf.record.MulBlankRecord;
+import org.apache.poi.hssf.record.RecordInputStream;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.poifs.filesystem.DocumentInputStream;
+import org.apache.poi.poifs.filesystem.NPOIFSFileSystem;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gizbel.excel.enums.ExcelFactoryType;
+
+/**
+ * XlsStreamReader decodes the cells of every sheet the way the HSSF
+ * usermodel does.
+ */
+public class XlsStreamReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Cells of the row as kind:text after its row number, date cells with
+     * their serial and date system. The workbook only finds out the date
+     * system at its first date cell.
+     */
+    private static String describe(RowBuffer row) {
+        StringBuilder cells = new StringBuilder();
+        cells.append(row.getRowNum());
+        for (int i = 0; i < row.getLastCellNum(); i++) {
+            cells.append(" ").append(row.getKind(i)).append(':').append(row.getText(i));
+            if (row.getKind(i) == RowBuffer.DATE)
+                cells.append('=').append(row.getNumber(i)).append(row.isDate1904() ? "/1904" : "/1900");
+        }
+        return cells.toString();
+    }
+
+    /**
+     * Rows of every sheet read through the record events.
+     */
+    private static List<List<String>> streamed(File file) throws Exception {
+        List<List<String>> sheets = new ArrayList<List<String>>();
+        XlsStreamReader reader = new XlsStreamReader(WorkbookSource.of(file), SharedStrings.DEFAULT_DISK_THRESHOLD,
+                SharedStrings.DEFAULT_CACHE_SIZE);
+        try {
+            for (int i = 0; i < reader.getSheetCount(); i++) {
+                final List<String> rows = new ArrayList<String>();
+                reader.readSheet(i, RowFilter.ALL, new RowCallback() {
+                    @Override
+                    public boolean onRow(RowBuffer row) throws Exception {
+                        rows.add(describe(row));
+                        return true;
+                    }
+                });
+                sheets.add(rows);
+            }
+        } finally {
+            reader.close();
+        }
+        return sheets;
+    }
+
+    /**
+     * Rows of every sheet read through the usermodel.
+     */
+    private static List<List<String>> loaded(File file) throws Exception {
+        List<List<String>> sheets = new ArrayList<List<String>>();
+        HSSFWorkbook workbook = (HSSFWorkbook) Parser.openWorkbook(WorkbookSource.of(file), FileFormat.XLS);
+        try {
+            WorkbookRowReader reader = new WorkbookRowReader(workbook);
+            RowBuffer buffer = new RowBuffer();
+            for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
+                Sheet sheet = workbook.getSheetAt(i);
+                List<String> rows = new ArrayList<String>();
+                for (Row row : sheet) {
+                    reader.read(row, buffer, RowFilter.ALL);
+                    rows.add(describe(buffer));
+                }
+                sheets.add(rows);
+            }
+        } finally {
+            workbook.close();
+        }
+        return sheets;
+    }
+
+    /**
+     * Sids of the records of the workbook stream.
+     */
+    private static List<Short> sids(File file) throws Exception {
+        List<Short> sids = new ArrayList<Short>();
+        NPOIFSFileSystem fs = new NPOIFSFileSystem(file, true);
+        try {
+            DocumentInputStream in = fs.createDocumentInputStream("Workbook");
+            RecordInputStream records = new RecordInputStream(in);
+            while (records.hasNextRecord()) {
+                records.nextRecord();
+                sids.add(records.getSid());
+                records.readRemainder();
+            }
+            in.close();
+        } finally {
+            fs.close();
+        }
+        return sids;
+    }
+
+    private static void assertSameRows(File file) throws Exception {
+        List<List<String>> loaded = loaded(file);
+        assertTrue(!loaded.isEmpty());
+        assertEquals(loaded, streamed(file));
+    }
+
+    @Test
+    public void readsEverySheetLikeTheWorkbook() throws Exception {
+        File file = TestWorkbooks.xls(this.folder.newFile("sheets.xls"), TestWorkbooks.rows(true, 0, 30),
+                TestWorkbooks.rows(false, 30, 50), TestWorkbooks.rows(true, 50, 51));
+
+        assertSameRows(file);
+        XlsStreamReader reader = new XlsStreamReader(WorkbookSource.of(file), SharedStrings.DEFAULT_DISK_THRESHOLD,
+                SharedStrings.DEFAULT_CACHE_SIZE);
+        try {
+            assertEquals(3, reader.getSheetCount());
+            assertEquals(Arrays.asList("Sheet1", "Sheet2", "Sheet3"),
+                    Arrays.asList(reader.getSheetName(0), reader.getSheetName(1), reader.getSheetName(2)));
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void readsSharedStringsSpanningContinueRecords() throws Exception {
+        List<Object[]> rows = TestWorkbooks.rows(true, 0, 2000);
+        // Strings split across records, in compressed and in 16 bit chars
+        char[] latin = new char[10000];
+        Arrays.fill(latin, 'x');
+        char[] wide = new char[10000];
+        Arrays.fill(wide, '€');
+        rows.add(new Object[] { new String(latin), 1, 1.0, LocalDate.of(2015, 1, 1), true, new String(wide) });
+        rows.add(new Object[] { "after" + new String(wide, 0, 3), 2, 2.0, LocalDate.of(2015, 1, 2), false, "last" });
+        File file = TestWorkbooks.xls(this.folder.newFile("strings.xls"), rows, TestWorkbooks.rows(true, 0, 3));
+
+        List<Short> sids = sids(file);
+        int sst = sids.indexOf(SSTRecord.sid);
+        assertEquals(ContinueRecord.sid, (short) sids.get(sst + 1));
+        assertSameRows(file);
+        Parser<Entry> parser = new Parser<Entry>(Entry.class, ExcelFactoryType.COLUMN_NAME_BASED_EXTRACTION);
+        parser.setStreaming(true);
+        List<String> beans = TestFiles.strings(parser.parse(file));
+        assertEquals(TestWorkbooks.beans(0, 2000), beans.subList(0, 2000));
+        assertEquals(new Entry("after€€€", 2, 2.0, LocalDate.of(2015, 1, 2), false, "last").toString(),
+                beans.get(2001));
+    }
+
+    @Test
+    public void readsBlankAndMulBlankCells() throws Exception {
+        List<Object[]> rows = TestWorkbooks.rows(true, 0, 30);
+        rows.add(new Object[] { "blanks", TestWorkbooks.BLANK, TestWorkbooks.BLANK, TestWorkbooks.BLANK, null,
+                TestWorkbooks.BLANK });
+        rows.add(new Object[] { TestWorkbooks.BLANK });
+        File file = TestWorkbooks.xls(this.folder.newFile("blanks.xls"), rows);
+
+        Set<Short> sids = new HashSet<Short>(sids(file));
+        assertTrue(sids.contains(MulBlankRecord.sid));
+        assertSameRows(file);
+        List<String> last = streamed(file).get(0);
+        assertEquals("31 4:blanks 0:null 0:null 0:null 0:null 0:null", last.get(31));
+        assertEquals("32 0:null", last.get(32));
+    }
+
+    @Test
+    public void readsDateCellsOfBothDateSystems() throws Exception {
+        File file1900 = TestWorkbooks.xls(this.folder.newFile("1900.xls"), TestWorkbooks.rows(true, 0, 30));
+        File file1904 = TestWorkbooks.xls(this.folder.newFile("1904.xls"), true, TestWorkbooks.rows(true, 0, 30));
+
+        assertSameRows(file1900);
+        assertSameRows(file1904);
+        assertEquals("1 4:entry0 1:0 1:0 2:01-01-2015=42005.0/1900 0:null 0:null", streamed(file1900).get(0).get(1));
+        assertEquals("1 4:entry0 1:0 1:0 2:01-01-2015=40543.0/1904 0:null 0:null", streamed(file1904).get(0).get(1));
+    }
+}